@@ -0,0 +1,151 @@
+package com.xu.news.config;
+
+import com.xu.news.job.JobHistoryCleanupJob;
+import com.xu.news.job.JobHistoryListener;
+import com.xu.news.job.ReindexJob;
+import com.xu.news.job.RssPollJob;
+import com.xu.news.job.RssReportJob;
+import com.xu.news.service.ClusterCoordinator;
+import com.xu.news.service.ReindexService;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.quartz.SchedulerFactoryBeanCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Date;
+
+/**
+ * Quartz jobs and triggers. The job store is JDBC (see spring.quartz in application.yml).
+ * <p>
+ * Quartz clustering is not used: it would run a trigger on whichever node picks it up,
+ * while feed polling is sharded per node by ClusterCoordinator. Instead each node runs its
+ * own scheduler, named after the node, on the shared tables. Node-local ticks (cluster
+ * heartbeat, outbox drain, in-memory index pruning) stay on @Scheduled.
+ */
+@Configuration
+public class QuartzConfig {
+    
+    public static final String GROUP = "xu-news";
+    
+    @Value("${app.rss.schedule.adaptive.tick-ms:60000}")
+    private long pollTickMs;
+    
+    @Value("${app.rss.schedule.cron:0 0 */6 * * *}")
+    private String reportCron;
+    
+    @Value("${app.jobs.history-cleanup-cron:0 30 3 * * ?}")
+    private String historyCleanupCron;
+    
+    @Bean
+    public SchedulerFactoryBeanCustomizer schedulerCustomizer(ClusterCoordinator clusterCoordinator,
+                                                              JobHistoryListener jobHistoryListener,
+                                                              @Value("${spring.quartz.scheduler-name:xu-news-rag}") String schedulerName) {
+        return factory -> {
+            factory.setSchedulerName(clusterCoordinator.isEnabled()
+                    ? schedulerName + "-" + clusterCoordinator.getNodeId()
+                    : schedulerName);
+            factory.setGlobalJobListeners(jobHistoryListener);
+        };
+    }
+    
+    @Bean
+    public JobDetail rssPollJobDetail() {
+        return JobBuilder.newJob(RssPollJob.class)
+                .withIdentity("rss-poll", GROUP)
+                .withDescription("Adaptive polling of due RSS feeds")
+                .storeDurably()
+                .build();
+    }
+    
+    /**
+     * Missed ticks are skipped, the next tick polls everything that became due meanwhile
+     */
+    @Bean
+    public Trigger rssPollTrigger(JobDetail rssPollJobDetail) {
+        return TriggerBuilder.newTrigger()
+                .forJob(rssPollJobDetail)
+                .withIdentity("rss-poll", GROUP)
+                .startAt(new Date(System.currentTimeMillis() + pollTickMs))
+                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
+                        .withIntervalInMilliseconds(pollTickMs)
+                        .repeatForever()
+                        .withMisfireHandlingInstructionNextWithRemainingCount())
+                .build();
+    }
+    
+    @Bean
+    public JobDetail rssReportJobDetail() {
+        return JobBuilder.newJob(RssReportJob.class)
+                .withIdentity("rss-report", GROUP)
+                .withDescription("Periodic RSS ingestion or ingestion report")
+                .storeDurably()
+                .requestRecovery()
+                .build();
+    }
+    
+    /**
+     * Missed runs are made up once, however many were missed
+     */
+    @Bean
+    public Trigger rssReportTrigger(JobDetail rssReportJobDetail) {
+        return TriggerBuilder.newTrigger()
+                .forJob(rssReportJobDetail)
+                .withIdentity("rss-report", GROUP)
+                .withSchedule(CronScheduleBuilder.cronSchedule(toQuartzCron(reportCron))
+                        .withMisfireHandlingInstructionFireAndProceed())
+                .build();
+    }
+    
+    @Bean
+    public JobDetail jobHistoryCleanupJobDetail() {
+        return JobBuilder.newJob(JobHistoryCleanupJob.class)
+                .withIdentity("job-history-cleanup", GROUP)
+                .withDescription("Delete old job history")
+                .storeDurably()
+                .build();
+    }
+    
+    @Bean
+    public Trigger jobHistoryCleanupTrigger(JobDetail jobHistoryCleanupJobDetail) {
+        return TriggerBuilder.newTrigger()
+                .forJob(jobHistoryCleanupJobDetail)
+                .withIdentity("job-history-cleanup", GROUP)
+                .withSchedule(CronScheduleBuilder.cronSchedule(toQuartzCron(historyCleanupCron))
+                        .withMisfireHandlingInstructionFireAndProceed())
+                .build();
+    }
+    
+    /**
+     * Triggered on demand only; recovery re-runs an execution interrupted by a crash
+     */
+    @Bean
+    public JobDetail reindexJobDetail() {
+        return JobBuilder.newJob(ReindexJob.class)
+                .withIdentity(ReindexService.JOB_NAME, GROUP)
+                .withDescription("Full knowledge base re-index from the database")
+                .storeDurably()
+                .requestRecovery()
+                .build();
+    }
+    
+    /**
+     * Accept Spring cron expressions with '*' in both day fields: Quartz needs '?' in one of them
+     */
+    static String toQuartzCron(String cron) {
+        String[] fields = cron.trim().split("\\s+");
+        if (fields.length >= 6 && !fields[3].equals("?") && !fields[5].equals("?")) {
+            if (fields[5].equals("*")) {
+                fields[5] = "?";
+            } else if (fields[3].equals("*")) {
+                fields[3] = "?";
+            }
+        }
+        return String.join(" ", fields);
+    }
+}
@@ -1,15 +1,104 @@
 package com.xu.news.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
+import java.time.Duration;
+
+/**
+ * HTTP clients. The Python service and Ollama each get a long-lived WebClient with its own
+ * connection pool, so connections are reused across requests and a slow or hung downstream
+ * can only exhaust its own pool. Pool gauges are published as reactor.netty.connection.provider.*
+ * tagged with the pool name.
+ */
 @Configuration
 public class WebClientConfig {
     
+    @Value("${app.http.pool.max-life-seconds:300}")
+    private long maxLifeSeconds;
+    
+    @Value("${app.http.pool.pending-acquire-timeout-ms:5000}")
+    private long pendingAcquireTimeoutMs;
+    
     @Bean
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
+    
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider pythonConnectionProvider(
+            @Value("${app.python.service.client.max-connections:32}") int maxConnections,
+            @Value("${app.python.service.client.max-idle-seconds:4}") long maxIdleSeconds) {
+        return connectionProvider("python", maxConnections, maxIdleSeconds);
+    }
+    
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider ollamaConnectionProvider(
+            @Value("${app.ollama.client.max-connections:8}") int maxConnections,
+            @Value("${app.ollama.client.max-idle-seconds:30}") long maxIdleSeconds) {
+        return connectionProvider("ollama", maxConnections, maxIdleSeconds);
+    }
+    
+    @Bean
+    public WebClient pythonWebClient(
+            ConnectionProvider pythonConnectionProvider,
+            @Value("${app.python.service.url}") String baseUrl,
+            @Value("${app.python.service.client.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${app.python.service.client.response-timeout-seconds:60}") long responseTimeoutSeconds,
+            @Value("${app.python.service.client.max-in-memory-size:16777216}") int maxInMemorySize) {
+        return webClient(pythonConnectionProvider, baseUrl, connectTimeoutMs, responseTimeoutSeconds, maxInMemorySize);
+    }
+    
+    @Bean
+    public WebClient ollamaWebClient(
+            ConnectionProvider ollamaConnectionProvider,
+            @Value("${app.ollama.url}") String baseUrl,
+            @Value("${app.ollama.client.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${app.ollama.client.response-timeout-seconds:180}") long responseTimeoutSeconds,
+            @Value("${app.ollama.client.max-in-memory-size:4194304}") int maxInMemorySize) {
+        return webClient(ollamaConnectionProvider, baseUrl, connectTimeoutMs, responseTimeoutSeconds, maxInMemorySize);
+    }
+    
+    /**
+     * Idle connections are closed before the server's keep-alive timeout would drop them
+     * under an in-flight request; callers waiting for a free connection fail after the
+     * pending-acquire timeout instead of queueing without bound.
+     */
+    private ConnectionProvider connectionProvider(String name, int maxConnections, long maxIdleSeconds) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxConnections * 4)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(maxIdleSeconds))
+                .maxLifeTime(Duration.ofSeconds(maxLifeSeconds))
+                .evictInBackground(Duration.ofSeconds(Math.max(1, maxIdleSeconds / 2)))
+                .metrics(true)
+                .build();
+    }
+    
+    /**
+     * The response timeout is the longest silence allowed while waiting for and reading a
+     * response, so it has to cover the downstream's slowest legitimate call
+     */
+    private static WebClient webClient(ConnectionProvider provider, String baseUrl, int connectTimeoutMs,
+                                       long responseTimeoutSeconds, int maxInMemorySize) {
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .compress(true)
+                .responseTimeout(Duration.ofSeconds(responseTimeoutSeconds));
+        
+        return WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize))
+                .build();
+    }
 }
-
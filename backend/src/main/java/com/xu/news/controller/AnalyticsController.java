@@ -2,12 +2,15 @@ package com.xu.news.controller;
 
 import com.xu.news.service.KnowledgeBaseService;
 import com.xu.news.service.PythonServiceClient;
+import com.xu.news.service.TopicClusterService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/analytics")
 @RequiredArgsConstructor
@@ -16,7 +19,12 @@ import org.springframework.web.bind.annotation.*;
 public class AnalyticsController {
     
     private final KnowledgeBaseService knowledgeBaseService;
+    private final TopicClusterService topicClusterService;
     
+    /**
+     * The nClusters largest topic clusters of the precomputed snapshot; until the first one
+     * exists, clusters computed on demand over the first 1000 articles
+     */
     @GetMapping("/clusters")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     public ResponseEntity<PythonServiceClient.ClusterResponse> getClusters(
@@ -24,13 +32,45 @@ public class AnalyticsController {
     ) {
         log.info("Getting cluster analysis with {} clusters", nClusters);
         try {
-            PythonServiceClient.ClusterResponse response = 
-                knowledgeBaseService.getClusterAnalysis(nClusters);
+            PythonServiceClient.ClusterResponse response = topicClusterService.getClusters(nClusters)
+                    .orElseGet(() -> knowledgeBaseService.getClusterAnalysis(nClusters));
             return ResponseEntity.ok(response);
         } catch (Exception e) {
             log.error("Failed to get cluster analysis", e);
             return ResponseEntity.status(500).build();
         }
     }
+    
+    /**
+     * State of the topic clusters snapshot
+     */
+    @GetMapping("/clusters/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getClusterStatus() {
+        return ResponseEntity.ok(topicClusterService.getStatus());
+    }
+    
+    /**
+     * Rebuild the topic clusters over the whole knowledge base in the background
+     */
+    @PostMapping("/clusters/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildClusters() {
+        if (!topicClusterService.isEnabled()) {
+            return ResponseEntity.status(409).body(Map.of(
+                    "status", "error",
+                    "message", "主题聚类未启用"
+            ));
+        }
+        if (!topicClusterService.startRebuild()) {
+            return ResponseEntity.status(409).body(Map.of(
+                    "status", "error",
+                    "message", "主题聚类正在重建中"
+            ));
+        }
+        return ResponseEntity.ok(Map.of(
+                "status", "success",
+                "message", "主题聚类重建已开始"
+        ));
+    }
 }
-
@@ -1,6 +1,13 @@
 package com.xu.news.controller;
 
+import com.xu.news.entity.FeedState;
+import com.xu.news.service.ClusterCoordinator;
 import com.xu.news.service.EmailService;
+import com.xu.news.service.FeedStateService;
+import com.xu.news.service.IngestionMetrics;
+import com.xu.news.service.IngestionStage;
+import com.xu.news.service.KnowledgeBaseIndexer;
+import com.xu.news.service.ReindexService;
 import com.xu.news.service.RssIngestionService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +29,11 @@ public class IngestionController {
     
     private final RssIngestionService rssIngestionService;
     private final EmailService emailService;
+    private final FeedStateService feedStateService;
+    private final KnowledgeBaseIndexer knowledgeBaseIndexer;
+    private final IngestionMetrics ingestionMetrics;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ReindexService reindexService;
     
     @Value("${app.email.from}")
     private String adminEmail;
@@ -50,7 +62,7 @@ public class IngestionController {
                     "ingestedCount", count,
                     "message", "成功入库 " + count + " 条新闻"
             ));
-            
+        
         } catch (Exception e) {
             log.error("RSS ingestion failed", e);
             return ResponseEntity.status(500).body(Map.of(
@@ -59,5 +71,107 @@ public class IngestionController {
             ));
         }
     }
+    
+    /**
+     * Per-feed conditional GET statistics (304 hits, full downloads, bytes saved)
+     */
+    @GetMapping("/feeds")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<FeedState>> getFeedStates() {
+        return ResponseEntity.ok(feedStateService.getAllFeedStates());
+    }
+    
+    /**
+     * Slowest and least productive feeds since startup
+     */
+    @GetMapping("/feeds/summary")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getFeedSummary(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(Map.of(
+                "slowest", ingestionMetrics.slowestFeeds(limit),
+                "leastProductive", ingestionMetrics.leastProductiveFeeds(limit)
+        ));
+    }
+    
+    /**
+     * Ingestion pipeline stages: queue depth, active batches and throughput
+     */
+    @GetMapping("/pipeline")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<IngestionStage.Stats>> getPipelineStats() {
+        return ResponseEntity.ok(rssIngestionService.getPipelineStats());
+    }
+    
+    /**
+     * Knowledge base indexing backlog: pending and previously failed outbox events
+     */
+    @GetMapping("/outbox")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(knowledgeBaseIndexer.getOutboxStats());
+    }
+    
+    /**
+     * Start a full knowledge base re-index from the database on this node, or resume the
+     * paused, failed or abandoned one; restart=true begins again from the first article
+     */
+    @PostMapping("/reindex")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> startReindex(@RequestParam(defaultValue = "false") boolean restart) {
+        try {
+            return ResponseEntity.ok(Map.of(
+                    "status", "success",
+                    "message", "重建索引已开始",
+                    "run", reindexService.start(restart)
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of(
+                    "status", "error",
+                    "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            log.error("Failed to start re-index", e);
+            return ResponseEntity.status(500).body(Map.of(
+                    "status", "error",
+                    "message", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * Pause the running re-index once the pages in flight are done
+     */
+    @PostMapping("/reindex/pause")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> pauseReindex() {
+        if (!reindexService.pause()) {
+            return ResponseEntity.status(409).body(Map.of(
+                    "status", "error",
+                    "message", "没有正在进行的重建索引"
+            ));
+        }
+        return ResponseEntity.ok(Map.of("status", "success", "message", "重建索引将在当前批次完成后暂停"));
+    }
+    
+    /**
+     * Progress of the latest re-index: checkpoint, counts, throughput and estimated time left
+     */
+    @GetMapping("/reindex")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Object> getReindexStatus() {
+        ReindexService.Status status = reindexService.getStatus();
+        if (status == null) {
+            return ResponseEntity.ok(Map.of("status", "none"));
+        }
+        return ResponseEntity.ok(status);
+    }
+    
+    /**
+     * Ingestion cluster: this node, the live nodes on the hash ring and all known node leases
+     */
+    @GetMapping("/cluster")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getClusterStatus() {
+        return ResponseEntity.ok(clusterCoordinator.getStatus());
+    }
 }
-
@@ -0,0 +1,64 @@
+package com.xu.news.controller;
+
+import com.xu.news.entity.JobRun;
+import com.xu.news.service.JobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.SchedulerException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+@RequiredArgsConstructor
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+@Slf4j
+public class JobController {
+    
+    private final JobService jobService;
+    
+    /**
+     * Scheduled jobs with their triggers, states and next fire times
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<JobService.JobInfo>> getJobs() throws SchedulerException {
+        return ResponseEntity.ok(jobService.listJobs());
+    }
+    
+    /**
+     * Execution history, newest first, optionally of a single job
+     */
+    @GetMapping("/history")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<JobRun>> getHistory(
+            @RequestParam(required = false) String job,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        PageRequest pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "firedAt"));
+        return ResponseEntity.ok(jobService.getHistory(job, pageable));
+    }
+    
+    /**
+     * Run a job now
+     */
+    @PostMapping("/{name}/trigger")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> triggerJob(@PathVariable String name) throws SchedulerException {
+        try {
+            jobService.triggerNow(name);
+            log.info("Job {} triggered manually", name);
+            return ResponseEntity.ok(Map.of("triggered", name));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
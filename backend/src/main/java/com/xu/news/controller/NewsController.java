@@ -3,8 +3,10 @@ package com.xu.news.controller;
 import com.xu.news.dto.NewsArticleDto;
 import com.xu.news.dto.UpdateArticleRequest;
 import com.xu.news.entity.NewsArticle;
+import com.xu.news.service.NewsSearchService;
 import com.xu.news.service.NewsService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
@@ -21,9 +23,11 @@ import java.util.Map;
 @RequestMapping("/api/news")
 @RequiredArgsConstructor
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001"})
+@Slf4j
 public class NewsController {
     
     private final NewsService newsService;
+    private final NewsSearchService newsSearchService;
     
     @GetMapping
     public ResponseEntity<Page<NewsArticleDto>> getArticles(
@@ -56,6 +60,32 @@ public class NewsController {
         return ResponseEntity.ok(dtoPage);
     }
     
+    /**
+     * Keyword search, ranked by relevance or newest first; pass the returned nextCursor to get the next page
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Object> search(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "relevance") String order
+    ) {
+        try {
+            return ResponseEntity.ok(newsSearchService.search(q, NewsSearchService.parseOrder(order), cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(Map.of(
+                    "status", "error",
+                    "message", e.getMessage()
+            ));
+        } catch (Exception e) {
+            log.error("Keyword search failed: {}", q, e);
+            return ResponseEntity.status(500).body(Map.of(
+                    "status", "error",
+                    "message", "搜索失败：" + e.getMessage()
+            ));
+        }
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<NewsArticleDto> getArticle(@PathVariable Long id) {
         return newsService.getArticleById(id)
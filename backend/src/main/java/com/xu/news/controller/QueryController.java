@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,6 +25,11 @@ public class QueryController {
     private final KnowledgeBaseService knowledgeBaseService;
     private final WebSearchService webSearchService;
     private final OllamaService ollamaService;
+    private final RetrievalCache retrievalCache;
+    private final AnswerCache answerCache;
+    private final LocalVectorIndex localVectorIndex;
+    private final LexicalIndex lexicalIndex;
+    private final DownstreamGuards downstreamGuards;
     
     private static final double MIN_SCORE_THRESHOLD = 0.5;
     
@@ -36,50 +42,14 @@ public class QueryController {
             List<SearchResultDto> results = new ArrayList<>();
             boolean fromWeb = false;
             
-            // Step 1: Search in knowledge base
-            if (request.getUseRerank()) {
-                // Search with reranking
-                List<PythonServiceClient.RerankResult> rerankResults = 
-                    knowledgeBaseService.searchWithRerank(request.getQuery(), 20, request.getTopK());
-                
-                // Check if results are good enough
-                boolean hasGoodResults = !rerankResults.isEmpty() && 
-                                        rerankResults.get(0).getScore() >= MIN_SCORE_THRESHOLD;
-                
-                if (hasGoodResults) {
-                    results = rerankResults.stream()
-                            .map(result -> SearchResultDto.builder()
-                                    .id(result.getId())
-                                    .title((String) result.getMetadata().get("title"))
-                                    .content(result.getText())
-                                    .score(result.getScore())
-                                    .url((String) result.getMetadata().get("url"))
-                                    .source((String) result.getMetadata().get("source"))
-                                    .metadata(result.getMetadata())
-                                    .build())
-                            .collect(Collectors.toList());
-                }
-            } else {
-                // Simple semantic search
-                List<PythonServiceClient.SearchResult> searchResults = 
-                    knowledgeBaseService.search(request.getQuery(), request.getTopK());
-                
-                boolean hasGoodResults = !searchResults.isEmpty() && 
-                                        searchResults.get(0).getScore() >= MIN_SCORE_THRESHOLD;
-                
-                if (hasGoodResults) {
-                    results = searchResults.stream()
-                            .map(result -> SearchResultDto.builder()
-                                    .id(result.getId())
-                                    .title((String) result.getMetadata().get("title"))
-                                    .content(result.getText())
-                                    .score(result.getScore())
-                                    .url((String) result.getMetadata().get("url"))
-                                    .source((String) result.getMetadata().get("source"))
-                                    .metadata(result.getMetadata())
-                                    .build())
-                            .collect(Collectors.toList());
-                }
+            // Step 1: Search in knowledge base; when that fails, e.g. because the Python
+            // service is down and its circuit is open, the web search may still answer
+            RuntimeException searchFailure = null;
+            try {
+                results = searchKnowledgeBase(request);
+            } catch (RuntimeException e) {
+                log.warn("Knowledge base search failed, trying the fallbacks: {}", e.toString());
+                searchFailure = e;
             }
             
             // Step 2: If no good results, try web search
@@ -101,6 +71,10 @@ public class QueryController {
                         .collect(Collectors.toList());
             }
             
+            if (results.isEmpty() && searchFailure != null) {
+                throw searchFailure;
+            }
+            
             // Step 3: Generate answer using LLM
             String answer = "";
             if (!results.isEmpty() && ollamaService.isAvailable()) {
@@ -126,7 +100,7 @@ public class QueryController {
                     .build();
             
             return ResponseEntity.ok(response);
-            
+        
         } catch (Exception e) {
             log.error("Query failed", e);
             return ResponseEntity.status(500)
@@ -140,9 +114,122 @@ public class QueryController {
         }
     }
     
+    /**
+     * Results of the knowledge base search in the requested mode; semantic results are only
+     * returned when the best one scores at least MIN_SCORE_THRESHOLD
+     */
+    private List<SearchResultDto> searchKnowledgeBase(QueryRequest request) {
+        List<SearchResultDto> results = new ArrayList<>();
+        QueryRequest.SearchMode mode = request.getMode() != null ? request.getMode() : QueryRequest.SearchMode.SEMANTIC;
+        if (mode != QueryRequest.SearchMode.SEMANTIC) {
+            // Keyword or hybrid search; BM25 and fused scores are not comparable to
+            // MIN_SCORE_THRESHOLD, any match counts
+            List<PythonServiceClient.SearchResult> searchResults = mode == QueryRequest.SearchMode.LEXICAL
+                    ? knowledgeBaseService.searchLexical(request.getQuery(), request.getTopK())
+                    : knowledgeBaseService.searchHybrid(request.getQuery(), request.getTopK(), request.getUseRerank());
+            results = searchResults.stream()
+                    .map(result -> SearchResultDto.builder()
+                            .id(result.getId())
+                            .title((String) result.getMetadata().get("title"))
+                            .content(result.getText())
+                            .score(result.getScore())
+                            .url((String) result.getMetadata().get("url"))
+                            .source((String) result.getMetadata().get("source"))
+                            .metadata(result.getMetadata())
+                            .build())
+                    .collect(Collectors.toList());
+        } else if (request.getUseRerank()) {
+            // Search with reranking
+            List<PythonServiceClient.RerankResult> rerankResults = 
+                knowledgeBaseService.searchWithRerank(request.getQuery(), request.getTopK());
+            
+            // Check if results are good enough
+            boolean hasGoodResults = !rerankResults.isEmpty() && 
+                                    rerankResults.get(0).getScore() >= MIN_SCORE_THRESHOLD;
+            
+            if (hasGoodResults) {
+                results = rerankResults.stream()
+                        .map(result -> SearchResultDto.builder()
+                                .id(result.getId())
+                                .title((String) result.getMetadata().get("title"))
+                                .content(result.getText())
+                                .score(result.getScore())
+                                .url((String) result.getMetadata().get("url"))
+                                .source((String) result.getMetadata().get("source"))
+                                .metadata(result.getMetadata())
+                                .build())
+                        .collect(Collectors.toList());
+            }
+        } else {
+            // Simple semantic search
+            List<PythonServiceClient.SearchResult> searchResults = 
+                knowledgeBaseService.search(request.getQuery(), request.getTopK());
+            
+            boolean hasGoodResults = !searchResults.isEmpty() && 
+                                    searchResults.get(0).getScore() >= MIN_SCORE_THRESHOLD;
+            
+            if (hasGoodResults) {
+                results = searchResults.stream()
+                        .map(result -> SearchResultDto.builder()
+                                .id(result.getId())
+                                .title((String) result.getMetadata().get("title"))
+                                .content(result.getText())
+                                .score(result.getScore())
+                                .url((String) result.getMetadata().get("url"))
+                                .source((String) result.getMetadata().get("source"))
+                                .metadata(result.getMetadata())
+                                .build())
+                        .collect(Collectors.toList());
+            }
+        }
+        return results;
+    }
+    
+    /**
+     * Hit ratios and sizes of the retrieval and answer caches
+     */
+    @GetMapping("/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(Map.of(
+                "retrieval", retrievalCache.getStats(),
+                "answer", answerCache.getStats()
+        ));
+    }
+    
+    @DeleteMapping("/cache")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> clearCache() {
+        retrievalCache.clear();
+        answerCache.clear();
+        return ResponseEntity.ok(Map.of("message", "检索缓存已清空"));
+    }
+    
+    /**
+     * Size and search parameters of the local vector index (app.vector.engine=local) and of the
+     * lexical index
+     */
+    @GetMapping("/index")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getIndexStats() {
+        return ResponseEntity.ok(Map.of(
+                "vector", localVectorIndex.getStats(),
+                "lexical", lexicalIndex.getStats()
+        ));
+    }
+    
+    /**
+     * Circuit breaker state, calls in flight and call outcomes of the Python service and Ollama
+     */
+    @GetMapping("/resilience")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getResilienceStats() {
+        return ResponseEntity.ok(downstreamGuards.getStats());
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Object> health() {
-        return ResponseEntity.ok(java.util.Map.of(
+        return ResponseEntity.ok(Map.of(
                 "ollama", ollamaService.isAvailable(),
                 "webSearch", webSearchService.isAvailable()
         ));
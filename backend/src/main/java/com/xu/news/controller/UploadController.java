@@ -1,7 +1,6 @@
 package com.xu.news.controller;
 
 import com.xu.news.entity.NewsArticle;
-import com.xu.news.service.KnowledgeBaseService;
 import com.xu.news.service.NewsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,7 +23,6 @@ import java.util.*;
 public class UploadController {
     
     private final NewsService newsService;
-    private final KnowledgeBaseService knowledgeBaseService;
     
     @PostMapping("/excel")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
@@ -34,14 +32,9 @@ public class UploadController {
         try {
             List<NewsArticle> articles = parseExcelFile(file);
             
-            // Save to database
+            // Save to database; embedding happens in the background via the indexing outbox
             List<NewsArticle> saved = newsService.saveArticles(articles);
             
-            // Add to knowledge base
-            if (!saved.isEmpty()) {
-                knowledgeBaseService.addArticlesToKnowledgeBase(saved);
-            }
-            
             return ResponseEntity.ok(Map.of(
                     "status", "success",
                     "count", saved.size(),
@@ -82,8 +75,6 @@ public class UploadController {
             NewsArticle saved = newsService.saveArticle(article);
             
             if (saved != null) {
-                knowledgeBaseService.addArticleToKnowledgeBase(saved);
-                
                 return ResponseEntity.ok(Map.of(
                         "status", "success",
                         "id", saved.getId(),
@@ -24,6 +24,7 @@ public class NewsArticleDto {
     private LocalDateTime publishedAt;
     private Set<String> tags;
     private NewsArticle.ContentType contentType;
+    private Long canonicalId;
     private LocalDateTime createdAt;
     
     public static NewsArticleDto fromEntity(NewsArticle article) {
@@ -38,6 +39,7 @@ public class NewsArticleDto {
                 .publishedAt(article.getPublishedAt())
                 .tags(article.getTags())
                 .contentType(article.getContentType())
+                .canonicalId(article.getCanonicalId())
                 .createdAt(article.getCreatedAt())
                 .build();
     }
@@ -0,0 +1,39 @@
+package com.xu.news.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NewsSearchResponse {
+    private String query;
+    private String order;
+    private List<Hit> results;
+    private String nextCursor;  // null on the last page
+    private Long tookMs;
+    
+    /**
+     * titleHighlight and snippet are escaped HTML with matches in mark elements
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+        private Long id;
+        private String title;
+        private String titleHighlight;
+        private String snippet;
+        private String source;
+        private String url;
+        private LocalDateTime publishedAt;
+        private Float rank;
+    }
+}
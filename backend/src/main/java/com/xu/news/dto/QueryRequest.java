@@ -1,9 +1,12 @@
 package com.xu.news.dto;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Locale;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -12,5 +15,20 @@ public class QueryRequest {
     private Integer topK = 5;
     private Boolean useRerank = true;
     private Boolean allowWebSearch = true;
+    private SearchMode mode = SearchMode.SEMANTIC;
+    
+    /**
+     * semantic: vector search; lexical: BM25 keyword search in the backend, no Python service
+     * call; hybrid: both, fused by reciprocal rank
+     */
+    public enum SearchMode {
+        SEMANTIC,
+        LEXICAL,
+        HYBRID;
+        
+        @JsonCreator
+        public static SearchMode of(String value) {
+            return value == null || value.isBlank() ? SEMANTIC : valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
 }
-
@@ -6,7 +6,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
-import java.util.Map;
 
 @Data
 @Builder
@@ -19,18 +18,3 @@ public class QueryResponse {
     private Boolean fromWeb;
     private Integer resultCount;
 }
-
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
-class SearchResultDto {
-    private String id;
-    private String title;
-    private String content;
-    private Double score;
-    private String url;
-    private String source;
-    private Map<String, Object> metadata;
-}
-
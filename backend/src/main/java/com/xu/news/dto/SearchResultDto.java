@@ -0,0 +1,22 @@
+package com.xu.news.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResultDto {
+    private String id;
+    private String title;
+    private String content;
+    private Double score;
+    private String url;
+    private String source;
+    private Map<String, Object> metadata;
+}
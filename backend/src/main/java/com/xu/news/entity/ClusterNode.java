@@ -0,0 +1,40 @@
+package com.xu.news.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A running backend instance. Nodes renew their lease with every heartbeat; a node whose
+ * lease has run out is considered dead and its feeds move to the remaining nodes.
+ */
+@Entity
+@Table(name = "cluster_nodes", indexes = {
+    @Index(name = "idx_cluster_node_lease", columnList = "lease_until")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClusterNode {
+    
+    @Id
+    @Column(name = "node_id", length = 128)
+    private String nodeId;
+    
+    @Column(name = "host_name")
+    private String hostName;
+    
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+    
+    @Column(name = "heartbeat_at", nullable = false)
+    private LocalDateTime heartbeatAt;
+    
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+}
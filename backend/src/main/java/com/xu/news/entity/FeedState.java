@@ -0,0 +1,102 @@
+package com.xu.news.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-feed polling state: HTTP cache validators, conditional GET statistics,
+ * the newest-item checkpoint and the adaptive polling schedule
+ */
+@Entity
+@Table(name = "feed_states")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeedState {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "feed_url", nullable = false, unique = true, length = 2048)
+    private String feedUrl;
+    
+    @Column(length = 512)
+    private String etag;
+    
+    @Column(name = "last_modified")
+    private String lastModified;  // Raw Last-Modified header, sent back verbatim
+    
+    @Column(name = "last_fetched_at")
+    private LocalDateTime lastFetchedAt;
+    
+    @Column(name = "last_content_length")
+    @Builder.Default
+    private Long lastContentLength = 0L;
+    
+    @Column(name = "not_modified_count", nullable = false)
+    @Builder.Default
+    private Long notModifiedCount = 0L;  // Cache hits (304)
+    
+    @Column(name = "modified_count", nullable = false)
+    @Builder.Default
+    private Long modifiedCount = 0L;  // Cache misses (full body downloaded)
+    
+    @Column(name = "bytes_saved", nullable = false)
+    @Builder.Default
+    private Long bytesSaved = 0L;  // Estimated from the last full body size
+    
+    @Column(name = "next_poll_at")
+    private LocalDateTime nextPollAt;
+    
+    @Column(name = "poll_interval_seconds")
+    private Long pollIntervalSeconds;
+    
+    @Column(name = "avg_item_interval_seconds")
+    private Double avgItemIntervalSeconds;  // Learned publish rate (EWMA of gaps between items)
+    
+    @Column(name = "checkpoint_key", length = 2048)
+    private String checkpointKey;  // guid / id / link of the newest item seen
+    
+    @Column(name = "checkpoint_published_at")
+    private LocalDateTime checkpointPublishedAt;  // Publish date of the newest item seen
+    
+    @Column(name = "newest_first")
+    private Boolean newestFirst;  // Whether the feed lists its newest items first
+    
+    // Defaults let ddl-auto add the columns to an existing feed_states table
+    @Column(name = "polls_since_full_parse", nullable = false, columnDefinition = "integer default 0")
+    @Builder.Default
+    private Integer pollsSinceFullParse = 0;
+    
+    @Column(name = "items_skipped", nullable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    private Long itemsSkipped = 0L;  // Items dropped by the checkpoint before dedup
+    
+    @Column(name = "consecutive_failures", nullable = false, columnDefinition = "integer default 0")
+    @Builder.Default
+    private Integer consecutiveFailures = 0;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
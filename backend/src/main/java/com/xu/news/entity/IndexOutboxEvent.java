@@ -0,0 +1,57 @@
+package com.xu.news.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pending knowledge base change for an article, written in the same transaction as the
+ * article change itself and drained by KnowledgeBaseIndexer
+ */
+@Entity
+@Table(name = "kb_index_outbox", indexes = {
+    @Index(name = "idx_outbox_next_attempt", columnList = "next_attempt_at"),
+    @Index(name = "idx_outbox_article", columnList = "article_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndexOutboxEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "article_id", nullable = false)
+    private Long articleId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Operation operation;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "leased_until")
+    private LocalDateTime leasedUntil;  // Set while an indexer batch holds the event
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    public enum Operation {
+        UPSERT,
+        DELETE
+    }
+}
@@ -0,0 +1,69 @@
+package com.xu.news.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One execution of a scheduled Quartz job, recorded by JobHistoryListener
+ */
+@Entity
+@Table(name = "job_runs", indexes = {
+    @Index(name = "idx_job_run_job", columnList = "job_name, fired_at"),
+    @Index(name = "idx_job_run_fired", columnList = "fired_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobRun {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "job_name", nullable = false, length = 200)
+    private String jobName;
+    
+    @Column(name = "trigger_name", length = 200)
+    private String triggerName;
+    
+    @Column(name = "scheduler_name", length = 120)
+    private String schedulerName;  // Node the job ran on
+    
+    @Column(name = "scheduled_at")
+    private LocalDateTime scheduledAt;
+    
+    @Column(name = "fired_at", nullable = false)
+    private LocalDateTime firedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    @Column(name = "duration_ms")
+    private Long durationMs;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean recovering = false;  // Re-run of an execution interrupted by a crash
+    
+    @Column(length = 1000)
+    private String result;
+    
+    @Column(length = 1000)
+    private String error;
+    
+    public enum Status {
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+}
@@ -14,7 +14,9 @@ import java.util.Set;
 @Table(name = "news_articles", indexes = {
     @Index(name = "idx_article_url", columnList = "url"),
     @Index(name = "idx_article_published", columnList = "publishedAt"),
-    @Index(name = "idx_article_source", columnList = "source")
+    @Index(name = "idx_article_source", columnList = "source"),
+    @Index(name = "idx_article_canonical", columnList = "canonical_id"),
+    @Index(name = "idx_article_updated", columnList = "updated_at, id")
 })
 @Data
 @Builder
@@ -35,6 +37,9 @@ public class NewsArticle {
     @Column(columnDefinition = "TEXT")
     private String summary;
     
+    @Column(name = "clean_text", columnDefinition = "TEXT")
+    private String cleanText;  // Content without markup and boilerplate, used for embedding
+    
     @Column(nullable = false, unique = true, length = 2048)
     private String url;
     
@@ -61,6 +66,12 @@ public class NewsArticle {
     @Column(name = "vector_id")
     private String vectorId;  // ChromaDB document ID
     
+    @Column(name = "simhash")
+    private Long simhash;  // Near-duplicate fingerprint of title + text
+    
+    @Column(name = "canonical_id")
+    private Long canonicalId;  // Set when this article is a near-duplicate of another one
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
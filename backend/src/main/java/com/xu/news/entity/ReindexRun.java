@@ -0,0 +1,85 @@
+package com.xu.news.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A full re-index of the knowledge base from news_articles and its checkpoint: every article
+ * with an id up to checkpointId has been sent, so a resumed run continues after it
+ */
+@Entity
+@Table(name = "reindex_runs", indexes = {
+    @Index(name = "idx_reindex_run_status", columnList = "status")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReindexRun {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+    
+    @Column(name = "node_id", length = 120)
+    private String nodeId;  // Node running or last running the re-index
+    
+    @Column(name = "up_to_id", nullable = false)
+    private Long upToId;  // Newest article when the run started; later ones come through the outbox
+    
+    @Column(name = "total_articles", nullable = false)
+    private Long totalArticles;
+    
+    @Column(name = "checkpoint_id", nullable = false)
+    @Builder.Default
+    private Long checkpointId = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long processed = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long indexed = 0L;
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long skipped = 0L;  // Near-duplicates, not embedded
+    
+    @Column(nullable = false)
+    @Builder.Default
+    private Long failed = 0L;  // Handed to the outbox for retry
+    
+    @Column(name = "active_ms", nullable = false)
+    @Builder.Default
+    private Long activeMs = 0L;  // Running time over all sessions, pauses excluded
+    
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+    
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    @Column(length = 1000)
+    private String error;
+    
+    public enum Status {
+        RUNNING,
+        PAUSED,
+        FAILED,
+        SUCCEEDED,
+        CANCELLED
+    }
+}
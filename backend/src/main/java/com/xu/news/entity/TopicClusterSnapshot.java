@@ -0,0 +1,60 @@
+package com.xu.news.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Topic clusters of the knowledge base: the centers fitted by a full rebuild and moved since by
+ * the articles assigned incrementally, with the keywords and size of each cluster. Every article
+ * with an id up to upToId has been taken into account.
+ */
+@Entity
+@Table(name = "topic_cluster_snapshots")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopicClusterSnapshot {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Version
+    private Long version;  // Nodes assigning the same new articles do not overwrite each other
+    
+    @Column(name = "cluster_count", nullable = false)
+    private Integer clusterCount;
+    
+    @Column(nullable = false)
+    private Integer dimension;
+    
+    @Column(nullable = false)
+    private byte[] centroids;  // clusterCount x dimension little-endian floats, cluster by cluster
+    
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String clusters;  // JSON [{cluster_id, keywords, count}], in centroid order
+    
+    @Column(name = "article_count", nullable = false)
+    private Long articleCount;
+    
+    @Column(name = "up_to_id", nullable = false)
+    private Long upToId;
+    
+    @Column(name = "node_id", length = 120)
+    private String nodeId;  // Node that ran the rebuild
+    
+    @Column(name = "build_ms", nullable = false)
+    private Long buildMs;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;  // End of the full rebuild
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;  // Last incremental assignment
+}
@@ -0,0 +1,23 @@
+package com.xu.news.job;
+
+import com.xu.news.service.JobService;
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Delete job history older than app.jobs.history-retention-days
+ */
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class JobHistoryCleanupJob extends QuartzJobBean {
+    
+    private final JobService jobService;
+    
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        int deleted = jobService.deleteOldHistory();
+        context.setResult("deleted " + deleted);
+    }
+}
@@ -0,0 +1,92 @@
+package com.xu.news.job;
+
+import com.xu.news.entity.JobRun;
+import com.xu.news.repository.JobRunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobListener;
+import org.quartz.SchedulerException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Records every Quartz job execution in job_runs. Failures to write history are logged and
+ * never affect the job itself.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JobHistoryListener implements JobListener {
+    
+    private static final String RUN_ID = "jobRunId";
+    private static final int MAX_TEXT = 1000;
+    
+    private final JobRunRepository jobRunRepository;
+    
+    @Override
+    public String getName() {
+        return "job-history";
+    }
+    
+    @Override
+    public void jobToBeExecuted(JobExecutionContext context) {
+        try {
+            JobRun run = jobRunRepository.save(JobRun.builder()
+                    .jobName(context.getJobDetail().getKey().getName())
+                    .triggerName(context.getTrigger().getKey().getName())
+                    .schedulerName(context.getScheduler().getSchedulerName())
+                    .scheduledAt(toLocalDateTime(context.getScheduledFireTime()))
+                    .firedAt(toLocalDateTime(context.getFireTime()))
+                    .status(JobRun.Status.RUNNING)
+                    .recovering(context.isRecovering())
+                    .build());
+            context.put(RUN_ID, run.getId());
+        } catch (SchedulerException | RuntimeException e) {
+            log.warn("Failed to record start of job {}", context.getJobDetail().getKey(), e);
+        }
+    }
+    
+    @Override
+    public void jobExecutionVetoed(JobExecutionContext context) {
+        // Nothing ran
+    }
+    
+    @Override
+    public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+        if (jobException != null) {
+            log.error("Job {} failed", context.getJobDetail().getKey(), jobException);
+        }
+        Object runId = context.get(RUN_ID);
+        if (!(runId instanceof Long id)) {
+            return;
+        }
+        try {
+            jobRunRepository.findById(id).ifPresent(run -> {
+                run.setFinishedAt(LocalDateTime.now());
+                run.setDurationMs(context.getJobRunTime());
+                run.setStatus(jobException == null ? JobRun.Status.SUCCEEDED : JobRun.Status.FAILED);
+                run.setResult(truncate(context.getResult() != null ? context.getResult().toString() : null));
+                if (jobException != null) {
+                    Throwable cause = jobException.getCause() != null ? jobException.getCause() : jobException;
+                    run.setError(truncate(cause.getClass().getSimpleName() + ": " + cause.getMessage()));
+                }
+                jobRunRepository.save(run);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to record end of job {}", context.getJobDetail().getKey(), e);
+        }
+    }
+    
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : null;
+    }
+    
+    private static String truncate(String text) {
+        return text != null && text.length() > MAX_TEXT ? text.substring(0, MAX_TEXT) : text;
+    }
+}
@@ -0,0 +1,23 @@
+package com.xu.news.job;
+
+import com.xu.news.service.ReindexService;
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Full knowledge base re-index, started from the admin API; has no trigger of its own.
+ * An execution interrupted by a crash is run again at startup and resumes from the checkpoint.
+ */
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class ReindexJob extends QuartzJobBean {
+    
+    private final ReindexService reindexService;
+    
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        context.setResult(reindexService.run());
+    }
+}
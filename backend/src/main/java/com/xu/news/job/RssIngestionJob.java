@@ -2,19 +2,21 @@ package com.xu.news.job;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.xu.news.service.ClusterCoordinator;
 import com.xu.news.service.EmailService;
+import com.xu.news.service.FeedStateService;
 import com.xu.news.service.RssIngestionService;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @RequiredArgsConstructor
@@ -23,6 +25,8 @@ public class RssIngestionJob {
     
     private final RssIngestionService rssIngestionService;
     private final EmailService emailService;
+    private final FeedStateService feedStateService;
+    private final ClusterCoordinator clusterCoordinator;
     
     @Value("${app.rss.feeds-file:../feeds.yaml}")
     private String feedsFile;
@@ -30,19 +34,65 @@ public class RssIngestionJob {
     @Value("${app.email.from}")
     private String adminEmail;
     
+    @Value("${app.rss.schedule.adaptive.enabled:true}")
+    private boolean adaptiveEnabled;
+    
+    /** Articles ingested by adaptive polls since the last notification */
+    private final AtomicInteger adaptiveIngestedCount = new AtomicInteger();
+    
     /**
-     * Scheduled RSS ingestion job
-     * Runs every 6 hours by default
+     * Adaptive polling tick, run by RssPollJob: fetch only the feeds whose next poll time has passed.
+     * Each feed's interval is learned from its publish rate (see FeedStateService).
+     * In a cluster every node polls only the feeds assigned to it.
+     *
+     * @return number of articles ingested
      */
-    @Scheduled(cron = "${app.rss.schedule.cron:0 0 */6 * * *}")
-    public void runRssIngestion() {
+    public int runAdaptiveIngestion() {
+        if (!adaptiveEnabled) {
+            return 0;
+        }
+        
+        List<String> feedUrls = clusterCoordinator.assignedFeeds(loadFeedUrls());
+        if (feedUrls.isEmpty()) {
+            return 0;
+        }
+        
+        List<String> dueFeeds = clusterCoordinator.claimDueFeeds(feedStateService.findDueFeeds(feedUrls));
+        if (dueFeeds.isEmpty()) {
+            return 0;
+        }
+        
+        log.info("Polling {} of {} RSS feeds", dueFeeds.size(), feedUrls.size());
+        int ingestedCount = rssIngestionService.ingestFromRssFeeds(dueFeeds);
+        adaptiveIngestedCount.addAndGet(ingestedCount);
+        return ingestedCount;
+    }
+    
+    /**
+     * Scheduled RSS ingestion, run by RssReportJob.
+     * Runs every 6 hours by default. With adaptive polling enabled the feeds are polled by
+     * runAdaptiveIngestion and this job only sends the notification for the period.
+     *
+     * @return number of articles ingested (or reported)
+     */
+    public int runRssIngestion() {
+        if (adaptiveEnabled) {
+            int ingestedCount = adaptiveIngestedCount.getAndSet(0);
+            log.info("Adaptive RSS polling ingested {} articles since the last report", ingestedCount);
+            if (ingestedCount > 0) {
+                String summary = String.format("成功抓取并入库 %d 条新闻", ingestedCount);
+                emailService.sendIngestionNotification(adminEmail, ingestedCount, summary);
+            }
+            return ingestedCount;
+        }
+        
         log.info("Starting scheduled RSS ingestion job");
         
         try {
-            List<String> feedUrls = loadFeedUrls();
+            List<String> feedUrls = clusterCoordinator.assignedFeeds(loadFeedUrls());
             if (feedUrls.isEmpty()) {
-                log.warn("No RSS feeds configured");
-                return;
+                log.warn("No RSS feeds configured or assigned to this node");
+                return 0;
             }
             
             log.info("Loaded {} RSS feeds", feedUrls.size());
@@ -56,8 +106,9 @@ public class RssIngestionJob {
                 String summary = String.format("成功抓取并入库 %d 条新闻", ingestedCount);
                 emailService.sendIngestionNotification(adminEmail, ingestedCount, summary);
             }
+            return ingestedCount;
             
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             log.error("RSS ingestion job failed", e);
             // Send error notification
             emailService.sendCustomNotification(
@@ -65,6 +116,7 @@ public class RssIngestionJob {
                 "RSS抓取任务失败",
                 "RSS新闻抓取任务执行失败：" + e.getMessage()
             );
+            throw e;
         }
     }
     
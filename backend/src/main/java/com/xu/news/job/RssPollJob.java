@@ -0,0 +1,23 @@
+package com.xu.news.job;
+
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Adaptive polling tick. Never runs twice at the same time on a node: a tick that outlasts
+ * the interval delays the next one instead of overlapping it.
+ */
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class RssPollJob extends QuartzJobBean {
+    
+    private final RssIngestionJob rssIngestionJob;
+    
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        int ingested = rssIngestionJob.runAdaptiveIngestion();
+        context.setResult("ingested " + ingested);
+    }
+}
@@ -0,0 +1,23 @@
+package com.xu.news.job;
+
+import lombok.RequiredArgsConstructor;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Periodic full ingestion, or only the ingestion notification when adaptive polling is on.
+ * A run missed while the application was down is made up once at startup.
+ */
+@DisallowConcurrentExecution
+@RequiredArgsConstructor
+public class RssReportJob extends QuartzJobBean {
+    
+    private final RssIngestionJob rssIngestionJob;
+    
+    @Override
+    protected void executeInternal(JobExecutionContext context) {
+        int ingested = rssIngestionJob.runRssIngestion();
+        context.setResult("ingested " + ingested);
+    }
+}
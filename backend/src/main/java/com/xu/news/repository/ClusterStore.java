@@ -0,0 +1,108 @@
+package com.xu.news.repository;
+
+import com.xu.news.entity.ClusterNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JDBC access to node coordination: node leases and per-feed poll claims.
+ * <p>
+ * All times are taken from the database clock, so clock skew between nodes does not shorten
+ * or stretch a lease.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClusterStore {
+    
+    private static final String HEARTBEAT_SQL =
+            "INSERT INTO cluster_nodes (node_id, host_name, started_at, heartbeat_at, lease_until) "
+                    + "VALUES (?, ?, LOCALTIMESTAMP, LOCALTIMESTAMP, LOCALTIMESTAMP + ? * INTERVAL '1 second') "
+                    + "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at, "
+                    + "lease_until = EXCLUDED.lease_until";
+    
+    private static final String LIVE_NODES_SQL =
+            "SELECT node_id FROM cluster_nodes WHERE lease_until > LOCALTIMESTAMP ORDER BY node_id";
+    
+    private static final String ALL_NODES_SQL =
+            "SELECT node_id, host_name, started_at, heartbeat_at, lease_until FROM cluster_nodes ORDER BY node_id";
+    
+    private static final String LEAVE_SQL = "DELETE FROM cluster_nodes WHERE node_id = ?";
+    
+    private static final String PURGE_SQL =
+            "DELETE FROM cluster_nodes WHERE lease_until < LOCALTIMESTAMP - ? * INTERVAL '1 second'";
+    
+    /** Pushes next_poll_at past the claim, so no other node picks the feed while it is polled */
+    private static final String CLAIM_FEEDS_SQL =
+            "UPDATE feed_states SET next_poll_at = LOCALTIMESTAMP + ? * INTERVAL '1 second' "
+                    + "WHERE feed_url = ANY (?) AND next_poll_at <= LOCALTIMESTAMP "
+                    + "RETURNING feed_url";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Register the node or renew its lease
+     */
+    public void heartbeat(String nodeId, String hostName, long leaseSeconds) {
+        jdbcTemplate.update(HEARTBEAT_SQL, nodeId, hostName, leaseSeconds);
+    }
+    
+    /**
+     * Ids of the nodes whose lease has not run out, sorted
+     */
+    public List<String> liveNodes() {
+        return jdbcTemplate.queryForList(LIVE_NODES_SQL, String.class);
+    }
+    
+    public List<ClusterNode> allNodes() {
+        return jdbcTemplate.query(ALL_NODES_SQL, (rs, rowNum) -> ClusterNode.builder()
+                .nodeId(rs.getString("node_id"))
+                .hostName(rs.getString("host_name"))
+                .startedAt(toLocalDateTime(rs.getTimestamp("started_at")))
+                .heartbeatAt(toLocalDateTime(rs.getTimestamp("heartbeat_at")))
+                .leaseUntil(toLocalDateTime(rs.getTimestamp("lease_until")))
+                .build());
+    }
+    
+    /**
+     * Give up the lease at shutdown so the other nodes take over right away
+     */
+    public void leave(String nodeId) {
+        jdbcTemplate.update(LEAVE_SQL, nodeId);
+    }
+    
+    /**
+     * Forget nodes that have been dead for longer than the given time
+     */
+    public int purge(long deadSeconds) {
+        return jdbcTemplate.update(PURGE_SQL, deadSeconds);
+    }
+    
+    /**
+     * Claim the due feeds among the given ones for the next claimSeconds; returns the claimed URLs.
+     * A feed that is already claimed or not due is left alone.
+     */
+    public List<String> claimDueFeeds(Collection<String> feedUrls, long claimSeconds) {
+        if (feedUrls.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(CLAIM_FEEDS_SQL);
+            Array urls = connection.createArrayOf("varchar", feedUrls.toArray());
+            ps.setLong(1, claimSeconds);
+            ps.setArray(2, urls);
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1));
+    }
+    
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.xu.news.repository;
+
+import com.xu.news.entity.FeedState;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FeedStateRepository extends JpaRepository<FeedState, Long> {
+    
+    Optional<FeedState> findByFeedUrl(String feedUrl);
+    
+    List<FeedState> findByFeedUrlIn(Collection<String> feedUrls);
+}
@@ -0,0 +1,120 @@
+package com.xu.news.repository;
+
+import com.xu.news.entity.IndexOutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC access to the knowledge base outbox.
+ * <p>
+ * Events are enqueued inside the caller's transaction. The indexer claims them by setting
+ * leased_until, so a batch that dies mid-way is simply picked up again once the lease runs
+ * out, and concurrent indexers never claim the same rows or work on the same article. The
+ * advisory locks taken while claiming use the article id as key and end with the claim.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IndexOutboxStore {
+    
+    private static final String INSERT_SQL =
+            "INSERT INTO kb_index_outbox (article_id, operation, attempts, next_attempt_at, created_at) "
+                    + "VALUES (?, ?, 0, ?, ?)";
+    
+    /**
+     * Claims all unleased events of the articles behind the oldest due events, so they coalesce
+     * into one call. Articles are picked first, one row each, and only those whose transaction
+     * advisory lock is free are updated: two claimers therefore never lock rows of the same
+     * article, which row locks on single events could not prevent once an article has several
+     * pending events. Articles with an event leased by another indexer are left alone, and the
+     * outer condition skips rows leased by a concurrent claim that committed in the meantime.
+     */
+    private static final String CLAIM_SQL =
+            "WITH due AS MATERIALIZED ("
+                    + "SELECT d.article_id FROM ("
+                    + "SELECT DISTINCT ON (o.article_id) o.article_id, o.id FROM kb_index_outbox o "
+                    + "WHERE o.next_attempt_at <= ? "
+                    + "AND NOT EXISTS (SELECT 1 FROM kb_index_outbox l "
+                    + "WHERE l.article_id = o.article_id AND l.leased_until >= ?) "
+                    + "ORDER BY o.article_id, o.id) d "
+                    + "ORDER BY d.id LIMIT ?), "
+                    + "locked AS MATERIALIZED ("
+                    + "SELECT article_id FROM due WHERE pg_try_advisory_xact_lock(article_id)) "
+                    + "UPDATE kb_index_outbox SET leased_until = ? "
+                    + "WHERE article_id IN (SELECT article_id FROM locked) "
+                    + "AND (leased_until IS NULL OR leased_until < ?) "
+                    + "RETURNING id, article_id, operation, attempts, created_at";
+    
+    private static final String DELETE_SQL = "DELETE FROM kb_index_outbox WHERE id = ?";
+    
+    private static final String FAIL_SQL =
+            "UPDATE kb_index_outbox SET attempts = attempts + 1, next_attempt_at = ?, last_error = ?, "
+                    + "leased_until = NULL WHERE id = ?";
+    
+    private static final String STATS_SQL =
+            "SELECT COUNT(*) AS pending, COUNT(*) FILTER (WHERE attempts > 0) AS failing, "
+                    + "MIN(created_at) AS oldest FROM kb_index_outbox";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Record a pending knowledge base change for each article, in the current transaction
+     */
+    public void enqueue(Collection<Long> articleIds, IndexOutboxEvent.Operation operation) {
+        if (articleIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, articleIds, articleIds.size(), (ps, articleId) -> {
+            ps.setLong(1, articleId);
+            ps.setString(2, operation.name());
+            ps.setTimestamp(3, now);
+            ps.setTimestamp(4, now);
+        });
+    }
+    
+    /**
+     * Claim the events of up to limit articles with due events until leaseUntil
+     */
+    public List<IndexOutboxEvent> claim(int limit, LocalDateTime leaseUntil) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> IndexOutboxEvent.builder()
+                        .id(rs.getLong("id"))
+                        .articleId(rs.getLong("article_id"))
+                        .operation(IndexOutboxEvent.Operation.valueOf(rs.getString("operation")))
+                        .attempts(rs.getInt("attempts"))
+                        .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                        .build(),
+                now, now, limit, Timestamp.valueOf(leaseUntil), now);
+    }
+    
+    public void complete(Collection<Long> eventIds) {
+        jdbcTemplate.batchUpdate(DELETE_SQL, eventIds, eventIds.size(), (ps, id) -> ps.setLong(1, id));
+    }
+    
+    /**
+     * Release claimed events for another attempt at nextAttemptAt
+     */
+    public void fail(Collection<Long> eventIds, LocalDateTime nextAttemptAt, String error) {
+        Timestamp next = Timestamp.valueOf(nextAttemptAt);
+        String message = error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+        jdbcTemplate.batchUpdate(FAIL_SQL, eventIds, eventIds.size(), (ps, id) -> {
+            ps.setTimestamp(1, next);
+            ps.setString(2, message);
+            ps.setLong(3, id);
+        });
+    }
+    
+    /**
+     * Number of pending events, how many of them have failed before and the oldest creation time
+     */
+    public Map<String, Object> stats() {
+        return jdbcTemplate.queryForMap(STATS_SQL);
+    }
+}
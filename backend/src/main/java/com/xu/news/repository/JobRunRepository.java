@@ -0,0 +1,24 @@
+package com.xu.news.repository;
+
+import com.xu.news.entity.JobRun;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobRunRepository extends JpaRepository<JobRun, Long> {
+    
+    Page<JobRun> findByJobName(String jobName, Pageable pageable);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM JobRun r WHERE r.firedAt < :before")
+    int deleteFiredBefore(@Param("before") LocalDateTime before);
+}
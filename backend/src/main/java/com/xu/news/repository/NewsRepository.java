@@ -4,11 +4,14 @@ import com.xu.news.entity.NewsArticle;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +22,75 @@ public interface NewsRepository extends JpaRepository<NewsArticle, Long> {
     
     boolean existsByUrl(String url);
     
+    @Query("SELECT a.url FROM NewsArticle a WHERE a.url IN :urls")
+    List<String> findExistingUrls(@Param("urls") Collection<String> urls);
+    
+    /**
+     * Keyset page of (id, url) pairs ordered by id
+     */
+    @Query("SELECT a.id, a.url FROM NewsArticle a WHERE a.id > :afterId ORDER BY a.id")
+    List<Object[]> findUrlsAfterId(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Keyset page of (id, simhash, createdAt) for canonical articles created since the given time
+     */
+    @Query("SELECT a.id, a.simhash, a.createdAt FROM NewsArticle a "
+            + "WHERE a.id > :afterId AND a.simhash IS NOT NULL AND a.canonicalId IS NULL "
+            + "AND a.createdAt >= :since ORDER BY a.id")
+    List<Object[]> findCanonicalSimhashesAfterId(
+        @Param("afterId") Long afterId,
+        @Param("since") LocalDateTime since,
+        Pageable pageable
+    );
+    
+    /**
+     * Near-duplicates linked to the given canonical article, oldest first
+     */
+    List<NewsArticle> findByCanonicalIdOrderByCreatedAtAscIdAsc(Long canonicalId);
+    
+    /**
+     * Keyset page of (id, title, vectorId, createdAt) for canonical articles, the ones embedded
+     * in the knowledge base; vectorId is null until the article has been indexed
+     */
+    @Query("SELECT a.id, a.title, a.vectorId, a.createdAt FROM NewsArticle a "
+            + "WHERE a.id > :afterId AND a.canonicalId IS NULL ORDER BY a.id")
+    List<Object[]> findCanonicalTitlesAfterId(@Param("afterId") Long afterId, Pageable pageable);
+    
+    /**
+     * Keyset page of whole articles ordered by id
+     */
+    List<NewsArticle> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+    
+    @Query("SELECT MAX(a.id) FROM NewsArticle a")
+    Long findMaxId();
+    
+    long countByIdLessThanEqual(Long id);
+    
+    /**
+     * Keyset page of articles changed after the given (updatedAt, id) position
+     */
+    @Query("SELECT a FROM NewsArticle a WHERE a.updatedAt > :since "
+            + "OR (a.updatedAt = :since AND a.id > :afterId) ORDER BY a.updatedAt, a.id")
+    List<NewsArticle> findUpdatedAfter(
+        @Param("since") LocalDateTime since,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
+    
+    /**
+     * Record the ChromaDB document ID of articles that have been embedded
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsArticle a SET a.vectorId = CAST(a.id AS String) "
+            + "WHERE a.id IN :ids AND a.vectorId IS NULL")
+    int markIndexed(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE NewsArticle a SET a.vectorId = NULL WHERE a.id IN :ids AND a.vectorId IS NOT NULL")
+    int clearVectorIds(@Param("ids") Collection<Long> ids);
+    
     Page<NewsArticle> findByContentType(NewsArticle.ContentType contentType, Pageable pageable);
     
     Page<NewsArticle> findByPublishedAtBetween(LocalDateTime start, LocalDateTime end, Pageable pageable);
@@ -0,0 +1,102 @@
+package com.xu.news.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC access to PostgreSQL full-text search over news_articles.
+ * <p>
+ * The search_vector column is generated by the database from title (weight A), summary (B)
+ * and text (C), see db/search/news_search_postgres.sql, and indexed with GIN. A page is
+ * selected and ranked first; headlines, the expensive part, are only computed for the rows
+ * of that page.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NewsSearchStore {
+    
+    private static final String SCHEMA_SCRIPT = "db/search/news_search_postgres.sql";
+    
+    /**
+     * Matches and ranks; ts_rank normalization 1 divides by the log of the document length.
+     * Near-duplicates are left out, their canonical article stands for the story.
+     */
+    private static final String MATCHES =
+            "WITH q AS (SELECT websearch_to_tsquery('simple', ?) AS query), "
+                    + "matches AS (SELECT a.id, ts_rank(a.search_vector, q.query, 1) AS rank "
+                    + "FROM news_articles a, q WHERE a.search_vector @@ q.query AND a.canonical_id IS NULL), ";
+    
+    /** Headlines of the page rows; text beyond the first 20000 characters is not quoted */
+    private static final String PAGE_ROWS =
+            "SELECT p.id, p.rank, a.title, a.source, a.url, a.published_at, "
+                    + "ts_headline('simple', news_search_spaced(a.title), q.query, ?) AS title_highlight, "
+                    + "ts_headline('simple', news_search_spaced(left(coalesce(a.clean_text, a.content, a.summary), 20000)), "
+                    + "q.query, ?) AS snippet "
+                    + "FROM page p JOIN news_articles a ON a.id = p.id CROSS JOIN q ";
+    
+    private static final String SEARCH_BY_RANK_SQL = MATCHES
+            + "page AS (SELECT id, rank FROM matches WHERE rank < ? OR (rank = ? AND id < ?) "
+            + "ORDER BY rank DESC, id DESC LIMIT ?) "
+            + PAGE_ROWS + "ORDER BY p.rank DESC, p.id DESC";
+    
+    private static final String SEARCH_BY_ID_SQL = MATCHES
+            + "page AS (SELECT id, rank FROM matches WHERE id < ? ORDER BY id DESC LIMIT ?) "
+            + PAGE_ROWS + "ORDER BY p.id DESC";
+    
+    private static final RowMapper<Match> MATCH_MAPPER = (rs, rowNum) -> new Match(
+            rs.getLong("id"),
+            rs.getFloat("rank"),
+            rs.getString("title"),
+            rs.getString("source"),
+            rs.getString("url"),
+            toLocalDateTime(rs.getTimestamp("published_at")),
+            rs.getString("title_highlight"),
+            rs.getString("snippet"));
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * A matching article with its rank and the raw ts_headline output for title and text
+     */
+    public record Match(long id, float rank, String title, String source, String url, LocalDateTime publishedAt,
+                        String titleHighlight, String snippet) {
+    }
+    
+    /**
+     * Create the generated search column, its GIN index and the helper function if missing.
+     * Each statement runs in its own auto-committed transaction, as CREATE INDEX CONCURRENTLY
+     * requires.
+     */
+    public void createSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT)).execute(jdbcTemplate.getDataSource());
+    }
+    
+    /**
+     * Best-ranked matches after the (rank, id) position, i.e. rank below afterRank or equal to
+     * it with a lower id; pass +Infinity and Long.MAX_VALUE for the first page
+     */
+    public List<Match> searchByRank(String query, float afterRank, long afterId, int limit,
+                                    String titleOptions, String snippetOptions) {
+        return jdbcTemplate.query(SEARCH_BY_RANK_SQL, MATCH_MAPPER,
+                query, afterRank, afterRank, afterId, limit, titleOptions, snippetOptions);
+    }
+    
+    /**
+     * Newest matches, by id, below afterId
+     */
+    public List<Match> searchById(String query, long afterId, int limit, String titleOptions, String snippetOptions) {
+        return jdbcTemplate.query(SEARCH_BY_ID_SQL, MATCH_MAPPER, query, afterId, limit, titleOptions, snippetOptions);
+    }
+    
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.xu.news.repository;
+
+import com.xu.news.entity.ReindexRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface ReindexRunRepository extends JpaRepository<ReindexRun, Long> {
+    
+    Optional<ReindexRun> findFirstByOrderByIdDesc();
+    
+    Optional<ReindexRun> findFirstByStatusInOrderByIdDesc(Collection<ReindexRun.Status> statuses);
+    
+    Optional<ReindexRun> findFirstByStatusAndNodeIdOrderByIdDesc(ReindexRun.Status status, String nodeId);
+    
+    /**
+     * Advance the checkpoint of a running re-index; 0 when it has been paused or cancelled meanwhile
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReindexRun r SET r.checkpointId = :checkpointId, r.processed = r.processed + :processed, "
+            + "r.indexed = r.indexed + :indexed, r.skipped = r.skipped + :skipped, r.failed = r.failed + :failed, "
+            + "r.activeMs = :activeMs, r.heartbeatAt = :now "
+            + "WHERE r.id = :id AND r.status = com.xu.news.entity.ReindexRun.Status.RUNNING")
+    int checkpoint(
+        @Param("id") Long id,
+        @Param("checkpointId") Long checkpointId,
+        @Param("processed") long processed,
+        @Param("indexed") long indexed,
+        @Param("skipped") long skipped,
+        @Param("failed") long failed,
+        @Param("activeMs") long activeMs,
+        @Param("now") LocalDateTime now
+    );
+    
+    /**
+     * Move a run from one status to another; 0 when it was not in the expected status
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReindexRun r SET r.status = :status, r.finishedAt = :finishedAt, r.error = :error "
+            + "WHERE r.id = :id AND r.status = :expected")
+    int transition(
+        @Param("id") Long id,
+        @Param("expected") ReindexRun.Status expected,
+        @Param("status") ReindexRun.Status status,
+        @Param("finishedAt") LocalDateTime finishedAt,
+        @Param("error") String error
+    );
+}
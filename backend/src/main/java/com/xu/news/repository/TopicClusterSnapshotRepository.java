@@ -0,0 +1,34 @@
+package com.xu.news.repository;
+
+import com.xu.news.entity.TopicClusterSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TopicClusterSnapshotRepository extends JpaRepository<TopicClusterSnapshot, Long> {
+    
+    Optional<TopicClusterSnapshot> findFirstByOrderByIdDesc();
+    
+    /**
+     * (id, version) of the latest snapshot, to notice changes by other nodes without reading the centroids
+     */
+    @Query("SELECT s.id, s.version FROM TopicClusterSnapshot s WHERE s.id = "
+            + "(SELECT MAX(t.id) FROM TopicClusterSnapshot t)")
+    List<Object[]> findLatestVersion();
+    
+    /**
+     * Delete all but the newest keep snapshots
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM topic_cluster_snapshots WHERE id NOT IN "
+            + "(SELECT id FROM topic_cluster_snapshots ORDER BY id DESC LIMIT :keep)", nativeQuery = true)
+    int deleteAllButLatest(@Param("keep") int keep);
+}
@@ -0,0 +1,46 @@
+package com.xu.news.service;
+
+import java.util.List;
+
+/**
+ * Decides from the first-stage similarity scores how much reranking a query needs.
+ * <p>
+ * The cross-encoder only matters for which candidates make the cut and in which order. When
+ * the last kept candidate scores at least skipGap above the first dropped one, the cut is
+ * already clear and only the kept candidates are reranked, which still gives them
+ * cross-encoder scores and order. When all candidates lie within flatSpread of each
+ * other, the first stage cannot tell them apart and relevant documents may sit just beyond the
+ * list, so more candidates are fetched and reranked.
+ */
+final class AdaptiveRerank {
+    
+    enum Action {
+        SKIP,
+        RERANK,
+        WIDEN
+    }
+    
+    /**
+     * What to do and how many candidates to rerank
+     */
+    record Plan(Action action, int depth) {
+    }
+    
+    private AdaptiveRerank() {
+    }
+    
+    /**
+     * Plan for the first-stage scores of the fetched candidates, best first. fetched is the
+     * number asked for: a full list may have more candidates behind it, up to maxDepth.
+     */
+    static Plan plan(List<Double> scores, int topK, int fetched, int maxDepth, double skipGap, double flatSpread) {
+        int size = scores.size();
+        if (topK > 0 && size > topK && scores.get(topK - 1) - scores.get(topK) >= skipGap) {
+            return new Plan(Action.SKIP, 0);
+        }
+        if (size >= fetched && maxDepth > size && size > 1 && scores.get(0) - scores.get(size - 1) < flatSpread) {
+            return new Plan(Action.WIDEN, maxDepth);
+        }
+        return new Plan(Action.RERANK, size);
+    }
+}
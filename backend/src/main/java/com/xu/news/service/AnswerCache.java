@@ -0,0 +1,265 @@
+package com.xu.news.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Cache of generated LLM answers.
+ * <p>
+ * The key is a SHA-256 fingerprint of the model, the kind of prompt, the normalized question and
+ * the ordered context texts, which is everything the prompt is built from. The same question
+ * over the same retrieved context is answered from memory (LRU, app.ollama.answer-cache.*);
+ * with the disk tier enabled answers also survive restarts and memory evictions, stored as
+ * one file per key under app.ollama.answer-cache.disk.dir and pruned by age and count.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnswerCache {
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.ollama.answer-cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.ollama.answer-cache.max-entries:500}")
+    private int maxEntries;
+    
+    @Value("${app.ollama.answer-cache.ttl-seconds:86400}")
+    private long ttlSeconds;
+    
+    @Value("${app.ollama.answer-cache.disk.enabled:false}")
+    private boolean diskEnabled;
+    
+    @Value("${app.ollama.answer-cache.disk.dir:./data/answer-cache}")
+    private String diskDir;
+    
+    @Value("${app.ollama.answer-cache.disk.ttl-hours:168}")
+    private long diskTtlHours;
+    
+    @Value("${app.ollama.answer-cache.disk.max-entries:20000}")
+    private int diskMaxEntries;
+    
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private LruCache<String, String> memory;
+    private Path directory;
+    
+    @PostConstruct
+    void createCache() {
+        memory = new LruCache<>(maxEntries, ttlSeconds * 1000);
+        if (diskEnabled) {
+            directory = Paths.get(diskDir).toAbsolutePath().normalize();
+            try {
+                Files.createDirectories(directory);
+                log.info("Answer cache disk tier at {}", directory);
+            } catch (IOException e) {
+                log.warn("Cannot create answer cache directory {}, disk tier disabled", directory, e);
+                directory = null;
+            }
+        }
+        FunctionCounter.builder("cache.gets", memoryHits, LongAdder::sum)
+                .tag("cache", "answer").tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", diskHits, LongAdder::sum)
+                .tag("cache", "answer").tag("result", "disk_hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", "answer").tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", memory, LruCache::size)
+                .tag("cache", "answer")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Fingerprint of everything a generated answer depends on
+     */
+    static String key(String model, String kind, String query, List<String> contexts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, model);
+            update(digest, kind);
+            update(digest, RetrievalCache.normalize(query));
+            for (String context : contexts) {
+                update(digest, context);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Length-prefixed, so no two different part lists produce the same byte stream
+     */
+    private static void update(MessageDigest digest, String part) {
+        byte[] bytes = (part != null ? part : "").getBytes(StandardCharsets.UTF_8);
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+    
+    /**
+     * The cached answer, or null
+     */
+    public String get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        String answer = memory.get(key);
+        if (answer != null) {
+            memoryHits.increment();
+            return answer;
+        }
+        answer = readFromDisk(key);
+        if (answer != null) {
+            diskHits.increment();
+            memory.put(key, answer);
+            return answer;
+        }
+        misses.increment();
+        return null;
+    }
+    
+    public void put(String key, String answer) {
+        if (!enabled || answer == null || answer.isBlank()) {
+            return;
+        }
+        memory.put(key, answer);
+        writeToDisk(key, answer);
+    }
+    
+    private Path fileOf(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + ".txt");
+    }
+    
+    private String readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = fileOf(key);
+        try {
+            if (!Files.exists(file) || isExpired(Files.getLastModifiedTime(file))) {
+                return null;
+            }
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.debug("Failed to read cached answer {}", file, e);
+            return null;
+        }
+    }
+    
+    /**
+     * Written to a temporary file and moved into place, so readers never see a partial answer
+     */
+    private void writeToDisk(String key, String answer) {
+        if (directory == null) {
+            return;
+        }
+        Path file = fileOf(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(temp, answer, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write cached answer {}", file, e);
+        }
+    }
+    
+    private boolean isExpired(FileTime modified) {
+        return modified.toInstant().isBefore(Instant.now().minus(Duration.ofHours(diskTtlHours)));
+    }
+    
+    /**
+     * Delete expired answers and, beyond app.ollama.answer-cache.disk.max-entries, the oldest ones
+     */
+    @Scheduled(fixedDelayString = "${app.ollama.answer-cache.disk.prune-interval-ms:3600000}",
+            initialDelayString = "${app.ollama.answer-cache.disk.prune-interval-ms:3600000}")
+    public void pruneDisk() {
+        if (directory != null) {
+            prune(diskMaxEntries);
+        }
+    }
+    
+    private void prune(int keep) {
+        List<Map.Entry<Path, FileTime>> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(directory, 2)) {
+            paths.filter(Files::isRegularFile).forEach(path -> {
+                try {
+                    files.add(Map.entry(path, Files.getLastModifiedTime(path)));
+                } catch (IOException e) {
+                    // Removed concurrently
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to list answer cache directory {}", directory, e);
+            return;
+        }
+        files.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+        int deleted = 0;
+        for (int i = 0; i < files.size(); i++) {
+            Map.Entry<Path, FileTime> file = files.get(i);
+            if (i >= keep || isExpired(file.getValue())) {
+                try {
+                    Files.deleteIfExists(file.getKey());
+                    deleted++;
+                } catch (IOException e) {
+                    log.debug("Failed to delete cached answer {}", file.getKey(), e);
+                }
+            }
+        }
+        if (deleted > 0) {
+            log.info("Pruned {} cached answers from disk, {} left", deleted, files.size() - deleted);
+        }
+    }
+    
+    public void clear() {
+        memory.clear();
+        if (directory != null) {
+            prune(0);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", memory.size());
+        stats.put("maxEntries", memory.maxEntries());
+        stats.put("hits", memoryHits.sum());
+        stats.put("diskHits", diskHits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", memory.evictions());
+        stats.put("diskEnabled", directory != null);
+        return stats;
+    }
+}
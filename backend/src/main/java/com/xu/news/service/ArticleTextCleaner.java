@@ -0,0 +1,286 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.NewsArticle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns article HTML (RSS content:encoded, descriptions, uploads) into plain text for
+ * embedding and LLM prompts.
+ * <p>
+ * A single pass over the markup drops scripts, styles, embeds and blocks whose class or id
+ * marks them as share widgets, related links, newsletter boxes and similar boilerplate. Tags
+ * are removed, block elements become line breaks, entities are decoded. Afterwards
+ * whitespace is normalized and boilerplate lines ("The post ... appeared first on ...",
+ * "Continue reading", ...) are dropped. Stateless and thread-safe.
+ */
+@Component
+public class ArticleTextCleaner {
+    
+    /** Elements dropped together with everything inside them */
+    private static final Set<String> DROPPED_ELEMENTS = Set.of(
+            "script", "style", "noscript", "iframe", "object", "embed", "svg", "canvas", "template",
+            "form", "button", "select", "nav", "aside", "footer", "head", "video", "audio");
+    
+    /** Elements that start a new line of text */
+    private static final Set<String> BLOCK_ELEMENTS = Set.of(
+            "p", "div", "br", "hr", "li", "ul", "ol", "dl", "dt", "dd", "h1", "h2", "h3", "h4", "h5", "h6",
+            "blockquote", "pre", "table", "tr", "section", "article", "header", "figure", "figcaption",
+            "main", "address", "details", "summary");
+    
+    /** Elements without content, never entered when dropping boilerplate */
+    private static final Set<String> VOID_ELEMENTS = Set.of(
+            "area", "base", "br", "col", "hr", "img", "input", "link", "meta", "source", "track", "wbr");
+    
+    private static final Pattern CLASS_OR_ID =
+            Pattern.compile("\\b(?:class|id)\\s*=\\s*(\"[^\"]*\"|'[^']*'|[^\\s>]+)", Pattern.CASE_INSENSITIVE);
+    
+    private static final Pattern BOILERPLATE_BLOCK = Pattern.compile(
+            "\\b(share|sharing|sharedaddy|social|related|newsletter|subscribe|subscription|advert|advertisement"
+                    + "|ads?|promo|sponsored|comments?|feedflare|author-bio|breadcrumbs?|cookie|popup|signup)\\b",
+            Pattern.CASE_INSENSITIVE);
+    
+    private static final Pattern BOILERPLATE_LINE = Pattern.compile(
+            "(the post .+ appeared first on .+"
+                    + "|(continue|keep) reading.*|read (the )?(full|more|rest).*|click here.*"
+                    + "|share (this|on).*|like this:?|related( articles| posts| stories)?:?"
+                    + "|advertisement|sponsored( content)?|follow us.*|sign up for .*newsletter.*"
+                    + "|(本文|原文)?(链接|来源)[:：].*|(阅读|查看)(原文|全文|更多).*|相关(阅读|文章|新闻)[:：]?|点击.*(阅读|查看|关注).*|广告)",
+            Pattern.CASE_INSENSITIVE);
+    
+    /** Longer lines are real text even if they start like boilerplate */
+    private static final int MAX_BOILERPLATE_LINE = 160;
+    
+    private static final Map<String, String> NAMED_ENTITIES = Map.ofEntries(
+            Map.entry("amp", "&"), Map.entry("lt", "<"), Map.entry("gt", ">"), Map.entry("quot", "\""),
+            Map.entry("apos", "'"), Map.entry("nbsp", " "), Map.entry("ensp", " "), Map.entry("emsp", " "),
+            Map.entry("thinsp", " "), Map.entry("shy", ""), Map.entry("zwj", ""), Map.entry("zwnj", ""),
+            Map.entry("ndash", "–"), Map.entry("mdash", "—"), Map.entry("hellip", "…"),
+            Map.entry("lsquo", "‘"), Map.entry("rsquo", "’"), Map.entry("ldquo", "“"), Map.entry("rdquo", "”"),
+            Map.entry("laquo", "«"), Map.entry("raquo", "»"), Map.entry("middot", "·"), Map.entry("bull", "•"),
+            Map.entry("copy", "©"), Map.entry("reg", "®"), Map.entry("trade", "™"), Map.entry("deg", "°"),
+            Map.entry("times", "×"), Map.entry("euro", "€"), Map.entry("pound", "£"), Map.entry("yen", "¥"),
+            Map.entry("cent", "¢"));
+    
+    /**
+     * Fill in the clean text of an article from its content, or its summary if it has none
+     */
+    public void cleanIfMissing(NewsArticle article) {
+        if (article.getCleanText() == null) {
+            article.setCleanText(clean(rawText(article)));
+        }
+    }
+    
+    /**
+     * Clean text of an article, computed on the fly for articles stored before it was cached
+     */
+    public String cleanTextOf(NewsArticle article) {
+        return article.getCleanText() != null ? article.getCleanText() : clean(rawText(article));
+    }
+    
+    static String rawText(NewsArticle article) {
+        return article.getContent() != null ? article.getContent() : article.getSummary();
+    }
+    
+    /**
+     * Plain text of an HTML fragment, one paragraph per line; null stays null
+     */
+    public String clean(String html) {
+        if (html == null) {
+            return null;
+        }
+        String text = html.indexOf('<') >= 0 || html.indexOf('&') >= 0 ? stripMarkup(html) : html;
+        return normalizeLines(text);
+    }
+    
+    private static String stripMarkup(String html) {
+        StringBuilder out = new StringBuilder(html.length() / 2);
+        String dropping = null;  // element being dropped with its content
+        int dropDepth = 0;
+        int dropStart = -1;
+        int dropOutput = 0;
+        int keepAt = -1;  // unclosed element that is not dropped on the second pass
+        int n = html.length();
+        int i = 0;
+        while (i < n || dropping != null) {
+            if (i >= n) {
+                // Never closed: keep its content after all rather than losing the rest of the text
+                out.setLength(dropOutput);
+                keepAt = dropStart;
+                i = dropStart;
+                dropping = null;
+                continue;
+            }
+            char c = html.charAt(i);
+            if (c == '<' && i + 1 < n) {
+                if (html.startsWith("<!--", i)) {
+                    int end = html.indexOf("-->", i + 4);
+                    i = end < 0 ? n : end + 3;
+                    continue;
+                }
+                if (html.startsWith("<![CDATA[", i)) {
+                    int end = html.indexOf("]]>", i + 9);
+                    if (dropping == null) {
+                        out.append(html, i + 9, end < 0 ? n : end);
+                    }
+                    i = end < 0 ? n : end + 3;
+                    continue;
+                }
+                char next = html.charAt(i + 1);
+                if (Character.isLetter(next) || next == '/' || next == '!' || next == '?') {
+                    int end = tagEnd(html, i + 1);
+                    boolean closing = next == '/';
+                    String name = tagName(html, closing ? i + 2 : i + 1, end);
+                    if (dropping != null) {
+                        if (name.equals(dropping)) {
+                            dropDepth += closing ? -1 : 1;
+                            if (dropDepth == 0) {
+                                dropping = null;
+                            }
+                        }
+                    } else if (!closing && i != keepAt && !VOID_ELEMENTS.contains(name) && html.charAt(end - 1) != '/'
+                            && (DROPPED_ELEMENTS.contains(name) || isBoilerplate(html, i, end))) {
+                        dropping = name;
+                        dropDepth = 1;
+                        dropStart = i;
+                        dropOutput = out.length();
+                    } else if (BLOCK_ELEMENTS.contains(name)) {
+                        out.append('\n');
+                    } else if (name.equals("td") || name.equals("th")) {
+                        out.append(' ');
+                    }
+                    i = end + 1;
+                    continue;
+                }
+            }
+            if (dropping != null) {
+                i++;
+            } else if (c == '&') {
+                i = decodeEntity(html, i, out);
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+    
+    /**
+     * Index of the '>' closing a tag, skipping quoted attribute values
+     */
+    private static int tagEnd(String html, int from) {
+        char quote = 0;
+        for (int i = from; i < html.length(); i++) {
+            char c = html.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+        return html.length() - 1;
+    }
+    
+    private static String tagName(String html, int from, int end) {
+        int i = from;
+        while (i < end && (Character.isLetterOrDigit(html.charAt(i)) || html.charAt(i) == '-' || html.charAt(i) == ':')) {
+            i++;
+        }
+        return html.substring(from, i).toLowerCase(Locale.ROOT);
+    }
+    
+    private static boolean isBoilerplate(String html, int start, int end) {
+        String tag = html.substring(start, end);
+        if (tag.indexOf('=') < 0) {
+            return false;
+        }
+        Matcher matcher = CLASS_OR_ID.matcher(tag);
+        while (matcher.find()) {
+            if (BOILERPLATE_BLOCK.matcher(matcher.group(1)).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Decode the entity at {@code start} into {@code out} and return the index after it.
+     * Unknown or malformed entities are copied as they are.
+     */
+    private static int decodeEntity(String html, int start, StringBuilder out) {
+        int semicolon = html.indexOf(';', start + 1);
+        if (semicolon < 0 || semicolon - start > 12) {
+            out.append('&');
+            return start + 1;
+        }
+        String name = html.substring(start + 1, semicolon);
+        String decoded = null;
+        if (name.startsWith("#")) {
+            try {
+                int codePoint = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X')
+                        ? Integer.parseInt(name.substring(2), 16)
+                        : Integer.parseInt(name.substring(1));
+                if (Character.isValidCodePoint(codePoint)) {
+                    decoded = codePoint == 0xA0 ? " " : new String(Character.toChars(codePoint));
+                }
+            } catch (NumberFormatException ignored) {
+                // Copied as is below
+            }
+        } else {
+            decoded = NAMED_ENTITIES.get(name);
+        }
+        if (decoded == null) {
+            out.append('&');
+            return start + 1;
+        }
+        out.append(decoded);
+        return semicolon + 1;
+    }
+    
+    /**
+     * Collapse whitespace within lines, drop empty, repeated and boilerplate lines
+     */
+    private static String normalizeLines(String text) {
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        boolean space = false;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '\n';
+            if (c == '\n' || c == '\r') {
+                addLine(lines, line.toString());
+                line.setLength(0);
+                space = false;
+            } else if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                space = line.length() > 0;
+            } else {
+                if (space) {
+                    line.append(' ');
+                    space = false;
+                }
+                line.append(c);
+            }
+        }
+        return String.join("\n", lines);
+    }
+    
+    private static void addLine(List<String> lines, String line) {
+        if (line.isEmpty() || (line.length() <= MAX_BOILERPLATE_LINE && BOILERPLATE_LINE.matcher(line).matches())) {
+            return;
+        }
+        if (!lines.isEmpty() && lines.get(lines.size() - 1).equals(line)) {
+            return;
+        }
+        lines.add(line);
+    }
+}
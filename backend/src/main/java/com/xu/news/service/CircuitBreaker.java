@@ -0,0 +1,168 @@
+package com.xu.news.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker.
+ * <p>
+ * While closed, the outcomes of the last windowSize calls are kept; once at least minimumCalls
+ * are known and the share of failures reaches failureRateThreshold, the breaker opens and
+ * rejects every call for openMillis. After that it is half-open: halfOpenCalls trial calls are
+ * let through, and the breaker closes when all of them succeed or opens again on the first
+ * failure. Calls that end neither in success nor in failure, e.g. cancelled or rejected by
+ * the caller, give their permission back with {@link #onIgnored()}.
+ */
+@Slf4j
+final class CircuitBreaker {
+    
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier nanoClock;
+    
+    /** Ring buffer of the latest outcomes while closed, true for a failure */
+    private final boolean[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+    private long openings;
+    
+    CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, long openMillis,
+                   int halfOpenCalls) {
+        this(name, windowSize, minimumCalls, failureRateThreshold, openMillis, halfOpenCalls, System::nanoTime);
+    }
+    
+    CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, long openMillis,
+                   int halfOpenCalls, LongSupplier nanoClock) {
+        this.name = name;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openMillis * 1_000_000;
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.nanoClock = nanoClock;
+    }
+    
+    /**
+     * Whether a call may start now; a true result must be followed by exactly one of
+     * onSuccess, onFailure or onIgnored
+     */
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                return false;
+            }
+            trialsStarted++;
+        }
+        return true;
+    }
+    
+    /**
+     * Whether tryAcquire could succeed now, without taking a permission
+     */
+    synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> nanoClock.getAsLong() - openedAt >= openNanos;
+            case HALF_OPEN -> trialsStarted < halfOpenCalls;
+        };
+    }
+    
+    synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++trialsSucceeded >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+    
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+    
+    synchronized void onIgnored() {
+        if (state == State.HALF_OPEN && trialsStarted > trialsSucceeded) {
+            trialsStarted--;
+        }
+    }
+    
+    synchronized State state() {
+        return state;
+    }
+    
+    /**
+     * Share of failures among the calls in the window; 0 while open or half-open
+     */
+    synchronized double failureRate() {
+        return recorded > 0 ? (double) failures / recorded : 0;
+    }
+    
+    synchronized long openings() {
+        return openings;
+    }
+    
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            if (window[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % window.length;
+    }
+    
+    private void transitionTo(State target) {
+        if (target == State.OPEN) {
+            openedAt = nanoClock.getAsLong();
+            openings++;
+            if (state == State.HALF_OPEN) {
+                log.warn("Circuit breaker {} opened again, a trial call failed", name);
+            } else {
+                log.warn("Circuit breaker {} opened after {} failures in {} calls", name, failures, recorded);
+            }
+        } else {
+            log.info("Circuit breaker {} {}", name, target == State.CLOSED ? "closed" : "half-open");
+        }
+        state = target;
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
@@ -0,0 +1,190 @@
+package com.xu.news.service;
+
+import com.xu.news.repository.ClusterStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coordinates RSS polling between backend nodes sharing one database.
+ * <p>
+ * Every node renews a lease in cluster_nodes with each heartbeat and rebuilds a consistent
+ * hash ring from the nodes whose lease is live. Feeds are assigned to nodes by the hash of
+ * their host, so the per-host politeness delay still holds and adding a node moves only a
+ * share of the hosts. A node that stops heartbeating drops out of the ring once its lease
+ * runs out and its feeds are polled by the others from then on; a node shutting down
+ * cleanly gives up its lease at once. While the ring is changing two nodes may briefly agree
+ * on a different owner, so due feeds are additionally claimed in feed_states before polling.
+ * <p>
+ * With app.cluster.enabled=false (the default) this node owns every feed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClusterCoordinator {
+    
+    /** Dead nodes are removed from cluster_nodes after this long */
+    private static final long PURGE_AFTER_SECONDS = 86_400;
+    
+    private final ClusterStore clusterStore;
+    
+    @Value("${app.cluster.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${app.cluster.node-id:}")
+    private String configuredNodeId;
+    
+    @Value("${app.cluster.lease-seconds:30}")
+    private long leaseSeconds;
+    
+    @Value("${app.cluster.virtual-nodes:128}")
+    private int virtualNodes;
+    
+    @Value("${app.cluster.feed-claim-seconds:600}")
+    private long feedClaimSeconds;
+    
+    private String nodeId;
+    private String hostName;
+    private volatile ConsistentHashRing ring;
+    
+    /** Local time until which the last successful heartbeat keeps this node in the ring */
+    private volatile long leaseValidUntilMillis;
+    
+    /**
+     * The node id defaults to the host name, which keeps it stable across restarts; nodes
+     * sharing a host need app.cluster.node-id
+     */
+    @PostConstruct
+    void resolveNodeId() {
+        hostName = localHostName();
+        nodeId = configuredNodeId.isBlank() ? hostName : configuredNodeId;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void join() {
+        if (!enabled) {
+            return;
+        }
+        log.info("Joining ingestion cluster as {}", nodeId);
+        heartbeat();
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public String getNodeId() {
+        return nodeId;
+    }
+    
+    /**
+     * Renew this node's lease and rebuild the ring from the live nodes
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.heartbeat-ms:10000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            clusterStore.heartbeat(nodeId, hostName, leaseSeconds);
+            List<String> live = clusterStore.liveNodes();
+            leaseValidUntilMillis = start + leaseSeconds * 1000;
+            
+            ConsistentHashRing previous = ring;
+            if (previous == null || !previous.nodes().equals(live)) {
+                ring = new ConsistentHashRing(live, virtualNodes);
+                log.info("Ingestion cluster has {} live nodes: {}", live.size(), live);
+            }
+            clusterStore.purge(PURGE_AFTER_SECONDS);
+        } catch (Exception e) {
+            // Keep the last ring until the lease runs out, then stop polling (see assignedFeeds)
+            log.warn("Cluster heartbeat of {} failed", nodeId, e);
+        }
+    }
+    
+    @PreDestroy
+    public void leave() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            clusterStore.leave(nodeId);
+            log.info("Left ingestion cluster as {}", nodeId);
+        } catch (Exception e) {
+            log.warn("Failed to leave ingestion cluster, the lease of {} runs out in {} s", nodeId, leaseSeconds);
+        }
+    }
+    
+    /**
+     * The feeds among the given ones that this node polls, in their original order.
+     * Empty while this node is not a live member, since others may have taken over its feeds.
+     */
+    public List<String> assignedFeeds(List<String> feedUrls) {
+        if (!enabled) {
+            return feedUrls;
+        }
+        return feedUrls.stream()
+                .filter(feedUrl -> owns(RssIngestionService.hostOf(feedUrl)))
+                .toList();
+    }
+    
+    /**
+     * Whether this node owns the key on the ring, e.g. to run a cluster-wide background task
+     * on one node only; always true without clustering, false while this node is not a live member
+     */
+    public boolean owns(String key) {
+        if (!enabled) {
+            return true;
+        }
+        ConsistentHashRing current = ring;
+        if (current == null || System.currentTimeMillis() > leaseValidUntilMillis) {
+            return false;
+        }
+        return nodeId.equals(current.ownerOf(key));
+    }
+    
+    /**
+     * Claim due feeds in the database so that no other node polls them at the same time
+     */
+    public List<String> claimDueFeeds(List<String> dueFeeds) {
+        if (!enabled) {
+            return dueFeeds;
+        }
+        Set<String> claimed = new HashSet<>(clusterStore.claimDueFeeds(dueFeeds, feedClaimSeconds));
+        return dueFeeds.stream().filter(claimed::contains).toList();
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        if (enabled) {
+            status.put("nodeId", nodeId);
+            ConsistentHashRing current = ring;
+            status.put("liveNodes", current != null ? current.nodes() : List.of());
+            status.put("nodes", clusterStore.allNodes());
+        }
+        return status;
+    }
+    
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
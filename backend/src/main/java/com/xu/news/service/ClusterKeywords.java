@@ -0,0 +1,85 @@
+package com.xu.news.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keywords of topic clusters by class-based TF-IDF over article titles: a term ranks high in a
+ * cluster when it is frequent there and rare in the other clusters, so words every headline
+ * shares sink on their own. Terms come from {@link TextTokenizer}, so Chinese titles give
+ * character bigrams; numbers, single characters and common English function words are left out.
+ */
+final class ClusterKeywords {
+    
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "he", "in",
+            "is", "it", "its", "new", "not", "of", "on", "or", "over", "says", "she", "that", "the",
+            "their", "they", "this", "to", "up", "was", "we", "what", "when", "who", "why", "will",
+            "with", "you");
+    
+    private final List<Map<String, Integer>> termCounts = new ArrayList<>();
+    private final Map<String, Integer> totals = new HashMap<>();
+    private long termsTotal;
+    
+    ClusterKeywords(int k) {
+        for (int c = 0; c < k; c++) {
+            termCounts.add(new HashMap<>());
+        }
+    }
+    
+    void add(int cluster, String title) {
+        Map<String, Integer> counts = termCounts.get(cluster);
+        for (String term : TextTokenizer.tokenize(title)) {
+            if (isKeyword(term)) {
+                counts.merge(term, 1, Integer::sum);
+                totals.merge(term, 1, Integer::sum);
+                termsTotal++;
+            }
+        }
+    }
+    
+    /**
+     * The best terms of each cluster, best first: frequency in the cluster times
+     * log(1 + average terms per cluster / frequency over all clusters)
+     */
+    List<List<String>> top(int perCluster) {
+        double average = termCounts.isEmpty() ? 0 : (double) termsTotal / termCounts.size();
+        List<List<String>> keywords = new ArrayList<>(termCounts.size());
+        for (Map<String, Integer> counts : termCounts) {
+            Map<String, Double> weights = new HashMap<>();
+            counts.forEach((term, count) -> weights.put(term, count * Math.log(1 + average / totals.get(term))));
+            keywords.add(weights.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(perCluster)
+                    .map(Map.Entry::getKey)
+                    .toList());
+        }
+        return keywords;
+    }
+    
+    /**
+     * The terms that are keywords of the most clusters; on a tie the one met first wins, so
+     * clusters should be given largest first
+     */
+    static List<String> overall(List<List<String>> keywords, int limit) {
+        Map<String, Integer> occurrences = new LinkedHashMap<>();
+        keywords.forEach(list -> list.forEach(term -> occurrences.merge(term, 1, Integer::sum)));
+        return occurrences.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+    
+    private static boolean isKeyword(String term) {
+        return term.codePointCount(0, term.length()) > 1
+                && !STOP_WORDS.contains(term)
+                && !term.chars().allMatch(Character::isDigit);
+    }
+}
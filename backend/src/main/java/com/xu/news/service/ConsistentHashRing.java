@@ -0,0 +1,61 @@
+package com.xu.news.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring over node ids. Each node is placed on the ring at a number of virtual
+ * points, a key belongs to the first node point at or after the key's hash. When a node joins
+ * or leaves, only the keys next to its points change owner, roughly 1/N of them.
+ * Immutable; every node that sees the same node list computes the same assignment.
+ */
+final class ConsistentHashRing {
+    
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final List<String> nodes;
+    
+    ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        this.nodes = nodes.stream().distinct().sorted().toList();
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+    }
+    
+    /**
+     * Node owning the key, or null if the ring is empty
+     */
+    String ownerOf(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+    
+    List<String> nodes() {
+        return nodes;
+    }
+    
+    /**
+     * First 64 bits of the SHA-256 digest, stable across JVMs
+     */
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
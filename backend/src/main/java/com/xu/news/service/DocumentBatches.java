@@ -0,0 +1,58 @@
+package com.xu.news.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits documents for the embedder into batches bounded both by document count and by an
+ * estimate of the request body size. A document larger than the byte limit on its own gets
+ * a batch of its own rather than being dropped.
+ */
+final class DocumentBatches {
+    
+    /** JSON keys, quotes and separators around one document */
+    private static final int DOCUMENT_OVERHEAD_BYTES = 64;
+    
+    private DocumentBatches() {
+    }
+    
+    static List<List<PythonServiceClient.AddDocumentRequest>> split(
+            List<PythonServiceClient.AddDocumentRequest> documents, int maxCount, long maxBytes) {
+        List<List<PythonServiceClient.AddDocumentRequest>> batches = new ArrayList<>();
+        List<PythonServiceClient.AddDocumentRequest> current = new ArrayList<>();
+        long currentBytes = 0;
+        for (PythonServiceClient.AddDocumentRequest document : documents) {
+            long size = sizeOf(document);
+            if (!current.isEmpty() && (current.size() >= maxCount || currentBytes + size > maxBytes)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(document);
+            currentBytes += size;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+    
+    /**
+     * Approximate serialized size: UTF-8 length of the id, the text and the metadata
+     */
+    static long sizeOf(PythonServiceClient.AddDocumentRequest document) {
+        long size = DOCUMENT_OVERHEAD_BYTES + utf8Length(document.getId()) + utf8Length(document.getText());
+        if (document.getMetadata() != null) {
+            for (Map.Entry<String, Object> entry : document.getMetadata().entrySet()) {
+                size += utf8Length(entry.getKey()) + utf8Length(String.valueOf(entry.getValue())) + 6;
+            }
+        }
+        return size;
+    }
+    
+    private static long utf8Length(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+}
@@ -0,0 +1,220 @@
+package com.xu.news.service;
+
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead, circuit breaker and timeout around the calls to one downstream service.
+ * <p>
+ * At most maxConcurrent calls are in flight; further calls are rejected at once rather than
+ * queued, so a slow downstream holds a bounded number of request threads. Timeouts, connection
+ * failures and 5xx responses count as failures for the circuit breaker, 4xx responses do not.
+ * Rejected calls fail with {@link RejectedException} without touching the network.
+ */
+final class DownstreamGuard {
+    
+    private final String name;
+    private final CircuitBreaker breaker;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final Duration timeout;
+    
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejectedOpen = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    
+    public record Stats(String name, String state, double failureRate, long openings, int inFlight,
+                        int maxConcurrent, long successes, long failures, long timeouts, long rejectedOpen,
+                        long rejectedFull, long hedges, long hedgeWins) {
+    }
+    
+    /**
+     * A call refused by the bulkhead or the open circuit
+     */
+    static final class RejectedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        RejectedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+    
+    /**
+     * timeout bounds every call unless a call passes its own; null leaves calls to the
+     * client's response timeout
+     */
+    DownstreamGuard(String name, CircuitBreaker breaker, int maxConcurrent, Duration timeout) {
+        this.name = name;
+        this.breaker = breaker;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.bulkhead = new Semaphore(this.maxConcurrent);
+        this.timeout = timeout;
+    }
+    
+    String name() {
+        return name;
+    }
+    
+    /**
+     * False while the circuit is open, so callers can take their fallback without trying
+     */
+    boolean isCallPermitted() {
+        return breaker.isCallPermitted();
+    }
+    
+    /**
+     * Calls in flight, of all callers
+     */
+    int inFlight() {
+        return maxConcurrent - bulkhead.availablePermits();
+    }
+    
+    <T> Mono<T> call(Mono<T> call) {
+        return call(call, timeout);
+    }
+    
+    /**
+     * The call, subscribed only when the bulkhead and the circuit let it through
+     */
+    <T> Mono<T> call(Mono<T> call, Duration callTimeout) {
+        return Mono.defer(() -> {
+            if (!bulkhead.tryAcquire()) {
+                rejectedFull.increment();
+                return Mono.error(new RejectedException(name + " has " + maxConcurrent + " calls in flight"));
+            }
+            if (!breaker.tryAcquire()) {
+                bulkhead.release();
+                rejectedOpen.increment();
+                return Mono.error(new RejectedException(name + " circuit is open"));
+            }
+            AtomicBoolean done = new AtomicBoolean();
+            Mono<T> guarded = callTimeout != null ? call.timeout(callTimeout) : call;
+            return guarded
+                    .doOnSuccess(value -> {
+                        if (done.compareAndSet(false, true)) {
+                            bulkhead.release();
+                            successes.increment();
+                            breaker.onSuccess();
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (done.compareAndSet(false, true)) {
+                            bulkhead.release();
+                            record(e);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (done.compareAndSet(false, true)) {
+                            bulkhead.release();
+                            breaker.onIgnored();
+                        }
+                    });
+        });
+    }
+    
+    /**
+     * A guarded call that is sent a second time when no answer has arrived after hedgeDelay;
+     * the first value wins and the other call is cancelled. Only for idempotent calls. A call
+     * failing before the hedge is sent fails at once; once both are sent, the result is an
+     * error only when both fail. No hedge is sent while the circuit is not closed.
+     */
+    <T> Mono<T> hedged(Supplier<Mono<T>> call, Duration hedgeDelay) {
+        if (hedgeDelay == null || hedgeDelay.isZero() || hedgeDelay.isNegative()) {
+            return call(call.get());
+        }
+        return Mono.create(sink -> {
+            Race<T> race = new Race<>(sink);
+            sink.onDispose(race.legs);
+            race.start(call(call.get()), false);
+            race.legs.add(Mono.delay(hedgeDelay).subscribe(tick -> {
+                if (breaker.state() == CircuitBreaker.State.CLOSED && race.addLeg()) {
+                    hedges.increment();
+                    race.start(call(call.get()), true);
+                }
+            }));
+        });
+    }
+    
+    /**
+     * The calls of one hedged request; the first value, or the last error, settles it
+     */
+    private final class Race<T> {
+        
+        final Disposable.Composite legs = Disposables.composite();
+        private final MonoSink<T> sink;
+        private final AtomicInteger running = new AtomicInteger(1);
+        private final AtomicBoolean settled = new AtomicBoolean();
+        
+        Race(MonoSink<T> sink) {
+            this.sink = sink;
+        }
+        
+        /**
+         * Count another call unless the race is already decided
+         */
+        boolean addLeg() {
+            return !settled.get() && running.getAndUpdate(n -> n > 0 ? n + 1 : n) > 0;
+        }
+        
+        void start(Mono<T> leg, boolean hedge) {
+            legs.add(leg.subscribe(
+                    value -> {
+                        if (settled.compareAndSet(false, true)) {
+                            if (hedge) {
+                                hedgeWins.increment();
+                            }
+                            legs.dispose();
+                            sink.success(value);
+                        }
+                    },
+                    e -> {
+                        if (running.decrementAndGet() == 0 && settled.compareAndSet(false, true)) {
+                            legs.dispose();
+                            sink.error(e);
+                        }
+                    },
+                    () -> {
+                        if (settled.compareAndSet(false, true)) {
+                            legs.dispose();
+                            sink.success();
+                        }
+                    }));
+        }
+    }
+    
+    private void record(Throwable e) {
+        if (e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError()) {
+            // The request was rejected, the service itself is fine
+            breaker.onIgnored();
+            return;
+        }
+        if (e instanceof TimeoutException) {
+            timeouts.increment();
+        }
+        failures.increment();
+        breaker.onFailure();
+    }
+    
+    Stats stats() {
+        return new Stats(name, breaker.state().name().toLowerCase(Locale.ROOT), breaker.failureRate(),
+                breaker.openings(), inFlight(), maxConcurrent,
+                successes.sum(), failures.sum(), timeouts.sum(), rejectedOpen.sum(), rejectedFull.sum(),
+                hedges.sum(), hedgeWins.sum());
+    }
+}
@@ -0,0 +1,129 @@
+package com.xu.news.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * The guards of the Python service and Ollama, see {@link DownstreamGuard}, configured under
+ * app.resilience.python and app.resilience.ollama and exported as resilience.* meters tagged
+ * with the downstream name.
+ */
+@Component
+@RequiredArgsConstructor
+public class DownstreamGuards {
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.resilience.python.max-concurrent:24}")
+    private int pythonMaxConcurrent;
+    
+    @Value("${app.resilience.python.timeout-ms:10000}")
+    private long pythonTimeoutMs;
+    
+    @Value("${app.resilience.python.failure-rate-threshold:0.5}")
+    private double pythonFailureRate;
+    
+    @Value("${app.resilience.python.window-size:20}")
+    private int pythonWindowSize;
+    
+    @Value("${app.resilience.python.minimum-calls:10}")
+    private int pythonMinimumCalls;
+    
+    @Value("${app.resilience.python.open-ms:15000}")
+    private long pythonOpenMs;
+    
+    @Value("${app.resilience.python.half-open-calls:3}")
+    private int pythonHalfOpenCalls;
+    
+    @Value("${app.resilience.ollama.max-concurrent:8}")
+    private int ollamaMaxConcurrent;
+    
+    @Value("${app.resilience.ollama.timeout-ms:90000}")
+    private long ollamaTimeoutMs;
+    
+    @Value("${app.resilience.ollama.failure-rate-threshold:0.5}")
+    private double ollamaFailureRate;
+    
+    @Value("${app.resilience.ollama.window-size:10}")
+    private int ollamaWindowSize;
+    
+    @Value("${app.resilience.ollama.minimum-calls:4}")
+    private int ollamaMinimumCalls;
+    
+    @Value("${app.resilience.ollama.open-ms:30000}")
+    private long ollamaOpenMs;
+    
+    @Value("${app.resilience.ollama.half-open-calls:1}")
+    private int ollamaHalfOpenCalls;
+    
+    private DownstreamGuard python;
+    private DownstreamGuard ollama;
+    
+    @PostConstruct
+    void createGuards() {
+        python = new DownstreamGuard("python",
+                new CircuitBreaker("python", pythonWindowSize, pythonMinimumCalls, pythonFailureRate, pythonOpenMs,
+                        pythonHalfOpenCalls),
+                pythonMaxConcurrent, Duration.ofMillis(pythonTimeoutMs));
+        ollama = new DownstreamGuard("ollama",
+                new CircuitBreaker("ollama", ollamaWindowSize, ollamaMinimumCalls, ollamaFailureRate, ollamaOpenMs,
+                        ollamaHalfOpenCalls),
+                ollamaMaxConcurrent, Duration.ofMillis(ollamaTimeoutMs));
+        bind(python);
+        bind(ollama);
+    }
+    
+    DownstreamGuard python() {
+        return python;
+    }
+    
+    DownstreamGuard ollama() {
+        return ollama;
+    }
+    
+    /**
+     * Breaker state, concurrency and call outcomes of both downstreams
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("python", python.stats());
+        stats.put("ollama", ollama.stats());
+        return stats;
+    }
+    
+    private void bind(DownstreamGuard guard) {
+        String name = guard.name();
+        Gauge.builder("resilience.circuit.open", guard, g -> g.isCallPermitted() ? 0 : 1)
+                .description("1 while the circuit breaker of a downstream rejects calls")
+                .tag("downstream", name)
+                .register(meterRegistry);
+        Gauge.builder("resilience.bulkhead.in.flight", guard, g -> g.stats().inFlight())
+                .description("Calls in flight to a downstream")
+                .tag("downstream", name)
+                .register(meterRegistry);
+        counter(guard, "success", DownstreamGuard.Stats::successes);
+        counter(guard, "failure", DownstreamGuard.Stats::failures);
+        counter(guard, "timeout", DownstreamGuard.Stats::timeouts);
+        counter(guard, "rejected_open", DownstreamGuard.Stats::rejectedOpen);
+        counter(guard, "rejected_full", DownstreamGuard.Stats::rejectedFull);
+        counter(guard, "hedge", DownstreamGuard.Stats::hedges);
+    }
+    
+    private void counter(DownstreamGuard guard, String outcome, ToLongFunction<DownstreamGuard.Stats> count) {
+        FunctionCounter.builder("resilience.calls", guard, g -> count.applyAsLong(g.stats()))
+                .description("Calls to a downstream by outcome; timeouts are also counted as failures")
+                .tag("downstream", guard.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,153 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.FeedState;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * High-watermark of a feed: the key (guid, Atom id or link) and publish date of the newest
+ * item seen by the last successful poll.
+ * <p>
+ * While a feed is parsed, every item is checked against the watermark. Items that were
+ * already there last time are skipped before they reach dedup or the database. For feeds
+ * known to list the newest items first the parser stops reading altogether once it meets
+ * the previous newest item, or a few consecutive items older than the watermark.
+ * Items without a parseable date are never skipped by date.
+ * <p>
+ * A checkpoint also collects what the parse observed, which is stored as the next watermark
+ * once the new items have been saved. Used by one parse at a time.
+ */
+final class FeedCheckpoint {
+    
+    /** Consecutive known items after which a newest-first feed stops being read */
+    static final int STOP_AFTER_KNOWN = 3;
+    
+    private final String previousKey;
+    private final LocalDateTime skipBefore;
+    private final LocalDateTime previousPublishedAt;
+    private final Boolean previousNewestFirst;
+    private final boolean earlyStopAllowed;
+    
+    private String newestKey;
+    private LocalDateTime newestPublishedAt;
+    private String firstKey;
+    private LocalDateTime lastDate;
+    private final List<LocalDateTime> itemTimes = new ArrayList<>();
+    private boolean ascendingSeen;
+    private int consecutiveKnown;
+    private int skipped;
+    private boolean stopped;
+    
+    FeedCheckpoint(String previousKey, LocalDateTime previousPublishedAt, Boolean previousNewestFirst,
+                   Duration grace, boolean earlyStopAllowed) {
+        this.previousKey = previousKey;
+        this.previousPublishedAt = previousPublishedAt;
+        this.skipBefore = previousPublishedAt != null ? previousPublishedAt.minus(grace) : null;
+        this.previousNewestFirst = previousNewestFirst;
+        this.earlyStopAllowed = earlyStopAllowed && Boolean.TRUE.equals(previousNewestFirst);
+    }
+    
+    /**
+     * Checkpoint of a feed that has never been polled: nothing is skipped
+     */
+    static FeedCheckpoint none() {
+        return new FeedCheckpoint(null, null, null, Duration.ZERO, false);
+    }
+    
+    static FeedCheckpoint of(FeedState state, Duration grace, boolean earlyStopAllowed) {
+        return new FeedCheckpoint(state.getCheckpointKey(), state.getCheckpointPublishedAt(),
+                state.getNewestFirst(), grace, earlyStopAllowed);
+    }
+    
+    /**
+     * Record an item in document order and tell whether it was already seen by the last poll
+     *
+     * @param key         guid / id, or the link when the item has none
+     * @param publishedAt parsed publish date, null if the item has none
+     */
+    boolean isKnown(String key, LocalDateTime publishedAt) {
+        if (firstKey == null) {
+            firstKey = key;
+        }
+        if (publishedAt != null) {
+            itemTimes.add(publishedAt);
+            if (lastDate != null && publishedAt.isAfter(lastDate)) {
+                ascendingSeen = true;
+            }
+            lastDate = publishedAt;
+            if (newestPublishedAt == null || publishedAt.isAfter(newestPublishedAt)) {
+                newestPublishedAt = publishedAt;
+                newestKey = key;
+            }
+        }
+        
+        boolean matchesPrevious = key.equals(previousKey);
+        boolean known = matchesPrevious || (publishedAt != null && skipBefore != null && publishedAt.isBefore(skipBefore));
+        consecutiveKnown = known ? consecutiveKnown + 1 : 0;
+        if (known) {
+            skipped++;
+        }
+        if (earlyStopAllowed && !ascendingSeen && (matchesPrevious || consecutiveKnown >= STOP_AFTER_KNOWN)) {
+            stopped = true;
+        }
+        return known;
+    }
+    
+    /**
+     * Whether the rest of the document holds only known items and need not be read
+     */
+    boolean shouldStop() {
+        return stopped;
+    }
+    
+    int skipped() {
+        return skipped;
+    }
+    
+    /**
+     * Publish dates of all items read, for learning the feed's publish rate
+     */
+    List<LocalDateTime> itemTimes() {
+        return itemTimes;
+    }
+    
+    /**
+     * Key of the newest item, by date or else the first in the document; the old key if nothing was read
+     */
+    String newestKey() {
+        if (previousPublishedAt != null && (newestPublishedAt == null || !newestPublishedAt.isAfter(previousPublishedAt))) {
+            return previousKey;
+        }
+        if (newestKey != null) {
+            return newestKey;
+        }
+        return firstKey != null ? firstKey : previousKey;
+    }
+    
+    LocalDateTime newestPublishedAt() {
+        if (previousPublishedAt != null && (newestPublishedAt == null || newestPublishedAt.isBefore(previousPublishedAt))) {
+            return previousPublishedAt;
+        }
+        return newestPublishedAt;
+    }
+    
+    /**
+     * Whether the feed lists its newest items first, learned from complete parses only
+     */
+    Boolean newestFirst() {
+        if (stopped || itemTimes.size() < 2) {
+            return previousNewestFirst;
+        }
+        return !ascendingSeen;
+    }
+    
+    /**
+     * True if the whole document was read
+     */
+    boolean complete() {
+        return !stopped;
+    }
+}
@@ -0,0 +1,209 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.FeedState;
+import com.xu.news.repository.FeedStateRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FeedStateService {
+    
+    /** Weight of the newest publish-rate observation */
+    private static final double RATE_SMOOTHING = 0.3;
+    
+    /** Interval growth when a poll brings nothing new */
+    private static final double IDLE_GROWTH = 1.5;
+    
+    private final FeedStateRepository feedStateRepository;
+    
+    @Value("${app.rss.schedule.adaptive.min-interval-minutes:10}")
+    private long minIntervalMinutes;
+    
+    @Value("${app.rss.schedule.adaptive.max-interval-minutes:720}")
+    private long maxIntervalMinutes;
+    
+    @Value("${app.rss.schedule.adaptive.items-per-poll:5}")
+    private double itemsPerPoll;
+    
+    @Value("${app.rss.schedule.adaptive.max-backoff-minutes:1440}")
+    private long maxBackoffMinutes;
+    
+    @Value("${app.rss.checkpoint.enabled:true}")
+    private boolean checkpointEnabled;
+    
+    @Value("${app.rss.checkpoint.grace-minutes:60}")
+    private long checkpointGraceMinutes;
+    
+    @Value("${app.rss.checkpoint.full-parse-every:24}")
+    private int fullParseEvery;
+    
+    /**
+     * Get the stored state of a feed, or a fresh unsaved one if the feed was never polled
+     */
+    public FeedState getFeedState(String feedUrl) {
+        return feedStateRepository.findByFeedUrl(feedUrl)
+                .orElseGet(() -> FeedState.builder().feedUrl(feedUrl).build());
+    }
+    
+    /**
+     * Select the configured feeds that are due for polling.
+     * Feeds seen for the first time get a random first poll within the minimum interval,
+     * so a fresh deployment does not fetch every feed in the same minute.
+     */
+    @Transactional
+    public List<String> findDueFeeds(List<String> feedUrls) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, FeedState> states = feedStateRepository.findByFeedUrlIn(feedUrls).stream()
+                .collect(Collectors.toMap(FeedState::getFeedUrl, state -> state));
+        
+        List<String> due = new ArrayList<>();
+        for (String feedUrl : feedUrls) {
+            FeedState state = states.get(feedUrl);
+            if (state == null) {
+                state = FeedState.builder().feedUrl(feedUrl).build();
+            }
+            if (state.getNextPollAt() == null) {
+                long offset = ThreadLocalRandom.current().nextLong(Math.max(1, minIntervalMinutes * 60));
+                state.setNextPollAt(now.plusSeconds(offset));
+                feedStateRepository.save(state);
+            }
+            if (!state.getNextPollAt().isAfter(now)) {
+                due.add(feedUrl);
+            }
+        }
+        return due;
+    }
+    
+    /**
+     * Record a 304 Not Modified response (cache hit)
+     */
+    @Transactional
+    public void recordNotModified(String feedUrl) {
+        FeedState state = getFeedState(feedUrl);
+        state.setNotModifiedCount(state.getNotModifiedCount() + 1);
+        state.setBytesSaved(state.getBytesSaved() + state.getLastContentLength());
+        state.setLastFetchedAt(LocalDateTime.now());
+        scheduleAfterSuccess(state, currentInterval(state) * IDLE_GROWTH);
+        feedStateRepository.save(state);
+    }
+    
+    /**
+     * Checkpoint to parse the next response of a feed against
+     */
+    public FeedCheckpoint checkpointFor(FeedState state) {
+        if (!checkpointEnabled) {
+            return FeedCheckpoint.none();
+        }
+        return FeedCheckpoint.of(state, Duration.ofMinutes(checkpointGraceMinutes),
+                state.getPollsSinceFullParse() < fullParseEvery);
+    }
+    
+    /**
+     * Record a full response (cache miss), remember its validators and newest item for the
+     * next poll and learn the feed's publish rate from the item timestamps
+     */
+    @Transactional
+    public void recordModified(String feedUrl, String etag, String lastModified, long contentLength,
+                               FeedCheckpoint checkpoint) {
+        FeedState state = getFeedState(feedUrl);
+        state.setEtag(etag);
+        state.setLastModified(lastModified);
+        state.setLastContentLength(contentLength);
+        state.setModifiedCount(state.getModifiedCount() + 1);
+        state.setLastFetchedAt(LocalDateTime.now());
+        
+        state.setCheckpointKey(checkpoint.newestKey());
+        state.setCheckpointPublishedAt(checkpoint.newestPublishedAt());
+        state.setNewestFirst(checkpoint.newestFirst());
+        state.setPollsSinceFullParse(checkpoint.complete() ? 0 : state.getPollsSinceFullParse() + 1);
+        state.setItemsSkipped(state.getItemsSkipped() + checkpoint.skipped());
+        
+        Double observedGap = medianItemGapSeconds(checkpoint.itemTimes());
+        if (observedGap != null) {
+            Double previous = state.getAvgItemIntervalSeconds();
+            state.setAvgItemIntervalSeconds(previous == null
+                    ? observedGap
+                    : RATE_SMOOTHING * observedGap + (1 - RATE_SMOOTHING) * previous);
+        }
+        double interval = state.getAvgItemIntervalSeconds() != null
+                ? state.getAvgItemIntervalSeconds() * itemsPerPoll
+                : currentInterval(state) * IDLE_GROWTH;
+        scheduleAfterSuccess(state, interval);
+        feedStateRepository.save(state);
+    }
+    
+    /**
+     * Record a failed poll and back off exponentially
+     */
+    @Transactional
+    public void recordFailure(String feedUrl) {
+        FeedState state = getFeedState(feedUrl);
+        int failures = state.getConsecutiveFailures() + 1;
+        state.setConsecutiveFailures(failures);
+        double backoff = currentInterval(state) * Math.pow(2, Math.min(failures, 20));
+        long delay = (long) Math.min(backoff, maxBackoffMinutes * 60.0);
+        state.setNextPollAt(LocalDateTime.now().plusSeconds(jitter(delay)));
+        feedStateRepository.save(state);
+        log.debug("Feed {} failed {} times in a row, next poll in {} s", feedUrl, failures, delay);
+    }
+    
+    private void scheduleAfterSuccess(FeedState state, double intervalSeconds) {
+        long interval = (long) Math.max(minIntervalMinutes * 60.0, Math.min(maxIntervalMinutes * 60.0, intervalSeconds));
+        state.setPollIntervalSeconds(interval);
+        state.setConsecutiveFailures(0);
+        state.setNextPollAt(LocalDateTime.now().plusSeconds(jitter(interval)));
+    }
+    
+    private double currentInterval(FeedState state) {
+        return state.getPollIntervalSeconds() != null ? state.getPollIntervalSeconds() : minIntervalMinutes * 60.0;
+    }
+    
+    /**
+     * +/-10% so feeds with the same interval drift apart instead of polling together
+     */
+    private static long jitter(long seconds) {
+        return Math.round(seconds * ThreadLocalRandom.current().nextDouble(0.9, 1.1));
+    }
+    
+    /**
+     * Median gap between distinct item timestamps (minute precision), or null with fewer than two
+     */
+    private static Double medianItemGapSeconds(List<LocalDateTime> itemTimes) {
+        List<LocalDateTime> distinct = itemTimes.stream()
+                .filter(Objects::nonNull)
+                .map(time -> time.truncatedTo(ChronoUnit.MINUTES))
+                .distinct()
+                .sorted()
+                .toList();
+        if (distinct.size() < 2) {
+            return null;
+        }
+        List<Long> gaps = new ArrayList<>();
+        for (int i = 1; i < distinct.size(); i++) {
+            gaps.add(Duration.between(distinct.get(i - 1), distinct.get(i)).getSeconds());
+        }
+        Collections.sort(gaps);
+        return (double) gaps.get(gaps.size() / 2);
+    }
+    
+    public List<FeedState> getAllFeedStates() {
+        return feedStateRepository.findAll(Sort.by(Sort.Direction.DESC, "bytesSaved"));
+    }
+}
@@ -0,0 +1,482 @@
+package com.xu.news.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical navigable small world graph for approximate nearest neighbour search by inner
+ * product over unit vectors (cosine similarity).
+ * <p>
+ * Node i holds the vector in slot i of the {@link Vectors} it was built over. Inserts are
+ * serialized by a lock; searches take no lock. Neighbour lists are immutable arrays that are
+ * replaced as a whole, so a search running during an insert sees either the old or the new
+ * list of a node, never a half-written one. Removed nodes stay in the graph for navigation and
+ * are filtered out of results.
+ */
+final class HnswGraph {
+    
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    
+    /**
+     * Vector access by node; vectors are unit length
+     */
+    interface Vectors {
+        float[] vector(int node);
+        
+        float dot(float[] query, int node);
+    }
+    
+    record Hit(long id, float score) {
+    }
+    
+    private static final class Node {
+        final long id;
+        final int level;
+        final AtomicReferenceArray<int[]> neighbors;
+        volatile boolean removed;
+        
+        Node(long id, int level) {
+            this.id = id;
+            this.level = level;
+            this.neighbors = new AtomicReferenceArray<>(level + 1);
+            for (int layer = 0; layer <= level; layer++) {
+                neighbors.set(layer, new int[0]);
+            }
+        }
+    }
+    
+    private final Vectors vectors;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    
+    private volatile Node[] nodes = new Node[1024];
+    private volatile int size;
+    private volatile int entryPoint = -1;
+    private volatile int removedCount;
+    
+    HnswGraph(Vectors vectors, int m, int efConstruction) {
+        this.vectors = vectors;
+        this.m = Math.max(2, m);
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMultiplier = 1 / Math.log(this.m);
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int removedCount() {
+        return removedCount;
+    }
+    
+    int m() {
+        return m;
+    }
+    
+    /**
+     * Add the vector already stored in the next free slot; returns the node, which equals the slot
+     */
+    int add(long id, float[] vector) {
+        writeLock.lock();
+        try {
+            int node = size;
+            int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+            Node created = new Node(id, level);
+            if (node == nodes.length) {
+                nodes = Arrays.copyOf(nodes, node * 2);
+            }
+            nodes[node] = created;
+            
+            int entry = entryPoint;
+            if (entry < 0) {
+                size = node + 1;
+                entryPoint = node;
+                return node;
+            }
+            
+            int topLevel = nodeAt(entry).level;
+            int current = entry;
+            for (int layer = topLevel; layer > level; layer--) {
+                current = greedy(vector, current, layer);
+            }
+            for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+                Candidates candidates = searchLayer(vector, current, efConstruction, layer);
+                int[] selected = selectNeighbors(candidates.nodes, candidates.scores, candidates.size, maxConnections(layer));
+                created.neighbors.set(layer, selected);
+                for (int neighbor : selected) {
+                    connect(neighbor, node, layer);
+                }
+                current = candidates.nodes[0];
+            }
+            size = node + 1;
+            if (level > topLevel) {
+                entryPoint = node;
+            }
+            return node;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    /**
+     * Exclude a node from results; it keeps serving as a waypoint
+     */
+    void remove(int node) {
+        writeLock.lock();
+        try {
+            Node target = nodeAt(node);
+            if (!target.removed) {
+                target.removed = true;
+                removedCount++;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    long idOf(int node) {
+        return nodeAt(node).id;
+    }
+    
+    boolean isRemoved(int node) {
+        return nodeAt(node).removed;
+    }
+    
+    /**
+     * The k live nodes most similar to the query, best first. A larger ef raises recall and cost;
+     * the search is widened when removed nodes crowd out live ones.
+     */
+    List<Hit> search(float[] query, int k, int ef) {
+        int entry = entryPoint;
+        if (entry < 0 || k <= 0) {
+            return List.of();
+        }
+        int current = entry;
+        for (int layer = nodeAt(entry).level; layer > 0; layer--) {
+            current = greedy(query, current, layer);
+        }
+        int width = Math.max(ef, k);
+        while (true) {
+            Candidates candidates = searchLayer(query, current, width, 0);
+            List<Hit> hits = new ArrayList<>(k);
+            for (int i = 0; i < candidates.size && hits.size() < k; i++) {
+                Node node = nodeAt(candidates.nodes[i]);
+                if (!node.removed) {
+                    hits.add(new Hit(node.id, candidates.scores[i]));
+                }
+            }
+            if (hits.size() >= k || candidates.size < width || width >= size) {
+                return hits;
+            }
+            width *= 2;
+        }
+    }
+    
+    private Node nodeAt(int node) {
+        return nodes[node];
+    }
+    
+    private int maxConnections(int layer) {
+        return layer == 0 ? 2 * m : m;
+    }
+    
+    private int greedy(float[] query, int start, int layer) {
+        int current = start;
+        float best = vectors.dot(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : nodeAt(current).neighbors.get(layer)) {
+                float score = vectors.dot(query, neighbor);
+                if (score > best) {
+                    best = score;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Best-first search of one layer, returning up to ef nodes sorted by descending similarity
+     */
+    private Candidates searchLayer(float[] query, int entry, int ef, int layer) {
+        Visited seen = visited.get();
+        seen.reset(nodes.length);
+        Heap frontier = new Heap(ef * 2, true);
+        Heap results = new Heap(ef + 1, false);
+        
+        float entryScore = vectors.dot(query, entry);
+        seen.mark(entry);
+        frontier.push(entryScore, entry);
+        results.push(entryScore, entry);
+        
+        while (frontier.size > 0) {
+            if (results.size >= ef && frontier.peekScore() < results.peekScore()) {
+                break;
+            }
+            int current = frontier.popNode();
+            for (int neighbor : nodeAt(current).neighbors.get(layer)) {
+                if (!seen.mark(neighbor)) {
+                    continue;
+                }
+                float score = vectors.dot(query, neighbor);
+                if (results.size < ef || score > results.peekScore()) {
+                    frontier.push(score, neighbor);
+                    results.push(score, neighbor);
+                    if (results.size > ef) {
+                        results.popNode();
+                    }
+                }
+            }
+        }
+        
+        Candidates candidates = new Candidates(results.size);
+        for (int i = results.size - 1; i >= 0; i--) {
+            candidates.scores[i] = results.peekScore();
+            candidates.nodes[i] = results.popNode();
+        }
+        return candidates;
+    }
+    
+    /**
+     * Neighbour selection heuristic: a candidate is kept unless an already selected neighbour is
+     * closer to it than the base node is, which keeps links spread across directions. Remaining
+     * slots are filled with the best discarded candidates.
+     */
+    private int[] selectNeighbors(int[] candidates, float[] scores, int count, int max) {
+        if (count <= max) {
+            return Arrays.copyOf(candidates, count);
+        }
+        int[] selected = new int[max];
+        int selectedCount = 0;
+        boolean[] taken = new boolean[count];
+        for (int i = 0; i < count && selectedCount < max; i++) {
+            float[] candidate = vectors.vector(candidates[i]);
+            boolean diverse = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (vectors.dot(candidate, selected[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[selectedCount++] = candidates[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < count && selectedCount < max; i++) {
+            if (!taken[i]) {
+                selected[selectedCount++] = candidates[i];
+            }
+        }
+        return selected;
+    }
+    
+    private void connect(int node, int neighbor, int layer) {
+        Node target = nodeAt(node);
+        int[] current = target.neighbors.get(layer);
+        int max = maxConnections(layer);
+        int[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = neighbor;
+        if (extended.length <= max) {
+            target.neighbors.set(layer, extended);
+            return;
+        }
+        float[] base = vectors.vector(node);
+        float[] scores = new float[extended.length];
+        Integer[] order = new Integer[extended.length];
+        for (int i = 0; i < extended.length; i++) {
+            scores[i] = vectors.dot(base, extended[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(scores[b], scores[a]));
+        int[] sortedNodes = new int[extended.length];
+        float[] sortedScores = new float[extended.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedNodes[i] = extended[order[i]];
+            sortedScores[i] = scores[order[i]];
+        }
+        target.neighbors.set(layer, selectNeighbors(sortedNodes, sortedScores, sortedNodes.length, max));
+    }
+    
+    /**
+     * Write the graph; callers must keep it from changing meanwhile
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(m);
+        int count = size;
+        out.writeInt(count);
+        out.writeInt(entryPoint);
+        for (int i = 0; i < count; i++) {
+            Node node = nodeAt(i);
+            out.writeLong(node.id);
+            out.writeInt(node.level);
+            out.writeBoolean(node.removed);
+            for (int layer = 0; layer <= node.level; layer++) {
+                int[] neighbors = node.neighbors.get(layer);
+                out.writeInt(neighbors.length);
+                for (int neighbor : neighbors) {
+                    out.writeInt(neighbor);
+                }
+            }
+        }
+    }
+    
+    static HnswGraph readFrom(DataInput in, Vectors vectors, int efConstruction) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not an HNSW graph file");
+        }
+        HnswGraph graph = new HnswGraph(vectors, in.readInt(), efConstruction);
+        int count = in.readInt();
+        int entry = in.readInt();
+        Node[] loaded = new Node[Math.max(1024, Integer.highestOneBit(Math.max(1, count)) * 2)];
+        int removed = 0;
+        for (int i = 0; i < count; i++) {
+            Node node = new Node(in.readLong(), in.readInt());
+            node.removed = in.readBoolean();
+            removed += node.removed ? 1 : 0;
+            for (int layer = 0; layer <= node.level; layer++) {
+                int[] neighbors = new int[in.readInt()];
+                for (int j = 0; j < neighbors.length; j++) {
+                    neighbors[j] = in.readInt();
+                }
+                node.neighbors.set(layer, neighbors);
+            }
+            loaded[i] = node;
+        }
+        graph.nodes = loaded;
+        graph.removedCount = removed;
+        graph.size = count;
+        graph.entryPoint = entry;
+        return graph;
+    }
+    
+    private static final class Candidates {
+        final int[] nodes;
+        final float[] scores;
+        final int size;
+        
+        Candidates(int size) {
+            this.nodes = new int[size];
+            this.scores = new float[size];
+            this.size = size;
+        }
+    }
+    
+    /**
+     * Binary heap of (score, node); a max heap pops the best score first, a min heap the worst
+     */
+    private static final class Heap {
+        private float[] scores;
+        private int[] nodes;
+        private final boolean max;
+        int size;
+        
+        Heap(int capacity, boolean max) {
+            this.scores = new float[Math.max(4, capacity)];
+            this.nodes = new int[scores.length];
+            this.max = max;
+        }
+        
+        void push(float score, int node) {
+            if (size == scores.length) {
+                scores = Arrays.copyOf(scores, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                scores[i] = scores[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            scores[i] = score;
+            nodes[i] = node;
+        }
+        
+        float peekScore() {
+            return scores[0];
+        }
+        
+        int popNode() {
+            int top = nodes[0];
+            size--;
+            float score = scores[size];
+            int node = nodes[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], score)) {
+                    break;
+                }
+                scores[i] = scores[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            scores[i] = score;
+            nodes[i] = node;
+            return top;
+        }
+        
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+    
+    /**
+     * Visited marks reused across searches on the same thread; a new search only bumps the epoch
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int epoch;
+        
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[capacity];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+        
+        /** True if the node was not visited yet */
+        boolean mark(int node) {
+            if (node >= marks.length) {
+                // The graph grew during this search
+                marks = Arrays.copyOf(marks, Math.max(node + 1, marks.length * 2));
+            }
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
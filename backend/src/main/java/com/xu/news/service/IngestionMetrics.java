@@ -0,0 +1,214 @@
+package com.xu.news.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Micrometer instrumentation of RSS ingestion, exported through /actuator/prometheus.
+ * <p>
+ * Meters are tagged by feed host only, which keeps the number of time series bounded.
+ * Per-feed totals since startup are kept in memory for the feed summary endpoint.
+ * Fetch time runs until the response headers arrive; parse time covers streaming the body
+ * through the parser, so it includes the body transfer.
+ */
+@Component
+@RequiredArgsConstructor
+public class IngestionMetrics {
+    
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<String, FeedStats> feedStats = new ConcurrentHashMap<>();
+    
+    /**
+     * Totals of one feed since startup, plus derived averages and yield
+     */
+    public record FeedSummary(String feedUrl, String host, long polls, long errors, double avgFetchMillis,
+                              double avgParseMillis, double avgPersistMillis, double avgTotalMillis,
+                              long bytes, long itemsParsed, long itemsNew, long itemsDuplicate,
+                              long itemsSkipped, double newPerPoll, double duplicateRatio) {
+    }
+    
+    private static final class FeedStats {
+        final String host;
+        final LongAdder polls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder fetchNanos = new LongAdder();
+        final LongAdder parseNanos = new LongAdder();
+        final LongAdder persistNanos = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder itemsParsed = new LongAdder();
+        final LongAdder itemsNew = new LongAdder();
+        final LongAdder itemsDuplicate = new LongAdder();
+        final LongAdder itemsSkipped = new LongAdder();
+        
+        FeedStats(String host) {
+            this.host = host;
+        }
+    }
+    
+    /**
+     * Time until the response status and headers arrived; outcome is modified, not_modified or error
+     */
+    public void recordFetch(String feedUrl, long nanos, String outcome) {
+        FeedStats stats = stats(feedUrl);
+        stats.polls.increment();
+        stats.fetchNanos.add(nanos);
+        Timer.builder("rss.fetch")
+                .description("Time until an RSS feed responded")
+                .tags("host", stats.host, "outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Body streamed through the parser: bytes read, items emitted and items skipped by the checkpoint
+     */
+    public void recordParse(String feedUrl, long nanos, long bytes, int items, int skipped) {
+        FeedStats stats = stats(feedUrl);
+        stats.parseNanos.add(nanos);
+        stats.bytes.add(bytes);
+        stats.itemsParsed.add(items);
+        stats.itemsSkipped.add(skipped);
+        Timer.builder("rss.parse")
+                .description("Time to stream and parse an RSS feed body")
+                .tag("host", stats.host)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("rss.response.bytes")
+                .description("RSS feed body size")
+                .baseUnit("bytes")
+                .tag("host", stats.host)
+                .register(meterRegistry)
+                .record(bytes);
+        countItems(stats.host, "skipped", skipped);
+    }
+    
+    /**
+     * One saveArticles call: new articles stored, parsed items that turned out to be duplicates
+     */
+    public void recordPersist(String feedUrl, long nanos, int saved, int duplicates) {
+        FeedStats stats = stats(feedUrl);
+        stats.persistNanos.add(nanos);
+        stats.itemsNew.add(saved);
+        stats.itemsDuplicate.add(duplicates);
+        Timer.builder("rss.persist")
+                .description("Time to dedup and save the articles of one RSS feed")
+                .tag("host", stats.host)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        countItems(stats.host, "new", saved);
+        countItems(stats.host, "duplicate", duplicates);
+    }
+    
+    /**
+     * Text size of new articles before and after markup and boilerplate were stripped
+     */
+    public void recordCleaning(String feedUrl, long rawChars, long cleanChars) {
+        String host = stats(feedUrl).host;
+        meterRegistry.counter("rss.text.chars", "host", host, "form", "raw").increment(rawChars);
+        meterRegistry.counter("rss.text.chars", "host", host, "form", "clean").increment(cleanChars);
+    }
+    
+    /**
+     * A failed fetch, parse or persist
+     */
+    public void recordError(String feedUrl, String stage, Throwable error) {
+        FeedStats stats = stats(feedUrl);
+        stats.errors.increment();
+        meterRegistry.counter("rss.errors",
+                        "host", stats.host, "stage", stage, "exception", error.getClass().getSimpleName())
+                .increment();
+    }
+    
+    /**
+     * Export queue depth, activity and throughput counters of a pipeline stage
+     */
+    public void bindStage(IngestionStage stage) {
+        String name = stage.stats().name();
+        Gauge.builder("ingestion.stage.queued", stage, s -> s.stats().queued())
+                .description("Batches waiting in front of an ingestion stage")
+                .tag("stage", name)
+                .register(meterRegistry);
+        Gauge.builder("ingestion.stage.active", stage, s -> s.stats().active())
+                .description("Batches an ingestion stage is processing")
+                .tag("stage", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("ingestion.stage.items", stage, s -> s.stats().items())
+                .description("Items processed by an ingestion stage")
+                .tag("stage", name)
+                .register(meterRegistry);
+        FunctionCounter.builder("ingestion.stage.errors", stage, s -> s.stats().errors())
+                .description("Batches an ingestion stage failed to process")
+                .tag("stage", name)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Feeds with the highest average time per poll
+     */
+    public List<FeedSummary> slowestFeeds(int limit) {
+        return summaries().stream()
+                .sorted(Comparator.comparingDouble(FeedSummary::avgTotalMillis).reversed())
+                .limit(limit)
+                .toList();
+    }
+    
+    /**
+     * Feeds with the fewest new articles per poll; ties go to the feed with more duplicates
+     */
+    public List<FeedSummary> leastProductiveFeeds(int limit) {
+        return summaries().stream()
+                .sorted(Comparator.comparingDouble(FeedSummary::newPerPoll)
+                        .thenComparing(Comparator.comparingDouble(FeedSummary::duplicateRatio).reversed()))
+                .limit(limit)
+                .toList();
+    }
+    
+    private List<FeedSummary> summaries() {
+        return feedStats.entrySet().stream()
+                .map(entry -> summarize(entry.getKey(), entry.getValue()))
+                .filter(summary -> summary.polls() > 0 || summary.errors() > 0)
+                .toList();
+    }
+    
+    private static FeedSummary summarize(String feedUrl, FeedStats stats) {
+        long polls = stats.polls.sum();
+        long parsed = stats.itemsParsed.sum();
+        long duplicates = stats.itemsDuplicate.sum();
+        long skipped = stats.itemsSkipped.sum();
+        double fetch = average(stats.fetchNanos.sum(), polls);
+        double parse = average(stats.parseNanos.sum(), polls);
+        double persist = average(stats.persistNanos.sum(), polls);
+        long seen = parsed + skipped;
+        return new FeedSummary(feedUrl, stats.host, polls, stats.errors.sum(), fetch, parse, persist,
+                fetch + parse + persist, stats.bytes.sum(), parsed, stats.itemsNew.sum(), duplicates, skipped,
+                polls > 0 ? (double) stats.itemsNew.sum() / polls : 0,
+                seen > 0 ? (double) (duplicates + skipped) / seen : 0);
+    }
+    
+    private static double average(long nanos, long count) {
+        return count > 0 ? nanos / 1e6 / count : 0;
+    }
+    
+    private void countItems(String host, String result, int count) {
+        if (count > 0) {
+            meterRegistry.counter("rss.items", "host", host, "result", result).increment(count);
+        }
+    }
+    
+    private FeedStats stats(String feedUrl) {
+        return feedStats.computeIfAbsent(feedUrl, url -> new FeedStats(RssIngestionService.hostOf(url)));
+    }
+}
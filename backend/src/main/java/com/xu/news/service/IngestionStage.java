@@ -0,0 +1,161 @@
+package com.xu.news.service;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * One stage of the ingestion pipeline together with its counters.
+ * <p>
+ * A blocking stage reads from a bounded queue of queueCapacity batches and runs at most
+ * parallelism batches at a time on its own threads. When the stage falls behind, the queue
+ * fills up and demand towards the previous stage stops, so back-pressure travels all the
+ * way back to the feed fetches.
+ */
+@Slf4j
+public class IngestionStage {
+    
+    private final String name;
+    private final int parallelism;
+    private final int queueCapacity;
+    private final Scheduler scheduler;
+    
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder processingNanos = new LongAdder();
+    
+    /** Wall-clock time during which at least one batch was being processed */
+    private long busyNanos;
+    private long busySince;
+    
+    public record Stats(String name, int parallelism, int queueCapacity, int queued, int peakQueued,
+                        int active, long batches, long items, long errors, double avgBatchMillis,
+                        double itemsPerSecond) {
+    }
+    
+    /**
+     * Stage running on the caller's threads, e.g. the non-blocking feed fetches
+     */
+    IngestionStage(String name, int parallelism) {
+        this.name = name;
+        this.parallelism = Math.max(1, parallelism);
+        this.queueCapacity = 0;
+        this.scheduler = null;
+    }
+    
+    /**
+     * Blocking stage with its own bounded thread pool
+     */
+    IngestionStage(String name, int parallelism, int queueCapacity) {
+        this.name = name;
+        this.parallelism = Math.max(1, parallelism);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.scheduler = Schedulers.newBoundedElastic(this.parallelism, Integer.MAX_VALUE, "ingest-" + name);
+    }
+    
+    /**
+     * Run work for each batch of the input. A failing batch is logged, counted and dropped
+     * without stopping the pipeline; null results are dropped too.
+     */
+    <T, R> Flux<R> apply(Flux<T> input, Function<T, R> work, ToIntFunction<T> itemCount) {
+        return apply(input, work, itemCount, (batch, e) -> { });
+    }
+    
+    /**
+     * Like {@link #apply(Flux, Function, ToIntFunction)}, but a failing batch is also handed to
+     * onError on the stage's thread before it is dropped, so its owner can record the failure
+     */
+    <T, R> Flux<R> apply(Flux<T> input, Function<T, R> work, ToIntFunction<T> itemCount,
+                         BiConsumer<T, Exception> onError) {
+        return input
+                .doOnNext(batch -> enqueue(1))
+                .limitRate(queueCapacity)
+                .flatMap(batch -> Mono.fromCallable(() -> process(batch, work, itemCount, onError))
+                        .subscribeOn(scheduler), parallelism);
+    }
+    
+    private <T, R> R process(T batch, Function<T, R> work, ToIntFunction<T> itemCount,
+                             BiConsumer<T, Exception> onError) {
+        dequeue();
+        long start = begin();
+        boolean failed = false;
+        try {
+            return work.apply(batch);
+        } catch (Exception e) {
+            failed = true;
+            log.error("Ingestion stage {} failed to process a batch", name, e);
+            try {
+                onError.accept(batch, e);
+            } catch (Exception handlerFailure) {
+                log.error("Ingestion stage {} failed to record a failed batch", name, handlerFailure);
+            }
+            return null;
+        } finally {
+            end(start, itemCount.applyAsInt(batch), failed);
+        }
+    }
+    
+    void enqueue(int count) {
+        peakQueued.accumulateAndGet(queued.addAndGet(count), Math::max);
+    }
+    
+    void dequeue() {
+        queued.decrementAndGet();
+    }
+    
+    /**
+     * Start processing a batch; returns the start time
+     */
+    long begin() {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (active.getAndIncrement() == 0) {
+                busySince = now;
+            }
+        }
+        return now;
+    }
+    
+    void end(long start, int itemCount, boolean failed) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (active.decrementAndGet() == 0) {
+                busyNanos += now - busySince;
+            }
+        }
+        batches.increment();
+        items.add(itemCount);
+        processingNanos.add(now - start);
+        if (failed) {
+            errors.increment();
+        }
+    }
+    
+    public synchronized Stats stats() {
+        long busy = busyNanos + (active.get() > 0 ? System.nanoTime() - busySince : 0);
+        long batchCount = batches.sum();
+        long itemCount = items.sum();
+        return new Stats(name, parallelism, queueCapacity, queued.get(), peakQueued.get(), active.get(),
+                batchCount, itemCount, errors.sum(),
+                batchCount > 0 ? processingNanos.sum() / 1e6 / batchCount : 0,
+                busy > 0 ? itemCount * 1e9 / busy : 0);
+    }
+    
+    void dispose() {
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.xu.news.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index with BM25 scoring.
+ * <p>
+ * Every document added gets the next internal document number, so posting lists only ever
+ * grow at the end and are stored compressed: per posting the gap to the previous document
+ * number and the term frequency, both as variable-length integers, which takes two or three
+ * bytes for most postings. Replacing a document adds it under a new number and marks the old
+ * one deleted. Deleted documents are skipped when scoring but still count in the collection
+ * statistics until {@link #compact()} rewrites the posting lists without them.
+ * <p>
+ * Searches run concurrently with each other; adds, removals and compaction take a write lock.
+ */
+final class InvertedIndex {
+    
+    private static final long DELETED = -1;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<Long, Integer> docsById = new HashMap<>();
+    
+    /** External id per document number, DELETED for replaced and removed documents */
+    private long[] ids = new long[1024];
+    private int[] lengths = new int[1024];
+    private int docCount;
+    private int deletedCount;
+    private long totalLength;
+    
+    record Hit(long id, float score) {
+    }
+    
+    /**
+     * Add a document given its term frequencies, replacing any earlier version with the same id
+     */
+    void add(long id, Map<String, Integer> termFrequencies) {
+        lock.writeLock().lock();
+        try {
+            Integer previous = docsById.get(id);
+            if (previous != null) {
+                ids[previous] = DELETED;
+                deletedCount++;
+            }
+            if (termFrequencies.isEmpty()) {
+                docsById.remove(id);
+                return;
+            }
+            int doc = docCount++;
+            if (doc == ids.length) {
+                ids = Arrays.copyOf(ids, doc * 2);
+                lengths = Arrays.copyOf(lengths, doc * 2);
+            }
+            int length = 0;
+            for (Map.Entry<String, Integer> entry : termFrequencies.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new PostingList()).append(doc, entry.getValue());
+                length += entry.getValue();
+            }
+            ids[doc] = id;
+            lengths[doc] = length;
+            totalLength += length;
+            docsById.put(id, doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docsById.remove(id);
+            if (doc == null) {
+                return false;
+            }
+            ids[doc] = DELETED;
+            deletedCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * The topK documents by BM25 score for the given terms, best first. Repeated terms count once.
+     */
+    List<Hit> search(Collection<String> terms, int topK, float k1, float b) {
+        if (topK <= 0 || terms.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (docCount == 0) {
+                return List.of();
+            }
+            float[] scores = new float[docCount];
+            float averageLength = (float) totalLength / docCount;
+            for (String term : new LinkedHashSet<>(terms)) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                float idf = (float) Math.log(1 + (docCount - list.count + 0.5) / (list.count + 0.5));
+                list.forEach((doc, frequency) -> {
+                    if (ids[doc] == DELETED) {
+                        return;
+                    }
+                    float norm = k1 * (1 - b + b * lengths[doc] / averageLength);
+                    scores[doc] += idf * frequency * (k1 + 1) / (frequency + norm);
+                });
+            }
+            return best(scores, topK);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private List<Hit> best(float[] scores, int topK) {
+        Comparator<Hit> order = Comparator.comparingDouble(Hit::score).thenComparing(Hit::id, Comparator.reverseOrder());
+        PriorityQueue<Hit> best = new PriorityQueue<>(topK + 1, order);
+        for (int doc = 0; doc < scores.length; doc++) {
+            if (scores[doc] == 0 || (best.size() == topK && scores[doc] < best.peek().score())) {
+                continue;
+            }
+            best.add(new Hit(ids[doc], scores[doc]));
+            if (best.size() > topK) {
+                best.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(order.reversed());
+        return hits;
+    }
+    
+    /**
+     * Rewrite the posting lists without deleted documents and renumber the rest
+     */
+    void compact() {
+        lock.writeLock().lock();
+        try {
+            if (deletedCount == 0) {
+                return;
+            }
+            int[] renumbered = new int[docCount];
+            int live = 0;
+            for (int doc = 0; doc < docCount; doc++) {
+                if (ids[doc] == DELETED) {
+                    renumbered[doc] = -1;
+                    continue;
+                }
+                renumbered[doc] = live;
+                ids[live] = ids[doc];
+                lengths[live] = lengths[doc];
+                docsById.put(ids[live], live);
+                live++;
+            }
+            postings.replaceAll((term, list) -> list.rewrite(renumbered));
+            postings.values().removeIf(list -> list.count == 0);
+            totalLength = 0;
+            for (int doc = 0; doc < live; doc++) {
+                totalLength += lengths[doc];
+            }
+            docCount = live;
+            deletedCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Live documents
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return docsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Bytes taken by the compressed postings
+     */
+    long postingBytes() {
+        lock.readLock().lock();
+        try {
+            return postings.values().stream().mapToLong(list -> list.size).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private interface PostingConsumer {
+        void accept(int doc, int frequency);
+    }
+    
+    /**
+     * Document gaps and term frequencies as variable-length integers, seven bits per byte
+     */
+    private static final class PostingList {
+        
+        private byte[] bytes = new byte[8];
+        private int size;
+        private int lastDoc;
+        private int count;
+        
+        void append(int doc, int frequency) {
+            if (size + 10 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 10));
+            }
+            writeVarint(doc - lastDoc);
+            writeVarint(frequency);
+            lastDoc = doc;
+            count++;
+        }
+        
+        void forEach(PostingConsumer consumer) {
+            int position = 0;
+            int doc = 0;
+            while (position < size) {
+                int gap = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte next = bytes[position++];
+                    gap |= (next & 0x7F) << shift;
+                    if (next >= 0) {
+                        break;
+                    }
+                }
+                int frequency = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte next = bytes[position++];
+                    frequency |= (next & 0x7F) << shift;
+                    if (next >= 0) {
+                        break;
+                    }
+                }
+                doc += gap;
+                consumer.accept(doc, frequency);
+            }
+        }
+        
+        PostingList rewrite(int[] renumbered) {
+            PostingList rewritten = new PostingList();
+            forEach((doc, frequency) -> {
+                if (renumbered[doc] >= 0) {
+                    rewritten.append(renumbered[doc], frequency);
+                }
+            });
+            if (rewritten.size < rewritten.bytes.length) {
+                rewritten.bytes = Arrays.copyOf(rewritten.bytes, Math.max(rewritten.size, 1));
+            }
+            return rewritten;
+        }
+        
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+}
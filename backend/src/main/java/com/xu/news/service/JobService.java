@@ -0,0 +1,130 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.JobRun;
+import com.xu.news.repository.JobRunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.CronTrigger;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Administration of the Quartz jobs: their triggers, execution history and manual runs.
+ * <p>
+ * Triggers are stored in the JDBC job store and not overwritten at startup, so a run missed
+ * while the application was down is still known to Quartz and handled by the trigger's
+ * misfire instruction. Once the application is up, triggers whose configured schedule
+ * differs from the stored one are rescheduled.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobService {
+    
+    private final Scheduler scheduler;
+    private final List<Trigger> configuredTriggers;
+    private final JobRunRepository jobRunRepository;
+    
+    @Value("${app.jobs.history-retention-days:30}")
+    private int historyRetentionDays;
+    
+    public record TriggerInfo(String name, String state, String schedule, Date nextFireTime,
+                              Date previousFireTime, int misfireInstruction) {
+    }
+    
+    public record JobInfo(String name, String group, String description, boolean concurrentExecutionDisallowed,
+                          boolean requestsRecovery, List<TriggerInfo> triggers) {
+    }
+    
+    /**
+     * Apply schedule changes from the configuration to the stored triggers
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncSchedules() {
+        for (Trigger configured : configuredTriggers) {
+            try {
+                Trigger stored = scheduler.getTrigger(configured.getKey());
+                if (stored != null && !Objects.equals(schedule(stored), schedule(configured))) {
+                    log.info("Rescheduling {}: {} -> {}", configured.getKey(), schedule(stored), schedule(configured));
+                    scheduler.rescheduleJob(configured.getKey(), configured);
+                }
+            } catch (SchedulerException e) {
+                log.error("Failed to sync schedule of {}", configured.getKey(), e);
+            }
+        }
+    }
+    
+    public List<JobInfo> listJobs() throws SchedulerException {
+        List<JobInfo> jobs = new ArrayList<>();
+        for (String group : scheduler.getJobGroupNames()) {
+            for (JobKey key : scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group))) {
+                JobDetail detail = scheduler.getJobDetail(key);
+                List<TriggerInfo> triggers = new ArrayList<>();
+                for (Trigger trigger : scheduler.getTriggersOfJob(key)) {
+                    triggers.add(new TriggerInfo(trigger.getKey().getName(),
+                            scheduler.getTriggerState(trigger.getKey()).name(), schedule(trigger),
+                            trigger.getNextFireTime(), trigger.getPreviousFireTime(),
+                            trigger.getMisfireInstruction()));
+                }
+                jobs.add(new JobInfo(key.getName(), key.getGroup(), detail.getDescription(),
+                        detail.isConcurrentExectionDisallowed(), detail.requestsRecovery(), triggers));
+            }
+        }
+        return jobs;
+    }
+    
+    /**
+     * Execution history, newest first as requested by the pageable; all jobs if jobName is null
+     */
+    public Page<JobRun> getHistory(String jobName, Pageable pageable) {
+        return jobName != null
+                ? jobRunRepository.findByJobName(jobName, pageable)
+                : jobRunRepository.findAll(pageable);
+    }
+    
+    /**
+     * Run a job now, in addition to its schedule. Jobs that disallow concurrent execution
+     * wait for a running execution to finish.
+     */
+    public void triggerNow(String jobName) throws SchedulerException {
+        for (String group : scheduler.getJobGroupNames()) {
+            JobKey key = JobKey.jobKey(jobName, group);
+            if (scheduler.checkExists(key)) {
+                scheduler.triggerJob(key);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Job not found: " + jobName);
+    }
+    
+    public int deleteOldHistory() {
+        return jobRunRepository.deleteFiredBefore(LocalDateTime.now().minusDays(historyRetentionDays));
+    }
+    
+    private static String schedule(Trigger trigger) {
+        if (trigger instanceof CronTrigger cron) {
+            return "cron " + cron.getCronExpression();
+        }
+        if (trigger instanceof SimpleTrigger simple) {
+            return "every " + simple.getRepeatInterval() + " ms";
+        }
+        return trigger.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,189 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.IndexOutboxEvent;
+import com.xu.news.entity.NewsArticle;
+import com.xu.news.repository.IndexOutboxStore;
+import com.xu.news.repository.NewsRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Background indexer draining the knowledge base outbox.
+ * <p>
+ * Each batch is reconciled against the current database state rather than replayed event by
+ * event: all events of an article collapse into one call, articles that still exist (and are
+ * not near-duplicates) are upserted with their latest content, everything else is deleted.
+ * That makes retries and out-of-order events harmless. Articles that could not be indexed are
+ * retried with exponential backoff; their events stay in the outbox until they succeed, while
+ * the rest of the batch is completed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KnowledgeBaseIndexer {
+    
+    private final IndexOutboxStore indexOutboxStore;
+    private final NewsRepository newsRepository;
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final IngestionMetrics ingestionMetrics;
+    
+    @Value("${app.kb.indexer.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.kb.indexer.batch-size:64}")
+    private int batchSize;
+    
+    @Value("${app.kb.indexer.parallelism:2}")
+    private int parallelism;
+    
+    @Value("${app.kb.indexer.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+    
+    @Value("${app.kb.indexer.lease-seconds:300}")
+    private long leaseSeconds;
+    
+    @Value("${app.kb.indexer.retry-base-seconds:10}")
+    private long retryBaseSeconds;
+    
+    @Value("${app.kb.indexer.retry-max-seconds:3600}")
+    private long retryMaxSeconds;
+    
+    private IngestionStage embedStage;
+    
+    @PostConstruct
+    void createStage() {
+        embedStage = new IngestionStage("embed", parallelism);
+        ingestionMetrics.bindStage(embedStage);
+    }
+    
+    /**
+     * Drain due outbox events with up to app.kb.indexer.parallelism concurrent batches
+     */
+    @Scheduled(fixedDelayString = "${app.kb.indexer.interval-ms:2000}")
+    public void drain() {
+        if (!enabled) {
+            return;
+        }
+        Flux.range(0, Math.max(1, parallelism))
+                .flatMap(worker -> Mono.fromRunnable(this::drainBatches)
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then()
+                .block();
+    }
+    
+    private void drainBatches() {
+        for (int i = 0; i < maxBatchesPerRun; i++) {
+            List<IndexOutboxEvent> events;
+            try {
+                events = indexOutboxStore.claim(batchSize, LocalDateTime.now().plusSeconds(leaseSeconds));
+            } catch (Exception e) {
+                log.error("Failed to claim knowledge base outbox events", e);
+                return;
+            }
+            if (events.isEmpty()) {
+                return;
+            }
+            processBatch(events);
+        }
+    }
+    
+    private void processBatch(List<IndexOutboxEvent> events) {
+        Set<Long> articleIds = new LinkedHashSet<>();
+        for (IndexOutboxEvent event : events) {
+            articleIds.add(event.getArticleId());
+        }
+        
+        long start = embedStage.begin();
+        try {
+            List<NewsArticle> upserts = newsRepository.findAllById(articleIds).stream()
+                    .filter(article -> article.getCanonicalId() == null)
+                    .toList();
+            Set<Long> deletes = new LinkedHashSet<>(articleIds);
+            upserts.forEach(article -> deletes.remove(article.getId()));
+            
+            Set<Long> failed = Set.of();
+            String error = null;
+            if (!upserts.isEmpty()) {
+                KnowledgeBaseService.AddResult result = knowledgeBaseService.addArticlesToKnowledgeBase(upserts);
+                failed = new HashSet<>(result.failedArticleIds());
+                error = result.firstError();
+                Set<Long> failedIds = failed;
+                List<Long> indexed = upserts.stream()
+                        .map(NewsArticle::getId)
+                        .filter(id -> !failedIds.contains(id))
+                        .toList();
+                if (!indexed.isEmpty()) {
+                    newsRepository.markIndexed(indexed);
+                }
+            }
+            if (!deletes.isEmpty()) {
+                knowledgeBaseService.removeArticlesFromKnowledgeBase(new ArrayList<>(deletes));
+                newsRepository.clearVectorIds(deletes);
+            }
+            
+            // Only the events of articles whose embedding batch failed stay in the outbox
+            List<IndexOutboxEvent> retry = new ArrayList<>();
+            List<Long> done = new ArrayList<>(events.size());
+            for (IndexOutboxEvent event : events) {
+                if (failed.contains(event.getArticleId())) {
+                    retry.add(event);
+                } else {
+                    done.add(event.getId());
+                }
+            }
+            if (!done.isEmpty()) {
+                indexOutboxStore.complete(done);
+            }
+            embedStage.end(start, articleIds.size(), !retry.isEmpty());
+            log.debug("Indexed {} and removed {} articles ({} outbox events)",
+                    upserts.size() - failed.size(), deletes.size(), done.size());
+            if (!retry.isEmpty()) {
+                reschedule(retry, error, null);
+            }
+        } catch (Exception e) {
+            embedStage.end(start, articleIds.size(), true);
+            reschedule(events, e.getMessage(), e);
+        }
+    }
+    
+    private void reschedule(List<IndexOutboxEvent> events, String error, Exception cause) {
+        int attempts = 0;
+        Set<Long> articleIds = new HashSet<>();
+        List<Long> eventIds = new ArrayList<>(events.size());
+        for (IndexOutboxEvent event : events) {
+            articleIds.add(event.getArticleId());
+            eventIds.add(event.getId());
+            attempts = Math.max(attempts, event.getAttempts());
+        }
+        long delay = Math.min(retryMaxSeconds, retryBaseSeconds << Math.min(attempts, 20));
+        log.warn("Knowledge base indexing failed for {} articles (attempt {}), retrying in {} s: {}",
+                articleIds.size(), attempts + 1, delay, error, cause);
+        try {
+            indexOutboxStore.fail(eventIds, LocalDateTime.now().plusSeconds(delay), error);
+        } catch (Exception failure) {
+            // The lease runs out and the events are claimed again
+            log.error("Failed to reschedule knowledge base outbox events", failure);
+        }
+    }
+    
+    public IngestionStage.Stats getStats() {
+        return embedStage.stats();
+    }
+    
+    /**
+     * Outbox backlog: pending events, events that have failed before and the oldest pending event
+     */
+    public Map<String, Object> getOutboxStats() {
+        return indexOutboxStore.stats();
+    }
+}
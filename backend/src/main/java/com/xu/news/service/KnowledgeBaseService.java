@@ -1,14 +1,28 @@
 package com.xu.news.service;
 
 import com.xu.news.entity.NewsArticle;
+import com.xu.news.repository.NewsRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -18,36 +32,104 @@ public class KnowledgeBaseService {
     
     private final PythonServiceClient pythonClient;
     private final NewsService newsService;
+    private final ArticleTextCleaner articleTextCleaner;
+    private final RetrievalCache retrievalCache;
+    private final LocalVectorIndex localVectorIndex;
+    private final NewsRepository newsRepository;
+    private final LexicalIndex lexicalIndex;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.kb.add.batch-size:32}")
+    private int addBatchSize;
+    
+    @Value("${app.kb.add.batch-max-bytes:1048576}")
+    private long addBatchMaxBytes;
+    
+    @Value("${app.kb.add.concurrency:2}")
+    private int addConcurrency;
+    
+    @Value("${app.kb.add.retries:2}")
+    private int addRetries;
+    
+    @Value("${app.kb.add.retry-backoff-ms:500}")
+    private long addRetryBackoffMs;
+    
+    @Value("${app.query.rerank.protocol:passages}")
+    private String rerankProtocol;
+    
+    @Value("${app.query.rerank.passage-chars:1000}")
+    private int rerankPassageChars;
+    
+    @Value("${app.query.rerank.candidates:20}")
+    private int rerankCandidates;
+    
+    @Value("${app.query.rerank.max-candidates:50}")
+    private int rerankMaxCandidates;
+    
+    @Value("${app.query.rerank.adaptive:true}")
+    private boolean adaptiveRerank;
+    
+    @Value("${app.query.rerank.skip-gap:0.15}")
+    private double rerankSkipGap;
+    
+    @Value("${app.query.rerank.flat-spread:0.05}")
+    private double rerankFlatSpread;
+    
+    @Value("${app.search.hybrid.candidates:20}")
+    private int hybridCandidates;
+    
+    @Value("${app.search.hybrid.rrf-k:60}")
+    private int rrfK;
+    
+    @Value("${app.search.hybrid.semantic-timeout-ms:3000}")
+    private long semanticTimeoutMs;
+    
+    /**
+     * One /documents/add call; error is null when the batch succeeded
+     */
+    public record BatchResult(int batch, int documents, long bytes, int added, int attempts, long millis,
+                              String error) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+    
+    /**
+     * Outcome of adding a list of articles: per-batch results, the articles whose batch failed
+     * after all retries, and the overall throughput
+     */
+    public record AddResult(int requested, int skipped, int added, List<BatchResult> batches,
+                            List<Long> failedArticleIds, long millis, long bytes) {
+        public boolean hasFailures() {
+            return !failedArticleIds.isEmpty();
+        }
+        
+        public double documentsPerSecond() {
+            return millis > 0 ? added * 1000.0 / millis : 0;
+        }
+        
+        public double bytesPerSecond() {
+            return millis > 0 ? bytes * 1000.0 / millis : 0;
+        }
+        
+        public String firstError() {
+            return batches.stream().map(BatchResult::error).filter(Objects::nonNull).findFirst().orElse(null);
+        }
+    }
     
     /**
      * Add article to knowledge base (ChromaDB)
+     * Near-duplicates of an already indexed story are skipped.
      */
     public void addArticleToKnowledgeBase(NewsArticle article) {
+        lexicalIndex.upsert(List.of(article));
+        if (article.getCanonicalId() != null) {
+            log.info("Article {} is a near-duplicate of {}, not embedding it", article.getId(), article.getCanonicalId());
+            return;
+        }
         try {
-            PythonServiceClient.AddDocumentRequest docRequest = new PythonServiceClient.AddDocumentRequest();
-            docRequest.setId(String.valueOf(article.getId()));
-            
-            // Combine title and content for better semantic search
-            String text = article.getTitle() + "\n\n" + 
-                         (article.getContent() != null ? article.getContent() : article.getSummary());
-            docRequest.setText(text);
-            
-            // Metadata
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("title", article.getTitle());
-            metadata.put("url", article.getUrl());
-            metadata.put("source", article.getSource());
-            metadata.put("published_at", article.getPublishedAt() != null ? article.getPublishedAt().toString() : "");
-            metadata.put("content_type", article.getContentType().name());
-            if (article.getAuthor() != null) {
-                metadata.put("author", article.getAuthor());
-            }
-            if (!article.getTags().isEmpty()) {
-                metadata.put("tags", String.join(",", article.getTags()));
-            }
-            docRequest.setMetadata(metadata);
-            
-            pythonClient.addDocuments(List.of(docRequest)).block();
+            writeDocuments(List.of(toDocument(article))).block();
+            retrievalCache.bumpGeneration();
             log.info("Added article {} to knowledge base", article.getId());
         } catch (Exception e) {
             log.error("Failed to add article to knowledge base: {}", article.getId(), e);
@@ -57,53 +139,142 @@ public class KnowledgeBaseService {
     
     /**
      * Add multiple articles to knowledge base
+     * Near-duplicates of an already indexed story are skipped.
+     * <p>
+     * Documents are sent in batches of at most app.kb.add.batch-size documents and
+     * app.kb.add.batch-max-bytes of text, app.kb.add.concurrency at a time. A failed batch is
+     * retried on its own with backoff; batches that still fail are reported in the result
+     * instead of failing the whole call, so the caller can retry just those articles.
+     * The lexical index does not depend on the Python service and is updated first.
      */
-    public int addArticlesToKnowledgeBase(List<NewsArticle> articles) {
-        try {
-            List<PythonServiceClient.AddDocumentRequest> docRequests = articles.stream()
-                    .map(article -> {
-                        PythonServiceClient.AddDocumentRequest docRequest = new PythonServiceClient.AddDocumentRequest();
-                        docRequest.setId(String.valueOf(article.getId()));
-                        
-                        String text = article.getTitle() + "\n\n" + 
-                                     (article.getContent() != null ? article.getContent() : article.getSummary());
-                        docRequest.setText(text);
-                        
-                        Map<String, Object> metadata = new HashMap<>();
-                        metadata.put("title", article.getTitle());
-                        metadata.put("url", article.getUrl());
-                        metadata.put("source", article.getSource());
-                        metadata.put("published_at", article.getPublishedAt() != null ? article.getPublishedAt().toString() : "");
-                        metadata.put("content_type", article.getContentType().name());
-                        if (article.getAuthor() != null) {
-                            metadata.put("author", article.getAuthor());
-                        }
-                        if (!article.getTags().isEmpty()) {
-                            metadata.put("tags", String.join(",", article.getTags()));
-                        }
-                        docRequest.setMetadata(metadata);
-                        
-                        return docRequest;
-                    })
-                    .collect(Collectors.toList());
-            
-            Map<String, Object> result = pythonClient.addDocuments(docRequests).block();
-            int count = result != null ? (int) result.getOrDefault("count", 0) : 0;
-            log.info("Added {} articles to knowledge base", count);
-            return count;
-        } catch (Exception e) {
-            log.error("Failed to add articles to knowledge base", e);
-            throw new RuntimeException("Failed to add articles to knowledge base", e);
+    public AddResult addArticlesToKnowledgeBase(List<NewsArticle> articles) {
+        lexicalIndex.upsert(articles);
+        List<NewsArticle> canonical = articles.stream()
+                .filter(article -> article.getCanonicalId() == null)
+                .toList();
+        int skipped = articles.size() - canonical.size();
+        if (skipped > 0) {
+            log.info("Skipping {} near-duplicate articles", skipped);
+        }
+        if (canonical.isEmpty()) {
+            return new AddResult(articles.size(), skipped, 0, List.of(), List.of(), 0, 0);
+        }
+        
+        List<List<PythonServiceClient.AddDocumentRequest>> batches = DocumentBatches.split(
+                canonical.stream().map(this::toDocument).toList(), addBatchSize, addBatchMaxBytes);
+        long start = System.nanoTime();
+        List<BatchResult> results = Flux.range(0, batches.size())
+                .flatMap(index -> sendBatch(index, batches.get(index)), Math.max(1, addConcurrency))
+                .collectSortedList(Comparator.comparingInt(BatchResult::batch))
+                .block();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        retrievalCache.bumpGeneration();
+        
+        int added = 0;
+        long bytes = 0;
+        List<Long> failedArticleIds = new ArrayList<>();
+        for (BatchResult batch : results) {
+            bytes += batch.bytes();
+            if (batch.isSuccess()) {
+                added += batch.added();
+            } else {
+                batches.get(batch.batch()).forEach(document -> failedArticleIds.add(Long.valueOf(document.getId())));
+            }
+        }
+        AddResult result = new AddResult(articles.size(), skipped, added, results, failedArticleIds, millis, bytes);
+        log.info("Added {} articles to knowledge base in {} batches ({} failed) in {} ms, {} docs/s",
+                added, batches.size(), results.stream().filter(batch -> !batch.isSuccess()).count(), millis,
+                Math.round(result.documentsPerSecond()));
+        return result;
+    }
+    
+    private Mono<BatchResult> sendBatch(int index, List<PythonServiceClient.AddDocumentRequest> batch) {
+        long bytes = batch.stream().mapToLong(DocumentBatches::sizeOf).sum();
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        return Mono.defer(() -> {
+                    attempts.incrementAndGet();
+                    return writeDocuments(batch);
+                })
+                .retryWhen(Retry.backoff(addRetries, Duration.ofMillis(addRetryBackoffMs))
+                        .filter(KnowledgeBaseService::isRetryable)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+                .map(count -> new BatchResult(index, batch.size(), bytes, count, attempts.get(),
+                        (System.nanoTime() - start) / 1_000_000, null))
+                .onErrorResume(e -> {
+                    log.warn("Knowledge base batch {} of {} documents failed after {} attempts",
+                            index, batch.size(), attempts.get(), e);
+                    return Mono.just(new BatchResult(index, batch.size(), bytes, 0, attempts.get(),
+                            (System.nanoTime() - start) / 1_000_000, String.valueOf(e.getMessage())));
+                });
+    }
+    
+    /**
+     * Store documents in ChromaDB, or embed them and store the vectors in the local index;
+     * emits the number of documents stored
+     */
+    private Mono<Integer> writeDocuments(List<PythonServiceClient.AddDocumentRequest> documents) {
+        if (localVectorIndex.isEnabled()) {
+            List<Long> ids = documents.stream().map(document -> Long.valueOf(document.getId())).toList();
+            return pythonClient.embed(documents.stream().map(PythonServiceClient.AddDocumentRequest::getText).toList())
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(response -> {
+                        localVectorIndex.upsert(ids, response.getEmbeddings());
+                        return documents.size();
+                    });
+        }
+        return pythonClient.addDocuments(documents)
+                .map(response -> response.get("count") instanceof Number count ? count.intValue() : 0)
+                .defaultIfEmpty(0);
+    }
+    
+    /**
+     * Timeouts, connection failures and server errors are worth another try, rejected requests are not
+     */
+    private static boolean isRetryable(Throwable e) {
+        return !(e instanceof WebClientResponseException response) || response.getStatusCode().is5xxServerError();
+    }
+    
+    private PythonServiceClient.AddDocumentRequest toDocument(NewsArticle article) {
+        PythonServiceClient.AddDocumentRequest docRequest = new PythonServiceClient.AddDocumentRequest();
+        docRequest.setId(String.valueOf(article.getId()));
+        
+        // Combine title and content for better semantic search
+        docRequest.setText(documentText(article));
+        
+        // Metadata
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("title", article.getTitle());
+        metadata.put("url", article.getUrl());
+        metadata.put("source", article.getSource());
+        metadata.put("published_at", article.getPublishedAt() != null ? article.getPublishedAt().toString() : "");
+        metadata.put("content_type", article.getContentType().name());
+        if (article.getAuthor() != null) {
+            metadata.put("author", article.getAuthor());
+        }
+        if (!article.getTags().isEmpty()) {
+            metadata.put("tags", String.join(",", article.getTags()));
         }
+        docRequest.setMetadata(metadata);
+        return docRequest;
+    }
+    
+    /**
+     * Title and clean text of an article. The text is also what query answers quote to the LLM,
+     * so markup and boilerplate stay out of both the embedder payload and the prompts.
+     */
+    private String documentText(NewsArticle article) {
+        String text = articleTextCleaner.cleanTextOf(article);
+        return article.getTitle() + "\n\n" + (text != null ? text : "");
     }
     
     /**
-     * Semantic search in knowledge base
+     * Semantic search in knowledge base, answered from the retrieval cache when possible
      */
     public List<PythonServiceClient.SearchResult> search(String query, int topK) {
         try {
-            PythonServiceClient.SearchResponse response = pythonClient.search(query, topK).block();
-            return response != null ? response.getResults() : new ArrayList<>();
+            return retrievalCache.getOrLoad(RetrievalCache.key(query, topK, false, 0),
+                    () -> searchDocuments(query, topK));
         } catch (Exception e) {
             log.error("Failed to search in knowledge base", e);
             throw new RuntimeException("Failed to search in knowledge base", e);
@@ -111,18 +282,64 @@ public class KnowledgeBaseService {
     }
     
     /**
-     * Semantic search with reranking
+     * Semantic search with reranking, answered from the retrieval cache when possible
      */
     public List<PythonServiceClient.RerankResult> searchWithRerank(String query, int topK, int rerankTopK) {
         try {
-            // First, get initial results
-            PythonServiceClient.SearchResponse searchResponse = pythonClient.search(query, topK).block();
-            if (searchResponse == null || searchResponse.getResults().isEmpty()) {
-                return new ArrayList<>();
+            return retrievalCache.getOrLoad(RetrievalCache.key(query, rerankTopK, true, topK),
+                    () -> loadWithRerank(query, topK, rerankTopK));
+        } catch (Exception e) {
+            log.error("Failed to search with rerank", e);
+            throw new RuntimeException("Failed to search with rerank", e);
+        }
+    }
+    
+    /**
+     * Semantic search with reranking of app.query.rerank.candidates first-stage candidates,
+     * or fewer or more of them as the adaptive depth decides
+     */
+    public List<PythonServiceClient.RerankResult> searchWithRerank(String query, int rerankTopK) {
+        return searchWithRerank(query, rerankCandidates, rerankTopK);
+    }
+    
+    private List<PythonServiceClient.RerankResult> loadWithRerank(String query, int topK, int rerankTopK) {
+        // First, get initial results
+        List<PythonServiceClient.SearchResult> candidates = searchDocuments(query, topK);
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (adaptiveRerank) {
+            AdaptiveRerank.Plan plan = AdaptiveRerank.plan(
+                    candidates.stream().map(PythonServiceClient.SearchResult::getScore).toList(),
+                    rerankTopK, topK, rerankMaxCandidates, rerankSkipGap, rerankFlatSpread);
+            meterRegistry.counter("rerank.decisions", "decision", plan.action().name().toLowerCase(Locale.ROOT))
+                    .increment();
+            log.debug("Rerank plan for {} candidates: {}", candidates.size(), plan);
+            if (plan.action() == AdaptiveRerank.Action.SKIP) {
+                // The cut is clear, so only the kept candidates are scored: callers threshold
+                // cross-encoder scores and must not get first-stage similarities instead
+                candidates = new ArrayList<>(candidates.subList(0, Math.min(rerankTopK, candidates.size())));
             }
-            
-            // Prepare documents for reranking
-            List<Map<String, Object>> documents = searchResponse.getResults().stream()
+            if (plan.action() == AdaptiveRerank.Action.WIDEN) {
+                candidates = searchDocuments(query, plan.depth());
+            }
+        }
+        return rerank(query, candidates, rerankTopK);
+    }
+    
+    /**
+     * Cross-encoder rerank of the candidates, best rerankTopK first.
+     * <p>
+     * With app.query.rerank.protocol=passages (the default) only the first
+     * app.query.rerank.passage-chars characters of each text are sent, which is about what the
+     * cross-encoder reads anyway, and only scores come back; texts and metadata stay here. With
+     * ids the Python service reads the texts from ChromaDB itself, which only works for the
+     * chroma engine. full is the original protocol, sending and receiving whole documents.
+     */
+    private List<PythonServiceClient.RerankResult> rerank(String query, List<PythonServiceClient.SearchResult> candidates,
+                                                          int rerankTopK) {
+        if ("full".equalsIgnoreCase(rerankProtocol)) {
+            List<Map<String, Object>> documents = candidates.stream()
                     .map(result -> {
                         Map<String, Object> doc = new HashMap<>();
                         doc.put("id", result.getId());
@@ -131,22 +348,201 @@ public class KnowledgeBaseService {
                         return doc;
                     })
                     .collect(Collectors.toList());
-            
-            // Rerank
             PythonServiceClient.RerankResponse rerankResponse = pythonClient.rerank(query, documents, rerankTopK).block();
             return rerankResponse != null ? rerankResponse.getResults() : new ArrayList<>();
-        } catch (Exception e) {
-            log.error("Failed to search with rerank", e);
-            throw new RuntimeException("Failed to search with rerank", e);
         }
+        
+        boolean byId = "ids".equalsIgnoreCase(rerankProtocol) && !localVectorIndex.isEnabled();
+        List<String> ids = byId ? candidates.stream().map(PythonServiceClient.SearchResult::getId).toList() : null;
+        List<String> passages = byId ? null : candidates.stream()
+                .map(result -> truncate(result.getText(), rerankPassageChars))
+                .toList();
+        PythonServiceClient.RerankScoresResponse response =
+                pythonClient.rerankScores(query, ids, passages, rerankPassageChars).block();
+        if (response == null || response.getScores() == null || response.getScores().size() != candidates.size()) {
+            throw new IllegalStateException("Rerank returned " + (response != null && response.getScores() != null
+                    ? response.getScores().size() : 0) + " scores for " + candidates.size() + " candidates");
+        }
+        
+        List<PythonServiceClient.RerankResult> results = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            Double score = response.getScores().get(i);
+            if (score != null) {
+                PythonServiceClient.RerankResult result = toRerankResult(candidates.get(i));
+                result.setScore(score);
+                results.add(result);
+            }
+        }
+        results.sort(Comparator.comparingDouble(PythonServiceClient.RerankResult::getScore).reversed());
+        return results.size() > rerankTopK ? new ArrayList<>(results.subList(0, rerankTopK)) : results;
+    }
+    
+    private static String truncate(String text, int maxChars) {
+        if (text == null || text.length() <= maxChars) {
+            return text != null ? text : "";
+        }
+        int end = maxChars;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+    
+    private static PythonServiceClient.RerankResult toRerankResult(PythonServiceClient.SearchResult source) {
+        PythonServiceClient.RerankResult result = new PythonServiceClient.RerankResult();
+        result.setId(source.getId());
+        result.setText(source.getText());
+        result.setScore(source.getScore());
+        result.setMetadata(source.getMetadata());
+        return result;
+    }
+    
+    /**
+     * Vector search in ChromaDB, or in the local index with the texts and metadata read from the database
+     */
+    private List<PythonServiceClient.SearchResult> searchDocuments(String query, int topK) {
+        if (!localVectorIndex.isEnabled()) {
+            PythonServiceClient.SearchResponse response = pythonClient.search(query, topK).block();
+            return response != null && response.getResults() != null ? response.getResults() : new ArrayList<>();
+        }
+        PythonServiceClient.EmbedResponse embedding = pythonClient.embedQuery(query).block();
+        if (embedding == null || embedding.getEmbeddings() == null || embedding.getEmbeddings().isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (LocalVectorIndex.Hit hit : localVectorIndex.search(embedding.getEmbeddings().get(0), topK)) {
+            scores.put(hit.articleId(), (double) hit.score());
+        }
+        return loadResults(scores);
+    }
+    
+    /**
+     * Search results for the given articles and scores, in the given order, with the texts and
+     * metadata read from the database; articles that no longer exist are left out
+     */
+    private List<PythonServiceClient.SearchResult> loadResults(Map<Long, Double> scores) {
+        Map<Long, NewsArticle> articles = newsRepository.findAllById(scores.keySet()).stream()
+                .collect(Collectors.toMap(NewsArticle::getId, article -> article));
+        
+        List<PythonServiceClient.SearchResult> results = new ArrayList<>(scores.size());
+        scores.forEach((articleId, score) -> {
+            NewsArticle article = articles.get(articleId);
+            if (article == null) {
+                return;
+            }
+            PythonServiceClient.AddDocumentRequest document = toDocument(article);
+            PythonServiceClient.SearchResult result = new PythonServiceClient.SearchResult();
+            result.setId(document.getId());
+            result.setText(document.getText());
+            result.setScore(score);
+            result.setMetadata(document.getMetadata());
+            results.add(result);
+        });
+        return results;
+    }
+    
+    /**
+     * BM25 keyword search; needs only the database, not the Python service
+     */
+    public List<PythonServiceClient.SearchResult> searchLexical(String query, int topK) {
+        Map<Long, Double> scores = new LinkedHashMap<>();
+        for (LexicalIndex.Hit hit : lexicalIndex.search(query, topK)) {
+            scores.put(hit.articleId(), (double) hit.score());
+        }
+        return loadResults(scores);
+    }
+    
+    /**
+     * Keyword and semantic candidates fused by reciprocal rank, optionally reranked; scores are
+     * the fused or rerank scores. The semantic side gets app.search.hybrid.semantic-timeout-ms,
+     * after which, or when it fails, the keyword ranking is used alone; a failed rerank keeps
+     * the fused order. Reranked results are cached like semantic ones.
+     */
+    public List<PythonServiceClient.SearchResult> searchHybrid(String query, int topK, boolean useRerank) {
+        if (!useRerank) {
+            return fuse(query, topK);
+        }
+        return retrievalCache.getOrLoad(RetrievalCache.key("hybrid", query, topK, true, hybridCandidates), () -> {
+            List<PythonServiceClient.SearchResult> fused = fuse(query, Math.max(topK, hybridCandidates));
+            if (fused.size() <= 1) {
+                return fused;
+            }
+            try {
+                return rerank(query, fused, topK).stream()
+                        .map(KnowledgeBaseService::toSearchResult)
+                        .toList();
+            } catch (Exception e) {
+                log.warn("Rerank of hybrid results failed, keeping the fused order: {}", e.toString());
+                return fused.subList(0, Math.min(topK, fused.size()));
+            }
+        });
+    }
+    
+    private List<PythonServiceClient.SearchResult> fuse(String query, int limit) {
+        List<PythonServiceClient.SearchResult> semantic = Mono.fromCallable(() -> retrievalCache.getOrLoad(
+                        RetrievalCache.key(query, hybridCandidates, false, 0),
+                        () -> searchDocuments(query, hybridCandidates)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(Duration.ofMillis(semanticTimeoutMs))
+                .onErrorResume(e -> {
+                    log.warn("Semantic side of hybrid search failed, using keyword results only: {}", e.toString());
+                    return Mono.just(List.of());
+                })
+                .block();
+        List<LexicalIndex.Hit> lexical = lexicalIndex.search(query, hybridCandidates);
+        
+        Map<String, PythonServiceClient.SearchResult> semanticById = new HashMap<>();
+        semantic.forEach(result -> semanticById.putIfAbsent(result.getId(), result));
+        LinkedHashMap<String, Double> fused = RankFusion.fuse(List.of(
+                semantic.stream().map(PythonServiceClient.SearchResult::getId).toList(),
+                lexical.stream().map(hit -> String.valueOf(hit.articleId())).toList()), rrfK);
+        
+        Map<Long, Double> keywordOnly = new LinkedHashMap<>();
+        fused.entrySet().stream()
+                .limit(limit)
+                .filter(entry -> !semanticById.containsKey(entry.getKey()))
+                .forEach(entry -> keywordOnly.put(Long.valueOf(entry.getKey()), entry.getValue()));
+        Map<String, PythonServiceClient.SearchResult> loaded = loadResults(keywordOnly).stream()
+                .collect(Collectors.toMap(PythonServiceClient.SearchResult::getId, result -> result));
+        
+        List<PythonServiceClient.SearchResult> results = new ArrayList<>(Math.min(limit, fused.size()));
+        fused.entrySet().stream().limit(limit).forEach(entry -> {
+            PythonServiceClient.SearchResult result = semanticById.get(entry.getKey());
+            result = result != null ? copyOf(result) : loaded.get(entry.getKey());
+            if (result != null) {
+                result.setScore(entry.getValue());
+                results.add(result);
+            }
+        });
+        return results;
+    }
+    
+    private static PythonServiceClient.SearchResult copyOf(PythonServiceClient.SearchResult source) {
+        PythonServiceClient.SearchResult copy = new PythonServiceClient.SearchResult();
+        copy.setId(source.getId());
+        copy.setText(source.getText());
+        copy.setScore(source.getScore());
+        copy.setMetadata(source.getMetadata());
+        return copy;
+    }
+    
+    private static PythonServiceClient.SearchResult toSearchResult(PythonServiceClient.RerankResult reranked) {
+        PythonServiceClient.SearchResult result = new PythonServiceClient.SearchResult();
+        result.setId(reranked.getId());
+        result.setText(reranked.getText());
+        result.setScore(reranked.getScore());
+        result.setMetadata(reranked.getMetadata());
+        return result;
     }
     
     /**
      * Remove article from knowledge base
      */
     public void removeArticleFromKnowledgeBase(Long articleId) {
+        lexicalIndex.remove(List.of(articleId));
         try {
-            pythonClient.deleteDocuments(List.of(String.valueOf(articleId))).block();
+            deleteDocuments(List.of(articleId));
+            retrievalCache.bumpGeneration();
             log.info("Removed article {} from knowledge base", articleId);
         } catch (Exception e) {
             log.error("Failed to remove article from knowledge base: {}", articleId, e);
@@ -158,11 +554,10 @@ public class KnowledgeBaseService {
      * Remove multiple articles from knowledge base
      */
     public void removeArticlesFromKnowledgeBase(List<Long> articleIds) {
+        lexicalIndex.remove(articleIds);
         try {
-            List<String> ids = articleIds.stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.toList());
-            pythonClient.deleteDocuments(ids).block();
+            deleteDocuments(articleIds);
+            retrievalCache.bumpGeneration();
             log.info("Removed {} articles from knowledge base", articleIds.size());
         } catch (Exception e) {
             log.error("Failed to remove articles from knowledge base", e);
@@ -170,8 +565,43 @@ public class KnowledgeBaseService {
         }
     }
     
+    private void deleteDocuments(List<Long> articleIds) {
+        if (localVectorIndex.isEnabled()) {
+            localVectorIndex.remove(articleIds);
+        } else {
+            pythonClient.deleteDocuments(articleIds.stream().map(String::valueOf).toList()).block();
+        }
+    }
+    
+    /**
+     * The embeddings already stored for the given articles, from the local index or ChromaDB;
+     * articles that are not indexed are left out
+     */
+    public Map<Long, float[]> storedEmbeddings(List<Long> articleIds) {
+        if (localVectorIndex.isEnabled()) {
+            return localVectorIndex.vectors(articleIds);
+        }
+        if (articleIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        PythonServiceClient.DocumentEmbeddingsResponse response =
+                pythonClient.documentEmbeddings(articleIds.stream().map(String::valueOf).toList()).block();
+        Map<Long, float[]> embeddings = new HashMap<>();
+        if (response == null || response.getEmbeddings() == null) {
+            return embeddings;
+        }
+        for (int i = 0; i < articleIds.size() && i < response.getEmbeddings().size(); i++) {
+            float[] embedding = response.getEmbeddings().get(i);
+            if (embedding != null) {
+                embeddings.put(articleIds.get(i), embedding);
+            }
+        }
+        return embeddings;
+    }
+    
     /**
-     * Get clustering analysis
+     * Clustering computed on demand by the Python service over the first 1000 articles; the
+     * analytics endpoint only falls back to this until the first topic cluster snapshot exists
      */
     public PythonServiceClient.ClusterResponse getClusterAnalysis(int nClusters) {
         try {
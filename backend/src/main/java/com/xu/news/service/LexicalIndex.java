@@ -0,0 +1,241 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.NewsArticle;
+import com.xu.news.repository.NewsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BM25 keyword search over article titles, summaries and texts, held in memory in this JVM.
+ * <p>
+ * Exact names, product codes and entities the embedding model has never seen are found here
+ * even when semantic search misses them, and searches take milliseconds without calling the
+ * Python service. Title terms count app.search.lexical.title-weight times.
+ * <p>
+ * The index is built from the database in the background once the application is ready. The
+ * knowledge base indexer updates it as articles are indexed or removed; in addition every
+ * app.search.lexical.refresh-interval-ms the articles changed since the last refresh are read
+ * again, which picks up articles indexed by other nodes. Articles deleted on another node stay
+ * in this node's index but are dropped when search results are read from the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LexicalIndex {
+    
+    private final NewsRepository newsRepository;
+    private final ArticleTextCleaner articleTextCleaner;
+    
+    @Value("${app.search.lexical.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.search.lexical.k1:1.2}")
+    private float k1;
+    
+    @Value("${app.search.lexical.b:0.75}")
+    private float b;
+    
+    @Value("${app.search.lexical.title-weight:3}")
+    private int titleWeight;
+    
+    @Value("${app.search.lexical.page-size:500}")
+    private int pageSize;
+    
+    @Value("${app.search.lexical.refresh-overlap-seconds:60}")
+    private long refreshOverlapSeconds;
+    
+    @Value("${app.search.lexical.compact-deleted-ratio:0.25}")
+    private double compactDeletedRatio;
+    
+    private final InvertedIndex index = new InvertedIndex();
+    private volatile boolean ready;
+    private volatile long buildMillis;
+    
+    /** Articles updated after this position have not been read by the last refresh */
+    private LocalDateTime refreshedUntil;
+    private long refreshedUntilId;
+    private volatile LocalDateTime lastRefresh;
+    
+    /**
+     * An article and its BM25 score for the query
+     */
+    public record Hit(long articleId, float score) {
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Index all canonical articles once the application has started
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        // Articles changed while the build runs are read again by the first refresh
+        LocalDateTime buildStart = LocalDateTime.now().minusSeconds(refreshOverlapSeconds);
+        try {
+            long lastId = 0;
+            int read = 0;
+            while (true) {
+                List<NewsArticle> page = newsRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                upsert(page);
+                lastId = page.get(page.size() - 1).getId();
+                read += page.size();
+            }
+            synchronized (this) {
+                refreshedUntil = buildStart;
+                refreshedUntilId = 0;
+            }
+            buildMillis = System.currentTimeMillis() - start;
+            ready = true;
+            log.info("Lexical index built from {} articles in {} ms: {} documents, {} terms, {} KB of postings",
+                    read, buildMillis, index.size(), index.termCount(), index.postingBytes() / 1024);
+        } catch (Exception e) {
+            // Searches see whatever was indexed so far; the next restart tries again
+            log.error("Failed to build lexical index", e);
+        }
+    }
+    
+    /**
+     * Add or replace articles; near-duplicates are removed, as they are from the knowledge base
+     */
+    public void upsert(Collection<NewsArticle> articles) {
+        if (!enabled) {
+            return;
+        }
+        for (NewsArticle article : articles) {
+            if (article.getCanonicalId() != null) {
+                index.remove(article.getId());
+            } else {
+                index.add(article.getId(), termFrequencies(article));
+            }
+        }
+    }
+    
+    public void remove(Collection<Long> articleIds) {
+        if (!enabled) {
+            return;
+        }
+        articleIds.forEach(index::remove);
+    }
+    
+    /**
+     * The topK articles with the highest BM25 score for the query, best first
+     */
+    public List<Hit> search(String query, int topK) {
+        if (!enabled) {
+            return List.of();
+        }
+        return index.search(TextTokenizer.tokenize(query), topK, k1, b).stream()
+                .map(hit -> new Hit(hit.id(), hit.score()))
+                .toList();
+    }
+    
+    Map<String, Integer> termFrequencies(NewsArticle article) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : TextTokenizer.tokenize(article.getTitle())) {
+            frequencies.merge(term, titleWeight, Integer::sum);
+        }
+        for (String term : TextTokenizer.tokenize(article.getSummary())) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        for (String term : TextTokenizer.tokenize(articleTextCleaner.cleanTextOf(article))) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+    
+    /**
+     * Read the articles changed since the last refresh and compact the index once enough
+     * documents have been replaced or removed
+     */
+    @Scheduled(fixedDelayString = "${app.search.lexical.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        if (!ready) {
+            return;
+        }
+        try {
+            // Rows may commit a little after their updatedAt, so each refresh starts a bit earlier
+            LocalDateTime refreshStart = LocalDateTime.now().minusSeconds(refreshOverlapSeconds);
+            LocalDateTime since = refreshedUntil;
+            long afterId = refreshedUntilId;
+            int read = 0;
+            while (true) {
+                List<NewsArticle> page = newsRepository.findUpdatedAfter(since, afterId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                upsert(page);
+                NewsArticle last = page.get(page.size() - 1);
+                since = last.getUpdatedAt();
+                afterId = last.getId();
+                read += page.size();
+            }
+            if (since.isAfter(refreshStart)) {
+                refreshedUntil = refreshStart;
+                refreshedUntilId = 0;
+            } else {
+                refreshedUntil = since;
+                refreshedUntilId = afterId;
+            }
+            lastRefresh = LocalDateTime.now();
+            if (read > 0) {
+                log.debug("Lexical index refreshed {} changed articles", read);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh lexical index", e);
+        }
+        
+        int deleted = index.deletedCount();
+        if (deleted > 0 && deleted >= compactDeletedRatio * (index.size() + deleted)) {
+            long start = System.currentTimeMillis();
+            index.compact();
+            log.info("Compacted lexical index, dropped {} deleted documents in {} ms",
+                    deleted, System.currentTimeMillis() - start);
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        stats.put("ready", ready);
+        stats.put("documents", index.size());
+        stats.put("deletedDocuments", index.deletedCount());
+        stats.put("terms", index.termCount());
+        stats.put("postingBytes", index.postingBytes());
+        stats.put("buildMillis", buildMillis);
+        stats.put("lastRefresh", lastRefresh);
+        stats.put("k1", k1);
+        stats.put("b", b);
+        return stats;
+    }
+}
@@ -0,0 +1,513 @@
+package com.xu.news.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process vector search over article embeddings, used instead of ChromaDB when
+ * app.vector.engine=local. The Python service then only computes embeddings.
+ * <p>
+ * Vectors are kept in a memory-mapped file and searched through an HNSW graph. The graph is
+ * written as a snapshot every app.vector.local.snapshot-interval-ms and at shutdown; changes
+ * since the last snapshot are appended to an operation log and replayed on load, so a crash
+ * loses nothing that was logged. The index is loaded in the background once the application
+ * is ready, or on first use. Searches run concurrently with inserts.
+ * <p>
+ * Replacing or removing an article only marks its node removed. Once removed nodes make up
+ * app.vector.local.compact-ratio of the graph, the snapshot rebuilds graph and vector file from
+ * the live nodes instead. The new files are swapped in behind a marker file, so a crash during
+ * the swap is finished on the next load. Vectors of a new dimension, i.e. from a new embedding
+ * model, start a new, empty index that a re-index then fills.
+ * <p>
+ * The index is local to this node, so it is meant for single-node deployments: with
+ * app.cluster.enabled each node would only see the articles it indexed itself.
+ */
+@Service
+@Slf4j
+public class LocalVectorIndex {
+    
+    private static final String VECTORS_FILE = "vectors.f32";
+    private static final String GRAPH_FILE = "graph.bin";
+    private static final String LOG_FILE = "ops.log";
+    private static final String COMPACT_MARKER = "compact.pending";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    
+    @Value("${app.vector.engine:chroma}")
+    private String engine;
+    
+    @Value("${app.vector.local.dir:./data/vector-index}")
+    private String dir;
+    
+    @Value("${app.vector.local.m:16}")
+    private int m;
+    
+    @Value("${app.vector.local.ef-construction:200}")
+    private int efConstruction;
+    
+    @Value("${app.vector.local.ef-search:64}")
+    private int efSearch;
+    
+    @Value("${app.vector.local.compact-ratio:0.3}")
+    private double compactRatio;
+    
+    @Value("${app.cluster.enabled:false}")
+    private boolean clusterEnabled;
+    
+    /** Guards loading, inserts, removals and snapshots; searches do not take it */
+    private final Object writeMonitor = new Object();
+    private final Map<Long, Integer> nodesById = new ConcurrentHashMap<>();
+    
+    private volatile boolean loaded;
+    private volatile HnswGraph graph;
+    private volatile MappedVectorStore store;
+    private DataOutputStream opsLog;
+    private Path directory;
+    private boolean dirty;
+    private volatile Instant lastSnapshot;
+    
+    /**
+     * An article and its cosine similarity to the query
+     */
+    public record Hit(long articleId, float score) {
+    }
+    
+    public boolean isEnabled() {
+        return "local".equalsIgnoreCase(engine);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!isEnabled()) {
+            return;
+        }
+        if (clusterEnabled) {
+            log.warn("app.vector.engine=local keeps the index on this node only; other nodes will not see its articles");
+        }
+        CompletableFuture.runAsync(this::ensureLoaded)
+                .exceptionally(e -> {
+                    log.error("Failed to load local vector index", e);
+                    return null;
+                });
+    }
+    
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (writeMonitor) {
+            if (loaded) {
+                return;
+            }
+            try {
+                load();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load local vector index from " + dir, e);
+            }
+            loaded = true;
+        }
+    }
+    
+    private void load() throws IOException {
+        long start = System.currentTimeMillis();
+        directory = Paths.get(dir).toAbsolutePath().normalize();
+        Files.createDirectories(directory);
+        if (Files.exists(directory.resolve(COMPACT_MARKER))) {
+            log.info("Finishing an interrupted compaction of the local vector index");
+            finishCompaction();
+        }
+        Path vectorsFile = directory.resolve(VECTORS_FILE);
+        int dimension = MappedVectorStore.dimensionOf(vectorsFile);
+        if (dimension > 0) {
+            store = MappedVectorStore.open(vectorsFile, dimension);
+            Path graphFile = directory.resolve(GRAPH_FILE);
+            HnswGraph loadedGraph;
+            if (Files.exists(graphFile)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(graphFile), 1 << 16))) {
+                    loadedGraph = HnswGraph.readFrom(in, store, efConstruction);
+                }
+            } else {
+                loadedGraph = new HnswGraph(store, m, efConstruction);
+            }
+            store.mapSlots(loadedGraph.size());
+            for (int node = 0; node < loadedGraph.size(); node++) {
+                if (!loadedGraph.isRemoved(node)) {
+                    nodesById.put(loadedGraph.idOf(node), node);
+                }
+            }
+            graph = loadedGraph;
+            int replayed = replayLog();
+            dirty = replayed > 0;
+            log.info("Loaded local vector index from {}: {} vectors of dimension {} ({} removed, {} replayed) in {} ms",
+                    directory, loadedGraph.size(), dimension, loadedGraph.removedCount(), replayed,
+                    System.currentTimeMillis() - start);
+        }
+        if (opsLog == null) {
+            opsLog = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+    }
+    
+    /**
+     * Apply the operations logged after the last snapshot; a torn last entry is ignored
+     */
+    private int replayLog() throws IOException {
+        Path logFile = directory.resolve(LOG_FILE);
+        if (!Files.exists(logFile)) {
+            return 0;
+        }
+        int replayed = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            while (true) {
+                byte op = in.readByte();
+                long id = in.readLong();
+                if (op == OP_ADD) {
+                    int slot = in.readInt();
+                    if (slot < graph.size()) {
+                        continue;
+                    }
+                    if (slot > graph.size()) {
+                        log.warn("Local vector index log skips from slot {} to {}, ignoring the rest", graph.size(), slot);
+                        break;
+                    }
+                    store.mapSlots(slot + 1);
+                    addNode(id, store.vector(slot));
+                } else if (op == OP_REMOVE) {
+                    removeNode(id);
+                } else {
+                    log.warn("Unknown operation {} in local vector index log, ignoring the rest", op);
+                    break;
+                }
+                replayed++;
+            }
+        } catch (EOFException e) {
+            // End of log
+        }
+        return replayed;
+    }
+    
+    /**
+     * Add or replace the vectors of the given articles
+     */
+    public void upsert(List<Long> articleIds, List<float[]> vectors) {
+        if (articleIds.size() != vectors.size()) {
+            throw new IllegalArgumentException(articleIds.size() + " ids but " + vectors.size() + " vectors");
+        }
+        if (articleIds.isEmpty()) {
+            return;
+        }
+        ensureLoaded();
+        synchronized (writeMonitor) {
+            try {
+                if (store != null && vectors.get(0).length != store.dimension()) {
+                    log.warn("Embeddings have {} dimensions, the local vector index {}; starting a new index, "
+                            + "re-index the knowledge base to fill it", vectors.get(0).length, store.dimension());
+                    clear();
+                }
+                if (store == null) {
+                    store = MappedVectorStore.open(directory.resolve(VECTORS_FILE), vectors.get(0).length);
+                    graph = new HnswGraph(store, m, efConstruction);
+                }
+                for (int i = 0; i < articleIds.size(); i++) {
+                    int slot = graph.size();
+                    float[] vector = MappedVectorStore.normalize(vectors.get(i));
+                    store.set(slot, vector);
+                    addNode(articleIds.get(i), vector);
+                    opsLog.writeByte(OP_ADD);
+                    opsLog.writeLong(articleIds.get(i));
+                    opsLog.writeInt(slot);
+                }
+                opsLog.flush();
+                dirty = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write to local vector index", e);
+            }
+        }
+    }
+    
+    public void remove(Collection<Long> articleIds) {
+        ensureLoaded();
+        synchronized (writeMonitor) {
+            if (graph == null) {
+                return;
+            }
+            try {
+                for (Long articleId : articleIds) {
+                    if (removeNode(articleId)) {
+                        opsLog.writeByte(OP_REMOVE);
+                        opsLog.writeLong(articleId);
+                    }
+                }
+                opsLog.flush();
+                dirty = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write to local vector index", e);
+            }
+        }
+    }
+    
+    /**
+     * The new node replaces an existing one only once it is searchable, so the article is never missing
+     */
+    private void addNode(long articleId, float[] vector) {
+        int node = graph.add(articleId, vector);
+        Integer previous = nodesById.put(articleId, node);
+        if (previous != null) {
+            graph.remove(previous);
+        }
+    }
+    
+    private boolean removeNode(long articleId) {
+        Integer node = nodesById.remove(articleId);
+        if (node == null) {
+            return false;
+        }
+        graph.remove(node);
+        return true;
+    }
+    
+    /**
+     * The topK articles most similar to the query embedding, best first
+     */
+    public List<Hit> search(float[] query, int topK) {
+        ensureLoaded();
+        HnswGraph current = graph;
+        MappedVectorStore currentStore = store;
+        if (current == null || currentStore == null) {
+            return List.of();
+        }
+        if (query.length != currentStore.dimension()) {
+            throw new IllegalStateException("Query has " + query.length + " dimensions, index has "
+                    + currentStore.dimension() + "; rebuild the index after changing the embedding model");
+        }
+        return current.search(MappedVectorStore.normalize(query), topK, efSearch).stream()
+                .map(hit -> new Hit(hit.id(), hit.score()))
+                .toList();
+    }
+    
+    /**
+     * The stored, normalized vectors of the given articles; articles not in the index are left out
+     */
+    public Map<Long, float[]> vectors(Collection<Long> articleIds) {
+        ensureLoaded();
+        Map<Long, float[]> vectors = new HashMap<>();
+        synchronized (writeMonitor) {
+            if (store == null) {
+                return vectors;
+            }
+            for (Long articleId : articleIds) {
+                Integer node = nodesById.get(articleId);
+                if (node != null) {
+                    vectors.put(articleId, store.vector(node));
+                }
+            }
+        }
+        return vectors;
+    }
+    
+    /**
+     * Write the graph and truncate the operation log, if anything changed; compacts the index
+     * instead when enough of its nodes are removed
+     */
+    @Scheduled(fixedDelayString = "${app.vector.local.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        if (!loaded) {
+            return;
+        }
+        synchronized (writeMonitor) {
+            if (!dirty || graph == null) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            try {
+                if (graph.removedCount() > 0 && graph.removedCount() >= compactRatio * graph.size()) {
+                    compact();
+                    return;
+                }
+                store.force();
+                Path temp = directory.resolve(GRAPH_FILE + TEMP_SUFFIX);
+                writeGraph(graph, temp);
+                Files.move(temp, directory.resolve(GRAPH_FILE), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                truncateLog();
+                dirty = false;
+                lastSnapshot = Instant.now();
+                log.info("Wrote local vector index snapshot of {} vectors in {} ms", graph.size(),
+                        System.currentTimeMillis() - start);
+            } catch (IOException e) {
+                // The operation log is kept, so nothing is lost; the next snapshot tries again
+                log.error("Failed to write local vector index snapshot", e);
+            }
+        }
+    }
+    
+    /**
+     * Rebuild graph and vector file from the live nodes. Searches keep using the old graph until
+     * the new one replaces it; inserts wait.
+     */
+    private void compact() throws IOException {
+        long start = System.currentTimeMillis();
+        int before = graph.size();
+        Path vectorsTemp = directory.resolve(VECTORS_FILE + TEMP_SUFFIX);
+        Files.deleteIfExists(vectorsTemp);
+        MappedVectorStore compactStore = MappedVectorStore.open(vectorsTemp, store.dimension());
+        HnswGraph compactGraph = new HnswGraph(compactStore, m, efConstruction);
+        Map<Long, Integer> compactNodes = new HashMap<>();
+        try {
+            for (int node = 0; node < before; node++) {
+                if (graph.isRemoved(node)) {
+                    continue;
+                }
+                float[] vector = store.vector(node);
+                compactStore.set(compactGraph.size(), vector);
+                compactNodes.put(graph.idOf(node), compactGraph.add(graph.idOf(node), vector));
+            }
+            compactStore.force();
+            writeGraph(compactGraph, directory.resolve(GRAPH_FILE + TEMP_SUFFIX));
+        } catch (IOException | RuntimeException e) {
+            compactStore.close();
+            Files.deleteIfExists(vectorsTemp);
+            throw e;
+        }
+        
+        // From here on the new files are complete, and a crash is finished on the next load
+        Files.createFile(directory.resolve(COMPACT_MARKER));
+        finishCompaction();
+        MappedVectorStore previous = store;
+        store = compactStore;
+        graph = compactGraph;
+        nodesById.keySet().retainAll(compactNodes.keySet());
+        nodesById.putAll(compactNodes);
+        previous.close();
+        dirty = false;
+        lastSnapshot = Instant.now();
+        log.info("Compacted local vector index from {} to {} nodes in {} ms", before, compactGraph.size(),
+                System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Move the compacted files into place and drop the log of the replaced graph
+     */
+    private void finishCompaction() throws IOException {
+        Path vectorsTemp = directory.resolve(VECTORS_FILE + TEMP_SUFFIX);
+        Path graphTemp = directory.resolve(GRAPH_FILE + TEMP_SUFFIX);
+        if (Files.exists(vectorsTemp)) {
+            Files.move(vectorsTemp, directory.resolve(VECTORS_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (Files.exists(graphTemp)) {
+            Files.move(graphTemp, directory.resolve(GRAPH_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        truncateLog();
+        Files.delete(directory.resolve(COMPACT_MARKER));
+    }
+    
+    /**
+     * Drop all vectors, e.g. before re-indexing with another embedding model
+     */
+    public void reset() {
+        ensureLoaded();
+        synchronized (writeMonitor) {
+            try {
+                clear();
+                log.info("Reset local vector index in {}", directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to reset local vector index", e);
+            }
+        }
+    }
+    
+    private void clear() throws IOException {
+        graph = null;
+        MappedVectorStore previous = store;
+        store = null;
+        nodesById.clear();
+        if (previous != null) {
+            previous.close();
+        }
+        Files.deleteIfExists(directory.resolve(VECTORS_FILE));
+        Files.deleteIfExists(directory.resolve(GRAPH_FILE));
+        truncateLog();
+        dirty = false;
+    }
+    
+    private static void writeGraph(HnswGraph graph, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            graph.writeTo(out);
+        }
+    }
+    
+    private void truncateLog() throws IOException {
+        if (opsLog != null) {
+            opsLog.close();
+        }
+        opsLog = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)));
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (!loaded) {
+            return;
+        }
+        snapshot();
+        synchronized (writeMonitor) {
+            try {
+                opsLog.close();
+                if (store != null) {
+                    store.close();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to close local vector index", e);
+            }
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("engine", isEnabled() ? "local" : engine);
+        if (!isEnabled()) {
+            return stats;
+        }
+        HnswGraph current = graph;
+        MappedVectorStore currentStore = store;
+        stats.put("loaded", loaded);
+        stats.put("vectors", nodesById.size());
+        stats.put("nodes", current != null ? current.size() : 0);
+        stats.put("removedNodes", current != null ? current.removedCount() : 0);
+        stats.put("dimension", currentStore != null ? currentStore.dimension() : 0);
+        stats.put("m", current != null ? current.m() : m);
+        stats.put("efConstruction", efConstruction);
+        stats.put("efSearch", efSearch);
+        stats.put("lastSnapshot", lastSnapshot);
+        return stats;
+    }
+}
@@ -0,0 +1,87 @@
+package com.xu.news.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Small in-process cache bounded by entry count (least recently used entries go first) and by
+ * time to live. Access is synchronized on the cache; every operation is O(1), so lock hold times
+ * stay in the sub-microsecond range.
+ */
+final class LruCache<K, V> {
+    
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    
+    private long evictions;
+    private long expirations;
+    
+    private record Entry<V>(V value, long expiresAt) {
+    }
+    
+    LruCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::nanoTime);
+    }
+    
+    LruCache(int maxEntries, long ttlMillis, LongSupplier nanoClock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttlMillis * 1_000_000;
+        this.nanoClock = nanoClock;
+    }
+    
+    /**
+     * The cached value, or null if absent or expired
+     */
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.expiresAt() > 0) {
+            entries.remove(key);
+            expirations++;
+            return null;
+        }
+        return entry.value();
+    }
+    
+    synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, nanoClock.getAsLong() + ttlNanos));
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions++;
+        }
+    }
+    
+    synchronized void remove(K key) {
+        entries.remove(key);
+    }
+    
+    synchronized void clear() {
+        entries.clear();
+    }
+    
+    synchronized int size() {
+        return entries.size();
+    }
+    
+    int maxEntries() {
+        return maxEntries;
+    }
+    
+    /** Entries dropped because the cache was full */
+    synchronized long evictions() {
+        return evictions;
+    }
+    
+    /** Entries dropped because their time to live had passed */
+    synchronized long expirations() {
+        return expirations;
+    }
+}
@@ -0,0 +1,193 @@
+package com.xu.news.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Fixed-dimension float vectors in a memory-mapped file, addressed by slot.
+ * <p>
+ * The file is mapped in segments of {@value #SEGMENT_VECTORS} vectors, so it can exceed the
+ * 2 GB limit of a single mapping and grows without remapping what is already there. Vectors
+ * live in the page cache rather than on the heap. Slots are written by one thread at a time;
+ * reads use absolute gets and may run concurrently with writes to other slots.
+ */
+final class MappedVectorStore implements HnswGraph.Vectors, Closeable {
+    
+    private static final int MAGIC = 0x58564543;
+    private static final int HEADER_BYTES = 16;
+    private static final int SEGMENT_VECTORS = 1 << 16;
+    
+    private final FileChannel channel;
+    private final int dimension;
+    private final long segmentBytes;
+    private volatile FloatBuffer[] segments = new FloatBuffer[0];
+    private MappedByteBuffer[] mappings = new MappedByteBuffer[0];
+    private final ThreadLocal<float[]> scratch;
+    
+    private MappedVectorStore(FileChannel channel, int dimension) {
+        this.channel = channel;
+        this.dimension = dimension;
+        this.segmentBytes = (long) SEGMENT_VECTORS * dimension * Float.BYTES;
+        this.scratch = ThreadLocal.withInitial(() -> new float[dimension]);
+    }
+    
+    /**
+     * Open the store, creating it with the given dimension if the file does not exist
+     */
+    static MappedVectorStore open(Path file, int dimension) throws IOException {
+        boolean exists = Files.exists(file) && Files.size(file) >= HEADER_BYTES;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (exists) {
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC) {
+                    throw new IOException("Not a vector file: " + file);
+                }
+                int stored = header.getInt();
+                if (dimension > 0 && stored != dimension) {
+                    throw new IOException("Vector file " + file + " has dimension " + stored + ", expected " + dimension);
+                }
+                return new MappedVectorStore(channel, stored);
+            }
+            if (dimension <= 0) {
+                throw new IOException("Vector file " + file + " does not exist");
+            }
+            header.putInt(MAGIC).putInt(dimension).putLong(0).flip();
+            channel.write(header, 0);
+            return new MappedVectorStore(channel, dimension);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Dimension stored in an existing vector file, or 0 if there is none
+     */
+    static int dimensionOf(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (MappedVectorStore store = open(file, 0)) {
+            return store.dimension;
+        }
+    }
+    
+    int dimension() {
+        return dimension;
+    }
+    
+    void set(int slot, float[] vector) throws IOException {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + vector.length);
+        }
+        FloatBuffer segment = segment(slot / SEGMENT_VECTORS);
+        segment.put((slot % SEGMENT_VECTORS) * dimension, vector);
+    }
+    
+    @Override
+    public float[] vector(int slot) {
+        float[] vector = new float[dimension];
+        segments[slot / SEGMENT_VECTORS].get((slot % SEGMENT_VECTORS) * dimension, vector);
+        return vector;
+    }
+    
+    /**
+     * The vector is bulk-copied into a per-thread scratch array first: a copy plus a loop over a
+     * plain array is several times faster than reading the mapped buffer element by element
+     */
+    @Override
+    public float dot(float[] query, int slot) {
+        float[] vector = scratch.get();
+        segments[slot / SEGMENT_VECTORS].get((slot % SEGMENT_VECTORS) * dimension, vector);
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            sum0 += query[i] * vector[i];
+            sum1 += query[i + 1] * vector[i + 1];
+            sum2 += query[i + 2] * vector[i + 2];
+            sum3 += query[i + 3] * vector[i + 3];
+        }
+        for (; i < dimension; i++) {
+            sum0 += query[i] * vector[i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+    
+    private FloatBuffer segment(int index) throws IOException {
+        FloatBuffer[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        synchronized (this) {
+            current = segments;
+            if (index >= current.length) {
+                FloatBuffer[] grown = Arrays.copyOf(current, index + 1);
+                MappedByteBuffer[] grownMappings = Arrays.copyOf(mappings, index + 1);
+                for (int i = current.length; i <= index; i++) {
+                    grownMappings[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + i * segmentBytes,
+                            segmentBytes);
+                    grown[i] = grownMappings[i].order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+                }
+                mappings = grownMappings;
+                segments = grown;
+                current = grown;
+            }
+            return current[index];
+        }
+    }
+    
+    /**
+     * Map the segments that hold the first count slots, e.g. after opening an existing file
+     */
+    void mapSlots(int count) throws IOException {
+        if (count > 0) {
+            segment((count - 1) / SEGMENT_VECTORS);
+        }
+    }
+    
+    /**
+     * Flush written vectors to the file
+     */
+    synchronized void force() {
+        for (MappedByteBuffer mapping : mappings) {
+            mapping.force();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+}
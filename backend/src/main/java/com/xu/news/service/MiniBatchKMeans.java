@@ -0,0 +1,231 @@
+package com.xu.news.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Mini-batch k-means over embeddings, after Sculley, "Web-scale k-means clustering".
+ * <p>
+ * Vectors are compared by cosine similarity, as in the vector search. Each mini-batch is first
+ * assigned to the nearest centers; then every center moves towards its new members with a
+ * learning rate of one over the number of vectors it has taken in so far, which keeps it the
+ * running mean of those vectors. Centers are seeded with k-means++ on a sample.
+ * <p>
+ * A full pass ({@link Pass}) assigns every vector once to the fitted centers and replaces them
+ * with the exact means of their members, with the member counts as the new learning counts.
+ * Vectors added afterwards with {@link #add(float[])} then move a center by exactly their
+ * share of the cluster, which is how new articles are folded in between full rebuilds.
+ */
+final class MiniBatchKMeans {
+    
+    /** Running means, not normalized; a center is compared by its direction only */
+    private final float[][] centers;
+    private final double[] norms;
+    private final long[] counts;
+    
+    private MiniBatchKMeans(float[][] centers, long[] counts) {
+        this.centers = centers;
+        this.counts = counts;
+        this.norms = new double[centers.length];
+        for (int c = 0; c < centers.length; c++) {
+            updateNorm(c);
+        }
+    }
+    
+    /**
+     * k-means++ seeding: the first center is a random vector, each further one is drawn with a
+     * probability growing with the squared cosine distance to the nearest center chosen so far.
+     * Fewer than k centers are returned when the sample has fewer distinct directions.
+     */
+    static MiniBatchKMeans seed(List<float[]> sample, int k, Random random) {
+        if (sample.isEmpty() || k < 1) {
+            throw new IllegalArgumentException("Need a non-empty sample and k >= 1");
+        }
+        float[][] vectors = sample.stream().map(MappedVectorStore::normalize).toArray(float[][]::new);
+        float[][] chosen = new float[Math.min(k, vectors.length)][];
+        double[] distance = new double[vectors.length];
+        Arrays.fill(distance, Double.MAX_VALUE);
+        
+        int found = 0;
+        int next = random.nextInt(vectors.length);
+        while (next >= 0) {
+            chosen[found++] = vectors[next].clone();
+            if (found == chosen.length) {
+                break;
+            }
+            double total = 0;
+            for (int i = 0; i < vectors.length; i++) {
+                double d = Math.max(0, 1 - dot(vectors[i], chosen[found - 1]));
+                distance[i] = Math.min(distance[i], d * d);
+                total += distance[i];
+            }
+            next = total > 1e-12 ? draw(distance, total, random) : -1;
+        }
+        // The seed counts as the first member, so the first batch does not simply replace it
+        long[] counts = new long[found];
+        Arrays.fill(counts, 1);
+        return new MiniBatchKMeans(Arrays.copyOf(chosen, found), counts);
+    }
+    
+    /**
+     * A model restored from its centers and learning counts, e.g. from a snapshot
+     */
+    static MiniBatchKMeans restore(float[][] centers, long[] counts) {
+        if (centers.length != counts.length) {
+            throw new IllegalArgumentException(centers.length + " centers but " + counts.length + " counts");
+        }
+        float[][] copy = new float[centers.length][];
+        for (int c = 0; c < centers.length; c++) {
+            copy[c] = centers[c].clone();
+        }
+        return new MiniBatchKMeans(copy, counts.clone());
+    }
+    
+    int k() {
+        return centers.length;
+    }
+    
+    int dimension() {
+        return centers[0].length;
+    }
+    
+    float[][] centers() {
+        float[][] copy = new float[centers.length][];
+        for (int c = 0; c < centers.length; c++) {
+            copy[c] = centers[c].clone();
+        }
+        return copy;
+    }
+    
+    long[] counts() {
+        return counts.clone();
+    }
+    
+    /**
+     * The center most similar to the vector
+     */
+    int assign(float[] vector) {
+        int best = 0;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < centers.length; c++) {
+            double similarity = norms[c] > 0 ? dot(vector, centers[c]) / norms[c] : Double.NEGATIVE_INFINITY;
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = c;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * One mini-batch step: all vectors are assigned before any center moves
+     */
+    void partialFit(List<float[]> batch) {
+        float[][] vectors = batch.stream().map(MappedVectorStore::normalize).toArray(float[][]::new);
+        int[] nearest = new int[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            nearest[i] = assign(vectors[i]);
+        }
+        boolean[] moved = new boolean[centers.length];
+        for (int i = 0; i < vectors.length; i++) {
+            move(nearest[i], vectors[i]);
+            moved[nearest[i]] = true;
+        }
+        for (int c = 0; c < centers.length; c++) {
+            if (moved[c]) {
+                updateNorm(c);
+            }
+        }
+    }
+    
+    /**
+     * Assign one new vector and move its center towards it; returns the center
+     */
+    int add(float[] vector) {
+        float[] normalized = MappedVectorStore.normalize(vector);
+        int c = assign(normalized);
+        move(c, normalized);
+        updateNorm(c);
+        return c;
+    }
+    
+    Pass pass() {
+        return new Pass();
+    }
+    
+    /**
+     * Assigns every vector once and sums the members of each center
+     */
+    final class Pass {
+        
+        private final double[][] sums = new double[centers.length][centers[0].length];
+        private final long[] sizes = new long[centers.length];
+        
+        private Pass() {
+        }
+        
+        int add(float[] vector) {
+            float[] normalized = MappedVectorStore.normalize(vector);
+            int c = assign(normalized);
+            double[] sum = sums[c];
+            for (int d = 0; d < normalized.length; d++) {
+                sum[d] += normalized[d];
+            }
+            sizes[c]++;
+            return c;
+        }
+        
+        /**
+         * The model with every center at the mean of its members; a center without members is kept
+         */
+        MiniBatchKMeans finish() {
+            float[][] means = new float[centers.length][];
+            for (int c = 0; c < centers.length; c++) {
+                if (sizes[c] == 0) {
+                    means[c] = centers[c].clone();
+                    continue;
+                }
+                means[c] = new float[sums[c].length];
+                for (int d = 0; d < means[c].length; d++) {
+                    means[c][d] = (float) (sums[c][d] / sizes[c]);
+                }
+            }
+            return new MiniBatchKMeans(means, sizes.clone());
+        }
+    }
+    
+    private void move(int c, float[] vector) {
+        float[] center = centers[c];
+        float rate = 1f / ++counts[c];
+        for (int d = 0; d < center.length; d++) {
+            center[d] += rate * (vector[d] - center[d]);
+        }
+    }
+    
+    private void updateNorm(int c) {
+        norms[c] = Math.sqrt(dot(centers[c], centers[c]));
+    }
+    
+    private static int draw(double[] weights, double total, Random random) {
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+    
+    private static double dot(float[] a, float[] b) {
+        if (a.length != b.length) {
+            throw new IllegalArgumentException("Vector has " + a.length + " dimensions, centers have " + b.length);
+        }
+        double sum = 0;
+        for (int d = 0; d < a.length; d++) {
+            sum += a[d] * b[d];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,300 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.NewsArticle;
+import com.xu.news.repository.NewsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Near-duplicate story detection with SimHash.
+ * <p>
+ * Each article gets a 64-bit SimHash over word 3-shingles of its title and text (CJK text
+ * is shingled per character). Canonical articles from the last few days are kept in an
+ * in-memory LSH index: the fingerprint is split into maxDistance + 2 blocks, so by the
+ * pigeonhole principle any fingerprint within maxDistance bits matches at least two blocks
+ * exactly. Every pair of blocks is its own table, keyed on the bits of both blocks, and only
+ * the bucket entries of matching keys need to be compared.
+ * <p>
+ * A lookup compares against about tables / 2^keyBits of the index. The default distance of 8
+ * gives 10 blocks of 6-7 bits, i.e. 45 tables keyed on 12-14 bits: each story takes 45 bucket
+ * entries and a lookup scans about 0.5% of the index. Keying single blocks instead would need
+ * 5-bit keys at this distance and scan about a third of the index per lookup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NearDuplicateDetector {
+    
+    private static final int SHINGLE_SIZE = 3;
+    private static final int MIN_SHINGLES = 5;
+    private static final int MAX_TEXT_CHARS = 4000;
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    
+    private final NewsRepository newsRepository;
+    
+    @Value("${app.dedup.near-duplicate.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.dedup.near-duplicate.max-distance:8}")
+    private int maxDistance;
+    
+    @Value("${app.dedup.near-duplicate.window-days:7}")
+    private int windowDays;
+    
+    private final Map<Long, List<Entry>> buckets = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    private record Entry(long articleId, long simhash, LocalDateTime addedAt) {
+    }
+    
+    /**
+     * Load the fingerprints of recent canonical articles once the application has started
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime since = LocalDateTime.now().minusDays(windowDays);
+            long loaded = 0;
+            long lastId = 0;
+            while (true) {
+                List<Object[]> page = newsRepository.findCanonicalSimhashesAfterId(
+                        lastId, since, PageRequest.of(0, LOAD_PAGE_SIZE));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : page) {
+                    add((Long) row[0], (Long) row[1], (LocalDateTime) row[2]);
+                }
+                lastId = (Long) page.get(page.size() - 1)[0];
+                loaded += page.size();
+            }
+            log.info("Near-duplicate index loaded {} fingerprints", loaded);
+        } catch (Exception e) {
+            log.error("Failed to load near-duplicate index", e);
+        }
+    }
+    
+    /**
+     * Compute the SimHash of an article, or null if its text is too short to be reliable
+     */
+    public Long fingerprint(NewsArticle article) {
+        if (!enabled) {
+            return null;
+        }
+        String body = article.getCleanText() != null ? article.getCleanText() : ArticleTextCleaner.rawText(article);
+        String text = (article.getTitle() != null ? article.getTitle() : "") + " " + (body != null ? body : "");
+        if (text.length() > MAX_TEXT_CHARS) {
+            text = text.substring(0, MAX_TEXT_CHARS);
+        }
+        
+        List<String> tokens = tokenize(HTML_TAG.matcher(text).replaceAll(" "));
+        int shingleCount = tokens.size() - SHINGLE_SIZE + 1;
+        if (shingleCount < MIN_SHINGLES) {
+            return null;
+        }
+        
+        int[] weights = new int[64];
+        StringBuilder shingle = new StringBuilder();
+        for (int i = 0; i < shingleCount; i++) {
+            shingle.setLength(0);
+            for (int j = 0; j < SHINGLE_SIZE; j++) {
+                shingle.append(tokens.get(i + j)).append(' ');
+            }
+            long hash = hash64(shingle);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1) != 0 ? 1 : -1;
+            }
+        }
+        
+        long simhash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simhash |= 1L << bit;
+            }
+        }
+        return simhash;
+    }
+    
+    /**
+     * Find the closest indexed canonical article within maxDistance bits, or null
+     */
+    public Long findCanonical(long simhash) {
+        lock.readLock().lock();
+        try {
+            Long bestId = null;
+            int bestDistance = maxDistance + 1;
+            for (long key : tableKeys(simhash)) {
+                List<Entry> bucket = buckets.get(key);
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry entry : bucket) {
+                    int distance = Long.bitCount(entry.simhash() ^ simhash);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        bestId = entry.articleId();
+                    }
+                }
+            }
+            return bestId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Index saved canonical articles once the current transaction commits
+     */
+    public void addAfterCommit(Collection<NewsArticle> articles) {
+        List<NewsArticle> canonical = articles.stream()
+                .filter(article -> article.getSimhash() != null && article.getCanonicalId() == null)
+                .toList();
+        if (!canonical.isEmpty()) {
+            AfterCommit.run(() -> canonical.forEach(
+                    article -> add(article.getId(), article.getSimhash(), LocalDateTime.now())));
+        }
+    }
+    
+    /**
+     * Forget deleted articles once the current transaction commits, so no new article is
+     * linked to a story that no longer exists
+     */
+    public void removeAfterCommit(Collection<Long> articleIds) {
+        if (!articleIds.isEmpty()) {
+            Set<Long> removed = Set.copyOf(articleIds);
+            AfterCommit.run(() -> remove(removed));
+        }
+    }
+    
+    /**
+     * Drop fingerprints older than the detection window
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void prune() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(windowDays);
+        lock.writeLock().lock();
+        try {
+            buckets.values().forEach(bucket -> bucket.removeIf(entry -> entry.addedAt().isBefore(cutoff)));
+            buckets.values().removeIf(List::isEmpty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void add(long articleId, long simhash, LocalDateTime addedAt) {
+        Entry entry = new Entry(articleId, simhash, addedAt);
+        lock.writeLock().lock();
+        try {
+            for (long key : tableKeys(simhash)) {
+                buckets.computeIfAbsent(key, k -> new ArrayList<>(2)).add(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void remove(Set<Long> articleIds) {
+        lock.writeLock().lock();
+        try {
+            buckets.values().forEach(bucket -> bucket.removeIf(entry -> articleIds.contains(entry.articleId())));
+            buckets.values().removeIf(List::isEmpty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * One bucket key per pair of blocks: table index in the high bits, the bits of both
+     * blocks in the low bits
+     */
+    private long[] tableKeys(long simhash) {
+        int blocks = maxDistance + 2;
+        long[] values = new long[blocks];
+        int[] widths = new int[blocks];
+        int shift = 0;
+        for (int block = 0; block < blocks; block++) {
+            widths[block] = (64 - shift) / (blocks - block);
+            long value = simhash >>> shift;
+            values[block] = widths[block] == 64 ? value : value & ((1L << widths[block]) - 1);
+            shift += widths[block];
+        }
+        
+        long[] keys = new long[blocks * (blocks - 1) / 2];
+        int table = 0;
+        for (int i = 0; i < blocks; i++) {
+            for (int j = i + 1; j < blocks; j++) {
+                keys[table] = ((long) table << 40) ^ (values[i] << widths[j]) ^ values[j];
+                table++;
+            }
+        }
+        return keys;
+    }
+    
+    /**
+     * Lower-cased words; Han, Hiragana, Katakana and Hangul characters become one token each
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        text.toLowerCase(Locale.ROOT).codePoints().forEach(cp -> {
+            if (TextTokenizer.isCjk(cp)) {
+                flush(word, tokens);
+                tokens.add(new String(Character.toChars(cp)));
+            } else if (Character.isLetterOrDigit(cp)) {
+                word.appendCodePoint(cp);
+            } else {
+                flush(word, tokens);
+            }
+        });
+        flush(word, tokens);
+        return tokens;
+    }
+    
+    private static void flush(StringBuilder word, List<String> tokens) {
+        if (!word.isEmpty()) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+    
+    /**
+     * FNV-1a over the UTF-16 chars, finished with the MurmurHash3 fmix64 avalanche
+     */
+    private static long hash64(CharSequence text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
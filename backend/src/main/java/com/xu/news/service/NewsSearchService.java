@@ -0,0 +1,236 @@
+package com.xu.news.service;
+
+import com.xu.news.dto.NewsSearchResponse;
+import com.xu.news.repository.NewsSearchStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keyword search over news articles with PostgreSQL full text search: ranked, highlighted and
+ * paged by keyset, so later pages cost the same as the first. Nothing is sent to the Python
+ * service.
+ * <p>
+ * The query uses web search syntax: words are ANDed, "quoted phrases" match in order, "or"
+ * separates alternatives and a leading "-" excludes a word. Chinese, Japanese and Korean text
+ * is indexed one character per word, so a run of such characters in the query is searched as
+ * a phrase.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NewsSearchService {
+    
+    /** ts_headline marks matches with these; they cannot occur in article text */
+    private static final char START_MARK = '\u0002';
+    private static final char STOP_MARK = '\u0003';
+    private static final String TITLE_OPTIONS =
+            "HighlightAll=true, StartSel=\"" + START_MARK + "\", StopSel=\"" + STOP_MARK + "\"";
+    private static final String SNIPPET_OPTIONS = "MaxFragments=2, MaxWords=40, MinWords=20, "
+            + "FragmentDelimiter=\" ... \", StartSel=\"" + START_MARK + "\", StopSel=\"" + STOP_MARK + "\"";
+    
+    private final NewsSearchStore newsSearchStore;
+    
+    @Value("${app.news.search.init-schema:false}")
+    private boolean initSchema;
+    
+    @Value("${app.news.search.max-page-size:100}")
+    private int maxPageSize;
+    
+    public enum Order {
+        RELEVANCE,
+        NEWEST
+    }
+    
+    /**
+     * Add the generated search column and its index if they are missing; off by default, as
+     * the column rewrites news_articles, see db/search/news_search_postgres.sql
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSchema() {
+        if (!initSchema) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            newsSearchStore.createSchema();
+            log.info("Full-text search schema checked in {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Keyword search fails until the script has been run, everything else works
+            log.error("Failed to create full-text search column and index", e);
+        }
+    }
+    
+    /**
+     * One page of matches, best first or newest first; cursor is the nextCursor of the previous page
+     */
+    public NewsSearchResponse search(String query, Order order, String cursor, int size) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("查询词不能为空");
+        }
+        int limit = Math.max(1, Math.min(size, maxPageSize));
+        String queryText = toQueryText(query);
+        long start = System.currentTimeMillis();
+        
+        List<NewsSearchStore.Match> matches;
+        if (order == Order.NEWEST) {
+            long afterId = cursor != null ? decodeCursor(cursor, order).id() : Long.MAX_VALUE;
+            matches = newsSearchStore.searchById(queryText, afterId, limit, TITLE_OPTIONS, SNIPPET_OPTIONS);
+        } else {
+            Cursor after = cursor != null ? decodeCursor(cursor, order) : new Cursor(Float.POSITIVE_INFINITY, Long.MAX_VALUE);
+            matches = newsSearchStore.searchByRank(queryText, after.rank(), after.id(), limit, TITLE_OPTIONS, SNIPPET_OPTIONS);
+        }
+        
+        List<NewsSearchResponse.Hit> hits = matches.stream()
+                .map(match -> NewsSearchResponse.Hit.builder()
+                        .id(match.id())
+                        .title(match.title())
+                        .titleHighlight(toHtml(match.titleHighlight()))
+                        .snippet(toHtml(match.snippet()))
+                        .source(match.source())
+                        .url(match.url())
+                        .publishedAt(match.publishedAt())
+                        .rank(match.rank())
+                        .build())
+                .toList();
+        String nextCursor = null;
+        if (matches.size() == limit) {
+            NewsSearchStore.Match last = matches.get(matches.size() - 1);
+            nextCursor = encodeCursor(new Cursor(last.rank(), last.id()), order);
+        }
+        long millis = System.currentTimeMillis() - start;
+        log.debug("Keyword search '{}' returned {} articles in {} ms", query, hits.size(), millis);
+        return NewsSearchResponse.builder()
+                .query(query)
+                .order(order.name().toLowerCase(Locale.ROOT))
+                .results(hits)
+                .nextCursor(nextCursor)
+                .tookMs(millis)
+                .build();
+    }
+    
+    public static Order parseOrder(String order) {
+        try {
+            return Order.valueOf(order.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("不支持的排序方式：" + order);
+        }
+    }
+    
+    record Cursor(float rank, long id) {
+    }
+    
+    /**
+     * Opaque page position; the rank is carried as its exact bit pattern, so rows of equal rank
+     * are neither skipped nor repeated
+     */
+    static String encodeCursor(Cursor cursor, Order order) {
+        String plain = order == Order.NEWEST
+                ? "n:" + cursor.id()
+                : "r:" + Integer.toHexString(Float.floatToIntBits(cursor.rank())) + ":" + cursor.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static Cursor decodeCursor(String cursor, Order order) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (order == Order.NEWEST && parts.length == 2 && parts[0].equals("n")) {
+                return new Cursor(0, Long.parseLong(parts[1]));
+            }
+            if (order == Order.RELEVANCE && parts.length == 3 && parts[0].equals("r")) {
+                return new Cursor(Float.intBitsToFloat(Integer.parseUnsignedInt(parts[1], 16)), Long.parseLong(parts[2]));
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("无效的分页游标");
+    }
+    
+    /**
+     * The query for websearch_to_tsquery, with the same character spacing as the indexed text
+     * (news_search_spaced). Runs of CJK characters outside quotes are quoted, so they match as
+     * a phrase rather than as characters anywhere in the article.
+     */
+    static String toQueryText(String query) {
+        StringBuilder text = new StringBuilder(query.length() * 2);
+        boolean quoted = false;
+        boolean inRun = false;
+        for (int i = 0; i < query.length(); ) {
+            int codePoint = query.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isSpaced(codePoint)) {
+                if (!inRun && !quoted) {
+                    if (text.length() > 0 && Character.isLetterOrDigit(text.codePointBefore(text.length()))) {
+                        text.append(' ');
+                    }
+                    text.append('"');
+                }
+                inRun = true;
+                text.appendCodePoint(codePoint).append(' ');
+                continue;
+            }
+            if (inRun && !quoted) {
+                text.append('"').append(' ');
+            }
+            inRun = false;
+            if (codePoint == '"') {
+                quoted = !quoted;
+            }
+            text.appendCodePoint(codePoint);
+        }
+        if (inRun && !quoted) {
+            text.append('"');
+        }
+        return text.toString().trim();
+    }
+    
+    /**
+     * HTML for a ts_headline result: the spacing added by news_search_spaced removed, the text
+     * escaped and matches wrapped in mark elements
+     */
+    static String toHtml(String headline) {
+        if (headline == null) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder(headline.length());
+        for (int i = 0; i < headline.length(); ) {
+            int codePoint = headline.codePointAt(i);
+            i += Character.charCount(codePoint);
+            text.appendCodePoint(codePoint);
+            if (isSpaced(codePoint)) {
+                // The added space follows the character, or the end mark right after it
+                if (i < headline.length() && headline.charAt(i) == STOP_MARK) {
+                    text.append(STOP_MARK);
+                    i++;
+                }
+                if (i < headline.length() && headline.charAt(i) == ' ') {
+                    i++;
+                }
+            }
+        }
+        String merged = text.toString().replace(String.valueOf(STOP_MARK) + START_MARK, "");
+        return HtmlUtils.htmlEscape(merged, StandardCharsets.UTF_8.name())
+                .replace(String.valueOf(START_MARK), "<mark>")
+                .replace(String.valueOf(STOP_MARK), "</mark>");
+    }
+    
+    /**
+     * The characters news_search_spaced puts a space after: kana, CJK ideographs and extension A,
+     * Hangul syllables and compatibility ideographs
+     */
+    static boolean isSpaced(int codePoint) {
+        return (codePoint >= 0x3040 && codePoint <= 0x30FF)
+                || (codePoint >= 0x3400 && codePoint <= 0x9FFF)
+                || (codePoint >= 0xAC00 && codePoint <= 0xD7AF)
+                || (codePoint >= 0xF900 && codePoint <= 0xFAFF);
+    }
+}
@@ -1,6 +1,9 @@
 package com.xu.news.service;
 
+import com.xu.news.entity.IndexOutboxEvent;
 import com.xu.news.entity.NewsArticle;
+import com.xu.news.repository.IndexOutboxStore;
+import com.xu.news.repository.NewsArticleBatchWriter;
 import com.xu.news.repository.NewsRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -10,33 +13,140 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NewsService {
     
+    /** Maximum number of URLs per IN query when confirming uncertain duplicates */
+    private static final int URL_CHECK_BATCH_SIZE = 1000;
+    
     private final NewsRepository newsRepository;
+    private final UrlDedupIndex urlDedupIndex;
+    private final NewsArticleBatchWriter newsArticleBatchWriter;
+    private final NearDuplicateDetector nearDuplicateDetector;
+    private final IndexOutboxStore indexOutboxStore;
+    private final ArticleTextCleaner articleTextCleaner;
     
     @Transactional
     public NewsArticle saveArticle(NewsArticle article) {
         // Check for duplicates
-        if (newsRepository.existsByUrl(article.getUrl())) {
+        UrlDedupIndex.Lookup lookup = urlDedupIndex.lookup(article.getUrl());
+        if (lookup == UrlDedupIndex.Lookup.KNOWN
+                || (lookup == UrlDedupIndex.Lookup.UNCERTAIN && newsRepository.existsByUrl(article.getUrl()))) {
             log.debug("Article already exists: {}", article.getUrl());
             return newsRepository.findByUrl(article.getUrl()).orElse(null);
         }
         
-        return newsRepository.save(article);
+        articleTextCleaner.cleanIfMissing(article);
+        markNearDuplicates(List.of(article));
+        NewsArticle saved = newsRepository.save(article);
+        enqueueIndexing(List.of(saved));
+        urlDedupIndex.addAfterCommit(List.of(saved.getUrl()));
+        nearDuplicateDetector.addAfterCommit(List.of(saved));
+        return saved;
+    }
+    
+    /**
+     * Drop articles whose URL repeats within the list or is already known to the dedup index.
+     * This is only an in-memory pre-filter, saveArticles still confirms the rest.
+     */
+    public List<NewsArticle> dropKnownArticles(List<NewsArticle> articles) {
+        Map<String, NewsArticle> byUrl = new LinkedHashMap<>();
+        for (NewsArticle article : articles) {
+            if (urlDedupIndex.lookup(article.getUrl()) != UrlDedupIndex.Lookup.KNOWN) {
+                byUrl.putIfAbsent(article.getUrl(), article);
+            }
+        }
+        return new ArrayList<>(byUrl.values());
     }
     
+    /**
+     * Save articles whose URL is not stored yet.
+     * URLs are checked against the in-memory dedup index first; only URLs the index cannot
+     * decide on are confirmed with batched IN queries.
+     */
     @Transactional
     public List<NewsArticle> saveArticles(List<NewsArticle> articles) {
-        return articles.stream()
-                .filter(article -> !newsRepository.existsByUrl(article.getUrl()))
-                .map(newsRepository::save)
-                .toList();
+        // Drop duplicates within the batch itself
+        Map<String, NewsArticle> byUrl = new LinkedHashMap<>();
+        for (NewsArticle article : articles) {
+            byUrl.putIfAbsent(article.getUrl(), article);
+        }
+        
+        List<NewsArticle> newArticles = new ArrayList<>();
+        Map<String, NewsArticle> uncertain = new LinkedHashMap<>();
+        for (NewsArticle article : byUrl.values()) {
+            switch (urlDedupIndex.lookup(article.getUrl())) {
+                case NEW -> newArticles.add(article);
+                case UNCERTAIN -> uncertain.put(article.getUrl(), article);
+                case KNOWN -> { }
+            }
+        }
+        
+        if (!uncertain.isEmpty()) {
+            List<String> urls = new ArrayList<>(uncertain.keySet());
+            for (int i = 0; i < urls.size(); i += URL_CHECK_BATCH_SIZE) {
+                List<String> existing = newsRepository.findExistingUrls(
+                        urls.subList(i, Math.min(urls.size(), i + URL_CHECK_BATCH_SIZE)));
+                existing.forEach(uncertain::remove);
+                existing.forEach(urlDedupIndex::add);
+            }
+            newArticles.addAll(uncertain.values());
+        }
+        
+        log.debug("Saving {} of {} articles ({} confirmed against the database)",
+                newArticles.size(), articles.size(), uncertain.size());
+        
+        // RSS articles were cleaned by the pipeline already, uploads are cleaned here
+        newArticles.forEach(articleTextCleaner::cleanIfMissing);
+        markNearDuplicates(newArticles);
+        
+        // JDBC batches for articles and tags instead of one INSERT per row
+        List<NewsArticle> saved = newsArticleBatchWriter.insertAll(newArticles);
+        enqueueIndexing(saved);
+        urlDedupIndex.addAfterCommit(saved.stream().map(NewsArticle::getUrl).toList());
+        nearDuplicateDetector.addAfterCommit(saved);
+        return saved;
+    }
+    
+    /**
+     * Queue new canonical articles for embedding; near-duplicates stay out of the knowledge base
+     */
+    private void enqueueIndexing(List<NewsArticle> saved) {
+        indexOutboxStore.enqueue(saved.stream()
+                .filter(article -> article.getCanonicalId() == null)
+                .map(NewsArticle::getId)
+                .toList(), IndexOutboxEvent.Operation.UPSERT);
+    }
+    
+    /**
+     * Fingerprint new articles and link near-duplicates of recent stories to their canonical article
+     */
+    private void markNearDuplicates(List<NewsArticle> articles) {
+        int duplicates = 0;
+        for (NewsArticle article : articles) {
+            Long simhash = nearDuplicateDetector.fingerprint(article);
+            article.setSimhash(simhash);
+            if (simhash != null) {
+                article.setCanonicalId(nearDuplicateDetector.findCanonical(simhash));
+                if (article.getCanonicalId() != null) {
+                    duplicates++;
+                    log.debug("Near-duplicate of article {}: {}", article.getCanonicalId(), article.getUrl());
+                }
+            }
+        }
+        if (duplicates > 0) {
+            log.info("Linked {} of {} new articles to existing stories", duplicates, articles.size());
+        }
     }
     
     public Page<NewsArticle> getAllArticles(Pageable pageable) {
@@ -95,18 +205,69 @@ public class NewsService {
         if (updatedArticle.getAuthor() != null) {
             article.setAuthor(updatedArticle.getAuthor());
         }
+        if (updatedArticle.getContent() != null || updatedArticle.getSummary() != null) {
+            article.setCleanText(null);
+            articleTextCleaner.cleanIfMissing(article);
+        }
         
-        return newsRepository.save(article);
+        NewsArticle saved = newsRepository.save(article);
+        indexOutboxStore.enqueue(List.of(id), IndexOutboxEvent.Operation.UPSERT);
+        return saved;
     }
     
     @Transactional
     public void deleteArticle(Long id) {
-        newsRepository.deleteById(id);
+        newsRepository.findById(id).ifPresent(article -> {
+            promoteDuplicates(List.of(article));
+            newsRepository.delete(article);
+            indexOutboxStore.enqueue(List.of(id), IndexOutboxEvent.Operation.DELETE);
+            urlDedupIndex.removeAfterCommit(List.of(article.getUrl()));
+            nearDuplicateDetector.removeAfterCommit(List.of(id));
+        });
     }
     
     @Transactional
     public void deleteArticles(List<Long> ids) {
-        ids.forEach(newsRepository::deleteById);
+        List<NewsArticle> articles = newsRepository.findAllById(ids);
+        List<Long> deletedIds = articles.stream().map(NewsArticle::getId).toList();
+        promoteDuplicates(articles);
+        newsRepository.deleteAll(articles);
+        indexOutboxStore.enqueue(deletedIds, IndexOutboxEvent.Operation.DELETE);
+        urlDedupIndex.removeAfterCommit(articles.stream().map(NewsArticle::getUrl).toList());
+        nearDuplicateDetector.removeAfterCommit(deletedIds);
+    }
+    
+    /**
+     * Keep the stories of deleted canonical articles: the oldest remaining near-duplicate
+     * becomes canonical, takes over the other duplicates and is queued for embedding
+     */
+    private void promoteDuplicates(List<NewsArticle> deleted) {
+        Set<Long> deletedIds = deleted.stream().map(NewsArticle::getId).collect(Collectors.toSet());
+        List<NewsArticle> promoted = new ArrayList<>();
+        for (NewsArticle article : deleted) {
+            if (article.getCanonicalId() != null) {
+                continue;
+            }
+            List<NewsArticle> duplicates = newsRepository.findByCanonicalIdOrderByCreatedAtAscIdAsc(article.getId())
+                    .stream()
+                    .filter(duplicate -> !deletedIds.contains(duplicate.getId()))
+                    .toList();
+            if (duplicates.isEmpty()) {
+                continue;
+            }
+            NewsArticle canonical = duplicates.get(0);
+            canonical.setCanonicalId(null);
+            duplicates.subList(1, duplicates.size()).forEach(duplicate -> duplicate.setCanonicalId(canonical.getId()));
+            newsRepository.saveAll(duplicates);
+            promoted.add(canonical);
+            log.info("Article {} is canonical for {} near-duplicates of deleted article {}",
+                    canonical.getId(), duplicates.size() - 1, article.getId());
+        }
+        if (!promoted.isEmpty()) {
+            indexOutboxStore.enqueue(promoted.stream().map(NewsArticle::getId).toList(),
+                    IndexOutboxEvent.Operation.UPSERT);
+            nearDuplicateDetector.addAfterCommit(promoted);
+        }
     }
     
     public List<String> getAllSources() {
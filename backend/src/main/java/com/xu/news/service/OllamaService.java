@@ -3,11 +3,13 @@ package com.xu.news.service;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
@@ -16,14 +18,17 @@ import java.util.Map;
 @Slf4j
 public class OllamaService {
     
-    private final WebClient.Builder webClientBuilder;
-    
-    @Value("${app.ollama.url}")
-    private String ollamaUrl;
+    @Qualifier("ollamaWebClient")
+    private final WebClient webClient;
+    private final AnswerCache answerCache;
+    private final DownstreamGuards guards;
     
     @Value("${app.ollama.model}")
     private String model;
     
+    @Value("${app.resilience.ollama.ping-timeout-ms:2000}")
+    private long pingTimeoutMs;
+    
     @Data
     public static class GenerateRequest {
         private String model;
@@ -40,9 +45,14 @@ public class OllamaService {
     }
     
     /**
-     * Generate answer using Ollama
+     * Generate answer using Ollama, or return the cached answer to the same question over the same context
      */
     public String generateAnswer(String query, List<String> context) {
+        String cacheKey = AnswerCache.key(model, "answer", query, context);
+        String cached = answerCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
         try {
             StringBuilder promptBuilder = new StringBuilder();
             promptBuilder.append("基于以下信息回答问题。如果信息不足，请说明。\n\n");
@@ -60,17 +70,22 @@ public class OllamaService {
             request.setPrompt(promptBuilder.toString());
             request.setStream(false);
             
-            WebClient client = webClientBuilder.baseUrl(ollamaUrl).build();
-            
-            GenerateResponse response = client.post()
+            GenerateResponse response = guards.ollama().call(webClient.post()
                     .uri("/api/generate")
                     .bodyValue(request)
                     .retrieve()
-                    .bodyToMono(GenerateResponse.class)
+                    .bodyToMono(GenerateResponse.class))
                     .block();
             
-            return response != null ? response.getResponse() : "无法生成回答";
-            
+            if (response == null || response.getResponse() == null) {
+                return "无法生成回答";
+            }
+            answerCache.put(cacheKey, response.getResponse());
+            return response.getResponse();
+        
+        } catch (DownstreamGuard.RejectedException e) {
+            log.warn("No answer generated: {}", e.getMessage());
+            return "";
         } catch (Exception e) {
             log.error("Failed to generate answer with Ollama", e);
             return "生成回答时出错：" + e.getMessage();
@@ -78,9 +93,14 @@ public class OllamaService {
     }
     
     /**
-     * Summarize search results
+     * Summarize search results, or return the cached summary of the same results
      */
     public String summarize(String query, List<String> contents) {
+        String cacheKey = AnswerCache.key(model, "summary", query, contents);
+        String cached = answerCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
         try {
             StringBuilder promptBuilder = new StringBuilder();
             promptBuilder.append("请总结以下搜索结果，针对问题提供简洁的回答。\n\n");
@@ -98,17 +118,22 @@ public class OllamaService {
             request.setPrompt(promptBuilder.toString());
             request.setStream(false);
             
-            WebClient client = webClientBuilder.baseUrl(ollamaUrl).build();
-            
-            GenerateResponse response = client.post()
+            GenerateResponse response = guards.ollama().call(webClient.post()
                     .uri("/api/generate")
                     .bodyValue(request)
                     .retrieve()
-                    .bodyToMono(GenerateResponse.class)
+                    .bodyToMono(GenerateResponse.class))
                     .block();
             
-            return response != null ? response.getResponse() : "无法生成总结";
-            
+            if (response == null || response.getResponse() == null) {
+                return "无法生成总结";
+            }
+            answerCache.put(cacheKey, response.getResponse());
+            return response.getResponse();
+        
+        } catch (DownstreamGuard.RejectedException e) {
+            log.warn("No summary generated: {}", e.getMessage());
+            return "";
         } catch (Exception e) {
             log.error("Failed to summarize with Ollama", e);
             return "生成总结时出错：" + e.getMessage();
@@ -116,15 +141,20 @@ public class OllamaService {
     }
     
     /**
-     * Check if Ollama is available
+     * Check if Ollama is available: false at once while its circuit is open, otherwise a quick
+     * ping that does not count towards the circuit breaker, since the model list answering says
+     * little about generation keeping up
      */
     public boolean isAvailable() {
+        if (!guards.ollama().isCallPermitted()) {
+            return false;
+        }
         try {
-            WebClient client = webClientBuilder.baseUrl(ollamaUrl).build();
-            Map<String, Object> response = client.get()
+            Map<String, Object> response = webClient.get()
                     .uri("/api/tags")
                     .retrieve()
                     .bodyToMono(Map.class)
+                    .timeout(Duration.ofMillis(pingTimeoutMs))
                     .block();
             return response != null;
         } catch (Exception e) {
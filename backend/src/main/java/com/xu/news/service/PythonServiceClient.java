@@ -1,29 +1,44 @@
 package com.xu.news.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Client of the Python embedding, vector search and rerank service. Every call goes through
+ * the python {@link DownstreamGuard}: query-time calls are cut off after
+ * app.resilience.python.timeout-ms, indexing and clustering calls only by the client's response
+ * timeout, and all fail fast while the circuit is open.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PythonServiceClient {
     
-    private final WebClient.Builder webClientBuilder;
+    private static final ParameterizedTypeReference<Map<String, Object>> JSON_OBJECT =
+            new ParameterizedTypeReference<>() {};
     
-    @Value("${app.python.service.url}")
-    private String pythonServiceUrl;
+    private static final ParameterizedTypeReference<Map<String, Integer>> COUNTS =
+            new ParameterizedTypeReference<>() {};
     
-    private WebClient getWebClient() {
-        return webClientBuilder.baseUrl(pythonServiceUrl).build();
-    }
+    @Qualifier("pythonWebClient")
+    private final WebClient webClient;
+    private final DownstreamGuards guards;
+    
+    /** A second /search is sent when the first has not answered after this long; 0 disables */
+    @Value("${app.resilience.python.hedge-delay-ms:0}")
+    private long hedgeDelayMs;
     
     // Request/Response DTOs
     @Data
@@ -77,6 +92,40 @@ public class PythonServiceClient {
         private List<RerankResult> results;
     }
     
+    /**
+     * Candidates for /rerank/scores, either by id (texts read from ChromaDB) or as passages;
+     * the unused field is left out of the JSON
+     */
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class RerankScoresRequest {
+        private String query;
+        private List<String> ids;
+        private List<String> passages;
+        private int max_chars;
+    }
+    
+    /**
+     * One score per candidate, in request order; null for ids not found in ChromaDB
+     */
+    @Data
+    public static class RerankScoresResponse {
+        private List<Double> scores;
+    }
+    
+    @Data
+    public static class DocumentEmbeddingsRequest {
+        private List<String> ids;
+    }
+    
+    /**
+     * Stored embeddings in request order; null for ids not found in ChromaDB
+     */
+    @Data
+    public static class DocumentEmbeddingsResponse {
+        private List<float[]> embeddings;
+    }
+    
     @Data
     public static class ClusterRequest {
         private List<String> texts;
@@ -96,6 +145,16 @@ public class PythonServiceClient {
         private List<String> top_keywords;
     }
     
+    @Data
+    public static class EmbedRequest {
+        private List<String> texts;
+    }
+    
+    @Data
+    public static class EmbedResponse {
+        private List<float[]> embeddings;
+    }
+    
     @Data
     public static class DeleteDocumentRequest {
         private List<String> ids;
@@ -106,27 +165,63 @@ public class PythonServiceClient {
         AddDocumentsRequest request = new AddDocumentsRequest();
         request.setDocuments(documents);
         
-        return getWebClient()
+        return guards.python().call(webClient
                 .post()
                 .uri("/documents/add")
                 .bodyValue(request)
                 .retrieve()
-                .bodyToMono(Map.class)
-                .doOnError(e -> log.error("Error adding documents to Python service", e));
+                .bodyToMono(JSON_OBJECT)
+                .doOnError(e -> log.error("Error adding documents to Python service", e)), null);
+    }
+    
+    /**
+     * Embeddings of the texts, in order
+     */
+    public Mono<EmbedResponse> embed(List<String> texts) {
+        EmbedRequest request = new EmbedRequest();
+        request.setTexts(texts);
+        
+        return guards.python().call(webClient
+                .post()
+                .uri("/embed")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(EmbedResponse.class)
+                .doOnError(e -> log.error("Error computing embeddings in Python service", e)), null);
     }
     
+    /**
+     * Embedding of a search query: a query-time call, cut off like /search
+     */
+    public Mono<EmbedResponse> embedQuery(String query) {
+        EmbedRequest request = new EmbedRequest();
+        request.setTexts(List.of(query));
+        
+        return guards.python().call(webClient
+                .post()
+                .uri("/embed")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(EmbedResponse.class)
+                .doOnError(e -> log.error("Error computing query embedding in Python service", e)));
+    }
+    
+    /**
+     * Vector search; idempotent, so sent again after app.resilience.python.hedge-delay-ms
+     * without an answer
+     */
     public Mono<SearchResponse> search(String query, int topK) {
         SearchRequest request = new SearchRequest();
         request.setQuery(query);
         request.setTop_k(topK);
         
-        return getWebClient()
+        return guards.python().hedged(() -> webClient
                 .post()
                 .uri("/search")
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(SearchResponse.class)
-                .doOnError(e -> log.error("Error searching in Python service", e));
+                .doOnError(e -> log.error("Error searching in Python service", e)), Duration.ofMillis(hedgeDelayMs));
     }
     
     public Mono<RerankResponse> rerank(String query, List<Map<String, Object>> documents, int topK) {
@@ -135,13 +230,48 @@ public class PythonServiceClient {
         request.setDocuments(documents);
         request.setTop_k(topK);
         
-        return getWebClient()
+        return guards.python().call(webClient
                 .post()
                 .uri("/rerank")
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(RerankResponse.class)
-                .doOnError(e -> log.error("Error reranking in Python service", e));
+                .doOnError(e -> log.error("Error reranking in Python service", e)));
+    }
+    
+    /**
+     * Cross-encoder scores only: neither texts nor metadata travel back
+     */
+    public Mono<RerankScoresResponse> rerankScores(String query, List<String> ids, List<String> passages, int maxChars) {
+        RerankScoresRequest request = new RerankScoresRequest();
+        request.setQuery(query);
+        request.setIds(ids);
+        request.setPassages(passages);
+        request.setMax_chars(maxChars);
+        
+        return guards.python().call(webClient
+                .post()
+                .uri("/rerank/scores")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(RerankScoresResponse.class)
+                .doOnError(e -> log.error("Error reranking in Python service", e)));
+    }
+    
+    /**
+     * Embeddings stored in ChromaDB for the given documents, read for background clustering
+     */
+    public Mono<DocumentEmbeddingsResponse> documentEmbeddings(List<String> ids) {
+        DocumentEmbeddingsRequest request = new DocumentEmbeddingsRequest();
+        request.setIds(ids);
+        
+        return guards.python().call(webClient
+                .post()
+                .uri("/documents/embeddings")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(DocumentEmbeddingsResponse.class)
+                .doOnError(e -> log.error("Error reading document embeddings from Python service", e)), null);
     }
     
     public Mono<ClusterResponse> cluster(List<String> texts, int nClusters) {
@@ -149,43 +279,43 @@ public class PythonServiceClient {
         request.setTexts(texts);
         request.setN_clusters(nClusters);
         
-        return getWebClient()
+        return guards.python().call(webClient
                 .post()
                 .uri("/cluster")
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(ClusterResponse.class)
-                .doOnError(e -> log.error("Error clustering in Python service", e));
+                .doOnError(e -> log.error("Error clustering in Python service", e)), null);
     }
     
     public Mono<Map<String, Object>> deleteDocuments(List<String> ids) {
         DeleteDocumentRequest request = new DeleteDocumentRequest();
         request.setIds(ids);
         
-        return getWebClient()
+        return guards.python().call(webClient
                 .method(org.springframework.http.HttpMethod.DELETE)
                 .uri("/documents")
                 .bodyValue(request)
                 .retrieve()
-                .bodyToMono(Map.class)
-                .doOnError(e -> log.error("Error deleting documents from Python service", e));
+                .bodyToMono(JSON_OBJECT)
+                .doOnError(e -> log.error("Error deleting documents from Python service", e)), null);
     }
     
     public Mono<Map<String, Object>> getHealth() {
-        return getWebClient()
+        return webClient
                 .get()
                 .uri("/health")
                 .retrieve()
-                .bodyToMono(Map.class)
+                .bodyToMono(JSON_OBJECT)
                 .doOnError(e -> log.error("Error checking Python service health", e));
     }
     
     public Mono<Map<String, Integer>> getDocumentCount() {
-        return getWebClient()
+        return webClient
                 .get()
                 .uri("/documents/count")
                 .retrieve()
-                .bodyToMono(Map.class)
+                .bodyToMono(COUNTS)
                 .doOnError(e -> log.error("Error getting document count from Python service", e));
     }
 }
@@ -0,0 +1,34 @@
+package com.xu.news.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reciprocal rank fusion: every ranking contributes 1 / (k + rank) to each document it
+ * contains, rank counting from 1. Only ranks are used, so rankings whose scores are on
+ * different scales, such as BM25 and cosine similarity, can be combined without calibration;
+ * a larger k flattens the advantage of the top ranks.
+ */
+final class RankFusion {
+    
+    private RankFusion() {
+    }
+    
+    /**
+     * Fused scores of all documents in the rankings, best first; ties keep first-seen order
+     */
+    static <T> LinkedHashMap<T, Double> fuse(List<List<T>> rankings, int k) {
+        Map<T, Double> scores = new LinkedHashMap<>();
+        for (List<T> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                scores.merge(ranking.get(rank), 1.0 / (k + rank + 1), Double::sum);
+            }
+        }
+        LinkedHashMap<T, Double> fused = new LinkedHashMap<>();
+        scores.entrySet().stream()
+                .sorted(Map.Entry.<T, Double>comparingByValue().reversed())
+                .forEach(entry -> fused.put(entry.getKey(), entry.getValue()));
+        return fused;
+    }
+}
@@ -0,0 +1,41 @@
+package com.xu.news.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Spaces work out to a steady rate: each reservation of n permits is scheduled right after the
+ * previous one ends, and the caller waits until its slot starts. Unused time is not saved up,
+ * so an idle pacer allows no burst beyond one reservation.
+ */
+final class RatePacer {
+    
+    private final double nanosPerPermit;
+    private final LongSupplier nanoClock;
+    private long nextFree;
+    
+    /**
+     * permitsPerSecond of 0 or less disables pacing
+     */
+    RatePacer(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime);
+    }
+    
+    RatePacer(double permitsPerSecond, LongSupplier nanoClock) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? 1_000_000_000 / permitsPerSecond : 0;
+        this.nanoClock = nanoClock;
+        this.nextFree = nanoClock.getAsLong();
+    }
+    
+    /**
+     * Reserve permits and return how many nanoseconds to wait before using them
+     */
+    synchronized long reserve(int permits) {
+        if (nanosPerPermit <= 0) {
+            return 0;
+        }
+        long now = nanoClock.getAsLong();
+        long start = Math.max(now, nextFree);
+        nextFree = start + (long) (permits * nanosPerPermit);
+        return start - now;
+    }
+}
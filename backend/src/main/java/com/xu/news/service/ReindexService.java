@@ -0,0 +1,318 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.IndexOutboxEvent;
+import com.xu.news.entity.NewsArticle;
+import com.xu.news.entity.ReindexRun;
+import com.xu.news.repository.IndexOutboxStore;
+import com.xu.news.repository.NewsRepository;
+import com.xu.news.repository.ReindexRunRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.SchedulerException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full re-index of the knowledge base from news_articles, e.g. after a change of embedding
+ * model or the loss of the vector store.
+ * <p>
+ * Articles are read in keyset pages by id up to the newest article at the start; newer ones
+ * reach the knowledge base through the outbox anyway. app.kb.reindex.parallelism pages are
+ * embedded at a time, and the checkpoint in reindex_runs advances in id order once every
+ * earlier page is done, so a run interrupted by a crash, a pause or a failure resumes after
+ * the last checkpoint and at most re-sends the pages that were in flight. The run executes as
+ * the kb-reindex Quartz job, which Quartz re-runs at startup after a crash.
+ * <p>
+ * The re-index shares the Python service with live queries: it is paced to
+ * app.kb.reindex.max-docs-per-second and holds back its next page while the Python circuit is
+ * open or yield-in-flight calls to it are already in flight. Articles whose batch still fails
+ * after the retries of addArticlesToKnowledgeBase are handed to the outbox; a page that fails
+ * completely stops the run, which can then be resumed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReindexService {
+    
+    public static final String JOB_NAME = "kb-reindex";
+    
+    private static final List<ReindexRun.Status> UNFINISHED =
+            List.of(ReindexRun.Status.RUNNING, ReindexRun.Status.PAUSED, ReindexRun.Status.FAILED);
+    
+    private final ReindexRunRepository reindexRunRepository;
+    private final NewsRepository newsRepository;
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final IndexOutboxStore indexOutboxStore;
+    private final DownstreamGuards guards;
+    private final ClusterCoordinator clusterCoordinator;
+    private final JobService jobService;
+    
+    @Value("${app.kb.reindex.page-size:200}")
+    private int pageSize;
+    
+    @Value("${app.kb.reindex.parallelism:2}")
+    private int parallelism;
+    
+    @Value("${app.kb.reindex.max-docs-per-second:50}")
+    private double maxDocsPerSecond;
+    
+    @Value("${app.kb.reindex.yield-in-flight:12}")
+    private int yieldInFlight;
+    
+    @Value("${app.kb.reindex.yield-max-ms:30000}")
+    private long yieldMaxMs;
+    
+    @Value("${app.kb.reindex.lease-seconds:300}")
+    private long leaseSeconds;
+    
+    /** Whether this node is executing a run */
+    private final AtomicBoolean running = new AtomicBoolean();
+    
+    /**
+     * A run with its progress: throughput over its running time, pauses excluded, and the time
+     * left at that rate
+     */
+    public record Status(ReindexRun run, boolean runningOnThisNode, double percent, double docsPerSecond,
+                         Long etaSeconds) {
+    }
+    
+    record Progress(double percent, double docsPerSecond, Long etaSeconds) {
+        
+        static Progress of(long total, long processed, long activeMs) {
+            double percent = total > 0 ? Math.min(100.0, processed * 100.0 / total) : 100.0;
+            double docsPerSecond = activeMs > 0 ? processed * 1000.0 / activeMs : 0;
+            Long eta = docsPerSecond > 0 ? (long) Math.ceil(Math.max(0, total - processed) / docsPerSecond) : null;
+            return new Progress(percent, docsPerSecond, eta);
+        }
+    }
+    
+    private record PageResult(long lastId, int processed, int indexed, int skipped, int failed) {
+    }
+    
+    /**
+     * Start a re-index, or resume the unfinished one unless restart is set, and trigger the job
+     */
+    public synchronized ReindexRun start(boolean restart) throws SchedulerException {
+        LocalDateTime now = LocalDateTime.now();
+        Optional<ReindexRun> unfinished = reindexRunRepository.findFirstByStatusInOrderByIdDesc(UNFINISHED);
+        ReindexRun run;
+        if (unfinished.isEmpty()) {
+            run = create(now);
+        } else {
+            ReindexRun existing = unfinished.get();
+            if (existing.getStatus() == ReindexRun.Status.RUNNING && isAlive(existing, now)) {
+                throw new IllegalStateException("重建索引正在进行中");
+            }
+            if (restart) {
+                reindexRunRepository.transition(existing.getId(), existing.getStatus(), ReindexRun.Status.CANCELLED,
+                        now, "Restarted");
+                run = create(now);
+            } else {
+                existing.setStatus(ReindexRun.Status.RUNNING);
+                existing.setNodeId(clusterCoordinator.getNodeId());
+                existing.setHeartbeatAt(now);
+                existing.setFinishedAt(null);
+                existing.setError(null);
+                run = reindexRunRepository.save(existing);
+                log.info("Resuming re-index {} after article {}", run.getId(), run.getCheckpointId());
+            }
+        }
+        jobService.triggerNow(JOB_NAME);
+        return run;
+    }
+    
+    /**
+     * Pause the running re-index after the pages in flight; false when none is running
+     */
+    public boolean pause() {
+        return reindexRunRepository.findFirstByStatusInOrderByIdDesc(List.of(ReindexRun.Status.RUNNING))
+                .map(run -> reindexRunRepository.transition(run.getId(), ReindexRun.Status.RUNNING,
+                        ReindexRun.Status.PAUSED, null, null) > 0)
+                .orElse(false);
+    }
+    
+    /**
+     * The latest run and its progress, or null if there has never been one
+     */
+    public Status getStatus() {
+        return reindexRunRepository.findFirstByOrderByIdDesc()
+                .map(run -> {
+                    Progress progress = Progress.of(run.getTotalArticles(), run.getProcessed(), run.getActiveMs());
+                    boolean active = run.getStatus() == ReindexRun.Status.RUNNING;
+                    return new Status(run, active && running.get(),
+                            run.getStatus() == ReindexRun.Status.SUCCEEDED ? 100.0 : progress.percent(),
+                            progress.docsPerSecond(), active ? progress.etaSeconds() : null);
+                })
+                .orElse(null);
+    }
+    
+    /**
+     * Execute the run assigned to this node, if any; called by the kb-reindex job
+     */
+    public String run() {
+        Optional<ReindexRun> assigned = reindexRunRepository.findFirstByStatusAndNodeIdOrderByIdDesc(
+                ReindexRun.Status.RUNNING, clusterCoordinator.getNodeId());
+        if (assigned.isEmpty()) {
+            return "nothing to re-index";
+        }
+        if (!running.compareAndSet(false, true)) {
+            return "already running";
+        }
+        try {
+            return execute(assigned.get());
+        } finally {
+            running.set(false);
+        }
+    }
+    
+    private ReindexRun create(LocalDateTime now) {
+        Long maxId = newsRepository.findMaxId();
+        long upToId = maxId != null ? maxId : 0;
+        ReindexRun run = reindexRunRepository.save(ReindexRun.builder()
+                .status(ReindexRun.Status.RUNNING)
+                .nodeId(clusterCoordinator.getNodeId())
+                .upToId(upToId)
+                .totalArticles(newsRepository.countByIdLessThanEqual(upToId))
+                .startedAt(now)
+                .heartbeatAt(now)
+                .build());
+        log.info("Starting re-index {} of {} articles up to id {}", run.getId(), run.getTotalArticles(), upToId);
+        return run;
+    }
+    
+    /**
+     * A running run is alive while this node executes it or its heartbeat is recent
+     */
+    private boolean isAlive(ReindexRun run, LocalDateTime now) {
+        if (clusterCoordinator.getNodeId().equals(run.getNodeId())) {
+            return running.get();
+        }
+        return run.getHeartbeatAt() != null && run.getHeartbeatAt().isAfter(now.minusSeconds(leaseSeconds));
+    }
+    
+    private String execute(ReindexRun run) {
+        long sessionStart = System.nanoTime();
+        RatePacer pacer = new RatePacer(maxDocsPerSecond);
+        AtomicLong readAfter = new AtomicLong(run.getCheckpointId());
+        AtomicBoolean interrupted = new AtomicBoolean();
+        log.info("Re-index {} running from article {} up to {}", run.getId(), run.getCheckpointId(), run.getUpToId());
+        try {
+            Flux.<List<NewsArticle>>generate(sink -> {
+                        List<NewsArticle> page = nextPage(readAfter.get(), run.getUpToId());
+                        if (page.isEmpty()) {
+                            sink.complete();
+                            return;
+                        }
+                        readAfter.set(page.get(page.size() - 1).getId());
+                        throttle(pacer, page.size());
+                        sink.next(page);
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMapSequential(page -> Mono.fromCallable(() -> indexPage(page))
+                            .subscribeOn(Schedulers.boundedElastic()), Math.max(1, parallelism), 1)
+                    .takeWhile(page -> {
+                        if (checkpoint(run, page, sessionStart)) {
+                            return true;
+                        }
+                        interrupted.set(true);
+                        return false;
+                    })
+                    .blockLast();
+        } catch (Exception e) {
+            log.error("Re-index {} failed after article {}", run.getId(), readAfter.get(), e);
+            reindexRunRepository.transition(run.getId(), ReindexRun.Status.RUNNING, ReindexRun.Status.FAILED,
+                    LocalDateTime.now(), truncate(String.valueOf(e.getMessage())));
+            return "failed: " + e.getMessage();
+        }
+        
+        ReindexRun done = reindexRunRepository.findById(run.getId()).orElse(run);
+        if (interrupted.get()) {
+            log.info("Re-index {} {} at article {}", run.getId(), done.getStatus().name().toLowerCase(Locale.ROOT),
+                    done.getCheckpointId());
+            return done.getStatus().name().toLowerCase(Locale.ROOT) + " at article " + done.getCheckpointId();
+        }
+        reindexRunRepository.transition(run.getId(), ReindexRun.Status.RUNNING, ReindexRun.Status.SUCCEEDED,
+                LocalDateTime.now(), null);
+        Progress progress = Progress.of(done.getTotalArticles(), done.getProcessed(), done.getActiveMs());
+        log.info("Re-index {} finished: {} articles, {} indexed, {} near-duplicates, {} handed to the outbox, {} docs/s",
+                run.getId(), done.getProcessed(), done.getIndexed(), done.getSkipped(), done.getFailed(),
+                Math.round(progress.docsPerSecond()));
+        return "re-indexed " + done.getIndexed() + " of " + done.getProcessed();
+    }
+    
+    private List<NewsArticle> nextPage(long afterId, long upToId) {
+        return newsRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize)).stream()
+                .filter(article -> article.getId() <= upToId)
+                .toList();
+    }
+    
+    /**
+     * Wait for the page's slot at the configured rate, and while live traffic needs the Python
+     * service, for at most yield-max-ms
+     */
+    private void throttle(RatePacer pacer, int documents) {
+        DownstreamGuard python = guards.python();
+        long deadline = System.currentTimeMillis() + yieldMaxMs;
+        try {
+            while (System.currentTimeMillis() < deadline
+                    && (!python.isCallPermitted() || python.inFlight() >= yieldInFlight)) {
+                Thread.sleep(200);
+            }
+            TimeUnit.NANOSECONDS.sleep(pacer.reserve(documents));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Re-index interrupted", e);
+        }
+    }
+    
+    private PageResult indexPage(List<NewsArticle> page) {
+        KnowledgeBaseService.AddResult result = knowledgeBaseService.addArticlesToKnowledgeBase(page);
+        int canonical = result.requested() - result.skipped();
+        if (canonical > 0 && result.failedArticleIds().size() == canonical) {
+            throw new IllegalStateException("All " + canonical + " articles of the page failed: " + result.firstError());
+        }
+        Set<Long> failed = new HashSet<>(result.failedArticleIds());
+        List<Long> indexed = page.stream()
+                .filter(article -> article.getCanonicalId() == null && !failed.contains(article.getId()))
+                .map(NewsArticle::getId)
+                .toList();
+        if (!indexed.isEmpty()) {
+            newsRepository.markIndexed(indexed);
+        }
+        if (!failed.isEmpty()) {
+            // The outbox indexer retries these with backoff
+            indexOutboxStore.enqueue(failed, IndexOutboxEvent.Operation.UPSERT);
+        }
+        return new PageResult(page.get(page.size() - 1).getId(), page.size(), indexed.size(), result.skipped(),
+                failed.size());
+    }
+    
+    /**
+     * Record a finished page; false when the run has been paused or cancelled meanwhile
+     */
+    private boolean checkpoint(ReindexRun run, PageResult page, long sessionStart) {
+        long activeMs = run.getActiveMs() + (System.nanoTime() - sessionStart) / 1_000_000;
+        int updated = reindexRunRepository.checkpoint(run.getId(), page.lastId(), page.processed(), page.indexed(),
+                page.skipped(), page.failed(), activeMs, LocalDateTime.now());
+        log.debug("Re-index {} checkpoint at article {}", run.getId(), page.lastId());
+        return updated > 0;
+    }
+    
+    private static String truncate(String message) {
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
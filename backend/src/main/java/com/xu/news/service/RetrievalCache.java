@@ -0,0 +1,151 @@
+package com.xu.news.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of knowledge base search results, keyed by the normalized query, topK and search mode.
+ * <p>
+ * Every change to the indexed documents bumps a generation counter. Entries remember the
+ * generation that was current when their search started and are ignored once it has moved
+ * on, so a search racing with an index update is never served afterwards. Entries also expire
+ * after app.query.cache.ttl-seconds, which bounds staleness for documents indexed by another
+ * node, and the least recently used entries are dropped beyond app.query.cache.max-entries.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RetrievalCache {
+    
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.query.cache.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.query.cache.max-entries:1000}")
+    private int maxEntries;
+    
+    @Value("${app.query.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+    
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private LruCache<Key, Cached> cache;
+    
+    /**
+     * Search mode and depth are part of the key; candidates is 0 for plain searches
+     */
+    record Key(String mode, String query, int topK, boolean rerank, int candidates) {
+    }
+    
+    private record Cached(long generation, List<?> results) {
+    }
+    
+    @PostConstruct
+    void createCache() {
+        cache = new LruCache<>(maxEntries, ttlSeconds * 1000);
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", "retrieval").tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", "retrieval").tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", cache, LruCache::evictions)
+                .tag("cache", "retrieval")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", cache, LruCache::size)
+                .tag("cache", "retrieval")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Cached results for the key, or the loader's results, which are then cached.
+     * Failures are not cached.
+     */
+    @SuppressWarnings("unchecked")
+    <T> List<T> getOrLoad(Key key, Supplier<List<T>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        long current = generation.get();
+        Cached cached = cache.get(key);
+        if (cached != null && cached.generation() == current) {
+            hits.increment();
+            return (List<T>) cached.results();
+        }
+        misses.increment();
+        List<T> loaded = loader.get();
+        List<T> results = loaded != null ? List.copyOf(loaded) : List.of();
+        cache.put(key, new Cached(current, results));
+        return results;
+    }
+    
+    static Key key(String query, int topK, boolean rerank, int candidates) {
+        return key("semantic", query, topK, rerank, candidates);
+    }
+    
+    static Key key(String mode, String query, int topK, boolean rerank, int candidates) {
+        return new Key(mode, normalize(query), topK, rerank, rerank ? candidates : 0);
+    }
+    
+    /**
+     * Unicode compatibility form, lower case, single spaces. Full-width and half-width forms of
+     * the same question share an entry.
+     */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+    
+    /**
+     * Called after documents were added to or removed from the index
+     */
+    public void bumpGeneration() {
+        long next = generation.incrementAndGet();
+        log.debug("Knowledge base generation is now {}", next);
+    }
+    
+    public void clear() {
+        cache.clear();
+        bumpGeneration();
+    }
+    
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("generation", generation.get());
+        stats.put("size", cache.size());
+        stats.put("maxEntries", cache.maxEntries());
+        stats.put("ttlSeconds", ttlSeconds);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount > 0 ? (double) hitCount / (hitCount + missCount) : 0.0);
+        stats.put("evictions", cache.evictions());
+        stats.put("expirations", cache.expirations());
+        return stats;
+    }
+}
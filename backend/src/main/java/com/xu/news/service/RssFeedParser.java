@@ -0,0 +1,431 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.NewsArticle;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streaming RSS 2.0 / Atom parser.
+ * Reads the response body buffer by buffer with a StAX pull parser and emits one
+ * NewsArticle per item, so a feed is never held in memory as a String or DOM tree.
+ */
+@Component
+@Slf4j
+public class RssFeedParser {
+    
+    private static final String UNKNOWN_SOURCE = "Unknown Source";
+    
+    private static final String MEDIA_NAMESPACE = "http://search.yahoo.com/mrss/";
+    
+    /** Number of DataBuffers requested ahead of the parser */
+    private static final int PREFETCH_BUFFERS = 16;
+    
+    private final XMLInputFactory xmlInputFactory;
+    
+    @Value("${app.rss.fetch.max-body-bytes:10485760}")
+    private long maxBodyBytes;
+    
+    public RssFeedParser() {
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+    
+    /**
+     * Parse a feed body into articles, emitted as soon as each item has been read.
+     * Fails with DataBufferLimitException once the body exceeds app.rss.fetch.max-body-bytes.
+     *
+     * @param body          raw response body
+     * @param bytesReceived incremented with the number of body bytes consumed
+     * @param checkpoint    items it already knows are skipped, and reading stops once it says so
+     */
+    public Flux<NewsArticle> parse(Flux<DataBuffer> body, AtomicLong bytesReceived, FeedCheckpoint checkpoint) {
+        Flux<DataBuffer> limited = body.handle((buffer, sink) -> {
+            if (bytesReceived.addAndGet(buffer.readableByteCount()) > maxBodyBytes) {
+                DataBufferUtils.release(buffer);
+                sink.error(new DataBufferLimitException("Feed body exceeds " + maxBodyBytes + " bytes"));
+            } else {
+                sink.next(buffer);
+            }
+        });
+        
+        return Flux.<NewsArticle, FeedReader>using(
+                        () -> new FeedReader(new BufferQueueInputStream(limited, PREFETCH_BUFFERS), checkpoint),
+                        reader -> Flux.generate(sink -> {
+                            try {
+                                NewsArticle article = reader.nextArticle();
+                                if (article != null) {
+                                    sink.next(article);
+                                } else {
+                                    sink.complete();
+                                }
+                            } catch (XMLStreamException e) {
+                                // Report the body error (e.g. size limit) rather than the resulting EOF
+                                Throwable bodyError = reader.inputStream.failure;
+                                sink.error(bodyError != null ? bodyError : e);
+                            }
+                        }),
+                        FeedReader::close)
+                // The StAX reader blocks while waiting for the next buffer
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    /**
+     * Pull-parser state for one feed document
+     */
+    private class FeedReader {
+        
+        private final BufferQueueInputStream inputStream;
+        private final XMLStreamReader reader;
+        private final FeedCheckpoint checkpoint;
+        private String sourceName;
+        
+        FeedReader(BufferQueueInputStream inputStream, FeedCheckpoint checkpoint) throws XMLStreamException {
+            this.inputStream = inputStream;
+            this.reader = xmlInputFactory.createXMLStreamReader(inputStream);
+            this.checkpoint = checkpoint;
+        }
+        
+        /**
+         * Advance to the next valid, unseen item, or return null at the end of the document
+         * or once the checkpoint says the remaining items are known
+         */
+        NewsArticle nextArticle() throws XMLStreamException {
+            while (!checkpoint.shouldStop() && reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String name = reader.getLocalName();
+                if ("item".equals(name) || "entry".equals(name)) {
+                    NewsArticle article = readItem(name);
+                    if (article != null) {
+                        return article;
+                    }
+                } else if ("title".equals(name) && sourceName == null) {
+                    // The first title outside of any item is the channel / feed title
+                    sourceName = readText();
+                }
+            }
+            return null;
+        }
+        
+        private NewsArticle readItem(String itemTag) throws XMLStreamException {
+            String title = null;
+            String link = null;
+            String description = null;
+            String content = null;
+            String author = null;
+            String pubDateStr = null;
+            String guid = null;
+            Set<String> tags = new HashSet<>();
+            
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 0 && itemTag.equals(reader.getLocalName())) {
+                        break;
+                    }
+                    depth--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                
+                if (MEDIA_NAMESPACE.equals(reader.getNamespaceURI())) {
+                    // media:title / media:content etc. describe attachments, not the item
+                    depth++;
+                    continue;
+                }
+                
+                switch (reader.getLocalName()) {
+                    case "title" -> title = firstNonEmpty(title, readText());
+                    case "link" -> {
+                        // Atom: <link rel="alternate" href="..."/>, RSS: <link>...</link>
+                        String href = reader.getAttributeValue(null, "href");
+                        String rel = reader.getAttributeValue(null, "rel");
+                        String text = readText();
+                        if (href != null && !href.isEmpty()) {
+                            if (link == null || rel == null || "alternate".equals(rel)) {
+                                link = href;
+                            }
+                        } else {
+                            link = firstNonEmpty(link, text);
+                        }
+                    }
+                    case "description", "summary" -> description = firstNonEmpty(description, readText());
+                    case "encoded" -> content = firstNonEmpty(readText(), content);  // content:encoded wins
+                    case "content" -> content = firstNonEmpty(content, readText());
+                    case "author", "creator" -> author = firstNonEmpty(author, readAuthor());
+                    case "pubDate", "published" -> pubDateStr = firstNonEmpty(readText(), pubDateStr);
+                    case "updated", "date" -> pubDateStr = firstNonEmpty(pubDateStr, readText());
+                    case "guid", "id" -> guid = firstNonEmpty(guid, readText());
+                    case "category" -> {
+                        String term = reader.getAttributeValue(null, "term");
+                        String category = firstNonEmpty(term, readText());
+                        if (category != null) {
+                            tags.add(category);
+                        }
+                    }
+                    default -> depth++;
+                }
+            }
+            
+            // Validation
+            if (title == null || link == null) {
+                return null;
+            }
+            
+            LocalDateTime publishedAt = parseDate(pubDateStr);
+            if (checkpoint.isKnown(guid != null ? guid : link, publishedAt)) {
+                return null;
+            }
+            
+            return NewsArticle.builder()
+                    .title(title)
+                    .content(content != null ? content : description)
+                    .summary(description)
+                    .url(link)
+                    .source(sourceName != null ? sourceName : UNKNOWN_SOURCE)
+                    .author(author)
+                    .publishedAt(publishedAt != null ? publishedAt : LocalDateTime.now())
+                    .tags(tags)
+                    .contentType(NewsArticle.ContentType.RSS)
+                    .build();
+        }
+        
+        /**
+         * Read the text content of the current element and all of its descendants,
+         * leaving the reader on its END_ELEMENT
+         */
+        private String readText() throws XMLStreamException {
+            StringBuilder text = new StringBuilder();
+            int depth = 1;
+            while (depth > 0 && reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> depth++;
+                    case XMLStreamConstants.END_ELEMENT -> depth--;
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA,
+                         XMLStreamConstants.SPACE, XMLStreamConstants.ENTITY_REFERENCE ->
+                            text.append(reader.getText());
+                    default -> { }
+                }
+            }
+            String trimmed = text.toString().trim();
+            return trimmed.isEmpty() ? null : trimmed;
+        }
+        
+        /**
+         * Read an RSS author / dc:creator (plain text) or an Atom author (with a name child)
+         */
+        private String readAuthor() throws XMLStreamException {
+            StringBuilder text = new StringBuilder();
+            String name = null;
+            int depth = 1;
+            while (depth > 0 && reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        if ("name".equals(reader.getLocalName())) {
+                            name = readText();
+                        } else {
+                            depth++;
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> depth--;
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA ->
+                            text.append(reader.getText());
+                    default -> { }
+                }
+            }
+            if (name != null) {
+                return name;
+            }
+            String trimmed = text.toString().trim();
+            return trimmed.isEmpty() ? null : trimmed;
+        }
+        
+        void close() {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                log.debug("Failed to close XML reader", e);
+            }
+            inputStream.close();
+        }
+    }
+    
+    /**
+     * Blocking InputStream over a DataBuffer publisher with bounded prefetch:
+     * one more buffer is requested each time the parser has consumed one.
+     */
+    private static final class BufferQueueInputStream extends InputStream {
+        
+        private static final Object END = new Object();
+        
+        private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+        private final BaseSubscriber<DataBuffer> subscriber;
+        private volatile boolean closed;
+        private volatile Throwable failure;
+        private DataBuffer current;
+        private boolean done;
+        
+        BufferQueueInputStream(Flux<DataBuffer> source, int prefetch) {
+            subscriber = new BaseSubscriber<>() {
+                @Override
+                protected void hookOnSubscribe(Subscription subscription) {
+                    subscription.request(prefetch);
+                }
+                
+                @Override
+                protected void hookOnNext(DataBuffer buffer) {
+                    queue.offer(buffer);
+                    if (closed) {
+                        drain();
+                    }
+                }
+                
+                @Override
+                protected void hookOnComplete() {
+                    queue.offer(END);
+                }
+                
+                @Override
+                protected void hookOnError(Throwable throwable) {
+                    failure = throwable;
+                    queue.offer(END);
+                }
+            };
+            source.subscribe(subscriber);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            DataBuffer buffer = currentBuffer();
+            if (buffer == null) {
+                return -1;
+            }
+            int b = buffer.read() & 0xFF;
+            releaseIfConsumed(buffer);
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            DataBuffer buffer = currentBuffer();
+            if (buffer == null) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.readableByteCount());
+            buffer.read(bytes, offset, count);
+            releaseIfConsumed(buffer);
+            return count;
+        }
+        
+        private DataBuffer currentBuffer() throws IOException {
+            while (current == null && !done) {
+                Object next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for feed body");
+                }
+                if (next == END) {
+                    done = true;
+                    if (failure != null) {
+                        throw new IOException("Failed to read feed body", failure);
+                    }
+                } else {
+                    current = (DataBuffer) next;
+                    subscriber.request(1);
+                    releaseIfConsumed(current);
+                }
+            }
+            return current;
+        }
+        
+        private void releaseIfConsumed(DataBuffer buffer) {
+            if (buffer.readableByteCount() == 0) {
+                DataBufferUtils.release(buffer);
+                current = null;
+            }
+        }
+        
+        private void drain() {
+            Object next;
+            while ((next = queue.poll()) != null) {
+                if (next instanceof DataBuffer buffer) {
+                    DataBufferUtils.release(buffer);
+                }
+            }
+        }
+        
+        @Override
+        public void close() {
+            closed = true;
+            subscriber.dispose();
+            if (current != null) {
+                DataBufferUtils.release(current);
+                current = null;
+            }
+            drain();
+        }
+    }
+    
+    private static String firstNonEmpty(String preferred, String fallback) {
+        return preferred != null && !preferred.isEmpty() ? preferred : fallback;
+    }
+    
+    /**
+     * Parse an RSS (RFC 822) or Atom (ISO 8601) date, null if missing or unparseable
+     */
+    LocalDateTime parseDate(String dateStr) {
+        if (dateStr == null || dateStr.isEmpty()) {
+            return null;
+        }
+        
+        try {
+            // Try RFC 822 format (RSS 2.0)
+            ZonedDateTime zdt = ZonedDateTime.parse(dateStr, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return zdt.toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            try {
+                // Try ISO 8601 format (Atom)
+                return LocalDateTime.parse(dateStr, DateTimeFormatter.ISO_DATE_TIME);
+            } catch (DateTimeParseException e2) {
+                log.warn("Failed to parse date: {}", dateStr);
+                return null;
+            }
+        }
+    }
+}
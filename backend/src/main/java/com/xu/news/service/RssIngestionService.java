@@ -1,23 +1,25 @@
 package com.xu.news.service;
 
 import com.xu.news.entity.NewsArticle;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.ByteArrayInputStream;
-import java.time.LocalDateTime;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -25,221 +27,292 @@ import java.util.*;
 public class RssIngestionService {
     
     private final NewsService newsService;
-    private final KnowledgeBaseService knowledgeBaseService;
+    private final KnowledgeBaseIndexer knowledgeBaseIndexer;
     private final EmailService emailService;
+    private final FeedStateService feedStateService;
+    private final RssFeedParser rssFeedParser;
     private final WebClient.Builder webClientBuilder;
+    private final IngestionMetrics ingestionMetrics;
+    private final ArticleTextCleaner articleTextCleaner;
     
     @Value("${app.rss.feeds-file:../feeds.yaml}")
     private String feedsFile;
     
+    @Value("${app.rss.fetch.concurrency:8}")
+    private int fetchConcurrency;
+    
+    @Value("${app.rss.fetch.per-host-delay-ms:1000}")
+    private long perHostDelayMs;
+    
+    @Value("${app.rss.fetch.timeout-seconds:30}")
+    private long fetchTimeoutSeconds;
+    
+    @Value("${app.ingestion.pipeline.queue-capacity:4}")
+    private int queueCapacity;
+    
+    @Value("${app.ingestion.pipeline.dedup-parallelism:2}")
+    private int dedupParallelism;
+    
+    @Value("${app.ingestion.pipeline.clean-parallelism:2}")
+    private int cleanParallelism;
+    
+    @Value("${app.ingestion.pipeline.persist-parallelism:2}")
+    private int persistParallelism;
+    
+    private IngestionStage fetchStage;
+    private IngestionStage dedupStage;
+    private IngestionStage cleanStage;
+    private IngestionStage persistStage;
+    
+    @PostConstruct
+    void createStages() {
+        fetchStage = new IngestionStage("fetch", fetchConcurrency);
+        dedupStage = new IngestionStage("dedup", dedupParallelism, queueCapacity);
+        cleanStage = new IngestionStage("clean", cleanParallelism, queueCapacity);
+        persistStage = new IngestionStage("persist", persistParallelism, queueCapacity);
+        List.of(fetchStage, dedupStage, cleanStage, persistStage).forEach(ingestionMetrics::bindStage);
+    }
+    
+    @PreDestroy
+    void disposeStages() {
+        dedupStage.dispose();
+        cleanStage.dispose();
+        persistStage.dispose();
+    }
+    
     /**
-     * Fetch and ingest RSS feeds
+     * Fetch and ingest RSS feeds through the staged pipeline fetch+parse -> dedup -> clean -> persist.
+     * Feeds are grouped by host: different hosts are fetched concurrently (bounded by
+     * app.rss.fetch.concurrency), feeds on the same host are fetched one after another
+     * with app.rss.fetch.per-host-delay-ms between them. Every later stage has its own
+     * parallelism and a bounded queue, so a slow stage holds back the fetches instead of
+     * letting parsed articles pile up in memory. Saved articles are embedded afterwards by
+     * KnowledgeBaseIndexer from the outbox written together with them.
      */
     public int ingestFromRssFeeds(List<String> feedUrls) {
-        int totalIngested = 0;
-        List<NewsArticle> newArticles = new ArrayList<>();
+        Map<String, List<String>> feedsByHost = groupByHost(feedUrls);
+        log.info("Fetching {} RSS feeds from {} hosts (concurrency={})",
+                feedUrls.size(), feedsByHost.size(), fetchConcurrency);
         
-        for (String feedUrl : feedUrls) {
-            try {
-                log.info("Fetching RSS feed: {}", feedUrl);
-                List<NewsArticle> articles = fetchRssFeed(feedUrl);
-                
-                // Save to database
-                List<NewsArticle> saved = newsService.saveArticles(articles);
-                newArticles.addAll(saved);
-                totalIngested += saved.size();
-                
-                log.info("Ingested {} articles from {}", saved.size(), feedUrl);
-                
-                // Rate limiting
-                Thread.sleep(1000);
-                
-            } catch (Exception e) {
-                log.error("Failed to fetch RSS feed: {}", feedUrl, e);
-            }
-        }
+        AtomicInteger totalIngested = new AtomicInteger();
+        fetchStage.enqueue(feedUrls.size());
         
-        // Add to knowledge base
-        if (!newArticles.isEmpty()) {
-            try {
-                knowledgeBaseService.addArticlesToKnowledgeBase(newArticles);
-                log.info("Added {} articles to knowledge base", newArticles.size());
-            } catch (Exception e) {
-                log.error("Failed to add articles to knowledge base", e);
-            }
-        }
+        // Prefetch 1 per host lane: a lane fetches its next feed only once the last one was taken
+        Flux<FetchedFeed> fetched = Flux.fromIterable(feedsByHost.values())
+                .flatMap(this::fetchHostFeeds, Math.max(1, fetchConcurrency), 1);
+        
+        Flux<FetchedFeed> deduplicated = dedupStage.apply(fetched,
+                feed -> feed.withArticles(newsService.dropKnownArticles(feed.articles())),
+                feed -> feed.articles().size(),
+                (feed, e) -> recordFeedFailure(feed, "dedup", e));
+        
+        Flux<FetchedFeed> cleaned = cleanStage.apply(deduplicated,
+                this::cleanFeed,
+                feed -> feed.articles().size(),
+                (feed, e) -> recordFeedFailure(feed, "clean", e));
+        
+        persistStage.apply(cleaned,
+                        feed -> persistFeed(feed, totalIngested),
+                        feed -> feed.articles().size(),
+                        (feed, e) -> recordFeedFailure(feed, "persist", e))
+                .then()
+                .block();
         
-        return totalIngested;
+        return totalIngested.get();
     }
     
     /**
-     * Fetch articles from a single RSS feed
+     * Per-stage queue depth and throughput counters, in pipeline order
      */
-    private List<NewsArticle> fetchRssFeed(String feedUrl) {
-        try {
-            WebClient webClient = webClientBuilder.build();
-            String xml = webClient.get()
-                    .uri(feedUrl)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-            
-            if (xml == null) {
-                log.warn("Empty response from RSS feed: {}", feedUrl);
-                return Collections.emptyList();
-            }
-            
-            return parseRssFeed(xml, feedUrl);
-            
-        } catch (Exception e) {
-            log.error("Failed to fetch RSS feed: {}", feedUrl, e);
-            return Collections.emptyList();
-        }
+    public List<IngestionStage.Stats> getPipelineStats() {
+        return List.of(fetchStage.stats(), dedupStage.stats(), cleanStage.stats(), persistStage.stats(),
+                knowledgeBaseIndexer.getStats());
     }
     
     /**
-     * Parse RSS XML
+     * Fetch the feeds of a single host sequentially, waiting between requests
      */
-    private List<NewsArticle> parseRssFeed(String xml, String feedUrl) {
-        List<NewsArticle> articles = new ArrayList<>();
-        
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(xml.getBytes("UTF-8")));
-            
-            // Get feed source name
-            String sourceName = extractSourceName(doc);
-            
-            // Parse items
-            NodeList items = doc.getElementsByTagName("item");
-            if (items.getLength() == 0) {
-                items = doc.getElementsByTagName("entry");  // Atom format
-            }
-            
-            for (int i = 0; i < items.getLength(); i++) {
-                try {
-                    Element item = (Element) items.item(i);
-                    NewsArticle article = parseRssItem(item, sourceName);
-                    if (article != null) {
-                        articles.add(article);
+    private Flux<FetchedFeed> fetchHostFeeds(List<String> hostFeedUrls) {
+        Duration delay = Duration.ofMillis(perHostDelayMs);
+        return Flux.fromIterable(hostFeedUrls)
+                .index()
+                .concatMap(indexed -> {
+                    Mono<FetchedFeed> fetch = fetchFeed(indexed.getT2());
+                    return indexed.getT1() == 0 || delay.isZero()
+                            ? fetch
+                            : fetch.delaySubscription(delay);
+                }, 1);
+    }
+    
+    /**
+     * Fetch and parse a single feed. Never errors: failures and 304 Not Modified
+     * responses are recorded in the feed state and yield nothing for the next stage.
+     */
+    private Mono<FetchedFeed> fetchFeed(String feedUrl) {
+        return Mono.defer(() -> {
+                    log.info("Fetching RSS feed: {}", feedUrl);
+                    fetchStage.dequeue();
+                    long start = fetchStage.begin();
+                    return fetchRssFeed(feedUrl)
+                            .doOnSuccess(response -> fetchStage.end(start,
+                                    response != null && !response.notModified() ? response.articles().size() : 0,
+                                    false))
+                            .doOnError(e -> fetchStage.end(start, 0, true))
+                            .doOnCancel(() -> fetchStage.end(start, 0, true));
+                })
+                .flatMap(response -> {
+                    if (response.notModified()) {
+                        feedStateService.recordNotModified(feedUrl);
+                        log.info("RSS feed not modified: {}", feedUrl);
+                        return Mono.<FetchedFeed>empty();
                     }
-                } catch (Exception e) {
-                    log.error("Failed to parse RSS item", e);
-                }
-            }
-            
-        } catch (Exception e) {
-            log.error("Failed to parse RSS XML", e);
+                    return Mono.just(new FetchedFeed(feedUrl, response.etag(), response.lastModified(),
+                            response.contentLength(), response.checkpoint(), response.articles().size(),
+                            response.articles()));
+                })
+                .onErrorResume(e -> {
+                    log.error("Failed to fetch RSS feed: {}", feedUrl, e);
+                    return Mono.fromRunnable(() -> feedStateService.recordFailure(feedUrl))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .onErrorResume(ignored -> Mono.empty())
+                            .then(Mono.<FetchedFeed>empty());
+                });
+    }
+    
+    /**
+     * Strip markup and boilerplate from the new articles of one feed, once, before they are stored
+     */
+    private FetchedFeed cleanFeed(FetchedFeed feed) {
+        long rawChars = 0;
+        long cleanChars = 0;
+        for (NewsArticle article : feed.articles()) {
+            articleTextCleaner.cleanIfMissing(article);
+            String raw = ArticleTextCleaner.rawText(article);
+            rawChars += raw != null ? raw.length() : 0;
+            cleanChars += article.getCleanText() != null ? article.getCleanText().length() : 0;
         }
+        ingestionMetrics.recordCleaning(feed.feedUrl(), rawChars, cleanChars);
+        return feed;
+    }
+    
+    /**
+     * Save the new articles of one feed, then remember its validators
+     */
+    private List<NewsArticle> persistFeed(FetchedFeed feed, AtomicInteger totalIngested) {
+        long start = System.nanoTime();
+        List<NewsArticle> saved = newsService.saveArticles(feed.articles());
+        ingestionMetrics.recordPersist(feed.feedUrl(), System.nanoTime() - start, saved.size(),
+                feed.parsedCount() - saved.size());
+        log.info("Ingested {} articles from {}", saved.size(), feed.feedUrl());
+        totalIngested.addAndGet(saved.size());
         
-        return articles;
+        // Only remember validators once the body has been processed
+        feedStateService.recordModified(feed.feedUrl(), feed.etag(), feed.lastModified(),
+                feed.contentLength(), feed.checkpoint());
+        return saved;
     }
     
     /**
-     * Parse single RSS item
+     * A feed that failed in a stage after the fetch keeps its old validators and backs off like a
+     * failed fetch, instead of staying due and being downloaded again on every tick
      */
-    private NewsArticle parseRssItem(Element item, String source) {
-        try {
-            String title = getElementText(item, "title");
-            String link = getElementText(item, "link");
-            String description = getElementText(item, "description");
-            String content = getElementText(item, "content:encoded");
-            String author = getElementText(item, "author");
-            String pubDateStr = getElementText(item, "pubDate");
-            
-            // Atom format fallbacks
-            if (title == null) title = getElementText(item, "title");
-            if (link == null) {
-                Element linkElement = (Element) item.getElementsByTagName("link").item(0);
-                if (linkElement != null) {
-                    link = linkElement.getAttribute("href");
-                }
-            }
-            if (description == null) description = getElementText(item, "summary");
-            if (content == null) content = getElementText(item, "content");
-            if (pubDateStr == null) pubDateStr = getElementText(item, "published");
-            
-            // Validation
-            if (title == null || title.isEmpty() || link == null || link.isEmpty()) {
-                return null;
-            }
-            
-            // Parse date
-            LocalDateTime publishedAt = parseDate(pubDateStr);
-            
-            // Extract tags/categories
-            Set<String> tags = new HashSet<>();
-            NodeList categories = item.getElementsByTagName("category");
-            for (int i = 0; i < categories.getLength(); i++) {
-                String category = categories.item(i).getTextContent();
-                if (category != null && !category.isEmpty()) {
-                    tags.add(category.trim());
-                }
-            }
-            
-            return NewsArticle.builder()
-                    .title(title)
-                    .content(content != null ? content : description)
-                    .summary(description)
-                    .url(link)
-                    .source(source)
-                    .author(author)
-                    .publishedAt(publishedAt)
-                    .tags(tags)
-                    .contentType(NewsArticle.ContentType.RSS)
-                    .build();
-            
-        } catch (Exception e) {
-            log.error("Failed to parse RSS item", e);
-            return null;
-        }
+    private void recordFeedFailure(FetchedFeed feed, String stage, Exception error) {
+        ingestionMetrics.recordError(feed.feedUrl(), stage, error);
+        feedStateService.recordFailure(feed.feedUrl());
     }
     
-    private String extractSourceName(Document doc) {
-        try {
-            Element channel = (Element) doc.getElementsByTagName("channel").item(0);
-            if (channel != null) {
-                return getElementText(channel, "title");
-            }
-            // Atom format
-            return getElementText((Element) doc.getDocumentElement(), "title");
-        } catch (Exception e) {
-            return "Unknown Source";
-        }
+    /**
+     * Fetch a single RSS feed with a conditional GET using the stored ETag / Last-Modified
+     */
+    private Mono<FeedResponse> fetchRssFeed(String feedUrl) {
+        WebClient webClient = webClientBuilder.build();
+        AtomicLong requestStart = new AtomicLong();
+        AtomicLong headersReceived = new AtomicLong();
+        return Mono.fromCallable(() -> feedStateService.getFeedState(feedUrl))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(state -> requestStart.set(System.nanoTime()))
+                .flatMap(state -> webClient.get()
+                        .uri(feedUrl)
+                        .headers(headers -> {
+                            if (state.getEtag() != null) {
+                                headers.set(HttpHeaders.IF_NONE_MATCH, state.getEtag());
+                            }
+                            if (state.getLastModified() != null) {
+                                headers.set(HttpHeaders.IF_MODIFIED_SINCE, state.getLastModified());
+                            }
+                        })
+                        .exchangeToMono(response -> {
+                            long now = System.nanoTime();
+                            long fetchNanos = now - requestStart.get();
+                            if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                                ingestionMetrics.recordFetch(feedUrl, fetchNanos, "not_modified");
+                                return response.releaseBody().thenReturn(FeedResponse.NOT_MODIFIED);
+                            }
+                            if (response.statusCode().isError()) {
+                                ingestionMetrics.recordFetch(feedUrl, fetchNanos, "error");
+                                return response.createException().flatMap(Mono::error);
+                            }
+                            ingestionMetrics.recordFetch(feedUrl, fetchNanos, "modified");
+                            headersReceived.set(now);
+                            HttpHeaders headers = response.headers().asHttpHeaders();
+                            String etag = headers.getETag();
+                            String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+                            AtomicLong bytesReceived = new AtomicLong();
+                            FeedCheckpoint checkpoint = feedStateService.checkpointFor(state);
+                            // Stream the body straight into the parser, no String / DOM copy.
+                            // Parsing may stop early at known items, so prefer the declared length.
+                            return rssFeedParser.parse(response.bodyToFlux(DataBuffer.class), bytesReceived, checkpoint)
+                                    .collectList()
+                                    .map(articles -> {
+                                        ingestionMetrics.recordParse(feedUrl, System.nanoTime() - now,
+                                                bytesReceived.get(), articles.size(), checkpoint.skipped());
+                                        return new FeedResponse(false, articles, etag, lastModified,
+                                                Math.max(headers.getContentLength(), bytesReceived.get()), checkpoint);
+                                    });
+                        }))
+                .timeout(Duration.ofSeconds(fetchTimeoutSeconds))
+                .doOnError(e -> ingestionMetrics.recordError(feedUrl,
+                        headersReceived.get() != 0 ? "parse" : "fetch", e))
+                // Feed state updates block, keep them off the Netty event loop
+                .publishOn(Schedulers.boundedElastic());
     }
     
-    private String getElementText(Element parent, String tagName) {
-        try {
-            NodeList nodes = parent.getElementsByTagName(tagName);
-            if (nodes.getLength() > 0) {
-                String text = nodes.item(0).getTextContent();
-                return text != null ? text.trim() : null;
-            }
-        } catch (Exception e) {
-            // Ignore
+    /**
+     * Outcome of a conditional GET
+     */
+    private record FeedResponse(boolean notModified, List<NewsArticle> articles, String etag,
+                                String lastModified, long contentLength, FeedCheckpoint checkpoint) {
+        static final FeedResponse NOT_MODIFIED = new FeedResponse(true, null, null, null, 0, null);
+    }
+    
+    /**
+     * A parsed feed on its way through the pipeline. The checkpoint holds what the parser saw
+     * of the whole feed, the article list shrinks as duplicates are dropped.
+     */
+    private record FetchedFeed(String feedUrl, String etag, String lastModified, long contentLength,
+                               FeedCheckpoint checkpoint, int parsedCount, List<NewsArticle> articles) {
+        FetchedFeed withArticles(List<NewsArticle> remaining) {
+            return new FetchedFeed(feedUrl, etag, lastModified, contentLength, checkpoint, parsedCount, remaining);
         }
-        return null;
     }
     
-    private LocalDateTime parseDate(String dateStr) {
-        if (dateStr == null || dateStr.isEmpty()) {
-            return LocalDateTime.now();
+    /**
+     * Group feed URLs by host, preserving the configured order within each host
+     */
+    private Map<String, List<String>> groupByHost(List<String> feedUrls) {
+        Map<String, List<String>> feedsByHost = new LinkedHashMap<>();
+        for (String feedUrl : feedUrls) {
+            feedsByHost.computeIfAbsent(hostOf(feedUrl), host -> new ArrayList<>()).add(feedUrl);
         }
-        
+        return feedsByHost;
+    }
+    
+    static String hostOf(String feedUrl) {
         try {
-            // Try RFC 822 format (RSS 2.0)
-            ZonedDateTime zdt = ZonedDateTime.parse(dateStr, DateTimeFormatter.RFC_1123_DATE_TIME);
-            return zdt.toLocalDateTime();
-        } catch (DateTimeParseException e) {
-            try {
-                // Try ISO 8601 format (Atom)
-                return LocalDateTime.parse(dateStr, DateTimeFormatter.ISO_DATE_TIME);
-            } catch (DateTimeParseException e2) {
-                log.warn("Failed to parse date: {}", dateStr);
-                return LocalDateTime.now();
-            }
+            String host = URI.create(feedUrl.trim()).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : feedUrl;
+        } catch (IllegalArgumentException e) {
+            return feedUrl;
         }
     }
 }
-
@@ -0,0 +1,83 @@
+package com.xu.news.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into index terms for the lexical index.
+ * <p>
+ * Text is brought to Unicode compatibility form and lower case. Runs of letters and digits in
+ * alphabetic scripts become one term each, so names and codes such as "a100" or "rtx4090" are
+ * matched exactly. Chinese, Japanese and Korean text has no word boundaries and is split into
+ * overlapping character bigrams instead, with a lone character as a term of its own; a query
+ * then matches wherever its bigrams occur, without a dictionary.
+ */
+final class TextTokenizer {
+    
+    /** Longer runs are hashes, base64 blobs and the like, not words */
+    static final int MAX_TERM_LENGTH = 40;
+    
+    private TextTokenizer() {
+    }
+    
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        int cjkRun = 0;
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (isCjk(codePoint)) {
+                flushWord(word, terms);
+                if (previousCjk >= 0) {
+                    terms.add(new StringBuilder(4).appendCodePoint(previousCjk).appendCodePoint(codePoint).toString());
+                }
+                previousCjk = codePoint;
+                cjkRun++;
+                continue;
+            }
+            flushRun(previousCjk, cjkRun, terms);
+            previousCjk = -1;
+            cjkRun = 0;
+            if (Character.isLetterOrDigit(codePoint)) {
+                word.appendCodePoint(codePoint);
+            } else {
+                flushWord(word, terms);
+            }
+        }
+        flushRun(previousCjk, cjkRun, terms);
+        flushWord(word, terms);
+        return terms;
+    }
+    
+    private static void flushWord(StringBuilder word, List<String> terms) {
+        if (word.length() > 0 && word.length() <= MAX_TERM_LENGTH) {
+            terms.add(word.toString());
+        }
+        word.setLength(0);
+    }
+    
+    private static void flushRun(int last, int length, List<String> terms) {
+        if (length == 1) {
+            terms.add(new String(Character.toChars(last)));
+        }
+    }
+    
+    /**
+     * Han, Hiragana, Katakana and Hangul, the scripts written without spaces between words
+     */
+    static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
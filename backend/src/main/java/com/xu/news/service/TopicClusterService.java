@@ -0,0 +1,526 @@
+package com.xu.news.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.xu.news.entity.TopicClusterSnapshot;
+import com.xu.news.repository.NewsRepository;
+import com.xu.news.repository.TopicClusterSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Topic clusters of the whole knowledge base for /api/analytics/clusters, computed in the
+ * background from the embeddings already stored for the articles, so nothing is embedded again.
+ * <p>
+ * A full rebuild reads the ids of all indexed canonical articles, seeds app.analytics.clusters.k
+ * centers with k-means++ on a random sample and runs app.analytics.clusters.epochs passes of
+ * mini-batch k-means over shuffled batches ({@link MiniBatchKMeans}). A last pass in id order
+ * assigns every article, moves each center to the mean of its members and collects title
+ * keywords ({@link ClusterKeywords}). The result is saved in topic_cluster_snapshots and served
+ * from memory.
+ * <p>
+ * Every app.analytics.clusters.assign-interval-ms the articles indexed since are assigned to
+ * their nearest cluster, which moves its center and grows its count, and the snapshot is saved
+ * again. Keywords, and articles deleted in between, are only brought up to date by the next
+ * rebuild, due app.analytics.clusters.rebuild-interval-ms after the last one. With
+ * app.cluster.enabled one node maintains the snapshot and the others reload it when it changes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TopicClusterService {
+    
+    /** Ring key of the node that maintains the clusters */
+    private static final String TASK_KEY = "topic-clusters";
+    
+    private static final TypeReference<List<PythonServiceClient.ClusterInfo>> CLUSTER_LIST = new TypeReference<>() {};
+    
+    private final TopicClusterSnapshotRepository snapshotRepository;
+    private final NewsRepository newsRepository;
+    private final KnowledgeBaseService knowledgeBaseService;
+    private final ClusterCoordinator clusterCoordinator;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${app.analytics.clusters.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.analytics.clusters.k:10}")
+    private int k;
+    
+    @Value("${app.analytics.clusters.batch-size:256}")
+    private int batchSize;
+    
+    @Value("${app.analytics.clusters.epochs:3}")
+    private int epochs;
+    
+    @Value("${app.analytics.clusters.seed-sample:5000}")
+    private int seedSample;
+    
+    @Value("${app.analytics.clusters.keywords:5}")
+    private int keywordsPerCluster;
+    
+    @Value("${app.analytics.clusters.top-keywords:10}")
+    private int topKeywords;
+    
+    @Value("${app.analytics.clusters.rebuild-interval-ms:86400000}")
+    private long rebuildIntervalMs;
+    
+    @Value("${app.analytics.clusters.pending-grace-seconds:600}")
+    private long pendingGraceSeconds;
+    
+    @Value("${app.analytics.clusters.keep-snapshots:3}")
+    private int keepSnapshots;
+    
+    /** Guards replacing current */
+    private final Object monitor = new Object();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    
+    private volatile Current current;
+    private volatile String lastError;
+    
+    /**
+     * The served snapshot with its model; never modified, replaced as a whole
+     */
+    private record Current(TopicClusterSnapshot snapshot, MiniBatchKMeans model,
+                           List<PythonServiceClient.ClusterInfo> clusters) {
+    }
+    
+    /**
+     * Indexed canonical articles of one keyset page; cursor is the id up to which every article
+     * has been read or given up on, more whether the next page should be read
+     */
+    private record IndexedPage(List<Long> ids, List<String> titles, long cursor, boolean more) {
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /**
+     * Load the latest snapshot once the application has started; without one, the first
+     * maintenance tick starts a rebuild
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            snapshotRepository.findFirstByOrderByIdDesc().ifPresent(snapshot -> {
+                adopt(snapshot);
+                log.info("Loaded topic clusters snapshot {}: {} clusters over {} articles up to id {}",
+                        snapshot.getId(), snapshot.getClusterCount(), snapshot.getArticleCount(), snapshot.getUpToId());
+            });
+        } catch (Exception e) {
+            log.error("Failed to load topic clusters snapshot", e);
+        }
+    }
+    
+    /**
+     * The largest clusters of the current snapshot, at most limit; empty until the first
+     * rebuild has finished
+     */
+    public Optional<PythonServiceClient.ClusterResponse> getClusters(int limit) {
+        Current served = current;
+        if (!enabled || served == null) {
+            return Optional.empty();
+        }
+        List<PythonServiceClient.ClusterInfo> largest = served.clusters().stream()
+                .filter(cluster -> cluster.getCount() > 0)
+                .sorted(Comparator.comparingInt(PythonServiceClient.ClusterInfo::getCount).reversed())
+                .limit(Math.max(1, limit))
+                .toList();
+        PythonServiceClient.ClusterResponse response = new PythonServiceClient.ClusterResponse();
+        response.setClusters(largest);
+        response.setTop_keywords(ClusterKeywords.overall(
+                largest.stream().map(PythonServiceClient.ClusterInfo::getKeywords).toList(), topKeywords));
+        return Optional.of(response);
+    }
+    
+    /**
+     * Reload the snapshot if another node saved a newer one; then, on the node that maintains
+     * the clusters, rebuild when due or assign the articles indexed since the last tick
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.clusters.assign-interval-ms:60000}",
+            initialDelayString = "${app.analytics.clusters.assign-interval-ms:60000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reloadIfChanged();
+            if (rebuilding.get() || !clusterCoordinator.owns(TASK_KEY)) {
+                return;
+            }
+            Current served = current;
+            if (served == null || served.snapshot().getCreatedAt()
+                    .isBefore(LocalDateTime.now().minus(Duration.ofMillis(rebuildIntervalMs)))) {
+                startRebuild();
+            } else {
+                assignNew(served);
+            }
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.error("Topic clusters maintenance failed", e);
+        }
+    }
+    
+    /**
+     * Start a full rebuild in the background; false when one is already running on this node
+     */
+    public boolean startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        CompletableFuture.runAsync(() -> {
+            try {
+                rebuild();
+                lastError = null;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                log.error("Topic clusters rebuild failed", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        });
+        return true;
+    }
+    
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Current served = current;
+        status.put("enabled", enabled);
+        status.put("rebuilding", rebuilding.get());
+        status.put("maintainedByThisNode", clusterCoordinator.owns(TASK_KEY));
+        if (served != null) {
+            TopicClusterSnapshot snapshot = served.snapshot();
+            status.put("snapshotId", snapshot.getId());
+            status.put("clusters", snapshot.getClusterCount());
+            status.put("dimension", snapshot.getDimension());
+            status.put("articles", snapshot.getArticleCount());
+            status.put("upToId", snapshot.getUpToId());
+            status.put("buildMs", snapshot.getBuildMs());
+            status.put("nodeId", snapshot.getNodeId());
+            status.put("createdAt", snapshot.getCreatedAt());
+            status.put("updatedAt", snapshot.getUpdatedAt());
+        }
+        status.put("lastError", lastError);
+        return status;
+    }
+    
+    void rebuild() {
+        long start = System.currentTimeMillis();
+        long[] ids = new long[1024];
+        int n = 0;
+        long upToId = 0;
+        IndexedPage page;
+        do {
+            page = readIndexed(upToId, Long.MAX_VALUE);
+            for (Long id : page.ids()) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                }
+                ids[n++] = id;
+            }
+            upToId = page.cursor();
+        } while (page.more());
+        if (n == 0) {
+            log.debug("No indexed articles to cluster yet");
+            return;
+        }
+        ids = Arrays.copyOf(ids, n);
+        
+        Random random = new Random();
+        MiniBatchKMeans model = seed(ids, random);
+        if (model == null) {
+            log.warn("None of {} indexed articles has a stored embedding, not clustering", n);
+            return;
+        }
+        int dimension = model.dimension();
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            shuffle(ids, random);
+            for (int from = 0; from < n; from += batchSize) {
+                List<float[]> batch = embeddings(ids, from, Math.min(n, from + batchSize), dimension);
+                if (!batch.isEmpty()) {
+                    model.partialFit(batch);
+                }
+            }
+        }
+        
+        // Final pass in id order: assignments, exact means and keywords
+        MiniBatchKMeans.Pass pass = model.pass();
+        ClusterKeywords keywords = new ClusterKeywords(model.k());
+        long assigned = 0;
+        long afterId = 0;
+        do {
+            page = readIndexed(afterId, upToId);
+            Map<Long, float[]> vectors = knowledgeBaseService.storedEmbeddings(page.ids());
+            for (int i = 0; i < page.ids().size(); i++) {
+                float[] vector = vectors.get(page.ids().get(i));
+                if (vector != null && vector.length == dimension) {
+                    keywords.add(pass.add(vector), page.titles().get(i));
+                    assigned++;
+                }
+            }
+            afterId = page.cursor();
+        } while (page.more());
+        MiniBatchKMeans fitted = pass.finish();
+        
+        List<List<String>> clusterKeywords = keywords.top(keywordsPerCluster);
+        long[] sizes = fitted.counts();
+        List<PythonServiceClient.ClusterInfo> clusters = new ArrayList<>(fitted.k());
+        for (int c = 0; c < fitted.k(); c++) {
+            clusters.add(clusterInfo(c, clusterKeywords.get(c), sizes[c]));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        TopicClusterSnapshot saved = snapshotRepository.save(TopicClusterSnapshot.builder()
+                .clusterCount(fitted.k())
+                .dimension(dimension)
+                .centroids(encode(fitted.centers()))
+                .clusters(toJson(clusters))
+                .articleCount(assigned)
+                .upToId(upToId)
+                .nodeId(clusterCoordinator.getNodeId())
+                .buildMs(System.currentTimeMillis() - start)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+        synchronized (monitor) {
+            current = new Current(saved, fitted, clusters);
+        }
+        int deleted = snapshotRepository.deleteAllButLatest(Math.max(1, keepSnapshots));
+        log.info("Rebuilt topic clusters: {} clusters over {} articles up to id {}, {} epochs, in {} ms ({} old snapshots deleted)",
+                fitted.k(), assigned, upToId, epochs, saved.getBuildMs(), deleted);
+    }
+    
+    /**
+     * k-means++ seeding on the stored embeddings of a random sample of the articles; null when
+     * none of them has one
+     */
+    private MiniBatchKMeans seed(long[] ids, Random random) {
+        shuffle(ids, random);
+        int size = Math.min(Math.max(k, seedSample), ids.length);
+        List<float[]> sample = new ArrayList<>(size);
+        for (int from = 0; from < size; from += batchSize) {
+            sample.addAll(embeddings(ids, from, Math.min(size, from + batchSize),
+                    sample.isEmpty() ? -1 : sample.get(0).length));
+        }
+        return sample.isEmpty() ? null : MiniBatchKMeans.seed(sample, k, random);
+    }
+    
+    /**
+     * Fold the articles indexed since the snapshot into it, one at a time, and save it
+     */
+    private void assignNew(Current served) {
+        TopicClusterSnapshot snapshot = served.snapshot();
+        MiniBatchKMeans model = MiniBatchKMeans.restore(served.model().centers(), served.model().counts());
+        long[] sizes = new long[model.k()];
+        served.clusters().forEach(cluster -> sizes[cluster.getCluster_id()] = cluster.getCount());
+        long cursor = snapshot.getUpToId();
+        long assigned = 0;
+        IndexedPage page;
+        do {
+            page = readIndexed(cursor, Long.MAX_VALUE);
+            Map<Long, float[]> vectors = knowledgeBaseService.storedEmbeddings(page.ids());
+            for (Long id : page.ids()) {
+                float[] vector = vectors.get(id);
+                if (vector != null && vector.length == model.dimension()) {
+                    sizes[model.add(vector)]++;
+                    assigned++;
+                }
+            }
+            cursor = page.cursor();
+        } while (page.more());
+        if (cursor == snapshot.getUpToId()) {
+            return;
+        }
+        
+        List<PythonServiceClient.ClusterInfo> clusters = new ArrayList<>(model.k());
+        for (PythonServiceClient.ClusterInfo cluster : served.clusters()) {
+            clusters.add(clusterInfo(cluster.getCluster_id(), cluster.getKeywords(), sizes[cluster.getCluster_id()]));
+        }
+        TopicClusterSnapshot next = TopicClusterSnapshot.builder()
+                .id(snapshot.getId())
+                .version(snapshot.getVersion())
+                .clusterCount(snapshot.getClusterCount())
+                .dimension(snapshot.getDimension())
+                .centroids(encode(model.centers()))
+                .clusters(toJson(clusters))
+                .articleCount(snapshot.getArticleCount() + assigned)
+                .upToId(cursor)
+                .nodeId(snapshot.getNodeId())
+                .buildMs(snapshot.getBuildMs())
+                .createdAt(snapshot.getCreatedAt())
+                .updatedAt(LocalDateTime.now())
+                .build();
+        try {
+            TopicClusterSnapshot saved = snapshotRepository.save(next);
+            synchronized (monitor) {
+                // A rebuild that finished meanwhile wins
+                if (current == served) {
+                    current = new Current(saved, model, clusters);
+                }
+            }
+            log.debug("Assigned {} new articles to topic clusters, up to id {}", assigned, cursor);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Another node saved the snapshot first; reload it on the next tick and assign from there
+            log.info("Topic clusters snapshot {} was changed by another node", snapshot.getId());
+        }
+    }
+    
+    private void reloadIfChanged() {
+        List<Object[]> latest = snapshotRepository.findLatestVersion();
+        if (latest.isEmpty()) {
+            return;
+        }
+        Long id = (Long) latest.get(0)[0];
+        Long version = (Long) latest.get(0)[1];
+        Current served = current;
+        if (served != null && served.snapshot().getId().equals(id)
+                && Objects.equals(served.snapshot().getVersion(), version)) {
+            return;
+        }
+        snapshotRepository.findById(id).ifPresent(this::adopt);
+    }
+    
+    private void adopt(TopicClusterSnapshot snapshot) {
+        List<PythonServiceClient.ClusterInfo> clusters = fromJson(snapshot.getClusters());
+        long[] counts = new long[snapshot.getClusterCount()];
+        clusters.forEach(cluster -> counts[cluster.getCluster_id()] = cluster.getCount());
+        MiniBatchKMeans model = MiniBatchKMeans.restore(
+                decode(snapshot.getCentroids(), snapshot.getClusterCount(), snapshot.getDimension()), counts);
+        synchronized (monitor) {
+            current = new Current(snapshot, model, clusters);
+        }
+    }
+    
+    /**
+     * The next page of indexed canonical articles after afterId and up to upToId. Reading stops
+     * at an article that is not indexed yet but may still be, i.e. created less than
+     * app.analytics.clusters.pending-grace-seconds ago, so that it is picked up once it is;
+     * older ones, e.g. whose indexing failed for good, are passed over.
+     */
+    private IndexedPage readIndexed(long afterId, long upToId) {
+        int pageSize = Math.max(1, batchSize);
+        List<Object[]> rows = newsRepository.findCanonicalTitlesAfterId(afterId, PageRequest.of(0, pageSize));
+        LocalDateTime pendingSince = LocalDateTime.now().minusSeconds(pendingGraceSeconds);
+        List<Long> ids = new ArrayList<>(rows.size());
+        List<String> titles = new ArrayList<>(rows.size());
+        long cursor = afterId;
+        for (Object[] row : rows) {
+            long id = (Long) row[0];
+            LocalDateTime createdAt = (LocalDateTime) row[3];
+            if (id > upToId || (row[2] == null && createdAt != null && createdAt.isAfter(pendingSince))) {
+                return new IndexedPage(ids, titles, cursor, false);
+            }
+            if (row[2] != null) {
+                ids.add(id);
+                titles.add((String) row[1]);
+            }
+            cursor = id;
+        }
+        return new IndexedPage(ids, titles, cursor, rows.size() == pageSize);
+    }
+    
+    /**
+     * Stored embeddings of ids[from, to) of the expected dimension, any when it is still unknown (-1)
+     */
+    private List<float[]> embeddings(long[] ids, int from, int to, int dimension) {
+        List<Long> batch = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            batch.add(ids[i]);
+        }
+        int expected = dimension;
+        List<float[]> vectors = new ArrayList<>(batch.size());
+        for (float[] vector : knowledgeBaseService.storedEmbeddings(batch).values()) {
+            if (expected < 0) {
+                expected = vector.length;
+            }
+            if (vector.length == expected) {
+                vectors.add(vector);
+            }
+        }
+        return vectors;
+    }
+    
+    private static PythonServiceClient.ClusterInfo clusterInfo(int clusterId, List<String> keywords, long count) {
+        PythonServiceClient.ClusterInfo cluster = new PythonServiceClient.ClusterInfo();
+        cluster.setCluster_id(clusterId);
+        cluster.setKeywords(keywords);
+        cluster.setCount((int) Math.min(Integer.MAX_VALUE, count));
+        return cluster;
+    }
+    
+    private static void shuffle(long[] ids, Random random) {
+        for (int i = ids.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long swap = ids[i];
+            ids[i] = ids[j];
+            ids[j] = swap;
+        }
+    }
+    
+    private static byte[] encode(float[][] centers) {
+        ByteBuffer buffer = ByteBuffer.allocate(centers.length * centers[0].length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] center : centers) {
+            for (float value : center) {
+                buffer.putFloat(value);
+            }
+        }
+        return buffer.array();
+    }
+    
+    private static float[][] decode(byte[] bytes, int clusterCount, int dimension) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        float[][] centers = new float[clusterCount][dimension];
+        for (float[] center : centers) {
+            buffer.asFloatBuffer().get(center);
+            buffer.position(buffer.position() + dimension * Float.BYTES);
+        }
+        return centers;
+    }
+    
+    private String toJson(List<PythonServiceClient.ClusterInfo> clusters) {
+        try {
+            return objectMapper.writeValueAsString(clusters);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private List<PythonServiceClient.ClusterInfo> fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, CLUSTER_LIST);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
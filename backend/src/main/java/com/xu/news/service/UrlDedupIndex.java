@@ -0,0 +1,298 @@
+package com.xu.news.service;
+
+import com.xu.news.repository.NewsRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory index of stored article URLs, used to reject known URLs without a database round trip.
+ * <p>
+ * A Bloom filter answers "never seen" for new URLs; an exact set of 64-bit URL fingerprints
+ * answers "already stored" for known ones. URLs the Bloom filter has seen but the set does not
+ * hold (filter false positives, deleted articles) are reported as UNCERTAIN and must be confirmed
+ * against the database. Until the initial load has finished every lookup is UNCERTAIN.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UrlDedupIndex {
+    
+    public enum Lookup {
+        NEW,
+        KNOWN,
+        UNCERTAIN
+    }
+    
+    private static final int LOAD_PAGE_SIZE = 5000;
+    
+    private final NewsRepository newsRepository;
+    
+    @Value("${app.dedup.expected-urls:1000000}")
+    private long expectedUrls;
+    
+    @Value("${app.dedup.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    private volatile BloomFilter bloomFilter;
+    private final LongHashSet fingerprints = new LongHashSet();
+    private volatile boolean ready;
+    
+    /**
+     * Load all stored URLs in the background once the application has started
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        bloomFilter = new BloomFilter(expectedUrls, falsePositiveRate);
+        
+        try {
+            long loaded = 0;
+            long lastId = 0;
+            while (true) {
+                List<Object[]> page = newsRepository.findUrlsAfterId(lastId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Object[] row : page) {
+                    add((String) row[1]);
+                }
+                lastId = (Long) page.get(page.size() - 1)[0];
+                loaded += page.size();
+            }
+            
+            ready = true;
+            log.info("URL dedup index loaded {} URLs in {} ms", loaded, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Lookups stay UNCERTAIN, i.e. every URL is checked against the database
+            log.error("Failed to load URL dedup index", e);
+        }
+    }
+    
+    public Lookup lookup(String url) {
+        if (!ready) {
+            return Lookup.UNCERTAIN;
+        }
+        long fingerprint = fingerprint(url);
+        if (!bloomFilter.mightContain(fingerprint)) {
+            return Lookup.NEW;
+        }
+        return fingerprints.contains(fingerprint) ? Lookup.KNOWN : Lookup.UNCERTAIN;
+    }
+    
+    /**
+     * Record a URL that is known to be stored
+     */
+    public void add(String url) {
+        long fingerprint = fingerprint(url);
+        BloomFilter filter = bloomFilter;
+        if (filter != null) {
+            filter.put(fingerprint);
+        }
+        fingerprints.add(fingerprint);
+    }
+    
+    /**
+     * Record URLs once the current transaction commits, or immediately outside a transaction
+     */
+    public void addAfterCommit(Collection<String> urls) {
+        AfterCommit.run(() -> urls.forEach(this::add));
+    }
+    
+    /**
+     * Forget URLs once the current transaction commits. The Bloom filter keeps them,
+     * so later lookups of these URLs fall back to the database.
+     */
+    public void removeAfterCommit(Collection<String> urls) {
+        AfterCommit.run(() -> urls.forEach(url -> fingerprints.remove(fingerprint(url))));
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public int size() {
+        return fingerprints.size();
+    }
+    
+    /**
+     * First 64 bits of the SHA-256 digest of the URL
+     */
+    static long fingerprint(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            long fingerprint = 0;
+            for (int i = 0; i < 8; i++) {
+                fingerprint = (fingerprint << 8) | (digest[i] & 0xFF);
+            }
+            return fingerprint;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    /**
+     * Lock-free Bloom filter over 64-bit fingerprints (Kirsch-Mitzenmacher double hashing)
+     */
+    static final class BloomFilter {
+        
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        
+        BloomFilter(long expectedInsertions, double falsePositiveRate) {
+            long n = Math.max(1, expectedInsertions);
+            double p = Math.min(Math.max(falsePositiveRate, 1e-9), 0.5);
+            long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        }
+        
+        void put(long fingerprint) {
+            int h1 = (int) fingerprint;
+            int h2 = (int) (fingerprint >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = index(h1 + i * h2);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, current, current | mask));
+            }
+        }
+        
+        boolean mightContain(long fingerprint) {
+            int h1 = (int) fingerprint;
+            int h2 = (int) (fingerprint >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long bit = index(h1 + i * h2);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private long index(int hash) {
+            return (hash & Integer.MAX_VALUE) % bitCount;
+        }
+    }
+    
+    /**
+     * Open-addressing set of longs, avoiding one boxed Long per stored URL. Zero marks an empty
+     * slot, so a zero value is tracked by a flag instead of in the table.
+     */
+    static final class LongHashSet {
+        
+        private static final long EMPTY = 0L;
+        
+        private long[] table = new long[1024];
+        private int size;
+        private boolean containsZero;
+        
+        synchronized boolean add(long key) {
+            if (key == EMPTY) {
+                if (containsZero) {
+                    return false;
+                }
+                containsZero = true;
+                size++;
+                return true;
+            }
+            if ((size + 1) * 4 > table.length * 3) {
+                resize();
+            }
+            int slot = find(table, key);
+            if (table[slot] == key) {
+                return false;
+            }
+            table[slot] = key;
+            size++;
+            return true;
+        }
+        
+        synchronized boolean contains(long key) {
+            if (key == EMPTY) {
+                return containsZero;
+            }
+            return table[find(table, key)] == key;
+        }
+        
+        synchronized void remove(long key) {
+            if (key == EMPTY) {
+                if (containsZero) {
+                    containsZero = false;
+                    size--;
+                }
+                return;
+            }
+            int slot = find(table, key);
+            if (table[slot] != key) {
+                return;
+            }
+            table[slot] = EMPTY;
+            size--;
+            // Re-insert the rest of the probe chain so later lookups do not stop early
+            int mask = table.length - 1;
+            for (int i = (slot + 1) & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+                long moved = table[i];
+                table[i] = EMPTY;
+                table[find(table, moved)] = moved;
+            }
+        }
+        
+        synchronized int size() {
+            return size;
+        }
+        
+        synchronized int capacity() {
+            return table.length;
+        }
+        
+        private void resize() {
+            long[] old = table;
+            long[] grown = new long[old.length * 2];
+            for (long key : old) {
+                if (key != EMPTY) {
+                    grown[find(grown, key)] = key;
+                }
+            }
+            table = grown;
+        }
+        
+        /**
+         * Home slot of a key in a table of the given power-of-two length
+         */
+        static int slot(long key, int length) {
+            return (int) (key ^ (key >>> 32)) * 0x9E3779B9 & (length - 1);
+        }
+        
+        private static int find(long[] table, long key) {
+            int mask = table.length - 1;
+            int slot = slot(key, table.length);
+            while (table[slot] != EMPTY && table[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+-- Full-text search over news_articles (NewsSearchStore). Every statement is idempotent.
+-- Run it once with psql, outside a transaction (no --single-transaction), in a maintenance
+-- window: adding the generated column rewrites news_articles under an ACCESS EXCLUSIVE lock.
+-- The GIN index is then built CONCURRENTLY, so writes continue meanwhile; if that build
+-- fails it leaves an INVALID index behind, drop idx_article_search and run the script again.
+-- With app.news.search.init-schema=true the application runs it at startup, which is only
+-- meant for new or small databases.
+
+-- Puts a space after every CJK character, so the parser sees one word per character and
+-- phrases match by position. NewsSearchService.toQueryText spaces queries the same way.
+CREATE OR REPLACE FUNCTION news_search_spaced(input text) RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE
+    AS $$ SELECT regexp_replace(coalesce(input, ''), '([\u3040-\u30ff\u3400-\u9fff\uac00-\ud7af\uf900-\ufaff])', '\1 ', 'g') $$;
+
+-- 'simple' neither stems nor drops stop words: names and codes are matched as written
+ALTER TABLE news_articles ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('simple', news_search_spaced(title)), 'A')
+    || setweight(to_tsvector('simple', news_search_spaced(summary)), 'B')
+    || setweight(to_tsvector('simple', news_search_spaced(left(coalesce(clean_text, content), 100000))), 'C')
+) STORED;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_article_search ON news_articles USING GIN (search_vector);
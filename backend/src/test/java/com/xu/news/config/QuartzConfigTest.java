@@ -0,0 +1,17 @@
+package com.xu.news.config;
+
+import org.junit.jupiter.api.Test;
+import org.quartz.CronExpression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QuartzConfigTest {
+    
+    @Test
+    public void convertsSpringCronToQuartzCron() {
+        assertEquals("0 0 */6 * * ?", QuartzConfig.toQuartzCron("0 0 */6 * * *"));
+        assertEquals("0 0 12 ? * MON-FRI", QuartzConfig.toQuartzCron("0 0 12 * * MON-FRI"));
+        assertEquals("0 30 3 * * ?", QuartzConfig.toQuartzCron("0 30 3 * * ?"));
+        assertTrue(CronExpression.isValidExpression(QuartzConfig.toQuartzCron("0 0/30 * * * *")));
+    }
+}
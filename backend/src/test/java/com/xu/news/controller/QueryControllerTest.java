@@ -0,0 +1,121 @@
+package com.xu.news.controller;
+
+import com.xu.news.dto.QueryRequest;
+import com.xu.news.dto.QueryResponse;
+import com.xu.news.dto.SearchResultDto;
+import com.xu.news.repository.NewsRepository;
+import com.xu.news.service.AnswerCache;
+import com.xu.news.service.ArticleTextCleaner;
+import com.xu.news.service.DownstreamGuards;
+import com.xu.news.service.KnowledgeBaseService;
+import com.xu.news.service.LexicalIndex;
+import com.xu.news.service.LocalVectorIndex;
+import com.xu.news.service.NewsService;
+import com.xu.news.service.OllamaService;
+import com.xu.news.service.PythonServiceClient;
+import com.xu.news.service.RetrievalCache;
+import com.xu.news.service.WebSearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Semantic queries whose first-stage scores have a clear gap after the top K, so the adaptive
+ * rerank skips reranking the rest of the candidates
+ */
+public class QueryControllerTest {
+    
+    private PythonServiceClient pythonClient;
+    private QueryController controller;
+    private final List<List<String>> rerankedPassages = new ArrayList<>();
+    
+    @BeforeEach
+    public void setUp() {
+        pythonClient = mock(PythonServiceClient.class);
+        LocalVectorIndex localVectorIndex = mock(LocalVectorIndex.class);
+        RetrievalCache retrievalCache = new RetrievalCache(new SimpleMeterRegistry());
+        KnowledgeBaseService knowledgeBaseService = new KnowledgeBaseService(pythonClient, mock(NewsService.class),
+                mock(ArticleTextCleaner.class), retrievalCache, localVectorIndex, mock(NewsRepository.class),
+                mock(LexicalIndex.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(knowledgeBaseService, "rerankProtocol", "passages");
+        ReflectionTestUtils.setField(knowledgeBaseService, "rerankPassageChars", 1000);
+        ReflectionTestUtils.setField(knowledgeBaseService, "rerankCandidates", 20);
+        ReflectionTestUtils.setField(knowledgeBaseService, "rerankMaxCandidates", 50);
+        ReflectionTestUtils.setField(knowledgeBaseService, "adaptiveRerank", true);
+        ReflectionTestUtils.setField(knowledgeBaseService, "rerankSkipGap", 0.15);
+        ReflectionTestUtils.setField(knowledgeBaseService, "rerankFlatSpread", 0.05);
+        
+        controller = new QueryController(knowledgeBaseService, mock(WebSearchService.class),
+                mock(OllamaService.class), retrievalCache, mock(AnswerCache.class), localVectorIndex,
+                mock(LexicalIndex.class), mock(DownstreamGuards.class));
+        
+        // Two close matches well ahead of the rest: a clear cut at topK = 2
+        PythonServiceClient.SearchResponse search = new PythonServiceClient.SearchResponse();
+        search.setResults(List.of(
+                result("1", "a", 0.92), result("2", "b", 0.88), result("3", "c", 0.40), result("4", "d", 0.35)));
+        when(pythonClient.search(anyString(), anyInt())).thenReturn(Mono.just(search));
+    }
+    
+    @Test
+    public void thresholdsCrossEncoderScoresWhenTheRerankIsSkipped() {
+        crossEncoderScores(Map.of("a", -4.0, "b", -6.0));
+        
+        QueryResponse response = query();
+        
+        // High cosine similarities alone must not pass the threshold
+        assertEquals(List.of(List.of("a", "b")), rerankedPassages);
+        assertTrue(response.getResults().isEmpty());
+        assertEquals(0, response.getResultCount());
+    }
+    
+    @Test
+    public void returnsKeptCandidatesInCrossEncoderOrder() {
+        crossEncoderScores(Map.of("a", 1.5, "b", 3.2));
+        
+        QueryResponse response = query();
+        
+        assertEquals(List.of(List.of("a", "b")), rerankedPassages);
+        assertEquals(List.of("b", "a"), response.getResults().stream().map(SearchResultDto::getContent).toList());
+        assertEquals(List.of(3.2, 1.5), response.getResults().stream().map(SearchResultDto::getScore).toList());
+    }
+    
+    private QueryResponse query() {
+        QueryRequest request = new QueryRequest();
+        request.setQuery("fed rate decision");
+        request.setTopK(2);
+        request.setAllowWebSearch(false);
+        ResponseEntity<QueryResponse> response = controller.query(request);
+        assertEquals(200, response.getStatusCode().value());
+        return response.getBody();
+    }
+    
+    private void crossEncoderScores(Map<String, Double> scores) {
+        when(pythonClient.rerankScores(anyString(), isNull(), anyList(), anyInt())).thenAnswer(invocation -> {
+            List<String> passages = invocation.getArgument(2);
+            rerankedPassages.add(passages);
+            PythonServiceClient.RerankScoresResponse response = new PythonServiceClient.RerankScoresResponse();
+            response.setScores(passages.stream().map(scores::get).toList());
+            return Mono.just(response);
+        });
+    }
+    
+    private static PythonServiceClient.SearchResult result(String id, String text, double score) {
+        PythonServiceClient.SearchResult result = new PythonServiceClient.SearchResult();
+        result.setId(id);
+        result.setText(text);
+        result.setScore(score);
+        result.setMetadata(Map.of("title", "Article " + id, "url", "https://example.com/" + id, "source", "test"));
+        return result;
+    }
+}
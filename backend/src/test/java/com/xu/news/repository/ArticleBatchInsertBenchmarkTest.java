@@ -0,0 +1,106 @@
+package com.xu.news.repository;
+
+import com.xu.news.entity.NewsArticle;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Per-row insert cost of JPA saveAll (IDENTITY ids, one INSERT per article and tag)
+ * versus NewsArticleBatchWriter. Needs Docker; run with
+ * {@code mvn test -Dtest=ArticleBatchInsertBenchmarkTest -Dbenchmark=true}
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Slf4j
+public class ArticleBatchInsertBenchmarkTest {
+    
+    private static final int ROWS = 10_000;
+    
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+        .withDatabaseName("xu_news")
+        .withUsername("xu")
+        .withPassword("xu_pass");
+    
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        // Started here rather than in a static block so a skipped run never needs Docker
+        postgres.start();
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+    
+    @Autowired
+    private NewsRepository newsRepository;
+    
+    @Autowired
+    private NewsArticleBatchWriter batchWriter;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Test
+    public void compareSaveAllWithBatchWriter() {
+        // Warm up both paths
+        transactionTemplate.executeWithoutResult(status -> newsRepository.saveAll(articles("warmup-jpa", 200)));
+        transactionTemplate.executeWithoutResult(status -> batchWriter.insertAll(articles("warmup-batch", 200)));
+        truncate();
+        
+        List<NewsArticle> jpaRows = articles("jpa", ROWS);
+        long jpaNanos = time(() -> transactionTemplate.executeWithoutResult(status -> newsRepository.saveAll(jpaRows)));
+        truncate();
+        
+        List<NewsArticle> batchRows = articles("batch", ROWS);
+        long batchNanos = time(() -> transactionTemplate.executeWithoutResult(status -> batchWriter.insertAll(batchRows)));
+        
+        assertEquals(ROWS, newsRepository.count());
+        log.info("JPA saveAll:   {} rows in {} ms ({} us/row)",
+                ROWS, jpaNanos / 1_000_000, String.format("%.1f", jpaNanos / 1000.0 / ROWS));
+        log.info("Batch writer:  {} rows in {} ms ({} us/row)",
+                ROWS, batchNanos / 1_000_000, String.format("%.1f", batchNanos / 1000.0 / ROWS));
+    }
+    
+    private void truncate() {
+        jdbcTemplate.execute("TRUNCATE article_tags, news_articles");
+    }
+    
+    private static long time(Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        return System.nanoTime() - start;
+    }
+    
+    private static List<NewsArticle> articles(String prefix, int count) {
+        List<NewsArticle> articles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            articles.add(NewsArticle.builder()
+                    .title("Benchmark article " + i)
+                    .content("Content of benchmark article " + i)
+                    .summary("Summary " + i)
+                    .url("https://bench.example.com/" + prefix + "/" + i)
+                    .source("Benchmark")
+                    .publishedAt(LocalDateTime.now())
+                    .tags(Set.of("tech", "ai", "tag" + (i % 10)))
+                    .build());
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,119 @@
+package com.xu.news.repository;
+
+import com.xu.news.entity.IndexOutboxEvent;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Outbox claims against a real Postgres; needs Docker and is skipped without it
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public class IndexOutboxStoreTest {
+    
+    private static final int ARTICLES = 300;
+    private static final int EVENTS_PER_ARTICLE = 3;
+    private static final int CLAIMERS = 8;
+    
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15")
+        .withDatabaseName("xu_news")
+        .withUsername("xu")
+        .withPassword("xu_pass");
+    
+    private static JdbcTemplate jdbcTemplate;
+    private IndexOutboxStore store;
+    
+    @BeforeAll
+    static void createTable() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword()));
+        jdbcTemplate.execute("CREATE TABLE kb_index_outbox (id BIGSERIAL PRIMARY KEY, "
+                + "article_id BIGINT NOT NULL, operation VARCHAR(16) NOT NULL, attempts INTEGER NOT NULL, "
+                + "next_attempt_at TIMESTAMP NOT NULL, leased_until TIMESTAMP, last_error VARCHAR(1000), "
+                + "created_at TIMESTAMP NOT NULL)");
+    }
+    
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.execute("TRUNCATE kb_index_outbox");
+        store = new IndexOutboxStore(jdbcTemplate);
+    }
+    
+    @Test
+    public void concurrentClaimsSplitArticlesWithoutDeadlock() throws Exception {
+        // Several pending events per article, interleaved like an insert followed by edits
+        List<Long> articleIds = LongStream.rangeClosed(1, ARTICLES).boxed().toList();
+        for (int i = 0; i < EVENTS_PER_ARTICLE; i++) {
+            store.enqueue(articleIds, IndexOutboxEvent.Operation.UPSERT);
+        }
+        
+        CyclicBarrier start = new CyclicBarrier(CLAIMERS);
+        ExecutorService executor = Executors.newFixedThreadPool(CLAIMERS);
+        List<Future<List<IndexOutboxEvent>>> claims = new ArrayList<>();
+        try {
+            for (int c = 0; c < CLAIMERS; c++) {
+                claims.add(executor.submit(() -> {
+                    start.await();
+                    List<IndexOutboxEvent> claimed = new ArrayList<>();
+                    List<IndexOutboxEvent> batch;
+                    while (!(batch = store.claim(5, LocalDateTime.now().plusMinutes(5))).isEmpty()) {
+                        claimed.addAll(batch);
+                    }
+                    return claimed;
+                }));
+            }
+            
+            // A deadlock aborts one of the claims, which surfaces here as an ExecutionException
+            Set<Long> eventIds = new HashSet<>();
+            Map<Long, Integer> claimerByArticle = new HashMap<>();
+            for (int c = 0; c < CLAIMERS; c++) {
+                for (IndexOutboxEvent event : claims.get(c).get()) {
+                    assertTrue(eventIds.add(event.getId()), "Event claimed twice: " + event.getId());
+                    Integer claimer = claimerByArticle.putIfAbsent(event.getArticleId(), c);
+                    assertTrue(claimer == null || claimer == c,
+                            "Article split across claimers: " + event.getArticleId());
+                }
+            }
+            assertEquals(ARTICLES * EVENTS_PER_ARTICLE, eventIds.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void leavesArticlesWithLeasedEventsAlone() {
+        store.enqueue(List.of(1L, 2L), IndexOutboxEvent.Operation.UPSERT);
+        List<IndexOutboxEvent> first = store.claim(1, LocalDateTime.now().plusMinutes(5));
+        assertEquals(1, first.size());
+        
+        // A new event for the leased article waits for the lease, the other article is claimed
+        store.enqueue(List.of(first.get(0).getArticleId()), IndexOutboxEvent.Operation.DELETE);
+        List<IndexOutboxEvent> second = store.claim(10, LocalDateTime.now().plusMinutes(5));
+        assertEquals(1, second.size());
+        assertNotEquals(first.get(0).getArticleId(), second.get(0).getArticleId());
+        
+        store.fail(List.of(first.get(0).getId()), LocalDateTime.now().minusSeconds(1), "boom");
+        assertEquals(2, store.claim(10, LocalDateTime.now().plusMinutes(5)).size());
+    }
+}
@@ -0,0 +1,36 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveRerankTest {
+    
+    private static AdaptiveRerank.Plan plan(List<Double> scores, int topK) {
+        return AdaptiveRerank.plan(scores, topK, 6, 12, 0.15, 0.05);
+    }
+    
+    @Test
+    public void skipsWhenTheCutIsClear() {
+        AdaptiveRerank.Plan plan = plan(List.of(0.82, 0.78, 0.75, 0.41, 0.40, 0.39), 3);
+        assertEquals(AdaptiveRerank.Action.SKIP, plan.action());
+    }
+    
+    @Test
+    public void widensWhenScoresAreFlat() {
+        AdaptiveRerank.Plan plan = plan(List.of(0.52, 0.51, 0.51, 0.50, 0.50, 0.49), 3);
+        assertEquals(new AdaptiveRerank.Plan(AdaptiveRerank.Action.WIDEN, 12), plan);
+        
+        // A short list already holds every candidate there is
+        assertEquals(AdaptiveRerank.Action.RERANK, plan(List.of(0.52, 0.51, 0.50), 3).action());
+    }
+    
+    @Test
+    public void reranksEverythingElse() {
+        AdaptiveRerank.Plan plan = plan(List.of(0.80, 0.70, 0.62, 0.55, 0.50, 0.45), 3);
+        assertEquals(new AdaptiveRerank.Plan(AdaptiveRerank.Action.RERANK, 6), plan);
+        assertEquals(AdaptiveRerank.Action.RERANK, plan(List.of(0.9), 3).action());
+    }
+}
@@ -0,0 +1,55 @@
+package com.xu.news.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnswerCacheTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    public void keyCoversModelQueryAndOrderedContext() {
+        String key = AnswerCache.key("qwen2.5:3b", "answer", "什么是 RAG？", List.of("a", "b"));
+        
+        assertEquals(key, AnswerCache.key("qwen2.5:3b", "answer", "  什么是 rag？ ", List.of("a", "b")));
+        assertNotEquals(key, AnswerCache.key("qwen2.5:7b", "answer", "什么是 RAG？", List.of("a", "b")));
+        assertNotEquals(key, AnswerCache.key("qwen2.5:3b", "summary", "什么是 RAG？", List.of("a", "b")));
+        assertNotEquals(key, AnswerCache.key("qwen2.5:3b", "answer", "什么是 RAG？", List.of("b", "a")));
+        assertNotEquals(key, AnswerCache.key("qwen2.5:3b", "answer", "什么是 RAG？", List.of("ab")));
+    }
+    
+    @Test
+    public void answersEvictedFromMemoryAreServedFromDisk() {
+        AnswerCache cache = cache(1);
+        cache.put("aa01", "first answer");
+        cache.put("bb02", "second answer");
+        
+        assertEquals("first answer", cache.get("aa01"));
+        assertEquals(1L, cache.getStats().get("diskHits"));
+        assertNull(cache.get("cc03"));
+        
+        cache.clear();
+        assertNull(cache.get("bb02"));
+    }
+    
+    private AnswerCache cache(int maxEntries) {
+        AnswerCache cache = new AnswerCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        ReflectionTestUtils.setField(cache, "diskEnabled", true);
+        ReflectionTestUtils.setField(cache, "diskDir", tempDir.toString());
+        ReflectionTestUtils.setField(cache, "diskTtlHours", 24L);
+        ReflectionTestUtils.setField(cache, "diskMaxEntries", 100);
+        cache.createCache();
+        return cache;
+    }
+}
@@ -0,0 +1,44 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArticleTextCleanerTest {
+    
+    private final ArticleTextCleaner cleaner = new ArticleTextCleaner();
+    
+    @Test
+    public void stripsMarkupAndBoilerplate() {
+        String html = "<div class=\"entry\"><script>track('view');</script>"
+                + "<p>OpenAI&nbsp;announced a <a href=\"https://example.com\">new model</a> on Tuesday.</p>"
+                + "<p>It  will   roll out &mdash; gradually &amp; carefully.</p>"
+                + "<div class=\"share-buttons\"><a href=\"#\">Share on X</a><div><a>Facebook</a></div></div>"
+                + "<img src=\"https://pixel.example.com/t.gif\" width=\"1\" height=\"1\"/>"
+                + "<p>The post OpenAI ships a model appeared first on Example News.</p></div>";
+        
+        assertEquals("OpenAI announced a new model on Tuesday.\nIt will roll out — gradually & carefully.",
+                cleaner.clean(html));
+    }
+    
+    @Test
+    public void decodesNumericEntitiesAndDropsRepeatedLines() {
+        String html = "<p>&#20013;&#25991; &#x4E2D;&#x6587;</p><p>Same line</p><p>Same line</p>"
+                + "<p>5 &lt; 6 &unknown; AT&T</p>";
+        
+        assertEquals("中文 中文\nSame line\n5 < 6 &unknown; AT&T", cleaner.clean(html));
+    }
+    
+    @Test
+    public void keepsTextOfUnclosedBoilerplateElement() {
+        String html = "<p>Intro</p><div class=\"related\"><p>Body text that never closes the div";
+        
+        assertEquals("Intro\nBody text that never closes the div", cleaner.clean(html));
+    }
+    
+    @Test
+    public void normalizesPlainText() {
+        assertEquals("line one\nline two", cleaner.clean("  line   one \n\n\t line two  "));
+        assertNull(cleaner.clean(null));
+    }
+}
@@ -0,0 +1,96 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+    
+    private final AtomicLong now = new AtomicLong();
+    
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("test", 4, 4, 0.5, 1000, 2, now::get);
+    }
+    
+    @Test
+    public void opensAtTheFailureRateAndRecoversAfterTrialCalls() {
+        CircuitBreaker breaker = breaker();
+        for (boolean failure : new boolean[]{false, true, false}) {
+            assertTrue(breaker.tryAcquire());
+            if (failure) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        
+        now.addAndGet(1_000_000_000L);
+        assertTrue(breaker.isCallPermitted());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        // A cancelled trial gives its permission back
+        breaker.onIgnored();
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+    
+    @Test
+    public void failedTrialCallOpensAgain() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        now.addAndGet(1_000_000_000L);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.isCallPermitted());
+        assertEquals(2, breaker.openings());
+    }
+    
+    @Test
+    public void bulkheadRejectsCallsBeyondTheLimit() {
+        DownstreamGuard guard = new DownstreamGuard("test", breaker(), 1, null);
+        Sinks.One<String> slow = Sinks.one();
+        
+        guard.call(slow.asMono()).subscribe();
+        assertThrows(DownstreamGuard.RejectedException.class, () -> guard.call(Mono.just("b")).block());
+        slow.tryEmitValue("a");
+        assertEquals("b", guard.call(Mono.just("b")).block());
+        assertEquals(1, guard.stats().rejectedFull());
+        assertEquals(0, guard.stats().inFlight());
+    }
+    
+    @Test
+    public void hedgeAnswersWhenTheFirstCallStalls() {
+        DownstreamGuard guard = new DownstreamGuard("test", breaker(), 4, Duration.ofSeconds(5));
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> hedged = guard.hedged(
+                () -> calls.incrementAndGet() == 1 ? Mono.never() : Mono.just("hedge"), Duration.ofMillis(20));
+        
+        assertEquals("hedge", hedged.block(Duration.ofSeconds(2)));
+        assertEquals(2, calls.get());
+        assertEquals(1, guard.stats().hedgeWins());
+        // The stalled call was cancelled and released its permit
+        assertEquals(0, guard.stats().inFlight());
+        
+        assertEquals("fast", guard.hedged(() -> Mono.just("fast"), Duration.ofMillis(20)).block());
+        assertEquals(1, guard.stats().hedges());
+    }
+}
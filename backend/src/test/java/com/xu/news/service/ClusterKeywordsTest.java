@@ -0,0 +1,34 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterKeywordsTest {
+    
+    @Test
+    public void prefersTermsDistinctiveOfTheCluster() {
+        ClusterKeywords keywords = new ClusterKeywords(2);
+        keywords.add(0, "Report: Lakers win the NBA final");
+        keywords.add(0, "Report: NBA final goes to game 7");
+        keywords.add(1, "Report: stocks fall as the Fed raises rates");
+        keywords.add(1, "Report: Fed signals more rate hikes in 2024");
+        
+        List<List<String>> top = keywords.top(2);
+        // "report" is as frequent in each cluster but shared by both
+        assertEquals(List.of("final", "nba"), top.get(0));
+        assertEquals(List.of("fed", "report"), top.get(1));
+        List<String> all = keywords.top(20).get(1);
+        assertFalse(all.contains("2024"));
+        assertFalse(all.contains("in"));
+    }
+    
+    @Test
+    public void overallKeywordsAreSharedByMostClusters() {
+        List<String> overall = ClusterKeywords.overall(
+                List.of(List.of("ai", "chips"), List.of("ai", "cloud"), List.of("chips", "ai")), 2);
+        assertEquals(List.of("ai", "chips"), overall);
+    }
+}
@@ -0,0 +1,49 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+    
+    private static final int KEYS = 10_000;
+    
+    @Test
+    public void spreadsKeysEvenlyAcrossNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), 128);
+        
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.ownerOf("host-" + i + ".example.com"), 1, Integer::sum);
+        }
+        
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > KEYS / 3 * 0.8 && count < KEYS / 3 * 1.2,
+                "unbalanced: " + counts));
+    }
+    
+    @Test
+    public void movesOnlyTheDeadNodesKeys() {
+        ConsistentHashRing before = new ConsistentHashRing(List.of("node-a", "node-b", "node-c"), 128);
+        ConsistentHashRing after = new ConsistentHashRing(List.of("node-c", "node-a"), 128);
+        
+        for (int i = 0; i < KEYS; i++) {
+            String key = "host-" + i + ".example.com";
+            String owner = before.ownerOf(key);
+            if (!owner.equals("node-b")) {
+                assertEquals(owner, after.ownerOf(key), key);
+            } else {
+                assertNotEquals("node-b", after.ownerOf(key));
+            }
+        }
+    }
+    
+    @Test
+    public void emptyRingOwnsNothing() {
+        assertNull(new ConsistentHashRing(List.of(), 128).ownerOf("example.com"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocumentBatchesTest {
+    
+    @Test
+    public void limitsBatchesByCount() {
+        List<List<PythonServiceClient.AddDocumentRequest>> batches =
+                DocumentBatches.split(documents(10, 100), 4, Long.MAX_VALUE);
+        
+        assertEquals(List.of(4, 4, 2), batches.stream().map(List::size).toList());
+        assertEquals("0", batches.get(0).get(0).getId());
+        assertEquals("9", batches.get(2).get(1).getId());
+    }
+    
+    @Test
+    public void limitsBatchesByBytes() {
+        List<PythonServiceClient.AddDocumentRequest> documents = documents(6, 1000);
+        long size = DocumentBatches.sizeOf(documents.get(0));
+        
+        List<List<PythonServiceClient.AddDocumentRequest>> batches =
+                DocumentBatches.split(documents, 100, size * 2 + size / 2);
+        
+        assertEquals(List.of(2, 2, 2), batches.stream().map(List::size).toList());
+    }
+    
+    @Test
+    public void oversizedDocumentGetsItsOwnBatch() {
+        List<PythonServiceClient.AddDocumentRequest> documents = new ArrayList<>(documents(2, 10));
+        documents.add(1, document("big", 10_000));
+        
+        List<List<PythonServiceClient.AddDocumentRequest>> batches = DocumentBatches.split(documents, 100, 1000);
+        
+        assertEquals(3, batches.size());
+        assertEquals("big", batches.get(1).get(0).getId());
+        assertTrue(DocumentBatches.split(List.of(), 10, 1000).isEmpty());
+    }
+    
+    private static List<PythonServiceClient.AddDocumentRequest> documents(int count, int textLength) {
+        List<PythonServiceClient.AddDocumentRequest> documents = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            documents.add(document(String.valueOf(i), textLength));
+        }
+        return documents;
+    }
+    
+    private static PythonServiceClient.AddDocumentRequest document(String id, int textLength) {
+        PythonServiceClient.AddDocumentRequest document = new PythonServiceClient.AddDocumentRequest();
+        document.setId(id);
+        document.setText("x".repeat(textLength));
+        return document;
+    }
+}
@@ -0,0 +1,167 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.FeedState;
+import com.xu.news.repository.FeedStateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class FeedStateServiceTest {
+    
+    private static final String FEED_URL = "https://feeds.example.com/rss";
+    private static final long MIN_INTERVAL = 10 * 60;
+    private static final long MAX_INTERVAL = 720 * 60;
+    private static final long MAX_BACKOFF = 1440 * 60;
+    
+    private final FeedState state = FeedState.builder().feedUrl(FEED_URL).build();
+    private FeedStateService service;
+    
+    @BeforeEach
+    public void setUp() {
+        FeedStateRepository repository = mock(FeedStateRepository.class);
+        when(repository.findByFeedUrl(FEED_URL)).thenReturn(Optional.of(state));
+        when(repository.save(any(FeedState.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        service = new FeedStateService(repository);
+        ReflectionTestUtils.setField(service, "minIntervalMinutes", 10L);
+        ReflectionTestUtils.setField(service, "maxIntervalMinutes", 720L);
+        ReflectionTestUtils.setField(service, "itemsPerPoll", 5.0);
+        ReflectionTestUtils.setField(service, "maxBackoffMinutes", 1440L);
+        ReflectionTestUtils.setField(service, "checkpointEnabled", true);
+        ReflectionTestUtils.setField(service, "checkpointGraceMinutes", 60L);
+        ReflectionTestUtils.setField(service, "fullParseEvery", 24);
+    }
+    
+    @Test
+    public void pollsAfterItemsPerPollTimesTheMedianGap() {
+        // Items every 3 minutes, one outlier gap that the median ignores
+        service.recordModified(FEED_URL, "\"v1\"", null, 1000, items(0, 3, 6, 9, 12, 60));
+        
+        assertEquals(180.0, state.getAvgItemIntervalSeconds());
+        assertEquals(5 * 180, state.getPollIntervalSeconds());
+        assertNextPollIn(5 * 180);
+        assertEquals("\"v1\"", state.getEtag());
+    }
+    
+    @Test
+    public void smoothsThePublishRateAndClampsFastFeedsToTheMinimum() {
+        service.recordModified(FEED_URL, null, null, 1000, items(0, 2, 4, 6));
+        service.recordModified(FEED_URL, null, null, 1000, items(0, 1, 2, 3));
+        
+        // EWMA 0.3 * 60 + 0.7 * 120 = 102 s, times 5 items is below the minimum interval
+        assertEquals(102.0, state.getAvgItemIntervalSeconds(), 1e-9);
+        assertEquals(MIN_INTERVAL, state.getPollIntervalSeconds());
+        assertNextPollIn(MIN_INTERVAL);
+    }
+    
+    @Test
+    public void clampsDormantFeedsToTheMaximum() {
+        service.recordModified(FEED_URL, null, null, 1000, items(0, 24 * 60, 48 * 60));
+        
+        assertEquals(MAX_INTERVAL, state.getPollIntervalSeconds());
+        assertNextPollIn(MAX_INTERVAL);
+    }
+    
+    @Test
+    public void growsTheIntervalByHalfOnEveryNotModified() {
+        service.recordModified(FEED_URL, "\"v1\"", null, 2000, items(0, 3, 6));
+        assertEquals(900, state.getPollIntervalSeconds());
+        
+        service.recordNotModified(FEED_URL);
+        assertEquals(1350, state.getPollIntervalSeconds());
+        assertEquals(2000, state.getBytesSaved());
+        service.recordNotModified(FEED_URL);
+        assertEquals(2025, state.getPollIntervalSeconds());
+        
+        for (int i = 0; i < 20; i++) {
+            service.recordNotModified(FEED_URL);
+        }
+        assertEquals(MAX_INTERVAL, state.getPollIntervalSeconds());
+    }
+    
+    @Test
+    public void backsOffExponentiallyUpToTheCap() {
+        state.setPollIntervalSeconds(MIN_INTERVAL);
+        
+        service.recordFailure(FEED_URL);
+        assertEquals(1, state.getConsecutiveFailures());
+        assertNextPollIn(2 * MIN_INTERVAL);
+        
+        service.recordFailure(FEED_URL);
+        assertNextPollIn(4 * MIN_INTERVAL);
+        
+        for (int failures = 3; failures <= 7; failures++) {
+            service.recordFailure(FEED_URL);
+        }
+        // 600 s * 2^7 is still below one day
+        assertNextPollIn(128 * MIN_INTERVAL);
+        
+        service.recordFailure(FEED_URL);
+        assertEquals(8, state.getConsecutiveFailures());
+        assertNextPollIn(MAX_BACKOFF);
+        for (int i = 0; i < 30; i++) {
+            service.recordFailure(FEED_URL);
+        }
+        assertNextPollIn(MAX_BACKOFF);
+        // Failures do not change the learned interval
+        assertEquals(MIN_INTERVAL, state.getPollIntervalSeconds());
+    }
+    
+    @Test
+    public void successResetsTheBackoff() {
+        service.recordModified(FEED_URL, null, null, 1000, items(0, 3, 6));
+        for (int i = 0; i < 5; i++) {
+            service.recordFailure(FEED_URL);
+        }
+        assertNextPollIn(Math.min(MAX_BACKOFF, 900 * 32));
+        
+        service.recordNotModified(FEED_URL);
+        
+        assertEquals(0, state.getConsecutiveFailures());
+        assertEquals(1350, state.getPollIntervalSeconds());
+        assertNextPollIn(1350);
+        
+        service.recordFailure(FEED_URL);
+        assertEquals(1, state.getConsecutiveFailures());
+        assertNextPollIn(2 * 1350);
+    }
+    
+    @Test
+    public void growsLikeNotModifiedWithoutItemDates() {
+        state.setPollIntervalSeconds(1000L);
+        
+        service.recordModified(FEED_URL, null, null, 1000, FeedCheckpoint.none());
+        
+        assertNull(state.getAvgItemIntervalSeconds());
+        assertEquals(1500, state.getPollIntervalSeconds());
+    }
+    
+    /**
+     * A checkpoint that read items published the given minutes after a fixed start, newest first
+     */
+    private static FeedCheckpoint items(int... minutes) {
+        LocalDateTime start = LocalDateTime.of(2025, 6, 10, 4, 0);
+        FeedCheckpoint checkpoint = FeedCheckpoint.none();
+        for (int i = minutes.length - 1; i >= 0; i--) {
+            checkpoint.isKnown("item-" + i, start.plusMinutes(minutes[i]));
+        }
+        return checkpoint;
+    }
+    
+    /**
+     * The next poll is the given interval from now, give or take the 10% jitter
+     */
+    private void assertNextPollIn(long seconds) {
+        long actual = Duration.between(LocalDateTime.now(), state.getNextPollAt()).getSeconds();
+        assertTrue(actual >= seconds * 0.9 - 2 && actual <= seconds * 1.1 + 1,
+                "next poll in " + actual + " s, expected about " + seconds + " s");
+    }
+}
@@ -0,0 +1,131 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HnswGraphTest {
+    
+    private static final int DIMENSION = 32;
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    public void findsNearestNeighboursWithHighRecall() throws Exception {
+        Random random = new Random(7);
+        try (MappedVectorStore store = MappedVectorStore.open(tempDir.resolve("vectors.f32"), DIMENSION)) {
+            HnswGraph graph = new HnswGraph(store, 16, 100);
+            List<float[]> vectors = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                float[] vector = randomUnitVector(random);
+                vectors.add(vector);
+                store.set(i, vector);
+                graph.add(i, vector);
+            }
+            
+            int found = 0;
+            int queries = 50;
+            for (int q = 0; q < queries; q++) {
+                float[] query = randomUnitVector(random);
+                Set<Long> exact = bruteForce(vectors, query, 10);
+                for (HnswGraph.Hit hit : graph.search(query, 10, 64)) {
+                    found += exact.contains(hit.id()) ? 1 : 0;
+                }
+            }
+            assertTrue(found >= queries * 10 * 0.9, "recall@10 was " + found / (queries * 10.0));
+        }
+    }
+    
+    @Test
+    public void removedNodesAreNotReturned() throws Exception {
+        Random random = new Random(11);
+        try (MappedVectorStore store = MappedVectorStore.open(tempDir.resolve("vectors.f32"), DIMENSION)) {
+            HnswGraph graph = new HnswGraph(store, 8, 50);
+            for (int i = 0; i < 200; i++) {
+                float[] vector = randomUnitVector(random);
+                store.set(i, vector);
+                graph.add(100 + i, vector);
+            }
+            float[] query = store.vector(5);
+            assertEquals(105, graph.search(query, 1, 32).get(0).id());
+            
+            graph.remove(5);
+            List<HnswGraph.Hit> hits = graph.search(query, 10, 32);
+            assertEquals(10, hits.size());
+            assertTrue(hits.stream().noneMatch(hit -> hit.id() == 105));
+            assertEquals(1, graph.removedCount());
+        }
+    }
+    
+    @Test
+    public void snapshotRoundTripGivesSameResults() throws Exception {
+        Random random = new Random(3);
+        Path file = tempDir.resolve("vectors.f32");
+        HnswGraph graph;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        float[] query = randomUnitVector(random);
+        List<HnswGraph.Hit> expected;
+        try (MappedVectorStore store = MappedVectorStore.open(file, DIMENSION)) {
+            graph = new HnswGraph(store, 8, 50);
+            for (int i = 0; i < 300; i++) {
+                float[] vector = randomUnitVector(random);
+                store.set(i, vector);
+                graph.add(i, vector);
+            }
+            graph.remove(0);
+            store.force();
+            graph.writeTo(new DataOutputStream(bytes));
+            expected = graph.search(query, 5, 32);
+        }
+        
+        assertEquals(DIMENSION, MappedVectorStore.dimensionOf(file));
+        try (MappedVectorStore store = MappedVectorStore.open(file, DIMENSION)) {
+            HnswGraph loaded = HnswGraph.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), store, 50);
+            store.mapSlots(loaded.size());
+            assertEquals(300, loaded.size());
+            assertEquals(1, loaded.removedCount());
+            assertEquals(expected, loaded.search(query, 5, 32));
+        }
+    }
+    
+    private static Set<Long> bruteForce(List<float[]> vectors, float[] query, int k) {
+        Set<Long> ids = new HashSet<>();
+        IntStream.range(0, vectors.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> -dot(query, vectors.get(i))))
+                .limit(k)
+                .forEach(i -> ids.add((long) i));
+        return ids;
+    }
+    
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+    
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return MappedVectorStore.normalize(vector);
+    }
+}
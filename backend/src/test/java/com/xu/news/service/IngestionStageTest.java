@@ -0,0 +1,67 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IngestionStageTest {
+    
+    private final IngestionStage stage = new IngestionStage("test", 2, 3);
+    
+    @AfterEach
+    public void tearDown() {
+        stage.dispose();
+    }
+    
+    @Test
+    public void slowStageHoldsBackUpstream() {
+        AtomicInteger emitted = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        AtomicInteger processed = new AtomicInteger();
+        
+        Flux<Integer> source = Flux.range(0, 50).doOnNext(i -> emitted.incrementAndGet());
+        List<Integer> results = stage.apply(source, i -> {
+                    maxAhead.accumulateAndGet(emitted.get() - processed.get(), Math::max);
+                    sleep(5);
+                    processed.incrementAndGet();
+                    return i;
+                }, i -> 1)
+                .collectList()
+                .block();
+        
+        assertEquals(50, results.size());
+        // queue capacity + parallelism, never the whole source
+        assertTrue(maxAhead.get() <= 5, "upstream ran ahead by " + maxAhead.get());
+        assertEquals(50, stage.stats().items());
+        assertEquals(0, stage.stats().queued());
+    }
+    
+    @Test
+    public void failedBatchIsCountedAndSkipped() {
+        List<Integer> results = stage.apply(Flux.range(0, 4), i -> {
+                    if (i == 2) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return i;
+                }, i -> 1)
+                .collectList()
+                .block();
+        
+        assertEquals(3, results.size());
+        assertEquals(1, stage.stats().errors());
+        assertEquals(4, stage.stats().batches());
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvertedIndexTest {
+    
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    
+    @Test
+    public void ranksRareTermsAndShortDocumentsHigher() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, frequencies("nvidia releases new gpu for data centers"));
+        index.add(2, frequencies("new phone releases this week with new camera and new screen and new colors"));
+        index.add(3, frequencies("h100 gpu benchmark"));
+        
+        List<InvertedIndex.Hit> hits = index.search(TextTokenizer.tokenize("H100 GPU"), 10, K1, B);
+        assertEquals(List.of(3L, 1L), hits.stream().map(InvertedIndex.Hit::id).toList());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertTrue(index.search(List.of("unknown"), 10, K1, B).isEmpty());
+    }
+    
+    @Test
+    public void replacedAndRemovedDocumentsAreNotReturned() {
+        InvertedIndex index = new InvertedIndex();
+        index.add(1, frequencies("old title about rust"));
+        index.add(2, frequencies("rust compiler release"));
+        index.add(1, frequencies("new title about go"));
+        index.remove(2);
+        
+        assertTrue(index.search(List.of("rust"), 10, K1, B).isEmpty());
+        assertEquals(1L, index.search(List.of("go"), 10, K1, B).get(0).id());
+        assertEquals(1, index.size());
+        assertEquals(2, index.deletedCount());
+    }
+    
+    @Test
+    public void compactionKeepsRankingAndDropsDeletedPostings() {
+        InvertedIndex index = new InvertedIndex();
+        for (long id = 1; id <= 1000; id++) {
+            index.add(id * 100_000, frequencies("article " + id + (id % 10 == 0 ? " special" : "")));
+        }
+        for (long id = 1; id <= 500; id++) {
+            index.remove(id * 100_000);
+        }
+        List<InvertedIndex.Hit> before = index.search(List.of("special", "article"), 5, K1, B);
+        long bytesBefore = index.postingBytes();
+        
+        index.compact();
+        assertEquals(0, index.deletedCount());
+        assertEquals(500, index.size());
+        assertTrue(index.postingBytes() < bytesBefore);
+        assertEquals(before.stream().map(InvertedIndex.Hit::id).toList(),
+                index.search(List.of("special", "article"), 5, K1, B).stream().map(InvertedIndex.Hit::id).toList());
+        assertEquals(50, index.search(List.of("special"), 100, K1, B).size());
+    }
+    
+    @Test
+    public void tokenizesLatinWordsAndCjkBigrams() {
+        assertEquals(List.of("rtx4090", "显卡", "卡发", "发布"), TextTokenizer.tokenize("ＲＴＸ4090显卡发布"));
+        assertEquals(List.of("gpt", "4o", "和", "openai"), TextTokenizer.tokenize("GPT-4o 和 OpenAI"));
+        assertTrue(TextTokenizer.tokenize("  ,.;  ").isEmpty());
+    }
+    
+    @Test
+    public void fusesRankingsByReciprocalRank() {
+        Map<String, Double> fused = RankFusion.fuse(List.of(List.of("a", "b", "c"), List.of("c", "d")), 60);
+        assertEquals(List.of("c", "a", "b", "d"), List.copyOf(fused.keySet()));
+        assertEquals(1.0 / 63 + 1.0 / 61, fused.get("c"), 1e-12);
+    }
+    
+    private static Map<String, Integer> frequencies(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        TextTokenizer.tokenize(text).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+        return frequencies;
+    }
+}
@@ -0,0 +1,140 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalVectorIndexTest {
+    
+    private static final int DIMENSION = 16;
+    private static final int ARTICLES = 200;
+    
+    @TempDir
+    Path tempDir;
+    
+    private final Random random = new Random(11);
+    private LocalVectorIndex index;
+    
+    @BeforeEach
+    public void setUp() {
+        index = open();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        index.close();
+    }
+    
+    @Test
+    public void reUpsertsAreCompactedAwayOnSnapshot() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, ARTICLES).boxed().toList();
+        index.upsert(ids, randomVectors(ARTICLES));
+        // A full re-index doubles the graph until it is compacted
+        List<float[]> latest = randomVectors(ARTICLES);
+        index.upsert(ids, latest);
+        assertEquals(2 * ARTICLES, index.getStats().get("nodes"));
+        
+        index.snapshot();
+        
+        assertEquals(ARTICLES, index.getStats().get("nodes"));
+        assertEquals(0, index.getStats().get("removedNodes"));
+        assertEquals(ARTICLES, index.getStats().get("vectors"));
+        assertEquals(42L, index.search(latest.get(41), 1).get(0).articleId());
+        
+        // The compacted files are what the next start loads
+        index.close();
+        index = open();
+        assertEquals(42L, index.search(latest.get(41), 1).get(0).articleId());
+        assertEquals(ARTICLES, index.getStats().get("nodes"));
+        assertArrayEquals(MappedVectorStore.normalize(latest.get(7)), index.vectors(List.of(8L)).get(8L), 1e-6f);
+    }
+    
+    @Test
+    public void fewRemovalsAreNotCompacted() {
+        index.upsert(LongStream.rangeClosed(1, ARTICLES).boxed().toList(), randomVectors(ARTICLES));
+        index.remove(List.of(1L, 2L, 3L));
+        
+        index.snapshot();
+        
+        assertEquals(ARTICLES, index.getStats().get("nodes"));
+        assertEquals(3, index.getStats().get("removedNodes"));
+    }
+    
+    @Test
+    public void finishesCompactionInterruptedDuringTheSwap() throws Exception {
+        List<Long> ids = LongStream.rangeClosed(1, ARTICLES).boxed().toList();
+        index.upsert(ids, randomVectors(ARTICLES));
+        index.upsert(ids, randomVectors(ARTICLES));
+        index.snapshot();
+        index.close();
+        
+        // Compacted files written and marked, then the process died before moving them
+        Files.move(tempDir.resolve("vectors.f32"), tempDir.resolve("vectors.f32.tmp"));
+        Files.move(tempDir.resolve("graph.bin"), tempDir.resolve("graph.bin.tmp"));
+        Files.createFile(tempDir.resolve("compact.pending"));
+        
+        index = open();
+        assertEquals(ARTICLES, index.vectors(ids).size());
+        assertEquals(ARTICLES, index.getStats().get("nodes"));
+        assertFalse(Files.exists(tempDir.resolve("compact.pending")));
+    }
+    
+    @Test
+    public void newEmbeddingDimensionStartsANewIndex() {
+        index.upsert(LongStream.rangeClosed(1, ARTICLES).boxed().toList(), randomVectors(ARTICLES));
+        
+        float[] wider = new float[DIMENSION * 2];
+        wider[0] = 1;
+        index.upsert(List.of(1L), List.of(wider));
+        
+        assertEquals(1, index.getStats().get("vectors"));
+        assertEquals(DIMENSION * 2, index.getStats().get("dimension"));
+        assertEquals(1L, index.search(wider, 5).get(0).articleId());
+    }
+    
+    @Test
+    public void resetDropsAllVectors() {
+        index.upsert(LongStream.rangeClosed(1, ARTICLES).boxed().toList(), randomVectors(ARTICLES));
+        
+        index.reset();
+        
+        assertEquals(0, index.getStats().get("vectors"));
+        assertTrue(index.search(randomVectors(1).get(0), 5).isEmpty());
+        index.upsert(List.of(7L), randomVectors(1));
+        assertEquals(1, index.getStats().get("vectors"));
+    }
+    
+    private LocalVectorIndex open() {
+        LocalVectorIndex opened = new LocalVectorIndex();
+        ReflectionTestUtils.setField(opened, "engine", "local");
+        ReflectionTestUtils.setField(opened, "dir", tempDir.toString());
+        ReflectionTestUtils.setField(opened, "m", 8);
+        ReflectionTestUtils.setField(opened, "efConstruction", 64);
+        ReflectionTestUtils.setField(opened, "efSearch", 64);
+        ReflectionTestUtils.setField(opened, "compactRatio", 0.3);
+        return opened;
+    }
+    
+    private List<float[]> randomVectors(int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[DIMENSION];
+            for (int d = 0; d < DIMENSION; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+}
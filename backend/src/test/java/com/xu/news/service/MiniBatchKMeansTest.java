@@ -0,0 +1,64 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MiniBatchKMeansTest {
+    
+    private static List<float[]> around(float[] direction, int count, Random random) {
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            float[] vector = direction.clone();
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] += (float) (random.nextGaussian() * 0.05);
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+    
+    @Test
+    public void separatesTopicsAndCountsMembers() {
+        Random random = new Random(7);
+        List<float[]> sports = around(new float[]{1, 0, 0}, 60, random);
+        List<float[]> markets = around(new float[]{0, 1, 0}, 40, random);
+        List<float[]> all = new ArrayList<>(sports);
+        all.addAll(markets);
+        
+        MiniBatchKMeans model = MiniBatchKMeans.seed(all, 2, random);
+        for (int epoch = 0; epoch < 3; epoch++) {
+            for (int from = 0; from < all.size(); from += 16) {
+                model.partialFit(all.subList(from, Math.min(all.size(), from + 16)));
+            }
+        }
+        MiniBatchKMeans.Pass pass = model.pass();
+        all.forEach(pass::add);
+        MiniBatchKMeans fitted = pass.finish();
+        
+        int sportsCluster = fitted.assign(new float[]{1, 0, 0});
+        int marketsCluster = fitted.assign(new float[]{0, 1, 0});
+        assertNotEquals(sportsCluster, marketsCluster);
+        sports.forEach(vector -> assertEquals(sportsCluster, fitted.assign(vector)));
+        assertEquals(60, fitted.counts()[sportsCluster]);
+        assertEquals(40, fitted.counts()[marketsCluster]);
+    }
+    
+    @Test
+    public void seedsNoMoreCentersThanDistinctVectors() {
+        List<float[]> same = List.of(new float[]{1, 1}, new float[]{2, 2}, new float[]{3, 3});
+        assertEquals(1, MiniBatchKMeans.seed(same, 5, new Random(1)).k());
+    }
+    
+    @Test
+    public void addedVectorMovesCenterByItsShare() {
+        MiniBatchKMeans model = MiniBatchKMeans.restore(new float[][]{{1, 0}, {-1, 0}}, new long[]{3, 5});
+        assertEquals(0, model.add(new float[]{0, 2}));
+        assertArrayEquals(new float[]{0.75f, 0.25f}, model.centers()[0], 1e-6f);
+        assertArrayEquals(new long[]{4, 5}, model.counts());
+    }
+}
@@ -0,0 +1,110 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.NewsArticle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NearDuplicateDetectorTest {
+    
+    private static final String STORY = "OpenAI announced on Tuesday a new reasoning model that it says "
+            + "outperforms its predecessors on math and coding benchmarks, and the company plans to roll "
+            + "it out to paying subscribers over the coming weeks before opening access to developers.";
+    
+    private NearDuplicateDetector detector;
+    
+    @BeforeEach
+    public void setUp() {
+        detector = new NearDuplicateDetector(null);
+        ReflectionTestUtils.setField(detector, "enabled", true);
+        ReflectionTestUtils.setField(detector, "maxDistance", 8);
+        ReflectionTestUtils.setField(detector, "windowDays", 7);
+    }
+    
+    @Test
+    public void linksRewrittenCopyToCanonicalStory() {
+        NewsArticle original = article(1L, "OpenAI unveils new reasoning model", "<p>" + STORY + "</p>");
+        original.setSimhash(detector.fingerprint(original));
+        detector.addAfterCommit(List.of(original));
+        
+        NewsArticle copy = article(null, "OpenAI unveils new reasoning model",
+                STORY.replace("Tuesday", "Wednesday"));
+        Long simhash = detector.fingerprint(copy);
+        
+        assertNotNull(simhash);
+        assertEquals(1L, detector.findCanonical(simhash));
+    }
+    
+    @Test
+    public void findsEveryFingerprintWithinMaxDistance() {
+        Random random = new Random(5);
+        long simhash = random.nextLong();
+        NewsArticle original = article(1L, "OpenAI unveils new reasoning model", STORY);
+        original.setSimhash(simhash);
+        detector.addAfterCommit(List.of(original));
+        
+        for (int trial = 0; trial < 1000; trial++) {
+            long within = simhash;
+            while (Long.bitCount(within ^ simhash) < 8) {
+                within ^= 1L << random.nextInt(64);
+            }
+            assertEquals(1L, detector.findCanonical(within), "missed at 8 bits: " + Long.toHexString(within));
+            
+            long beyond = within;
+            while (Long.bitCount(beyond ^ simhash) < 9) {
+                beyond ^= 1L << random.nextInt(64);
+            }
+            assertNull(detector.findCanonical(beyond));
+        }
+    }
+    
+    @Test
+    public void forgetsDeletedCanonicalStory() {
+        NewsArticle original = article(1L, "OpenAI unveils new reasoning model", STORY);
+        original.setSimhash(detector.fingerprint(original));
+        detector.addAfterCommit(List.of(original));
+        
+        detector.removeAfterCommit(List.of(1L));
+        
+        assertNull(detector.findCanonical(original.getSimhash()));
+    }
+    
+    @Test
+    public void keepsUnrelatedStoryCanonical() {
+        NewsArticle original = article(1L, "OpenAI unveils new reasoning model", STORY);
+        original.setSimhash(detector.fingerprint(original));
+        detector.addAfterCommit(List.of(original));
+        
+        NewsArticle other = article(null, "Google releases Gemini update",
+                "Google announced on Wednesday an update to its Gemini model that it says improves performance "
+                        + "on coding and math benchmarks, and the company plans to make it available to "
+                        + "developers through its cloud platform in the coming weeks.");
+        
+        assertNull(detector.findCanonical(detector.fingerprint(other)));
+    }
+    
+    @Test
+    public void skipsTextTooShortToFingerprint() {
+        assertNull(detector.fingerprint(article(null, "Breaking news", null)));
+    }
+    
+    @Test
+    public void tokenizesCjkPerCharacter() {
+        assertEquals(List.of("ai", "人", "工", "智", "能", "2025"), NearDuplicateDetector.tokenize("AI人工智能 2025"));
+    }
+    
+    private static NewsArticle article(Long id, String title, String content) {
+        return NewsArticle.builder()
+                .id(id)
+                .title(title)
+                .content(content)
+                .url("https://example.com/" + title.hashCode())
+                .source("Test")
+                .build();
+    }
+}
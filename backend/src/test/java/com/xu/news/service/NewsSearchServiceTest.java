@@ -0,0 +1,38 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NewsSearchServiceTest {
+    
+    @Test
+    public void quotesAndSpacesCjkRunsInQueries() {
+        assertEquals("\"人 工 智 能 \"  OpenAI", NewsSearchService.toQueryText("人工智能 OpenAI"));
+        assertEquals("GPT-4o \"发 布 \"", NewsSearchService.toQueryText("GPT-4o发布"));
+        assertEquals("\"大 模 型 评 测 \" -\"广 告 \"", NewsSearchService.toQueryText("\"大模型评测\" -广告"));
+        assertEquals("rtx 4090 or h100", NewsSearchService.toQueryText("rtx 4090 or h100"));
+    }
+    
+    @Test
+    public void restoresCjkSpacingAndEscapesHeadlines() {
+        String headline = "\u0002人\u0003 \u0002工\u0003 智 能 与 <b>&  \u0002GPU\u0003 芯 片 ";
+        assertEquals("<mark>人工</mark>智能与&lt;b&gt;&amp;  <mark>GPU</mark> 芯片",
+                NewsSearchService.toHtml(headline));
+        assertNull(NewsSearchService.toHtml(null));
+    }
+    
+    @Test
+    public void cursorsRoundTripExactly() {
+        NewsSearchService.Cursor cursor = new NewsSearchService.Cursor(0.0607927f, 123456789L);
+        String encoded = NewsSearchService.encodeCursor(cursor, NewsSearchService.Order.RELEVANCE);
+        assertEquals(cursor, NewsSearchService.decodeCursor(encoded, NewsSearchService.Order.RELEVANCE));
+        
+        String newest = NewsSearchService.encodeCursor(cursor, NewsSearchService.Order.NEWEST);
+        assertEquals(123456789L, NewsSearchService.decodeCursor(newest, NewsSearchService.Order.NEWEST).id());
+        assertThrows(IllegalArgumentException.class,
+                () -> NewsSearchService.decodeCursor(newest, NewsSearchService.Order.RELEVANCE));
+        assertThrows(IllegalArgumentException.class,
+                () -> NewsSearchService.decodeCursor("not a cursor!", NewsSearchService.Order.NEWEST));
+    }
+}
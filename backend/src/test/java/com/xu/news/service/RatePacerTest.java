@@ -0,0 +1,40 @@
+package com.xu.news.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RatePacerTest {
+    
+    @Test
+    public void spacesReservationsToTheRate() {
+        AtomicLong now = new AtomicLong(5_000_000_000L);
+        RatePacer pacer = new RatePacer(100, now::get);
+        
+        assertEquals(0, pacer.reserve(50));
+        // 50 permits at 100 per second end half a second later
+        assertEquals(500_000_000L, pacer.reserve(50));
+        now.addAndGet(200_000_000L);
+        assertEquals(800_000_000L, pacer.reserve(10));
+        
+        // Idle time is not saved up
+        now.addAndGet(10_000_000_000L);
+        assertEquals(0, pacer.reserve(10));
+        assertEquals(100_000_000L, pacer.reserve(10));
+        
+        assertEquals(0, new RatePacer(0, now::get).reserve(1000));
+    }
+    
+    @Test
+    public void estimatesProgressAndTimeLeft() {
+        ReindexService.Progress progress = ReindexService.Progress.of(1000, 250, 5000);
+        assertEquals(25.0, progress.percent(), 1e-9);
+        assertEquals(50.0, progress.docsPerSecond(), 1e-9);
+        assertEquals(15L, progress.etaSeconds());
+        
+        assertNull(ReindexService.Progress.of(1000, 0, 0).etaSeconds());
+        assertEquals(100.0, ReindexService.Progress.of(0, 0, 0).percent(), 1e-9);
+    }
+}
@@ -0,0 +1,84 @@
+package com.xu.news.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetrievalCacheTest {
+    
+    private RetrievalCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    @BeforeEach
+    public void setUp() {
+        cache = new RetrievalCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        cache.createCache();
+    }
+    
+    @Test
+    public void servesRepeatedQueriesFromCache() {
+        assertEquals(List.of("a"), search("OpenAI  新模型 ", 5, true));
+        assertEquals(List.of("a"), search("openai 新模型", 5, true));
+        assertEquals(List.of("a"), search("ＯｐｅｎＡＩ 新模型", 5, true));
+        assertEquals(1, loads.get());
+        
+        search("openai 新模型", 10, true);
+        search("openai 新模型", 5, false);
+        assertEquals(3, loads.get());
+    }
+    
+    @Test
+    public void generationBumpInvalidatesEntries() {
+        search("query", 5, false);
+        cache.bumpGeneration();
+        search("query", 5, false);
+        search("query", 5, false);
+        
+        assertEquals(2, loads.get());
+    }
+    
+    @Test
+    public void resultOfSearchRacingWithIndexUpdateIsNotServed() {
+        cache.getOrLoad(RetrievalCache.key("query", 5, false, 0), () -> {
+            cache.bumpGeneration();
+            return List.of("stale");
+        });
+        
+        assertEquals(List.of("a"), search("query", 5, false));
+    }
+    
+    @Test
+    public void lruCacheEvictsLeastRecentlyUsedAndExpiredEntries() {
+        AtomicLong now = new AtomicLong();
+        LruCache<String, String> lru = new LruCache<>(2, 1000, now::get);
+        lru.put("a", "1");
+        lru.put("b", "2");
+        lru.get("a");
+        lru.put("c", "3");
+        
+        assertNull(lru.get("b"));
+        assertEquals("1", lru.get("a"));
+        assertEquals(1, lru.evictions());
+        
+        now.addAndGet(1_000_000_001L);
+        assertNull(lru.get("c"));
+        assertEquals(1, lru.expirations());
+    }
+    
+    private List<String> search(String query, int topK, boolean rerank) {
+        return cache.getOrLoad(RetrievalCache.key(query, topK, rerank, 20), () -> {
+            loads.incrementAndGet();
+            return List.of("a");
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.NewsArticle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RssFeedParserTest {
+    
+    private RssFeedParser parser;
+    
+    @BeforeEach
+    public void setUp() {
+        parser = new RssFeedParser();
+        ReflectionTestUtils.setField(parser, "maxBodyBytes", 10_000L);
+    }
+    
+    @Test
+    public void parsesRssItemsAcrossBufferBoundaries() {
+        String xml = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <rss version="2.0" xmlns:content="http://purl.org/rss/1.0/modules/content/"
+                     xmlns:media="http://search.yahoo.com/mrss/">
+                  <channel>
+                    <title>Tech Feed</title>
+                    <item>
+                      <title>First</title>
+                      <link>https://example.com/1</link>
+                      <description>Summary one</description>
+                      <content:encoded><![CDATA[<p>Body one</p>]]></content:encoded>
+                      <media:content url="https://example.com/1.jpg"><media:title>Photo</media:title></media:content>
+                      <category>AI</category>
+                      <pubDate>Tue, 07 Oct 2025 10:00:00 GMT</pubDate>
+                    </item>
+                    <item>
+                      <title>No link</title>
+                    </item>
+                  </channel>
+                </rss>
+                """;
+        
+        AtomicLong bytes = new AtomicLong();
+        List<NewsArticle> articles = parser.parse(chunked(xml, 7), bytes, FeedCheckpoint.none()).collectList().block();
+        
+        assertNotNull(articles);
+        assertEquals(1, articles.size());
+        NewsArticle article = articles.get(0);
+        assertEquals("First", article.getTitle());
+        assertEquals("https://example.com/1", article.getUrl());
+        assertEquals("Tech Feed", article.getSource());
+        assertEquals("<p>Body one</p>", article.getContent());
+        assertEquals("Summary one", article.getSummary());
+        assertTrue(article.getTags().contains("AI"));
+        assertEquals(2025, article.getPublishedAt().getYear());
+        assertEquals(xml.getBytes(StandardCharsets.UTF_8).length, bytes.get());
+    }
+    
+    @Test
+    public void parsesAtomEntries() {
+        String xml = """
+                <feed xmlns="http://www.w3.org/2005/Atom">
+                  <title>Atom Feed</title>
+                  <entry>
+                    <title>Entry</title>
+                    <link rel="replies" href="https://example.com/e#comments"/>
+                    <link rel="alternate" href="https://example.com/e"/>
+                    <author><name>Jane</name><email>jane@example.com</email></author>
+                    <summary>Short</summary>
+                    <category term="ml"/>
+                    <published>2025-10-07T10:00:00Z</published>
+                  </entry>
+                </feed>
+                """;
+        
+        List<NewsArticle> articles = parser.parse(chunked(xml, 64), new AtomicLong(), FeedCheckpoint.none()).collectList().block();
+        
+        assertNotNull(articles);
+        assertEquals(1, articles.size());
+        NewsArticle article = articles.get(0);
+        assertEquals("https://example.com/e", article.getUrl());
+        assertEquals("Atom Feed", article.getSource());
+        assertEquals("Jane", article.getAuthor());
+        assertEquals("Short", article.getContent());
+        assertTrue(article.getTags().contains("ml"));
+    }
+    
+    @Test
+    public void failsWhenBodyExceedsLimit() {
+        ReflectionTestUtils.setField(parser, "maxBodyBytes", 100L);
+        String xml = "<rss><channel><title>" + "x".repeat(500) + "</title></channel></rss>";
+        
+        assertThrows(DataBufferLimitException.class,
+                () -> parser.parse(chunked(xml, 32), new AtomicLong(), FeedCheckpoint.none()).collectList().block());
+    }
+    
+    @Test
+    public void stopsAtPreviousNewestItem() {
+        String xml = """
+                <rss version="2.0"><channel><title>Feed</title>
+                  <item><title>New</title><link>https://example.com/4</link><guid>g4</guid>
+                    <pubDate>Thu, 09 Oct 2025 10:00:00 GMT</pubDate></item>
+                  <item><title>Seen</title><link>https://example.com/3</link><guid>g3</guid>
+                    <pubDate>Wed, 08 Oct 2025 10:00:00 GMT</pubDate></item>
+                  <item><title>Old</title><link>https://example.com/1</link><guid>g1</guid>
+                    <pubDate>Tue, 07 Oct 2025 10:00:00 GMT</pubDate></item>
+                  <broken
+                """;
+        FeedCheckpoint checkpoint = new FeedCheckpoint("g3", LocalDateTime.of(2025, 10, 8, 10, 0), true,
+                Duration.ofHours(1), true);
+        
+        List<NewsArticle> articles = parser.parse(chunked(xml, 16), new AtomicLong(), checkpoint)
+                .collectList().block();
+        
+        // The malformed tail is never read
+        assertNotNull(articles);
+        assertEquals(List.of("New"), articles.stream().map(NewsArticle::getTitle).toList());
+        assertTrue(checkpoint.shouldStop());
+        assertEquals("g4", checkpoint.newestKey());
+        assertEquals(LocalDateTime.of(2025, 10, 9, 10, 0), checkpoint.newestPublishedAt());
+        assertTrue(checkpoint.newestFirst());
+    }
+    
+    @Test
+    public void skipsOldItemsWithoutStoppingWhenOrderIsUnknown() {
+        String xml = """
+                <rss version="2.0"><channel><title>Feed</title>
+                  <item><title>Old</title><link>https://example.com/1</link>
+                    <pubDate>Tue, 07 Oct 2025 10:00:00 GMT</pubDate></item>
+                  <item><title>New</title><link>https://example.com/2</link>
+                    <pubDate>Thu, 09 Oct 2025 10:00:00 GMT</pubDate></item>
+                  <item><title>Late</title><link>https://example.com/4</link>
+                    <pubDate>Wed, 08 Oct 2025 09:30:00 GMT</pubDate></item>
+                  <item><title>Undated</title><link>https://example.com/3</link></item>
+                </channel></rss>
+                """;
+        FeedCheckpoint checkpoint = new FeedCheckpoint("https://example.com/1", LocalDateTime.of(2025, 10, 8, 10, 0),
+                null, Duration.ofHours(1), true);
+        
+        List<NewsArticle> articles = parser.parse(chunked(xml, 64), new AtomicLong(), checkpoint)
+                .collectList().block();
+        
+        assertNotNull(articles);
+        // Within the grace period before the watermark, so still handed to dedup
+        assertEquals(List.of("New", "Late", "Undated"), articles.stream().map(NewsArticle::getTitle).toList());
+        assertFalse(checkpoint.shouldStop());
+        assertEquals("https://example.com/2", checkpoint.newestKey());
+        assertFalse(checkpoint.newestFirst());
+    }
+    
+    private static Flux<DataBuffer> chunked(String xml, int chunkSize) {
+        byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+        return Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+                .map(i -> {
+                    int from = i * chunkSize;
+                    int to = Math.min(bytes.length, from + chunkSize);
+                    return (DataBuffer) DefaultDataBufferFactory.sharedInstance
+                            .wrap(Arrays.copyOfRange(bytes, from, to));
+                });
+    }
+}
@@ -0,0 +1,116 @@
+package com.xu.news.service;
+
+import com.xu.news.entity.FeedState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The staged pipeline with a stubbed feed response: a stage that throws must still leave a
+ * record in the feed state, or the feed stays due and is fetched again on every tick
+ */
+public class RssIngestionServiceTest {
+    
+    private static final String FEED_URL = "https://feeds.example.com/rss";
+    private static final String RSS = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <rss version="2.0">
+              <channel>
+                <title>Example</title>
+                <item>
+                  <title>First</title>
+                  <link>https://example.com/1</link>
+                  <description>First story</description>
+                  <pubDate>Tue, 10 Jun 2025 04:00:00 GMT</pubDate>
+                </item>
+              </channel>
+            </rss>
+            """;
+    
+    private NewsService newsService;
+    private FeedStateService feedStateService;
+    private RssIngestionService service;
+    
+    @BeforeEach
+    public void setUp() {
+        newsService = mock(NewsService.class);
+        feedStateService = mock(FeedStateService.class);
+        when(feedStateService.getFeedState(FEED_URL)).thenReturn(new FeedState());
+        when(feedStateService.checkpointFor(any())).thenReturn(FeedCheckpoint.none());
+        
+        KnowledgeBaseIndexer indexer = mock(KnowledgeBaseIndexer.class);
+        when(indexer.getStats()).thenReturn(new IngestionStage("embed", 1).stats());
+        
+        RssFeedParser parser = new RssFeedParser();
+        ReflectionTestUtils.setField(parser, "maxBodyBytes", 100_000L);
+        WebClient.Builder webClient = WebClient.builder().exchangeFunction(request -> Mono.just(
+                ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, "application/rss+xml")
+                        .body(RSS)
+                        .build()));
+        
+        service = new RssIngestionService(newsService, indexer, mock(EmailService.class),
+                feedStateService, parser, webClient, new IngestionMetrics(new SimpleMeterRegistry()),
+                mock(ArticleTextCleaner.class));
+        ReflectionTestUtils.setField(service, "fetchConcurrency", 2);
+        ReflectionTestUtils.setField(service, "perHostDelayMs", 0L);
+        ReflectionTestUtils.setField(service, "fetchTimeoutSeconds", 10L);
+        ReflectionTestUtils.setField(service, "queueCapacity", 2);
+        ReflectionTestUtils.setField(service, "dedupParallelism", 1);
+        ReflectionTestUtils.setField(service, "cleanParallelism", 1);
+        ReflectionTestUtils.setField(service, "persistParallelism", 1);
+        service.createStages();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        service.disposeStages();
+    }
+    
+    @Test
+    public void failingDedupStageRecordsFeedFailure() {
+        when(newsService.dropKnownArticles(anyList())).thenThrow(new IllegalStateException("poisoned item"));
+        
+        assertEquals(0, service.ingestFromRssFeeds(List.of(FEED_URL)));
+        
+        verify(feedStateService).recordFailure(FEED_URL);
+        verify(feedStateService, never()).recordModified(anyString(), any(), any(), anyLong(), any());
+        verify(newsService, never()).saveArticles(anyList());
+        assertEquals(1, service.getPipelineStats().get(1).errors());
+    }
+    
+    @Test
+    public void failingPersistStageRecordsFeedFailureOnce() {
+        when(newsService.dropKnownArticles(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(newsService.saveArticles(anyList())).thenThrow(new IllegalStateException("database down"));
+        
+        assertEquals(0, service.ingestFromRssFeeds(List.of(FEED_URL)));
+        
+        verify(feedStateService, times(1)).recordFailure(FEED_URL);
+        verify(feedStateService, never()).recordModified(anyString(), any(), any(), anyLong(), any());
+    }
+    
+    @Test
+    public void successfulFeedRecordsValidators() {
+        when(newsService.dropKnownArticles(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(newsService.saveArticles(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        assertEquals(1, service.ingestFromRssFeeds(List.of(FEED_URL)));
+        
+        verify(feedStateService).recordModified(eq(FEED_URL), any(), any(), anyLong(), any());
+        verify(feedStateService, never()).recordFailure(anyString());
+    }
+}
@@ -0,0 +1,181 @@
+package com.xu.news.service;
+
+import com.xu.news.repository.NewsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class UrlDedupIndexTest {
+    
+    private static final List<String> STORED = List.of(
+            "https://example.com/news/1", "https://example.com/news/2", "https://example.com/news/3");
+    
+    private NewsRepository newsRepository;
+    private UrlDedupIndex index;
+    
+    @BeforeEach
+    public void setUp() {
+        newsRepository = mock(NewsRepository.class);
+        index = new UrlDedupIndex(newsRepository);
+        ReflectionTestUtils.setField(index, "expectedUrls", 1000L);
+        ReflectionTestUtils.setField(index, "falsePositiveRate", 1e-6);
+    }
+    
+    @Test
+    public void everyLookupIsUncertainUntilLoaded() {
+        List<UrlDedupIndex.Lookup> duringLoad = new ArrayList<>();
+        when(newsRepository.findUrlsAfterId(anyLong(), any())).thenAnswer(invocation -> {
+            duringLoad.add(index.lookup(STORED.get(0)));
+            duringLoad.add(index.lookup("https://example.com/unseen"));
+            return invocation.<Long>getArgument(0) == 0L ? rows(STORED) : List.of();
+        });
+        
+        assertEquals(UrlDedupIndex.Lookup.UNCERTAIN, index.lookup(STORED.get(0)));
+        assertEquals(UrlDedupIndex.Lookup.UNCERTAIN, index.lookup("https://example.com/unseen"));
+        
+        index.load();
+        
+        assertTrue(duringLoad.stream().allMatch(lookup -> lookup == UrlDedupIndex.Lookup.UNCERTAIN));
+        assertTrue(index.isReady());
+        assertEquals(STORED.size(), index.size());
+        STORED.forEach(url -> assertEquals(UrlDedupIndex.Lookup.KNOWN, index.lookup(url)));
+        assertEquals(UrlDedupIndex.Lookup.NEW, index.lookup("https://example.com/unseen"));
+    }
+    
+    @Test
+    public void answersKnownNewAndUncertainAfterLoading() {
+        when(newsRepository.findUrlsAfterId(anyLong(), any()))
+                .thenAnswer(invocation -> invocation.<Long>getArgument(0) == 0L ? rows(STORED) : List.of());
+        index.load();
+        
+        index.addAfterCommit(List.of("https://example.com/news/4"));
+        assertEquals(UrlDedupIndex.Lookup.KNOWN, index.lookup("https://example.com/news/4"));
+        
+        // The Bloom filter still holds a deleted URL, so only the database can answer for it
+        index.removeAfterCommit(List.of(STORED.get(1)));
+        assertEquals(UrlDedupIndex.Lookup.UNCERTAIN, index.lookup(STORED.get(1)));
+        assertEquals(UrlDedupIndex.Lookup.KNOWN, index.lookup(STORED.get(0)));
+        assertEquals(STORED.size(), index.size());
+    }
+    
+    @Test
+    public void failedLoadLeavesEveryLookupUncertain() {
+        when(newsRepository.findUrlsAfterId(anyLong(), any()))
+                .thenReturn(rows(STORED))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+        
+        index.load();
+        
+        assertFalse(index.isReady());
+        assertEquals(UrlDedupIndex.Lookup.UNCERTAIN, index.lookup(STORED.get(0)));
+        assertEquals(UrlDedupIndex.Lookup.UNCERTAIN, index.lookup("https://example.com/unseen"));
+    }
+    
+    @Test
+    public void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        UrlDedupIndex.BloomFilter filter = new UrlDedupIndex.BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UrlDedupIndex.fingerprint("https://example.com/stored/" + i));
+        }
+        
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(UrlDedupIndex.fingerprint("https://example.com/stored/" + i)));
+            if (filter.mightContain(UrlDedupIndex.fingerprint("https://example.com/other/" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+    
+    @Test
+    public void longHashSetKeepsValuesAcrossResizes() {
+        UrlDedupIndex.LongHashSet set = new UrlDedupIndex.LongHashSet();
+        long[] values = LongStream.rangeClosed(1, 5000).map(i -> i * 0x9E3779B97F4A7C15L).toArray();
+        for (long value : values) {
+            assertTrue(set.add(value));
+        }
+        assertFalse(set.add(values[0]));
+        assertTrue(set.capacity() > 1024);
+        
+        for (int i = 0; i < values.length; i += 2) {
+            set.remove(values[i]);
+        }
+        
+        assertEquals(values.length / 2, set.size());
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(i % 2 == 1, set.contains(values[i]), "value " + i);
+        }
+    }
+    
+    @Test
+    public void removalInsideACollisionChainKeepsTheRestReachable() {
+        UrlDedupIndex.LongHashSet set = new UrlDedupIndex.LongHashSet();
+        int capacity = set.capacity();
+        // Five keys sharing home slot 17, then one homed at 18 that is pushed past the chain
+        List<Long> chain = keysWithHomeSlot(17, 5, capacity);
+        long displaced = keysWithHomeSlot(18, 1, capacity).get(0);
+        chain.forEach(set::add);
+        set.add(displaced);
+        
+        set.remove(chain.get(2));
+        
+        assertFalse(set.contains(chain.get(2)));
+        for (int i = 0; i < chain.size(); i++) {
+            if (i != 2) {
+                assertTrue(set.contains(chain.get(i)), "chain key " + i);
+            }
+        }
+        assertTrue(set.contains(displaced));
+        assertEquals(5, set.size());
+        
+        // Removing the head of the chain works the same way
+        set.remove(chain.get(0));
+        assertTrue(set.contains(chain.get(4)));
+        assertTrue(set.contains(displaced));
+    }
+    
+    @Test
+    public void zeroIsStoredApartFromOtherValues() {
+        UrlDedupIndex.LongHashSet set = new UrlDedupIndex.LongHashSet();
+        
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertTrue(set.contains(0L));
+        assertFalse(set.contains(1L));
+        
+        assertTrue(set.add(1L));
+        set.remove(0L);
+        
+        assertFalse(set.contains(0L));
+        assertTrue(set.contains(1L));
+        assertEquals(1, set.size());
+    }
+    
+    private static List<Long> keysWithHomeSlot(int slot, int count, int capacity) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 1; keys.size() < count; key++) {
+            if (UrlDedupIndex.LongHashSet.slot(key, capacity) == slot) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+    
+    private static List<Object[]> rows(List<String> urls) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            rows.add(new Object[]{(long) i + 1, urls.get(i)});
+        }
+        return rows;
+    }
+}
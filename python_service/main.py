@@ -113,6 +113,25 @@ class RerankResponse(BaseModel):
     results: List[RerankResult]
 
 
+class RerankScoresRequest(BaseModel):
+    query: str
+    ids: Optional[List[str]] = None  # texts are read from ChromaDB
+    passages: Optional[List[str]] = None  # or sent directly
+    max_chars: int = 1000
+
+
+class RerankScoresResponse(BaseModel):
+    scores: List[Optional[float]]  # in request order, None for ids not in ChromaDB
+
+
+class DocumentEmbeddingsRequest(BaseModel):
+    ids: List[str]
+
+
+class DocumentEmbeddingsResponse(BaseModel):
+    embeddings: List[Optional[List[float]]]  # in request order, None for ids not in ChromaDB
+
+
 class ClusterRequest(BaseModel):
     texts: List[str]
     n_clusters: int = 10
@@ -150,8 +169,8 @@ async def health():
 
 
 @app.post("/embed", response_model=EmbedResponse)
-async def embed_texts(request: EmbedRequest):
-    """Generate embeddings for texts"""
+def embed_texts(request: EmbedRequest):
+    """Generate embeddings for texts (plain def, see add_documents)"""
     try:
         embeddings = embedding_model.encode(request.texts, convert_to_numpy=True)
         return EmbedResponse(embeddings=embeddings.tolist())
@@ -161,8 +180,12 @@ async def embed_texts(request: EmbedRequest):
 
 
 @app.post("/documents/add")
-async def add_documents(request: AddDocumentsRequest):
-    """Add documents to ChromaDB"""
+def add_documents(request: AddDocumentsRequest):
+    """Add documents to ChromaDB
+
+    Plain def: FastAPI runs it in its thread pool, so the blocking embedding call neither
+    stalls searches nor serializes the concurrent batches the backend sends.
+    """
     try:
         collection = get_or_create_collection()
         
@@ -173,15 +196,15 @@ async def add_documents(request: AddDocumentsRequest):
         # Generate embeddings
         embeddings = embedding_model.encode(texts, convert_to_numpy=True)
         
-        # Add to ChromaDB
-        collection.add(
+        # Upsert into ChromaDB so re-sent or updated documents replace the old version
+        collection.upsert(
             ids=ids,
             embeddings=embeddings.tolist(),
             documents=texts,
             metadatas=metadatas
         )
         
-        logger.info(f"Added {len(ids)} documents to ChromaDB")
+        logger.info(f"Upserted {len(ids)} documents to ChromaDB")
         return {"status": "success", "count": len(ids)}
     except Exception as e:
         logger.error(f"Add documents error: {e}")
@@ -250,6 +273,55 @@ async def rerank_documents(request: RerankRequest):
         raise HTTPException(status_code=500, detail=str(e))
 
 
+@app.post("/rerank/scores", response_model=RerankScoresResponse)
+def rerank_scores(request: RerankScoresRequest):
+    """Cross-encoder scores for candidates given by id or as passages
+
+    Only the scores are returned; the caller already has the texts and metadata. Passages are
+    cut to max_chars, about what the cross-encoder reads anyway. Plain def, see add_documents.
+    """
+    try:
+        if request.passages is not None:
+            texts = request.passages
+        elif request.ids is not None:
+            found = get_or_create_collection().get(ids=request.ids, include=["documents"])
+            by_id = dict(zip(found['ids'], found['documents']))
+            texts = [by_id.get(doc_id) for doc_id in request.ids]
+        else:
+            raise HTTPException(status_code=400, detail="ids or passages required")
+
+        scores: List[Optional[float]] = [None] * len(texts)
+        present = [i for i, text in enumerate(texts) if text is not None]
+        if present:
+            pairs = [[request.query, texts[i][:request.max_chars]] for i in present]
+            predicted = rerank_model.predict(pairs)
+            for i, score in zip(present, predicted):
+                scores[i] = float(score)
+
+        return RerankScoresResponse(scores=scores)
+    except HTTPException:
+        raise
+    except Exception as e:
+        logger.error(f"Rerank scores error: {e}")
+        raise HTTPException(status_code=500, detail=str(e))
+
+
+@app.post("/documents/embeddings", response_model=DocumentEmbeddingsResponse)
+def get_document_embeddings(request: DocumentEmbeddingsRequest):
+    """Stored embeddings of documents by id, so they need not be computed again
+
+    Used by the backend to cluster the whole corpus. Plain def, see add_documents.
+    """
+    try:
+        found = get_or_create_collection().get(ids=request.ids, include=["embeddings"])
+        by_id = {doc_id: [float(x) for x in embedding]
+                 for doc_id, embedding in zip(found['ids'], found['embeddings'])}
+        return DocumentEmbeddingsResponse(embeddings=[by_id.get(doc_id) for doc_id in request.ids])
+    except Exception as e:
+        logger.error(f"Document embeddings error: {e}")
+        raise HTTPException(status_code=500, detail=str(e))
+
+
 @app.post("/cluster", response_model=ClusterResponse)
 async def cluster_texts(request: ClusterRequest):
     """Cluster texts and extract keywords"""